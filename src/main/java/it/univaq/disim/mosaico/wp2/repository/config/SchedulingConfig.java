@@ -6,6 +6,9 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Configuration for enabling Spring scheduling and async processing.
+ *
+ * The scheduler has one thread per scheduled job
+ * ({@code spring.task.scheduling.pool.size}), so jobs never wait for each other.
  */
 @Configuration
 @EnableScheduling
@@ -13,6 +13,9 @@ import org.slf4j.LoggerFactory;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.IOModality;
 import it.univaq.disim.mosaico.wp2.repository.dto.AgentSearchResult;
+import it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
 
 /**
@@ -34,13 +37,21 @@ public class AgentController {
     }
     
     /**
-     * Get all agents.
+     * List agents by id, one page at a time. The cursor of the next page is
+     * returned in the X-Next-Cursor header.
      */
     @GetMapping
-    public ResponseEntity<List<Agent>> getAllAgents() {
+    public ResponseEntity<List<AgentSummary>> getAllAgents(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit) {
         logger.info("GET /api/agents");
-        List<Agent> agents = agentService.findAll();
-        return ResponseEntity.ok(agents);
+        KeysetCursor cursor;
+        try {
+            cursor = KeysetCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return PageResponses.ok(agentService.findSummaries(cursor, CursorPage.clampLimit(limit)));
     }
     
     /**
@@ -11,6 +11,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService;
 
 /**
@@ -32,13 +35,21 @@ public class BenchmarkController {
     }
     
     /**
-     * Get all benchmarks.
+     * List benchmarks by id, one page at a time. The cursor of the next page
+     * is returned in the X-Next-Cursor header.
      */
     @GetMapping
-    public ResponseEntity<List<Benchmark>> getAllBenchmarks() {
+    public ResponseEntity<List<BenchmarkSummary>> getAllBenchmarks(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit) {
         logger.info("GET /api/benchmarks");
-        List<Benchmark> benchmarks = benchmarkService.findAll();
-        return ResponseEntity.ok(benchmarks);
+        KeysetCursor cursor;
+        try {
+            cursor = KeysetCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return PageResponses.ok(benchmarkService.findSummaries(cursor, CursorPage.clampLimit(limit)));
     }
     
     /**
@@ -1,18 +1,35 @@
 package it.univaq.disim.mosaico.wp2.repository.controller;
 
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.ExportFormat;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricBackfillService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunExportService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.TextBlobService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for benchmark run operations.
@@ -25,10 +42,25 @@ public class BenchmarkRunController {
 
     private final BenchmarkRunManager runManager;
     private final BenchmarkOrchestrator orchestrator;
-
-    public BenchmarkRunController(BenchmarkRunManager runManager, BenchmarkOrchestrator orchestrator) {
+    private final MetricBackfillService metricBackfillService;
+    private final BenchmarkResultRepository resultRepository;
+    private final TextBlobService textBlobService;
+    private final RunExportService runExportService;
+    private final RunSummaryService runSummaryService;
+
+    public BenchmarkRunController(BenchmarkRunManager runManager, BenchmarkOrchestrator orchestrator,
+                                  MetricBackfillService metricBackfillService,
+                                  BenchmarkResultRepository resultRepository,
+                                  TextBlobService textBlobService,
+                                  RunExportService runExportService,
+                                  RunSummaryService runSummaryService) {
         this.runManager = runManager;
         this.orchestrator = orchestrator;
+        this.metricBackfillService = metricBackfillService;
+        this.resultRepository = resultRepository;
+        this.textBlobService = textBlobService;
+        this.runExportService = runExportService;
+        this.runSummaryService = runSummaryService;
     }
 
     @PostMapping
@@ -54,28 +86,89 @@ public class BenchmarkRunController {
     @GetMapping("/{runId}")
     public ResponseEntity<BenchmarkRun> getRun(@PathVariable String runId) {
         return runManager.findById(runId)
+            .map(this::withTexts)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{runId}/summary")
+    public ResponseEntity<BenchmarkRunSummary> getRunSummary(@PathVariable String runId) {
+        return runSummaryService.findByRunId(runId)
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/results/{resultId}/texts")
+    public ResponseEntity<Map<String, String>> getResultTexts(@PathVariable String resultId) {
+        return resultRepository.findById(resultId)
+            .map(result -> {
+                textBlobService.resolveTexts(List.of(result));
+                Map<String, String> texts = new LinkedHashMap<>();
+                texts.put("traceId", result.getTraceId());
+                texts.put("expectedText", result.getExpectedText());
+                texts.put("generatedText", result.getGeneratedText());
+                return ResponseEntity.ok(texts);
+            })
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams every result of a run with its metric means, one record per result.
+     */
+    @GetMapping("/{runId}/export")
+    public ResponseEntity<StreamingResponseBody> exportRun(
+            @PathVariable String runId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (runManager.findById(runId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String filename = "run-" + runId + "." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (OutputStream compressed = new GZIPOutputStream(out, 64 * 1024)) {
+                    runExportService.exportRun(runId, exportFormat, compressed);
+                }
+            } else {
+                runExportService.exportRun(runId, exportFormat, out);
+            }
+        };
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+            .body(body);
+    }
+
+    /**
+     * Runs matching every given filter, most recently started first, one page
+     * at a time. The cursor of the next page is returned in the X-Next-Cursor header.
+     */
     @GetMapping
-    public ResponseEntity<List<BenchmarkRun>> getRunsByBenchmark(
+    public ResponseEntity<List<BenchmarkRunListItem>> getRunsByBenchmark(
             @RequestParam(required = false) String benchmarkId,
             @RequestParam(required = false) String agentId,
-            @RequestParam(required = false) RunStatus status) {
-
-        List<BenchmarkRun> runs;
-        if (benchmarkId != null) {
-            runs = runManager.findByBenchmarkId(benchmarkId);
-        } else if (agentId != null) {
-            runs = runManager.findByAgentId(agentId);
-        } else if (status != null) {
-            runs = runManager.findByStatus(status);
-        } else {
+            @RequestParam(required = false) RunStatus status,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (benchmarkId == null && agentId == null && status == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        KeysetCursor cursor;
+        try {
+            cursor = KeysetCursor.decode(after);
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(runs);
+        return PageResponses.ok(runManager.findRuns(benchmarkId, agentId, status, cursor, CursorPage.clampLimit(limit)));
     }
 
     @GetMapping("/{benchmarkId}/{agentId}/history")
@@ -84,15 +177,27 @@ public class BenchmarkRunController {
             @PathVariable String agentId,
             @RequestParam(defaultValue = "10") int limit) {
 
-        List<BenchmarkRun> history = runManager.getRunHistory(benchmarkId, agentId, limit);
+        List<BenchmarkRun> history = runManager.getRunHistory(benchmarkId, agentId, CursorPage.clampLimit(limit));
+        // Texts of the results are stored as blobs, resolved in one lookup for all runs
+        textBlobService.resolveTexts(history.stream().flatMap(run -> run.getResults().stream()).toList());
         return ResponseEntity.ok(history);
     }
 
+    @GetMapping("/{benchmarkId}/{agentId}/summaries")
+    public ResponseEntity<List<BenchmarkRunSummary>> getRunSummaries(
+            @PathVariable String benchmarkId,
+            @PathVariable String agentId,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(runSummaryService.findHistory(benchmarkId, agentId, CursorPage.clampLimit(limit)));
+    }
+
     @PostMapping("/{runId}/cancel")
     public ResponseEntity<BenchmarkRun> cancelRun(@PathVariable String runId) {
         try {
             orchestrator.cancelBenchmarkRun(runId);
             return runManager.findById(runId)
+                .map(this::withTexts)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
@@ -114,4 +219,36 @@ public class BenchmarkRunController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    @PostMapping("/{runId}/rescore")
+    public ResponseEntity<BackfillReport> rescoreRun(
+            @PathVariable String runId,
+            @RequestParam(required = false) List<String> providers) {
+        try {
+            return ResponseEntity.ok(metricBackfillService.rescoreRun(runId, providers));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Cannot re-score run {}: {}", runId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/rescore")
+    public ResponseEntity<BackfillReport> rescoreBenchmark(
+            @RequestParam String benchmarkId,
+            @RequestParam(required = false) List<String> providers) {
+        try {
+            return ResponseEntity.ok(metricBackfillService.rescoreBenchmark(benchmarkId, providers));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Cannot re-score benchmark {}: {}", benchmarkId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Fill in the texts of the run's results, which are stored as blobs.
+     */
+    private BenchmarkRun withTexts(BenchmarkRun run) {
+        textBlobService.resolveTexts(run.getResults());
+        return run;
+    }
 }
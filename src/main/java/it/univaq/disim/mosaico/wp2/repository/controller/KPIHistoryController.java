@@ -1,9 +1,14 @@
 package it.univaq.disim.mosaico.wp2.repository.controller;
 
 import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrend;
 import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,25 +25,49 @@ public class KPIHistoryController {
     private static final Logger logger = LoggerFactory.getLogger(KPIHistoryController.class);
 
     private final KPIHistoryRepository kpiHistoryRepository;
+    private final KpiRollupService kpiRollupService;
 
-    public KPIHistoryController(KPIHistoryRepository kpiHistoryRepository) {
+    public KPIHistoryController(KPIHistoryRepository kpiHistoryRepository, KpiRollupService kpiRollupService) {
         this.kpiHistoryRepository = kpiHistoryRepository;
+        this.kpiRollupService = kpiRollupService;
     }
 
+    /**
+     * History of an agent on a benchmark, newest first, one page at a time.
+     * The cursor of the next page is returned in the X-Next-Cursor header.
+     */
     @GetMapping
     public ResponseEntity<List<KPIHistory>> getKpiHistory(
             @RequestParam String benchmarkId,
             @RequestParam String agentId,
-            @RequestParam(required = false) String kpiName) {
+            @RequestParam(required = false) String kpiName,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        KeysetCursor cursor;
+        try {
+            cursor = KeysetCursor.decode(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (cursor == null) {
+            cursor = KeysetCursor.LATEST;
+        } else if (cursor.at() == null) {
+            return ResponseEntity.badRequest().build();
+        }
 
+        int pageSize = CursorPage.clampLimit(limit);
+        PageRequest fetch = PageRequest.of(0, pageSize + 1);
         List<KPIHistory> history;
         if (kpiName != null) {
-            history = kpiHistoryRepository.findHistoryForKpi(benchmarkId, agentId, kpiName);
+            history = kpiHistoryRepository.findPageForKpiBefore(benchmarkId, agentId, kpiName,
+                cursor.at(), cursor.id(), fetch);
         } else {
-            history = kpiHistoryRepository.findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc(benchmarkId, agentId);
+            history = kpiHistoryRepository.findPageBefore(benchmarkId, agentId, cursor.at(), cursor.id(), fetch);
         }
 
-        return ResponseEntity.ok(history);
+        return PageResponses.ok(CursorPage.of(history, pageSize,
+            row -> new KeysetCursor(row.getRecordedAt(), row.getId())));
     }
 
     @GetMapping("/latest")
@@ -66,15 +95,18 @@ public class KPIHistoryController {
         return ResponseEntity.ok(Map.of("average", average, "kpiName", kpiName.hashCode() * 1.0));
     }
 
+    /**
+     * Trend of a KPI over the last {@code days} days, as raw values when they
+     * fit in {@code maxPoints}, otherwise as hourly, daily or weekly rollups.
+     */
     @GetMapping("/trend")
-    public ResponseEntity<List<KPIHistory>> getKpiTrend(
+    public ResponseEntity<KpiTrend> getKpiTrend(
             @RequestParam String benchmarkId,
             @RequestParam String agentId,
             @RequestParam String kpiName,
-            @RequestParam(defaultValue = "30") int days) {
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = "500") int maxPoints) {
 
-        // Get historical data for trend analysis
-        List<KPIHistory> history = kpiHistoryRepository.findHistoryForKpi(benchmarkId, agentId, kpiName);
-        return ResponseEntity.ok(history);
+        return ResponseEntity.ok(kpiRollupService.getTrend(benchmarkId, agentId, kpiName, days, maxPoints));
     }
 }
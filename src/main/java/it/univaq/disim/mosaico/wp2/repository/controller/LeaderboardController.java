@@ -0,0 +1,47 @@
+package it.univaq.disim.mosaico.wp2.repository.controller;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import it.univaq.disim.mosaico.wp2.repository.dto.Leaderboard;
+import it.univaq.disim.mosaico.wp2.repository.dto.LeaderboardRow;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for per-benchmark KPI leaderboards.
+ */
+@RestController
+@RequestMapping("/api/leaderboards")
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    public LeaderboardController(LeaderboardService leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    /**
+     * The top agents of a benchmark KPI, ranked by their latest or best value.
+     */
+    @GetMapping
+    public ResponseEntity<Leaderboard> getLeaderboard(
+            @RequestParam String benchmarkId,
+            @RequestParam String kpiName,
+            @RequestParam(defaultValue = "LATEST") LeaderboardScore score,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(leaderboardService.getTop(benchmarkId, kpiName, score, limit));
+    }
+
+    @GetMapping("/rank")
+    public ResponseEntity<LeaderboardRow> getAgentRank(
+            @RequestParam String benchmarkId,
+            @RequestParam String kpiName,
+            @RequestParam String agentId,
+            @RequestParam(defaultValue = "LATEST") LeaderboardScore score) {
+
+        return leaderboardService.findRank(benchmarkId, kpiName, agentId, score)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+}
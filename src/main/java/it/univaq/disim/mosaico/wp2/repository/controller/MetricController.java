@@ -3,6 +3,7 @@ package it.univaq.disim.mosaico.wp2.repository.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,11 +11,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.service.MetricService;
 
 @RestController
@@ -51,14 +55,25 @@ public class MetricController {
   }
 
   /*
-   * This method handles GET requests to retrieve all metrics from the repository.
+   * This method handles GET requests to list the metrics of the repository, one page at a time.
+   * The cursor of the next page is returned in the X-Next-Cursor header.
    * 
-   * @return a list of all metrics in the repository
+   * @param after the cursor of the previous page, absent for the first page
+   * @param limit the maximum number of metrics returned
+   * @return a page of metrics ordered by id
    */
   @GetMapping("/metric")
-  public List<Metric> all() {
+  public ResponseEntity<List<Metric>> all(
+      @RequestParam(required = false) String after,
+      @RequestParam(defaultValue = "100") int limit) {
     logger.info("GET /metric");
-    return service.findAll();
+    KeysetCursor cursor;
+    try {
+      cursor = KeysetCursor.decode(after);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    return PageResponses.ok(service.findPage(cursor, CursorPage.clampLimit(limit)));
   }
 
   /*
@@ -0,0 +1,27 @@
+package it.univaq.disim.mosaico.wp2.repository.controller;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+/**
+ * Response shape of keyset-paginated listings: the body stays a plain JSON
+ * array and the cursor of the next page, if any, travels in a header, so
+ * clients that read a single page keep working unchanged.
+ */
+final class PageResponses {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
@@ -7,6 +7,10 @@ import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.PerformanceKPIRepository;
 import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
 import it.univaq.disim.mosaico.wp2.repository.dsl.DslParseResult;
+import it.univaq.disim.mosaico.wp2.repository.dsl.FormulaCacheStats;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiBackfillService;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiSeriesService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -28,13 +32,19 @@ public class PerformanceKPIController {
     private final PerformanceKPIRepository performanceKPIRepository;
     private final BenchmarkRepository benchmarkRepository;
     private final KPIFormulaDslService kpiFormulaDslService;
+    private final KpiBackfillService kpiBackfillService;
+    private final KpiSeriesService kpiSeriesService;
 
     public PerformanceKPIController(PerformanceKPIRepository performanceKPIRepository,
                                     BenchmarkRepository benchmarkRepository,
-                                    KPIFormulaDslService kpiFormulaDslService) {
+                                    KPIFormulaDslService kpiFormulaDslService,
+                                    KpiBackfillService kpiBackfillService,
+                                    KpiSeriesService kpiSeriesService) {
         this.performanceKPIRepository = performanceKPIRepository;
         this.benchmarkRepository = benchmarkRepository;
         this.kpiFormulaDslService = kpiFormulaDslService;
+        this.kpiBackfillService = kpiBackfillService;
+        this.kpiSeriesService = kpiSeriesService;
     }
 
     @PostMapping
@@ -113,6 +123,24 @@ public class PerformanceKPIController {
         return ResponseEntity.ok(saved);
     }
 
+    /**
+     * Recompute the KPI history of every completed run of the KPI's benchmark
+     * with its current formula.
+     */
+    @PostMapping("/{id}/backfill")
+    public ResponseEntity<KpiBackfillReport> backfillKPI(@PathVariable String id) {
+        logger.info("POST /api/performance-kpis/{}/backfill", id);
+        if (!performanceKPIRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(kpiBackfillService.backfillKpi(id));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Backfill of KPI {} rejected: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteKPI(@PathVariable String id) {
         logger.info("DELETE /api/performance-kpis/{}", id);
@@ -120,6 +148,7 @@ public class PerformanceKPIController {
             return ResponseEntity.notFound().build();
         }
         performanceKPIRepository.deleteById(id);
+        kpiSeriesService.deleteKpiState(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -146,6 +175,12 @@ public class PerformanceKPIController {
         return ResponseEntity.ok(kpiFormulaDslService.getKnownMetricKeys());
     }
 
+    @GetMapping("/dsl/cache-stats")
+    public ResponseEntity<FormulaCacheStats> getFormulaCacheStats() {
+        logger.info("GET /api/performance-kpis/dsl/cache-stats");
+        return ResponseEntity.ok(kpiFormulaDslService.getFormulaCacheStats());
+    }
+
     public record PerformanceKPIRequest(
         String benchmarkId,
         String description,
@@ -1,6 +1,7 @@
 package it.univaq.disim.mosaico.wp2.repository.data;
 
 import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AnomalyDetector;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.Severity;
 import jakarta.persistence.*;
@@ -51,6 +52,10 @@ public class AlertConfig {
     @Column(name = "comparison_window_hours")
     private Integer comparisonWindowHours;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "anomaly_detector")
+    private AnomalyDetector anomalyDetector;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "severity", nullable = false)
     private Severity severity;
@@ -136,6 +141,9 @@ public class AlertConfig {
     public Integer getComparisonWindowHours() { return comparisonWindowHours; }
     public void setComparisonWindowHours(Integer comparisonWindowHours) { this.comparisonWindowHours = comparisonWindowHours; }
 
+    public AnomalyDetector getAnomalyDetector() { return anomalyDetector; }
+    public void setAnomalyDetector(AnomalyDetector anomalyDetector) { this.anomalyDetector = anomalyDetector; }
+
     public Severity getSeverity() { return severity; }
     public void setSeverity(Severity severity) { this.severity = severity; }
 
@@ -176,6 +184,28 @@ public class AlertConfig {
         this.lastTriggeredAt = Instant.now();
     }
 
+    /**
+     * Whether a single KPI value meets the condition. Conditions that need
+     * historical data never match a single value.
+     */
+    public boolean isTriggeredBy(double value) {
+        return condition.isMetBy(value, threshold);
+    }
+
+    /**
+     * Whether the latest value of a series meets the condition, using the
+     * detector state of the series for historical conditions.
+     *
+     * @param value the latest value
+     * @param detector the detector state of the series, or null if unknown
+     */
+    public boolean isTriggeredBy(double value, KpiDetector detector) {
+        if (!condition.isHistorical()) {
+            return isTriggeredBy(value);
+        }
+        return detector != null && detector.isTriggered(condition, threshold, comparisonWindowHours, anomalyDetector);
+    }
+
     @PreUpdate
     protected void onUpdate() {
         this.updatedAt = Instant.now();
@@ -34,10 +34,17 @@ public class BenchmarkResult {
     @Column(name = "trace_id")
     private String traceId;
 
-    @Column(name = "expected_text", columnDefinition = "text")
+    // Texts live in text_blobs, addressed by content hash; see TextBlobService
+    @Column(name = "expected_text_id", length = 64)
+    private String expectedTextId;
+
+    @Column(name = "generated_text_id", length = 64)
+    private String generatedTextId;
+
+    @Transient
     private String expectedText;
 
-    @Column(name = "generated_text", columnDefinition = "text")
+    @Transient
     private String generatedText;
 
     @OneToMany(mappedBy = "benchmarkResult", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -84,6 +91,12 @@ public class BenchmarkResult {
     public String getGeneratedText() { return generatedText; }
     public void setGeneratedText(String generatedText) { this.generatedText = generatedText; }
 
+    public String getExpectedTextId() { return expectedTextId; }
+    public void setExpectedTextId(String expectedTextId) { this.expectedTextId = expectedTextId; }
+
+    public String getGeneratedTextId() { return generatedTextId; }
+    public void setGeneratedTextId(String generatedTextId) { this.generatedTextId = generatedTextId; }
+
     public List<MetricSnapshot> getMetricSnapshots() { return metricSnapshots; }
     public void setMetricSnapshots(List<MetricSnapshot> metricSnapshots) { this.metricSnapshots = metricSnapshots; }
 
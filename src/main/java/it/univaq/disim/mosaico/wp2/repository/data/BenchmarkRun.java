@@ -15,10 +15,12 @@ import java.util.List;
  */
 @Entity
 @Table(name = "benchmark_runs", indexes = {
-    @Index(name = "idx_benchmark_run_benchmark_id", columnList = "benchmark_id"),
-    @Index(name = "idx_benchmark_run_agent_id", columnList = "agent_id"),
-    @Index(name = "idx_benchmark_run_status", columnList = "status"),
-    @Index(name = "idx_benchmark_run_started_at", columnList = "started_at")
+    @Index(name = "idx_benchmark_run_benchmark_started_id", columnList = "benchmark_id, started_at, id"),
+    @Index(name = "idx_benchmark_run_agent_started_id", columnList = "agent_id, started_at, id"),
+    @Index(name = "idx_benchmark_run_status_started_id", columnList = "status, started_at, id"),
+    @Index(name = "idx_benchmark_run_history", columnList = "benchmark_id, agent_id, started_at, id"),
+    @Index(name = "idx_benchmark_run_started_at", columnList = "started_at"),
+    @Index(name = "idx_benchmark_run_status_completed_at", columnList = "status, completed_at")
 })
 public class BenchmarkRun {
 
@@ -15,7 +15,10 @@ import java.time.Instant;
     @Index(name = "idx_kpi_history_agent_id", columnList = "agent_id"),
     @Index(name = "idx_kpi_history_kpi_name", columnList = "kpi_name"),
     @Index(name = "idx_kpi_history_recorded_at", columnList = "recorded_at"),
-    @Index(name = "idx_kpi_history_status", columnList = "status")
+    @Index(name = "idx_kpi_history_status", columnList = "status"),
+    @Index(name = "idx_kpi_history_run_id", columnList = "run_id"),
+    @Index(name = "idx_kpi_history_agent_recorded_id", columnList = "benchmark_id, agent_id, recorded_at, id"),
+    @Index(name = "idx_kpi_history_series_recorded_id", columnList = "benchmark_id, agent_id, kpi_name, recorded_at, id")
 })
 public class KPIHistory {
 
@@ -0,0 +1,124 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Current alert status of one benchmark, agent and KPI: the latest KPI value
+ * and whether it meets the condition of any enabled alert on that benchmark
+ * KPI. States are updated as KPI values are written and as alerts change, so
+ * alerting agents are found with an indexed lookup instead of re-evaluating
+ * every alert against the results of every run. The {@link KpiDetector} of the
+ * series evaluates the conditions that depend on its history.
+ */
+@Entity
+@Table(name = "kpi_alert_states",
+    uniqueConstraints = @UniqueConstraint(name = "uk_kpi_alert_states_series",
+        columnNames = {"benchmark_id", "agent_id", "kpi_name"}),
+    indexes = {
+        @Index(name = "idx_kpi_alert_state_alerting", columnList = "benchmark_id, agent_id, alerting"),
+        @Index(name = "idx_kpi_alert_state_kpi", columnList = "benchmark_id, kpi_name")
+    })
+public class KpiAlertState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "benchmark_id", nullable = false)
+    private String benchmarkId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "kpi_name", nullable = false)
+    private String kpiName;
+
+    @Column(name = "kpi_value", nullable = false)
+    private double kpiValue;
+
+    @Column(name = "recorded_at", nullable = false)
+    private Instant recordedAt;
+
+    @Column(name = "alerting", nullable = false)
+    private boolean alerting;
+
+    @Column(name = "alert_count", nullable = false)
+    private int alertCount;
+
+    @Column(name = "evaluated_at", nullable = false)
+    private Instant evaluatedAt;
+
+    @Embedded
+    private KpiDetector detector = new KpiDetector();
+
+    // JPA
+    public KpiAlertState() {
+    }
+
+    public KpiAlertState(String benchmarkId, String agentId, String kpiName) {
+        this.benchmarkId = benchmarkId;
+        this.agentId = agentId;
+        this.kpiName = kpiName;
+    }
+
+    /**
+     * Make a value the latest of the series and add it to the detector.
+     * Values must be recorded in time order.
+     */
+    public void record(Instant recordedAt, double value) {
+        if (detector == null) {
+            detector = new KpiDetector();
+        }
+        detector.accept(recordedAt, value);
+        this.kpiValue = value;
+        this.recordedAt = recordedAt;
+    }
+
+    /**
+     * Re-evaluate the current value against the enabled alerts of the KPI.
+     */
+    public void evaluate(Iterable<AlertConfig> alerts) {
+        int count = 0;
+        for (AlertConfig alert : alerts) {
+            if (alert.isTriggeredBy(kpiValue, detector)) {
+                count++;
+            }
+        }
+        this.alertCount = count;
+        this.alerting = count > 0;
+        this.evaluatedAt = Instant.now();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getBenchmarkId() { return benchmarkId; }
+    public void setBenchmarkId(String benchmarkId) { this.benchmarkId = benchmarkId; }
+
+    public String getAgentId() { return agentId; }
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+
+    public String getKpiName() { return kpiName; }
+    public void setKpiName(String kpiName) { this.kpiName = kpiName; }
+
+    public double getKpiValue() { return kpiValue; }
+    public void setKpiValue(double kpiValue) { this.kpiValue = kpiValue; }
+
+    public Instant getRecordedAt() { return recordedAt; }
+    public void setRecordedAt(Instant recordedAt) { this.recordedAt = recordedAt; }
+
+    public boolean isAlerting() { return alerting; }
+    public void setAlerting(boolean alerting) { this.alerting = alerting; }
+
+    public int getAlertCount() { return alertCount; }
+    public void setAlertCount(int alertCount) { this.alertCount = alertCount; }
+
+    public Instant getEvaluatedAt() { return evaluatedAt; }
+    public void setEvaluatedAt(Instant evaluatedAt) { this.evaluatedAt = evaluatedAt; }
+
+    public KpiDetector getDetector() { return detector; }
+    public void setDetector(KpiDetector detector) { this.detector = detector; }
+}
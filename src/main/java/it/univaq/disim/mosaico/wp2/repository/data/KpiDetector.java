@@ -0,0 +1,272 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AnomalyDetector;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Streaming detector state of a KPI series, stored with its
+ * {@link KpiAlertState}, so PERCENTAGE_DROP, PERCENTAGE_RISE and
+ * ANOMALY_DETECTED alerts are evaluated without reading the history.
+ *
+ * Each new value updates, in constant time:
+ * <ul>
+ *   <li>an EWMA mean and variance, and the score of the value against the
+ *       previous ones;</li>
+ *   <li>a ring buffer of the last {@value #WINDOW_SIZE} timestamped values,
+ *       the baseline of percentage changes and of the median/MAD score;</li>
+ *   <li>a two-sided CUSUM of the MAD scores.</li>
+ * </ul>
+ * Scores are only computed once {@value #MIN_BASELINE} earlier values are
+ * known. Recording a value at the same time as the latest one (a re-score)
+ * replaces it, like {@link KpiSeriesState} does for a run.
+ */
+@Embeddable
+public class KpiDetector {
+
+    public static final int WINDOW_SIZE = 32;
+    static final int MIN_BASELINE = 5;
+    static final double EWMA_ALPHA = 0.2;
+    static final double CUSUM_SLACK = 0.5;
+    /** Scales the MAD to a standard deviation for normally distributed values. */
+    static final double MAD_SCALE = 1.4826;
+
+    private static final int ENTRY_BYTES = Long.BYTES + Double.BYTES;
+
+    @Column(name = "detector_samples", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "ewma_mean")
+    private Double ewmaMean;
+
+    @Column(name = "ewma_variance")
+    private Double ewmaVariance;
+
+    @Column(name = "prior_ewma_mean")
+    private Double priorEwmaMean;
+
+    @Column(name = "prior_ewma_variance")
+    private Double priorEwmaVariance;
+
+    @Column(name = "ewma_score")
+    private Double ewmaScore;
+
+    @Column(name = "robust_score")
+    private Double robustScore;
+
+    @Column(name = "cusum_high", nullable = false)
+    private double cusumHigh;
+
+    @Column(name = "cusum_low", nullable = false)
+    private double cusumLow;
+
+    @Column(name = "prior_cusum_high", nullable = false)
+    private double priorCusumHigh;
+
+    @Column(name = "prior_cusum_low", nullable = false)
+    private double priorCusumLow;
+
+    /** Ring buffer of (epoch millis, value) pairs, big-endian. */
+    @Column(name = "window_values", length = WINDOW_SIZE * ENTRY_BYTES)
+    private byte[] windowValues;
+
+    /** Next ring buffer position to write. */
+    @Column(name = "window_position", nullable = false)
+    private int windowPosition;
+
+    public KpiDetector() {
+    }
+
+    /**
+     * Add the latest value of the series, or replace it if it was recorded
+     * at the same time as the latest one.
+     */
+    public void accept(Instant recordedAt, double value) {
+        if (windowValues == null) {
+            windowValues = new byte[WINDOW_SIZE * ENTRY_BYTES];
+        }
+        ByteBuffer ring = ByteBuffer.wrap(windowValues);
+        long millis = recordedAt.toEpochMilli();
+        int newest = (windowPosition + WINDOW_SIZE - 1) % WINDOW_SIZE;
+        boolean replace = sampleCount > 0 && ring.getLong(newest * ENTRY_BYTES) == millis;
+        if (replace) {
+            ewmaMean = priorEwmaMean;
+            ewmaVariance = priorEwmaVariance;
+            cusumHigh = priorCusumHigh;
+            cusumLow = priorCusumLow;
+        } else {
+            priorEwmaMean = ewmaMean;
+            priorEwmaVariance = ewmaVariance;
+            priorCusumHigh = cusumHigh;
+            priorCusumLow = cusumLow;
+        }
+
+        // Scores compare the value with the values before it
+        long earlier = replace ? sampleCount - 1 : sampleCount;
+        ewmaScore = earlier >= MIN_BASELINE && ewmaVariance != null && ewmaVariance > 0
+            ? (value - ewmaMean) / Math.sqrt(ewmaVariance) : null;
+        robustScore = robustScore(values(replace), value);
+        if (robustScore != null) {
+            cusumHigh = Math.max(0, cusumHigh + robustScore - CUSUM_SLACK);
+            cusumLow = Math.max(0, cusumLow - robustScore - CUSUM_SLACK);
+        }
+
+        if (ewmaMean == null) {
+            ewmaMean = value;
+            ewmaVariance = 0.0;
+        } else {
+            double diff = value - ewmaMean;
+            double increment = EWMA_ALPHA * diff;
+            ewmaMean += increment;
+            ewmaVariance = (1 - EWMA_ALPHA) * (ewmaVariance + diff * increment);
+        }
+
+        int slot = replace ? newest : windowPosition;
+        ring.putLong(slot * ENTRY_BYTES, millis);
+        ring.putDouble(slot * ENTRY_BYTES + Long.BYTES, value);
+        if (!replace) {
+            windowPosition = (windowPosition + 1) % WINDOW_SIZE;
+            sampleCount++;
+        }
+    }
+
+    /**
+     * Whether the latest value meets a historical alert condition.
+     *
+     * @param windowHours how far back the percentage baseline reaches, or
+     *                    null for the whole window
+     * @param detector the anomaly statistic, EWMA when null
+     */
+    public boolean isTriggered(AlertCondition condition, double threshold, Integer windowHours,
+                               AnomalyDetector detector) {
+        return switch (condition) {
+            case PERCENTAGE_DROP -> {
+                double change = percentageChange(windowHours);
+                yield !Double.isNaN(change) && -change >= threshold;
+            }
+            case PERCENTAGE_RISE -> {
+                double change = percentageChange(windowHours);
+                yield !Double.isNaN(change) && change >= threshold;
+            }
+            case ANOMALY_DETECTED -> switch (detector != null ? detector : AnomalyDetector.EWMA) {
+                case EWMA -> ewmaScore != null && Math.abs(ewmaScore) >= threshold;
+                case MAD -> robustScore != null && Math.abs(robustScore) >= threshold;
+                case CUSUM -> Math.max(cusumHigh, cusumLow) >= threshold;
+            };
+            default -> false;
+        };
+    }
+
+    /**
+     * Change of the latest value from the mean of the earlier values in the
+     * window, in percent, or NaN without a non-zero baseline.
+     *
+     * @param windowHours how far back the baseline reaches, or null for the
+     *                    whole window
+     */
+    public double percentageChange(Integer windowHours) {
+        if (sampleCount < 2) {
+            return Double.NaN;
+        }
+        ByteBuffer ring = ByteBuffer.wrap(windowValues);
+        int newest = (windowPosition + WINDOW_SIZE - 1) % WINDOW_SIZE;
+        long latestMillis = ring.getLong(newest * ENTRY_BYTES);
+        double latest = ring.getDouble(newest * ENTRY_BYTES + Long.BYTES);
+        long from = windowHours != null && windowHours > 0
+            ? latestMillis - Duration.ofHours(windowHours).toMillis() : Long.MIN_VALUE;
+
+        double sum = 0;
+        int count = 0;
+        int filled = (int) Math.min(sampleCount, WINDOW_SIZE);
+        for (int i = 1; i < filled; i++) {
+            int slot = (newest + WINDOW_SIZE - i) % WINDOW_SIZE;
+            if (ring.getLong(slot * ENTRY_BYTES) >= from) {
+                sum += ring.getDouble(slot * ENTRY_BYTES + Long.BYTES);
+                count++;
+            }
+        }
+        if (count == 0 || sum == 0) {
+            return Double.NaN;
+        }
+        double baseline = sum / count;
+        return (latest - baseline) / Math.abs(baseline) * 100.0;
+    }
+
+    /** The values in the window, without the newest one if it is being replaced. */
+    private double[] values(boolean skipNewest) {
+        ByteBuffer ring = ByteBuffer.wrap(windowValues);
+        int filled = (int) Math.min(sampleCount, WINDOW_SIZE);
+        int newest = (windowPosition + WINDOW_SIZE - 1) % WINDOW_SIZE;
+        double[] values = new double[skipNewest ? filled - 1 : filled];
+        for (int i = skipNewest ? 1 : 0, n = 0; i < filled; i++, n++) {
+            int slot = (newest + WINDOW_SIZE - i) % WINDOW_SIZE;
+            values[n] = ring.getDouble(slot * ENTRY_BYTES + Long.BYTES);
+        }
+        return values;
+    }
+
+    private static Double robustScore(double[] baseline, double value) {
+        if (baseline.length < MIN_BASELINE) {
+            return null;
+        }
+        double median = median(baseline);
+        double[] deviations = new double[baseline.length];
+        for (int i = 0; i < baseline.length; i++) {
+            deviations[i] = Math.abs(baseline[i] - median);
+        }
+        double mad = median(deviations);
+        return mad > 0 ? (value - median) / (MAD_SCALE * mad) : null;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public Double getEwmaMean() { return ewmaMean; }
+    public void setEwmaMean(Double ewmaMean) { this.ewmaMean = ewmaMean; }
+
+    public Double getEwmaVariance() { return ewmaVariance; }
+    public void setEwmaVariance(Double ewmaVariance) { this.ewmaVariance = ewmaVariance; }
+
+    public Double getPriorEwmaMean() { return priorEwmaMean; }
+    public void setPriorEwmaMean(Double priorEwmaMean) { this.priorEwmaMean = priorEwmaMean; }
+
+    public Double getPriorEwmaVariance() { return priorEwmaVariance; }
+    public void setPriorEwmaVariance(Double priorEwmaVariance) { this.priorEwmaVariance = priorEwmaVariance; }
+
+    public Double getEwmaScore() { return ewmaScore; }
+    public void setEwmaScore(Double ewmaScore) { this.ewmaScore = ewmaScore; }
+
+    public Double getRobustScore() { return robustScore; }
+    public void setRobustScore(Double robustScore) { this.robustScore = robustScore; }
+
+    public double getCusumHigh() { return cusumHigh; }
+    public void setCusumHigh(double cusumHigh) { this.cusumHigh = cusumHigh; }
+
+    public double getCusumLow() { return cusumLow; }
+    public void setCusumLow(double cusumLow) { this.cusumLow = cusumLow; }
+
+    public double getPriorCusumHigh() { return priorCusumHigh; }
+    public void setPriorCusumHigh(double priorCusumHigh) { this.priorCusumHigh = priorCusumHigh; }
+
+    public double getPriorCusumLow() { return priorCusumLow; }
+    public void setPriorCusumLow(double priorCusumLow) { this.priorCusumLow = priorCusumLow; }
+
+    public byte[] getWindowValues() { return windowValues; }
+    public void setWindowValues(byte[] windowValues) { this.windowValues = windowValues; }
+
+    public int getWindowPosition() { return windowPosition; }
+    public void setWindowPosition(int windowPosition) { this.windowPosition = windowPosition; }
+}
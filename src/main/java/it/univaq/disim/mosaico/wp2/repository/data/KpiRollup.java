@@ -0,0 +1,147 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RollupResolution;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Hourly, daily or weekly summary of the {@link KPIHistory} values of one
+ * benchmark, agent and KPI. Rollups are updated as history values are
+ * written, so trends over long ranges read a bounded number of rows.
+ */
+@Entity
+@Table(name = "kpi_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_kpi_rollups_bucket",
+        columnNames = {"benchmark_id", "agent_id", "kpi_name", "resolution", "bucket_start"}))
+public class KpiRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "benchmark_id", nullable = false)
+    private String benchmarkId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "kpi_name", nullable = false)
+    private String kpiName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resolution", nullable = false)
+    private RollupResolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "min_value", nullable = false)
+    private double minValue;
+
+    @Column(name = "max_value", nullable = false)
+    private double maxValue;
+
+    @Column(name = "value_sum", nullable = false)
+    private double valueSum;
+
+    @Column(name = "last_value", nullable = false)
+    private double lastValue;
+
+    @Column(name = "last_recorded_at", nullable = false)
+    private Instant lastRecordedAt;
+
+    // JPA
+    public KpiRollup() {
+    }
+
+    public KpiRollup(String benchmarkId, String agentId, String kpiName,
+                     RollupResolution resolution, Instant bucketStart) {
+        this.benchmarkId = benchmarkId;
+        this.agentId = agentId;
+        this.kpiName = kpiName;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * Add a new value recorded at {@code recordedAt}.
+     */
+    public void add(double value, Instant recordedAt) {
+        if (sampleCount == 0) {
+            minValue = value;
+            maxValue = value;
+        } else {
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+        }
+        sampleCount++;
+        valueSum += value;
+        if (lastRecordedAt == null || !recordedAt.isBefore(lastRecordedAt)) {
+            lastValue = value;
+            lastRecordedAt = recordedAt;
+        }
+    }
+
+    /**
+     * Replace a value already counted in the bucket.
+     *
+     * @return false if the old value was an extreme that the new one does not
+     *         preserve, so min and max must be recomputed from the history
+     */
+    public boolean replace(double previousValue, double value, Instant recordedAt) {
+        valueSum += value - previousValue;
+        if (recordedAt.equals(lastRecordedAt)) {
+            lastValue = value;
+        }
+        boolean exact = (previousValue > minValue || value <= minValue)
+            && (previousValue < maxValue || value >= maxValue);
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+        return exact;
+    }
+
+    public double getMeanValue() {
+        return sampleCount > 0 ? valueSum / sampleCount : 0.0;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getBenchmarkId() { return benchmarkId; }
+    public void setBenchmarkId(String benchmarkId) { this.benchmarkId = benchmarkId; }
+
+    public String getAgentId() { return agentId; }
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+
+    public String getKpiName() { return kpiName; }
+    public void setKpiName(String kpiName) { this.kpiName = kpiName; }
+
+    public RollupResolution getResolution() { return resolution; }
+    public void setResolution(RollupResolution resolution) { this.resolution = resolution; }
+
+    public Instant getBucketStart() { return bucketStart; }
+    public void setBucketStart(Instant bucketStart) { this.bucketStart = bucketStart; }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public double getMinValue() { return minValue; }
+    public void setMinValue(double minValue) { this.minValue = minValue; }
+
+    public double getMaxValue() { return maxValue; }
+    public void setMaxValue(double maxValue) { this.maxValue = maxValue; }
+
+    public double getValueSum() { return valueSum; }
+    public void setValueSum(double valueSum) { this.valueSum = valueSum; }
+
+    public double getLastValue() { return lastValue; }
+    public void setLastValue(double lastValue) { this.lastValue = lastValue; }
+
+    public Instant getLastRecordedAt() { return lastRecordedAt; }
+    public void setLastRecordedAt(Instant lastRecordedAt) { this.lastRecordedAt = lastRecordedAt; }
+}
@@ -0,0 +1,216 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.dsl.WindowFunction;
+import jakarta.persistence.*;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Incremental state of one series function call of a KPI formula, for one
+ * benchmark and agent. It lives next to {@link KPIHistory} so windowed KPIs
+ * are updated in O(1) per run instead of rescanning the history.
+ *
+ * The state keeps the latest value and the one before it, a running sum over
+ * a ring buffer of the last {@code n} values for MOVING_AVG, and the current
+ * and previous EWMA. Evaluating the same run again (e.g. after a re-score)
+ * replaces its sample instead of adding a new one.
+ */
+@Entity
+@Table(name = "kpi_series_states",
+    uniqueConstraints = @UniqueConstraint(name = "uk_kpi_series_states_series",
+        columnNames = {"benchmark_id", "kpi_id", "term_key", "agent_id"}),
+    indexes = @Index(name = "idx_kpi_series_states_rank", columnList = "benchmark_id, kpi_id, term_key, last_value"))
+public class KpiSeriesState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "benchmark_id", nullable = false)
+    private String benchmarkId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "kpi_id", nullable = false)
+    private String kpiId;
+
+    @Column(name = "term_key", nullable = false)
+    private String termKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "window_function", nullable = false)
+    private WindowFunction function;
+
+    @Column(name = "window_parameter")
+    private Double parameter;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "last_run_id")
+    private String lastRunId;
+
+    @Column(name = "last_value")
+    private Double lastValue;
+
+    @Column(name = "previous_value")
+    private Double previousValue;
+
+    @Column(name = "last_result")
+    private Double lastResult;
+
+    @Column(name = "running_sum", nullable = false)
+    private double runningSum;
+
+    @Column(name = "ewma")
+    private Double ewma;
+
+    @Column(name = "previous_ewma")
+    private Double previousEwma;
+
+    /** MOVING_AVG ring buffer, big-endian doubles. */
+    @Column(name = "window_values", length = WindowFunction.MAX_WINDOW * Double.BYTES)
+    private byte[] windowValues;
+
+    /** Next ring buffer position to write. */
+    @Column(name = "window_position", nullable = false)
+    private int windowPosition;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // JPA
+    public KpiSeriesState() {
+    }
+
+    public KpiSeriesState(String benchmarkId, String agentId, String kpiId, String termKey,
+                          WindowFunction function, double parameter) {
+        this.benchmarkId = benchmarkId;
+        this.agentId = agentId;
+        this.kpiId = kpiId;
+        this.termKey = termKey;
+        this.function = function;
+        this.parameter = Double.isNaN(parameter) ? null : parameter;
+        if (function == WindowFunction.MOVING_AVG) {
+            this.windowValues = new byte[(int) parameter * Double.BYTES];
+        }
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Add the value of a run to the series, or replace it if the run is the
+     * last one added.
+     *
+     * For RANK_IN_BENCHMARK the result is the value itself; the rank needs
+     * the other agents' states.
+     *
+     * @return the value of the series function after this run
+     */
+    public double accept(String runId, double value) {
+        boolean replace = runId != null && runId.equals(lastRunId);
+        if (!replace) {
+            previousValue = lastValue;
+            previousEwma = ewma;
+            sampleCount++;
+        }
+        lastValue = value;
+        lastRunId = runId;
+        updatedAt = Instant.now();
+
+        double result = switch (function) {
+            case MOVING_AVG -> movingAverage(value, replace);
+            case EWMA -> {
+                ewma = previousEwma == null ? value : parameter * value + (1 - parameter) * previousEwma;
+                yield ewma;
+            }
+            case DELTA_PREV -> previousValue == null ? 0.0 : value - previousValue;
+            case PCT_CHANGE -> previousValue == null || previousValue == 0
+                ? 0.0 : (value - previousValue) / Math.abs(previousValue) * 100.0;
+            case RANK_IN_BENCHMARK -> value;
+        };
+        lastResult = result;
+        return result;
+    }
+
+    private double movingAverage(double value, boolean replace) {
+        ByteBuffer ring = ByteBuffer.wrap(windowValues);
+        int size = windowValues.length / Double.BYTES;
+        if (replace) {
+            int last = (windowPosition + size - 1) % size;
+            runningSum += value - ring.getDouble(last * Double.BYTES);
+            ring.putDouble(last * Double.BYTES, value);
+        } else {
+            if (sampleCount > size) {
+                runningSum -= ring.getDouble(windowPosition * Double.BYTES);
+            }
+            ring.putDouble(windowPosition * Double.BYTES, value);
+            runningSum += value;
+            windowPosition = (windowPosition + 1) % size;
+            if (windowPosition == 0) {
+                // Resum once per lap so rounding errors do not accumulate
+                runningSum = 0;
+                for (int i = 0; i < size; i++) {
+                    runningSum += ring.getDouble(i * Double.BYTES);
+                }
+            }
+        }
+        return runningSum / Math.min(sampleCount, size);
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getBenchmarkId() { return benchmarkId; }
+    public void setBenchmarkId(String benchmarkId) { this.benchmarkId = benchmarkId; }
+
+    public String getAgentId() { return agentId; }
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+
+    public String getKpiId() { return kpiId; }
+    public void setKpiId(String kpiId) { this.kpiId = kpiId; }
+
+    public String getTermKey() { return termKey; }
+    public void setTermKey(String termKey) { this.termKey = termKey; }
+
+    public WindowFunction getFunction() { return function; }
+    public void setFunction(WindowFunction function) { this.function = function; }
+
+    public Double getParameter() { return parameter; }
+    public void setParameter(Double parameter) { this.parameter = parameter; }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public String getLastRunId() { return lastRunId; }
+    public void setLastRunId(String lastRunId) { this.lastRunId = lastRunId; }
+
+    public Double getLastValue() { return lastValue; }
+    public void setLastValue(Double lastValue) { this.lastValue = lastValue; }
+
+    public Double getPreviousValue() { return previousValue; }
+    public void setPreviousValue(Double previousValue) { this.previousValue = previousValue; }
+
+    public Double getLastResult() { return lastResult; }
+    public void setLastResult(Double lastResult) { this.lastResult = lastResult; }
+
+    public double getRunningSum() { return runningSum; }
+    public void setRunningSum(double runningSum) { this.runningSum = runningSum; }
+
+    public Double getEwma() { return ewma; }
+    public void setEwma(Double ewma) { this.ewma = ewma; }
+
+    public Double getPreviousEwma() { return previousEwma; }
+    public void setPreviousEwma(Double previousEwma) { this.previousEwma = previousEwma; }
+
+    public byte[] getWindowValues() { return windowValues; }
+    public void setWindowValues(byte[] windowValues) { this.windowValues = windowValues; }
+
+    public int getWindowPosition() { return windowPosition; }
+    public void setWindowPosition(int windowPosition) { this.windowPosition = windowPosition; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,5 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+public class LatencyMetric implements MetricKey {
+    
+}
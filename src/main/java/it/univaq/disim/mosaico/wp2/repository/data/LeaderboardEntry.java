@@ -0,0 +1,117 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Standing of one agent on the leaderboard of a benchmark KPI: the latest
+ * and the best value recorded in its {@link KPIHistory}. Entries are updated
+ * as history values are written; the indexes on (benchmark, KPI, value, agent)
+ * keep the agents of a leaderboard sorted for top-K reads and rank counts.
+ */
+@Entity
+@Table(name = "kpi_leaderboard_entries",
+    uniqueConstraints = @UniqueConstraint(name = "uk_kpi_leaderboard_entries_agent",
+        columnNames = {"benchmark_id", "kpi_name", "agent_id"}),
+    indexes = {
+        @Index(name = "idx_leaderboard_latest", columnList = "benchmark_id, kpi_name, latest_value, agent_id"),
+        @Index(name = "idx_leaderboard_best", columnList = "benchmark_id, kpi_name, best_value, agent_id")
+    })
+public class LeaderboardEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "benchmark_id", nullable = false)
+    private String benchmarkId;
+
+    @Column(name = "kpi_name", nullable = false)
+    private String kpiName;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Column(name = "latest_value", nullable = false)
+    private double latestValue;
+
+    @Column(name = "latest_recorded_at", nullable = false)
+    private Instant latestRecordedAt;
+
+    @Column(name = "best_value", nullable = false)
+    private double bestValue;
+
+    @Column(name = "best_recorded_at", nullable = false)
+    private Instant bestRecordedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // JPA
+    public LeaderboardEntry() {
+    }
+
+    public LeaderboardEntry(String benchmarkId, String kpiName, String agentId) {
+        this.benchmarkId = benchmarkId;
+        this.kpiName = kpiName;
+        this.agentId = agentId;
+    }
+
+    /**
+     * Apply a history value recorded at {@code recordedAt}.
+     *
+     * @param previousValue the value it replaced, null for a new history entry
+     * @return false if the replaced value was the best and the new one is
+     *         lower, so the best value must be recomputed from the history
+     */
+    public boolean record(double value, Double previousValue, Instant recordedAt) {
+        updatedAt = Instant.now();
+        if (latestRecordedAt == null || !recordedAt.isBefore(latestRecordedAt)) {
+            latestValue = value;
+            latestRecordedAt = recordedAt;
+        }
+        if (bestRecordedAt == null || value > bestValue) {
+            bestValue = value;
+            bestRecordedAt = recordedAt;
+            return true;
+        }
+        return previousValue == null || previousValue < bestValue || value >= bestValue;
+    }
+
+    public double getValue(LeaderboardScore score) {
+        return switch (score) {
+            case LATEST -> latestValue;
+            case BEST -> bestValue;
+        };
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getBenchmarkId() { return benchmarkId; }
+    public void setBenchmarkId(String benchmarkId) { this.benchmarkId = benchmarkId; }
+
+    public String getKpiName() { return kpiName; }
+    public void setKpiName(String kpiName) { this.kpiName = kpiName; }
+
+    public String getAgentId() { return agentId; }
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+
+    public double getLatestValue() { return latestValue; }
+    public void setLatestValue(double latestValue) { this.latestValue = latestValue; }
+
+    public Instant getLatestRecordedAt() { return latestRecordedAt; }
+    public void setLatestRecordedAt(Instant latestRecordedAt) { this.latestRecordedAt = latestRecordedAt; }
+
+    public double getBestValue() { return bestValue; }
+    public void setBestValue(double bestValue) { this.bestValue = bestValue; }
+
+    public Instant getBestRecordedAt() { return bestRecordedAt; }
+    public void setBestRecordedAt(Instant bestRecordedAt) { this.bestRecordedAt = bestRecordedAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,111 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Memoized result of a metric provider for a (reference, generated) text pair.
+ * The id is a hash of provider id, provider version and both text hashes, so a
+ * provider version bump simply stops matching older entries.
+ */
+@Entity
+@Table(name = "metric_result_cache", indexes = {
+    @Index(name = "idx_metric_result_cache_provider", columnList = "provider_id, provider_version"),
+    @Index(name = "idx_metric_result_cache_created_at", columnList = "created_at")
+})
+public class MetricResultCacheEntry {
+
+    @Id
+    @Column(name = "id", nullable = false, length = 64)
+    private String id;
+
+    @Column(name = "provider_id", nullable = false)
+    private String providerId;
+
+    @Column(name = "provider_version", nullable = false)
+    private String providerVersion;
+
+    @Column(name = "reference_hash", nullable = false, length = 64)
+    private String referenceHash;
+
+    @Column(name = "generated_hash", nullable = false, length = 64)
+    private String generatedHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metric_type")
+    private MetricType metricType;
+
+    @Column(name = "metric_name")
+    private String metricName;
+
+    @Column(name = "value")
+    private Double value;
+
+    @Column(name = "unit")
+    private String unit;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // JPA
+    public MetricResultCacheEntry() {
+    }
+
+    public MetricResultCacheEntry(String id, String providerId, String providerVersion,
+                                  String referenceHash, String generatedHash, Metric metric) {
+        this.id = id;
+        this.providerId = providerId;
+        this.providerVersion = providerVersion;
+        this.referenceHash = referenceHash;
+        this.generatedHash = generatedHash;
+        this.metricType = metric.getType();
+        this.metricName = metric.getName();
+        this.value = metric.getFloatValue().map(Float::doubleValue).orElse(null);
+        this.unit = metric.getUnit();
+        this.createdAt = Instant.now();
+    }
+
+    /**
+     * Rebuild a detached Metric carrying the memoized value.
+     */
+    public Metric toMetric() {
+        Metric metric = new Metric();
+        metric.setType(metricType);
+        metric.setName(metricName);
+        metric.setFloatValue(value != null ? value.floatValue() : null);
+        metric.setUnit(unit);
+        return metric;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getProviderId() { return providerId; }
+    public void setProviderId(String providerId) { this.providerId = providerId; }
+
+    public String getProviderVersion() { return providerVersion; }
+    public void setProviderVersion(String providerVersion) { this.providerVersion = providerVersion; }
+
+    public String getReferenceHash() { return referenceHash; }
+    public void setReferenceHash(String referenceHash) { this.referenceHash = referenceHash; }
+
+    public String getGeneratedHash() { return generatedHash; }
+    public void setGeneratedHash(String generatedHash) { this.generatedHash = generatedHash; }
+
+    public MetricType getMetricType() { return metricType; }
+    public void setMetricType(MetricType metricType) { this.metricType = metricType; }
+
+    public String getMetricName() { return metricName; }
+    public void setMetricName(String metricName) { this.metricName = metricName; }
+
+    public Double getValue() { return value; }
+    public void setValue(Double value) { this.value = value; }
+
+    public String getUnit() { return unit; }
+    public void setUnit(String unit) { this.unit = unit; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -15,7 +15,8 @@ import java.time.Instant;
     @Index(name = "idx_metric_snapshot_run_id", columnList = "run_id"),
     @Index(name = "idx_metric_snapshot_result_id", columnList = "result_id"),
     @Index(name = "idx_metric_snapshot_metric_type", columnList = "metric_type"),
-    @Index(name = "idx_metric_snapshot_timestamp", columnList = "timestamp")
+    @Index(name = "idx_metric_snapshot_timestamp", columnList = "timestamp"),
+    @Index(name = "idx_metric_snapshot_type_timestamp", columnList = "metric_type, timestamp")
 })
 public class MetricSnapshot {
 
@@ -0,0 +1,160 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * The metric snapshots of a completed run, moved out of metric_snapshots into
+ * one compressed columnar segment (see {@link MetricSnapshotSegment}). A few
+ * bytes per value instead of a full row with its indexes.
+ */
+@Entity
+@Table(name = "metric_snapshot_archives")
+public class MetricSnapshotArchive {
+
+    @Id
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Column(name = "format_version", nullable = false)
+    private Integer formatVersion;
+
+    @Column(name = "snapshot_count", nullable = false)
+    private Integer snapshotCount;
+
+    @Column(name = "first_timestamp")
+    private Instant firstTimestamp;
+
+    @Column(name = "last_timestamp")
+    private Instant lastTimestamp;
+
+    @Column(name = "content", nullable = false, length = 64 * 1024 * 1024)
+    private byte[] content;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // JPA
+    public MetricSnapshotArchive() {
+    }
+
+    /**
+     * Encode the snapshots of a run into an archive segment.
+     */
+    public static MetricSnapshotArchive of(String runId, List<MetricSnapshot> snapshots) {
+        MetricSnapshotArchive archive = new MetricSnapshotArchive();
+        archive.runId = runId;
+        archive.formatVersion = MetricSnapshotSegment.FORMAT_VERSION;
+        archive.snapshotCount = snapshots.size();
+        for (MetricSnapshot snapshot : snapshots) {
+            Instant timestamp = snapshot.getTimestamp();
+            if (archive.firstTimestamp == null || timestamp.isBefore(archive.firstTimestamp)) {
+                archive.firstTimestamp = timestamp;
+            }
+            if (archive.lastTimestamp == null || timestamp.isAfter(archive.lastTimestamp)) {
+                archive.lastTimestamp = timestamp;
+            }
+        }
+        archive.content = MetricSnapshotSegment.encode(snapshots);
+        archive.createdAt = Instant.now();
+        return archive;
+    }
+
+    /**
+     * Decode the archived snapshots, ordered by timestamp. They are detached
+     * and have no id.
+     *
+     * @param resultReference resolves a result id, typically to a lazy reference
+     */
+    public List<MetricSnapshot> snapshots(Function<String, BenchmarkResult> resultReference) {
+        return MetricSnapshotSegment.decode(runId, content, resultReference);
+    }
+
+    /**
+     * Decode the archived values grouped by result, without materializing
+     * snapshots: about 20 bytes per snapshot and one map entry per result.
+     */
+    public ResultValues valuesByResult() {
+        return MetricSnapshotSegment.decodeValuesByResult(content);
+    }
+
+    /**
+     * The metric keys and values of an archive, looked up by result id.
+     */
+    public static final class ResultValues {
+
+        public static final ResultValues EMPTY =
+            new ResultValues(Map.of(), new String[0], new int[1], new int[0], new int[0], new double[0]);
+
+        private final Map<String, Integer> resultIndex;
+        private final String[] metricKeys;
+        // Rows of result i are order[start[i]] .. order[start[i + 1] - 1]
+        private final int[] start;
+        private final int[] order;
+        private final int[] seriesIndexes;
+        private final double[] values;
+
+        ResultValues(Map<String, Integer> resultIndex, String[] metricKeys, int[] start, int[] order,
+                     int[] seriesIndexes, double[] values) {
+            this.resultIndex = resultIndex;
+            this.metricKeys = metricKeys;
+            this.start = start;
+            this.order = order;
+            this.seriesIndexes = seriesIndexes;
+            this.values = values;
+        }
+
+        /**
+         * The distinct metric keys of the archive.
+         */
+        public Set<String> metricKeys() {
+            Set<String> keys = new TreeSet<>();
+            Arrays.stream(metricKeys).filter(key -> key != null).forEach(keys::add);
+            return keys;
+        }
+
+        /**
+         * Pass the metric key and value of every archived snapshot of a result,
+         * in timestamp order. A null value is passed as NaN.
+         */
+        public void forEach(String resultId, ObjDoubleConsumer<String> consumer) {
+            Integer index = resultIndex.get(resultId);
+            if (index == null) {
+                return;
+            }
+            for (int i = start[index]; i < start[index + 1]; i++) {
+                int row = order[i];
+                consumer.accept(metricKeys[seriesIndexes[row]], values[row]);
+            }
+        }
+    }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public Integer getFormatVersion() { return formatVersion; }
+    public void setFormatVersion(Integer formatVersion) { this.formatVersion = formatVersion; }
+
+    public Integer getSnapshotCount() { return snapshotCount; }
+    public void setSnapshotCount(Integer snapshotCount) { this.snapshotCount = snapshotCount; }
+
+    public Instant getFirstTimestamp() { return firstTimestamp; }
+    public void setFirstTimestamp(Instant firstTimestamp) { this.firstTimestamp = firstTimestamp; }
+
+    public Instant getLastTimestamp() { return lastTimestamp; }
+    public void setLastTimestamp(Instant lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+
+    public byte[] getContent() { return content; }
+    public void setContent(byte[] content) { this.content = content; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,82 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Daily summary of the {@link MetricSnapshot} values of one run and metric,
+ * written when retention drops the partition holding the snapshots.
+ */
+@Entity
+@Table(name = "metric_snapshot_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_metric_snapshot_rollups_bucket",
+        columnNames = {"run_id", "metric_type", "metric_key", "bucket_start"}))
+public class MetricSnapshotRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metric_type", nullable = false)
+    private MetricType metricType;
+
+    @Column(name = "metric_key", nullable = false)
+    private String metricKey;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "min_value", nullable = false)
+    private double minValue;
+
+    @Column(name = "max_value", nullable = false)
+    private double maxValue;
+
+    @Column(name = "value_sum", nullable = false)
+    private double valueSum;
+
+    // JPA
+    public MetricSnapshotRollup() {
+    }
+
+    public double getMeanValue() {
+        return sampleCount > 0 ? valueSum / sampleCount : 0.0;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public MetricType getMetricType() { return metricType; }
+    public void setMetricType(MetricType metricType) { this.metricType = metricType; }
+
+    public String getMetricKey() { return metricKey; }
+    public void setMetricKey(String metricKey) { this.metricKey = metricKey; }
+
+    public Instant getBucketStart() { return bucketStart; }
+    public void setBucketStart(Instant bucketStart) { this.bucketStart = bucketStart; }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public double getMinValue() { return minValue; }
+    public void setMinValue(double minValue) { this.minValue = minValue; }
+
+    public double getMaxValue() { return maxValue; }
+    public void setMaxValue(double maxValue) { this.maxValue = maxValue; }
+
+    public double getValueSum() { return valueSum; }
+    public void setValueSum(double valueSum) { this.valueSum = valueSum; }
+}
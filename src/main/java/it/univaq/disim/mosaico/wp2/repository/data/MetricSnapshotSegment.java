@@ -0,0 +1,447 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Columnar encoding of the metric snapshots of one run.
+ *
+ * Rows are sorted by timestamp and stored column by column:
+ * <ul>
+ *   <li>metric type, key, name and unit as one dictionary of series, trace
+ *       ids and result ids as two more dictionaries, each row keeping only
+ *       delta-encoded varint indexes into them;</li>
+ *   <li>timestamps, in microseconds, as zigzag varints of the first value,
+ *       the first delta and then the delta-of-deltas, which are zero or tiny
+ *       for snapshots written in bursts;</li>
+ *   <li>values with the Gorilla XOR scheme: one bit for a repeated value,
+ *       otherwise only the meaningful bits of the XOR with the previous one.</li>
+ * </ul>
+ * Snapshot ids are not kept, and a null value is stored as NaN.
+ */
+final class MetricSnapshotSegment {
+
+    static final int FORMAT_VERSION = 1;
+
+    private MetricSnapshotSegment() {
+    }
+
+    private record Series(String metricType, String metricKey, String metricName, String unit) {
+    }
+
+    static byte[] encode(List<MetricSnapshot> snapshots) {
+        List<MetricSnapshot> rows = new ArrayList<>(snapshots);
+        rows.sort(Comparator.comparing(MetricSnapshot::getTimestamp));
+        int size = rows.size();
+
+        Map<Series, Integer> series = new LinkedHashMap<>();
+        Map<String, Integer> traces = new LinkedHashMap<>();
+        Map<String, Integer> results = new LinkedHashMap<>();
+        int[] seriesIndexes = new int[size];
+        int[] traceIndexes = new int[size];
+        int[] resultIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            MetricSnapshot row = rows.get(i);
+            Series key = new Series(row.getMetricType().name(), row.getMetricKey(), row.getMetricName(), row.getUnit());
+            seriesIndexes[i] = series.computeIfAbsent(key, k -> series.size());
+            traceIndexes[i] = traces.computeIfAbsent(row.getTraceId(), k -> traces.size());
+            BenchmarkResult result = row.getBenchmarkResult();
+            resultIndexes[i] = results.computeIfAbsent(result != null ? result.getId() : null, k -> results.size());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + size * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeVarLong(out, size);
+
+            writeVarLong(out, series.size());
+            for (Series entry : series.keySet()) {
+                writeString(out, entry.metricType());
+                writeString(out, entry.metricKey());
+                writeString(out, entry.metricName());
+                writeString(out, entry.unit());
+            }
+            writeStrings(out, traces.keySet());
+            writeStrings(out, results.keySet());
+            writeIndexes(out, seriesIndexes);
+            writeIndexes(out, traceIndexes);
+            writeIndexes(out, resultIndexes);
+
+            long previous = 0;
+            long previousDelta = 0;
+            for (int i = 0; i < size; i++) {
+                long micros = toMicros(rows.get(i).getTimestamp());
+                long delta = micros - previous;
+                writeVarLong(out, zigzag(i == 0 ? micros : delta - previousDelta));
+                previousDelta = i == 0 ? 0 : delta;
+                previous = micros;
+            }
+
+            byte[] values = encodeValues(rows);
+            writeVarLong(out, values.length);
+            out.write(values);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param resultReference resolves a result id to the result the snapshot belongs to
+     */
+    static List<MetricSnapshot> decode(String runId, byte[] segment, Function<String, BenchmarkResult> resultReference) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(segment))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported metric snapshot segment format: " + version);
+            }
+            int size = (int) readVarLong(in);
+
+            Series[] series = new Series[(int) readVarLong(in)];
+            for (int i = 0; i < series.length; i++) {
+                series[i] = new Series(readString(in), readString(in), readString(in), readString(in));
+            }
+            String[] traces = readStrings(in);
+            String[] results = readStrings(in);
+
+            int[] seriesIndexes = readIndexes(in, size);
+            int[] traceIndexes = readIndexes(in, size);
+            int[] resultIndexes = readIndexes(in, size);
+
+            List<MetricSnapshot> rows = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Series entry = series[seriesIndexes[i]];
+                MetricSnapshot row = new MetricSnapshot();
+                row.setRunId(runId);
+                row.setMetricType(MetricType.valueOf(entry.metricType()));
+                row.setMetricKey(entry.metricKey());
+                row.setMetricName(entry.metricName());
+                row.setUnit(entry.unit());
+                row.setTraceId(traces[traceIndexes[i]]);
+                String resultId = results[resultIndexes[i]];
+                row.setBenchmarkResult(resultId != null ? resultReference.apply(resultId) : null);
+                rows.add(row);
+            }
+
+            long previous = 0;
+            long previousDelta = 0;
+            for (int i = 0; i < size; i++) {
+                long encoded = unzigzag(readVarLong(in));
+                long micros = i == 0 ? encoded : previous + previousDelta + encoded;
+                previousDelta = i == 0 ? 0 : micros - previous;
+                previous = micros;
+                rows.get(i).setTimestamp(fromMicros(micros));
+            }
+
+            byte[] values = new byte[(int) readVarLong(in)];
+            in.readFully(values);
+            decodeValues(values, rows);
+            return rows;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt metric snapshot segment", e);
+        }
+    }
+
+    /**
+     * Decode only the metric keys, result ids and values, grouped by result,
+     * into primitive columns. No snapshot is materialized.
+     */
+    static MetricSnapshotArchive.ResultValues decodeValuesByResult(byte[] segment) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(segment))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported metric snapshot segment format: " + version);
+            }
+            int size = (int) readVarLong(in);
+
+            String[] metricKeys = new String[(int) readVarLong(in)];
+            for (int i = 0; i < metricKeys.length; i++) {
+                readString(in);
+                metricKeys[i] = readString(in);
+                readString(in);
+                readString(in);
+            }
+            int traceCount = (int) readVarLong(in);
+            for (int i = 0; i < traceCount; i++) {
+                skipString(in);
+            }
+            String[] results = readStrings(in);
+
+            int[] seriesIndexes = readIndexes(in, size);
+            skipVarLongs(in, size);
+            int[] resultIndexes = readIndexes(in, size);
+            skipVarLongs(in, size);
+
+            byte[] valueBits = new byte[(int) readVarLong(in)];
+            in.readFully(valueBits);
+            double[] values = decodeValues(valueBits, size);
+
+            // Counting sort of the rows by result
+            int[] start = new int[results.length + 1];
+            for (int index : resultIndexes) {
+                start[index + 1]++;
+            }
+            for (int i = 0; i < results.length; i++) {
+                start[i + 1] += start[i];
+            }
+            int[] next = Arrays.copyOf(start, results.length);
+            int[] order = new int[size];
+            for (int row = 0; row < size; row++) {
+                order[next[resultIndexes[row]]++] = row;
+            }
+
+            Map<String, Integer> resultIndex = new HashMap<>(results.length * 2);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] != null) {
+                    resultIndex.put(results[i], i);
+                }
+            }
+            return new MetricSnapshotArchive.ResultValues(resultIndex, metricKeys, start, order, seriesIndexes, values);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt metric snapshot segment", e);
+        }
+    }
+
+    /**
+     * Dictionary indexes as zigzag deltas from the previous row: traces and
+     * results are first seen in timestamp order, so most deltas are 0 or 1.
+     */
+    private static void writeIndexes(DataOutputStream out, int[] indexes) throws IOException {
+        int previous = 0;
+        for (int index : indexes) {
+            writeVarLong(out, zigzag(index - previous));
+            previous = index;
+        }
+    }
+
+    private static int[] readIndexes(DataInputStream in, int size) throws IOException {
+        int[] indexes = new int[size];
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += (int) unzigzag(readVarLong(in));
+            indexes[i] = previous;
+        }
+        return indexes;
+    }
+
+    private static byte[] encodeValues(List<MetricSnapshot> rows) {
+        BitWriter bits = new BitWriter(rows.size() * 2 + 8);
+        long previous = 0;
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Double value = rows.get(i).getValue();
+            long current = Double.doubleToRawLongBits(value != null ? value : Double.NaN);
+            if (i == 0) {
+                bits.write(current, 64);
+            } else {
+                long xor = current ^ previous;
+                if (xor == 0) {
+                    bits.write(0, 1);
+                } else {
+                    bits.write(1, 1);
+                    int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                    int trailing = Long.numberOfTrailingZeros(xor);
+                    if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                        // Meaningful bits fit in the previous window
+                        bits.write(0, 1);
+                        bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                    } else {
+                        int significant = 64 - leading - trailing;
+                        bits.write(1, 1);
+                        bits.write(leading, 5);
+                        bits.write(significant - 1, 6);
+                        bits.write(xor >>> trailing, significant);
+                        previousLeading = leading;
+                        previousTrailing = trailing;
+                    }
+                }
+            }
+            previous = current;
+        }
+        return bits.toByteArray();
+    }
+
+    private static void decodeValues(byte[] values, List<MetricSnapshot> rows) {
+        double[] decoded = decodeValues(values, rows.size());
+        for (int i = 0; i < decoded.length; i++) {
+            rows.get(i).setValue(decoded[i]);
+        }
+    }
+
+    private static double[] decodeValues(byte[] values, int size) {
+        double[] decoded = new double[size];
+        BitReader bits = new BitReader(values);
+        long previous = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < size; i++) {
+            long current;
+            if (i == 0) {
+                current = bits.read(64);
+            } else if (bits.read(1) == 0) {
+                current = previous;
+            } else {
+                if (bits.read(1) == 1) {
+                    leading = (int) bits.read(5);
+                    int significant = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                current = previous ^ (bits.read(64 - leading - trailing) << trailing);
+            }
+            decoded[i] = Double.longBitsToDouble(current);
+            previous = current;
+        }
+        return decoded;
+    }
+
+    private static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static Instant fromMicros(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void skipVarLongs(DataInputStream in, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            readVarLong(in);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length + 1L);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length - 1];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(DataInputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length > 1) {
+            in.skipNBytes(length - 1);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] values = new String[(int) readVarLong(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(in);
+        }
+        return values;
+    }
+
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long position;
+
+        BitWriter(int capacity) {
+            buffer = new byte[Math.max(8, capacity)];
+        }
+
+        /** Writes the {@code count} low bits of {@code value}, most significant first. */
+        void write(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                int index = (int) (position >>> 3);
+                if (index == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    buffer[index] |= (byte) (0x80 >>> (position & 7));
+                }
+                position++;
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, (int) ((position + 7) >>> 3));
+        }
+    }
+
+    private static final class BitReader {
+        private final byte[] buffer;
+        private long position;
+
+        BitReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        long read(int count) {
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (int) (position >>> 3);
+                if (index >= buffer.length) {
+                    throw new IllegalArgumentException("Corrupt metric snapshot segment: value bits truncated");
+                }
+                value = (value << 1) | ((buffer[index] >>> (7 - (position & 7))) & 1);
+                position++;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.Severity;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * A triggered alert waiting to be sent to one recipient of one channel.
+ *
+ * Entries are written in the transaction that triggers the alert and sent
+ * later by the notification dispatcher, so a slow endpoint never holds that
+ * transaction open. Entries due for the same channel and recipient are sent
+ * together. An entry being sent is {@code SENDING} until
+ * {@code nextAttemptAt}, after which another dispatcher may claim it again;
+ * an entry that failed too many times stays in the outbox as {@code DEAD}.
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+    @Index(name = "idx_notification_outbox_due", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_notification_outbox_recipient", columnList = "channel, recipient, status")
+})
+public class NotificationOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "id", nullable = false)
+    private String id;
+
+    @Column(name = "alert_id", nullable = false)
+    private String alertId;
+
+    @Column(name = "alert_name")
+    private String alertName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "severity")
+    private Severity severity;
+
+    @Column(name = "kpi_name")
+    private String kpiName;
+
+    @Column(name = "kpi_value", nullable = false)
+    private double kpiValue;
+
+    @Column(name = "message", columnDefinition = "text", nullable = false)
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "channel", nullable = false)
+    private NotificationChannel channel;
+
+    /** Email address or webhook URL, null for channels without recipients. */
+    @Column(name = "recipient", length = 2048)
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private NotificationStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    // JPA
+    public NotificationOutboxEntry() {
+    }
+
+    public NotificationOutboxEntry(AlertConfig alert, NotificationChannel channel, String recipient,
+                                   String kpiName, double kpiValue, String message, Instant createdAt) {
+        this.alertId = alert.getId();
+        this.alertName = alert.getName();
+        this.severity = alert.getSeverity();
+        this.channel = channel;
+        this.recipient = recipient;
+        this.kpiName = kpiName;
+        this.kpiValue = kpiValue;
+        this.message = message;
+        this.status = NotificationStatus.PENDING;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    /**
+     * Record a failed attempt: retry at the given time, or give up when it is null.
+     */
+    public void failed(String error, Instant retryAt) {
+        this.attempts++;
+        this.lastError = error;
+        if (retryAt != null) {
+            this.status = NotificationStatus.PENDING;
+            this.nextAttemptAt = retryAt;
+        } else {
+            this.status = NotificationStatus.DEAD;
+        }
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getAlertId() { return alertId; }
+    public void setAlertId(String alertId) { this.alertId = alertId; }
+
+    public String getAlertName() { return alertName; }
+    public void setAlertName(String alertName) { this.alertName = alertName; }
+
+    public Severity getSeverity() { return severity; }
+    public void setSeverity(Severity severity) { this.severity = severity; }
+
+    public String getKpiName() { return kpiName; }
+    public void setKpiName(String kpiName) { this.kpiName = kpiName; }
+
+    public double getKpiValue() { return kpiValue; }
+    public void setKpiValue(double kpiValue) { this.kpiValue = kpiValue; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public NotificationChannel getChannel() { return channel; }
+    public void setChannel(NotificationChannel channel) { this.channel = channel; }
+
+    public String getRecipient() { return recipient; }
+    public void setRecipient(String recipient) { this.recipient = recipient; }
+
+    public NotificationStatus getStatus() { return status; }
+    public void setStatus(NotificationStatus status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(Instant nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
@@ -0,0 +1,160 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read model of a {@link BenchmarkRun}: its lifecycle columns, result count,
+ * duration and KPI values in one row keyed by run id. It is written in the
+ * same transaction as each run transition, so the MCP tools and run endpoints
+ * read a run without touching its results.
+ */
+@Entity
+@Table(name = "benchmark_run_summaries", indexes = {
+    @Index(name = "idx_run_summary_agent_started", columnList = "agent_id, started_at, run_id"),
+    @Index(name = "idx_run_summary_history", columnList = "benchmark_id, agent_id, started_at, run_id")
+})
+public class RunSummary {
+
+    @Id
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Column(name = "benchmark_id", nullable = false)
+    private String benchmarkId;
+
+    @Column(name = "agent_id", nullable = false)
+    private String agentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private RunStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "triggered_by", nullable = false)
+    private TriggerType triggeredBy;
+
+    @Column(name = "triggered_by_user")
+    private String triggeredByUser;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @Column(name = "error_message", columnDefinition = "text")
+    private String errorMessage;
+
+    @Column(name = "traces_processed")
+    private Integer tracesProcessed;
+
+    @Column(name = "metrics_computed")
+    private Integer metricsComputed;
+
+    @Column(name = "retry_count")
+    private Integer retryCount;
+
+    @Column(name = "langfuse_run_name")
+    private String langfuseRunName;
+
+    @Column(name = "duration_millis", nullable = false)
+    private long durationMillis;
+
+    @Column(name = "result_count", nullable = false)
+    private long resultCount;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "kpi_values", nullable = false)
+    private Map<String, Double> kpiValues = new HashMap<>();
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    // JPA
+    public RunSummary() {
+    }
+
+    public RunSummary(String runId) {
+        this.runId = runId;
+    }
+
+    /**
+     * Copy the lifecycle columns of the run; KPI values are kept.
+     */
+    public void update(BenchmarkRun run, long resultCount) {
+        this.benchmarkId = run.getBenchmarkId();
+        this.agentId = run.getAgentId();
+        this.status = run.getStatus();
+        this.triggeredBy = run.getTriggeredBy();
+        this.triggeredByUser = run.getTriggeredByUser();
+        this.startedAt = run.getStartedAt();
+        this.completedAt = run.getCompletedAt();
+        this.errorMessage = run.getErrorMessage();
+        this.tracesProcessed = run.getTracesProcessed();
+        this.metricsComputed = run.getMetricsComputed();
+        this.retryCount = run.getRetryCount();
+        this.langfuseRunName = run.getLangfuseRunName();
+        this.durationMillis = run.getDurationMillis();
+        this.resultCount = resultCount;
+        this.updatedAt = Instant.now();
+    }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public String getBenchmarkId() { return benchmarkId; }
+    public void setBenchmarkId(String benchmarkId) { this.benchmarkId = benchmarkId; }
+
+    public String getAgentId() { return agentId; }
+    public void setAgentId(String agentId) { this.agentId = agentId; }
+
+    public RunStatus getStatus() { return status; }
+    public void setStatus(RunStatus status) { this.status = status; }
+
+    public TriggerType getTriggeredBy() { return triggeredBy; }
+    public void setTriggeredBy(TriggerType triggeredBy) { this.triggeredBy = triggeredBy; }
+
+    public String getTriggeredByUser() { return triggeredByUser; }
+    public void setTriggeredByUser(String triggeredByUser) { this.triggeredByUser = triggeredByUser; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public Integer getTracesProcessed() { return tracesProcessed; }
+    public void setTracesProcessed(Integer tracesProcessed) { this.tracesProcessed = tracesProcessed; }
+
+    public Integer getMetricsComputed() { return metricsComputed; }
+    public void setMetricsComputed(Integer metricsComputed) { this.metricsComputed = metricsComputed; }
+
+    public Integer getRetryCount() { return retryCount; }
+    public void setRetryCount(Integer retryCount) { this.retryCount = retryCount; }
+
+    public String getLangfuseRunName() { return langfuseRunName; }
+    public void setLangfuseRunName(String langfuseRunName) { this.langfuseRunName = langfuseRunName; }
+
+    public long getDurationMillis() { return durationMillis; }
+    public void setDurationMillis(long durationMillis) { this.durationMillis = durationMillis; }
+
+    public long getResultCount() { return resultCount; }
+    public void setResultCount(long resultCount) { this.resultCount = resultCount; }
+
+    public Map<String, Double> getKpiValues() { return kpiValues; }
+    public void setKpiValues(Map<String, Double> kpiValues) { this.kpiValues = kpiValues; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,5 +1,7 @@
 package it.univaq.disim.mosaico.wp2.repository.data;
 
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MisfirePolicy;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.OverlapPolicy;
 import jakarta.persistence.*;
 
 import java.time.Instant;
@@ -75,6 +77,18 @@ public class ScheduleConfig {
     @Column(name = "langfuse_run_name")
     private String langfuseRunName;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "misfire_policy")
+    private MisfirePolicy misfirePolicy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "overlap_policy")
+    private OverlapPolicy overlapPolicy;
+
+    /** Upper bound of the random delay added to each run time, in seconds. */
+    @Column(name = "start_jitter_seconds")
+    private Integer startJitterSeconds;
+
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
@@ -176,6 +190,15 @@ public class ScheduleConfig {
     public String getLangfuseRunName() { return langfuseRunName; }
     public void setLangfuseRunName(String langfuseRunName) { this.langfuseRunName = langfuseRunName; }
 
+    public MisfirePolicy getMisfirePolicy() { return misfirePolicy; }
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) { this.misfirePolicy = misfirePolicy; }
+
+    public OverlapPolicy getOverlapPolicy() { return overlapPolicy; }
+    public void setOverlapPolicy(OverlapPolicy overlapPolicy) { this.overlapPolicy = overlapPolicy; }
+
+    public Integer getStartJitterSeconds() { return startJitterSeconds; }
+    public void setStartJitterSeconds(Integer startJitterSeconds) { this.startJitterSeconds = startJitterSeconds; }
+
     // Helper methods
     public void recordRunSuccess(String runId) {
         this.lastRunAt = Instant.now();
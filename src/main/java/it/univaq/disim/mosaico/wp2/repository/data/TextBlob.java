@@ -0,0 +1,61 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TextCodec;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * Content-addressed text storage. The id is the SHA-256 of the UTF-8 text, so
+ * the same reference or generated text is stored once no matter how many
+ * benchmark results point at it.
+ */
+@Entity
+@Table(name = "text_blobs")
+public class TextBlob {
+
+    @Id
+    @Column(name = "id", nullable = false, length = 64)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "codec", nullable = false)
+    private TextCodec codec;
+
+    @Column(name = "original_length", nullable = false)
+    private Integer originalLength;
+
+    @Column(name = "content", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] content;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    // JPA
+    public TextBlob() {
+    }
+
+    public TextBlob(String id, TextCodec codec, int originalLength, byte[] content) {
+        this.id = id;
+        this.codec = codec;
+        this.originalLength = originalLength;
+        this.content = content;
+        this.createdAt = Instant.now();
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public TextCodec getCodec() { return codec; }
+    public void setCodec(TextCodec codec) { this.codec = codec; }
+
+    /** Length in bytes of the UTF-8 text before encoding. */
+    public Integer getOriginalLength() { return originalLength; }
+    public void setOriginalLength(Integer originalLength) { this.originalLength = originalLength; }
+
+    public byte[] getContent() { return content; }
+    public void setContent(byte[] content) { this.content = content; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
@@ -8,7 +8,32 @@ public enum AlertCondition {
     GREATER_THAN,
     EQUALS,
     NOT_EQUALS,
+    /** Drop from the window baseline, in percent, of at least the threshold. */
     PERCENTAGE_DROP,
+    /** Rise over the window baseline, in percent, of at least the threshold. */
     PERCENTAGE_RISE,
-    ANOMALY_DETECTED
+    /** Anomaly score of at least the threshold, see {@link AnomalyDetector}. */
+    ANOMALY_DETECTED;
+
+    /**
+     * Whether the condition is evaluated against the history of the series
+     * rather than a single value.
+     */
+    public boolean isHistorical() {
+        return this == PERCENTAGE_DROP || this == PERCENTAGE_RISE || this == ANOMALY_DETECTED;
+    }
+
+    /**
+     * Whether a single value meets the condition against the threshold.
+     * Conditions that need historical data never match a single value.
+     */
+    public boolean isMetBy(double value, double threshold) {
+        return switch (this) {
+            case LESS_THAN -> value < threshold;
+            case GREATER_THAN -> value > threshold;
+            case EQUALS -> Math.abs(value - threshold) < 0.0001;
+            case NOT_EQUALS -> Math.abs(value - threshold) >= 0.0001;
+            case PERCENTAGE_DROP, PERCENTAGE_RISE, ANOMALY_DETECTED -> false; // Require historical data
+        };
+    }
 }
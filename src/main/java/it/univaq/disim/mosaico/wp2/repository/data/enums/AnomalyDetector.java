@@ -0,0 +1,13 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Statistic an ANOMALY_DETECTED alert compares with its threshold.
+ */
+public enum AnomalyDetector {
+    /** Distance of the value from the EWMA mean, in EWMA standard deviations. */
+    EWMA,
+    /** Distance of the value from the window median, in scaled median absolute deviations. */
+    MAD,
+    /** Two-sided CUSUM of the MAD scores, for small sustained shifts. */
+    CUSUM
+}
@@ -0,0 +1,11 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Value a leaderboard ranks agents by. Higher values rank first.
+ */
+public enum LeaderboardScore {
+    /** The most recently recorded value of the KPI. */
+    LATEST,
+    /** The highest value of the KPI recorded so far. */
+    BEST
+}
@@ -9,5 +9,17 @@ public enum MetricType {
     ACCURACY,
     PRECISION,
     RECALL,
-    F1_SCORE
+    F1_SCORE,
+    SEMANTIC_SIMILARITY,
+    ROUGE1_F,
+    ROUGEL_F,
+    COSINE_PRED_GOLD,
+    COSINE_PRED_SOURCE,
+    LEN_RATIO,
+    EXACT_CONTAINS,
+    LATENCY,
+    TIME_TO_FIRST_TOKEN,
+    INPUT_TOKENS,
+    OUTPUT_TOKENS,
+    COST
 }
\ No newline at end of file
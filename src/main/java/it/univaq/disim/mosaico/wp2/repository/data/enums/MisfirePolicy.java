@@ -0,0 +1,12 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Enumeration representing what a schedule does with a run missed by more
+ * than the misfire threshold, e.g. while no scheduler was running.
+ */
+public enum MisfirePolicy {
+    /** Start one run now, however many were missed. */
+    RUN_ONCE,
+    /** Start nothing and wait for the next run time. */
+    SKIP
+}
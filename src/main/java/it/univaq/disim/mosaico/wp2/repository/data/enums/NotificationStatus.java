@@ -0,0 +1,11 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Enumeration representing the delivery status of a queued notification.
+ * Delivered notifications are removed from the outbox.
+ */
+public enum NotificationStatus {
+    PENDING,
+    SENDING,
+    DEAD
+}
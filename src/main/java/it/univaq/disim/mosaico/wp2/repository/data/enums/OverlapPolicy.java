@@ -0,0 +1,14 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Enumeration representing what a schedule does when it comes due while its
+ * previous run is still executing or waiting to execute.
+ */
+public enum OverlapPolicy {
+    /** Start nothing and wait for the next run time. */
+    SKIP,
+    /** Start one more run once the previous one finishes. */
+    QUEUE,
+    /** Cancel the previous run and start a new one once it has stopped. */
+    CANCEL_PREVIOUS
+}
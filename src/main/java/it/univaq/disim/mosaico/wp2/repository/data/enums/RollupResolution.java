@@ -0,0 +1,41 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket sizes of the KPI history rollups, from finest to coarsest.
+ * Buckets are aligned in UTC; weeks start on Monday.
+ */
+public enum RollupResolution {
+    HOUR(Duration.ofHours(1)),
+    DAY(Duration.ofDays(1)),
+    WEEK(Duration.ofDays(7));
+
+    private final Duration width;
+
+    RollupResolution(Duration width) {
+        this.width = width;
+    }
+
+    public Duration getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the start of the bucket containing {@code instant}
+     */
+    public Instant bucketStart(Instant instant) {
+        return switch (this) {
+            case HOUR -> instant.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> instant.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> instant.atZone(ZoneOffset.UTC).toLocalDate()
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .atStartOfDay(ZoneOffset.UTC).toInstant();
+        };
+    }
+}
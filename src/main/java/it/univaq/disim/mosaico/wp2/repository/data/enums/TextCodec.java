@@ -0,0 +1,9 @@
+package it.univaq.disim.mosaico.wp2.repository.data.enums;
+
+/**
+ * Enumeration of the encodings used for stored text blobs.
+ */
+public enum TextCodec {
+    NONE,
+    DEFLATE
+}
@@ -28,7 +28,9 @@ import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService;
 import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import it.univaq.disim.mosaico.wp2.repository.service.impl.BenchmarkRunService;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.TextBlobService;
 import it.univaq.disim.mosaico.wp2.repository.service.impl.TraceMetricsAggregator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +82,8 @@ public class BenchmarkDemoPersistenceRunner implements CommandLineRunner {
     private final BenchmarkRunRepository benchmarkRunRepository;
     private final BenchmarkResultRepository benchmarkResultRepository;
     private final MetricSnapshotRepository metricSnapshotRepository;
+    private final TextBlobService textBlobService;
+    private final RunSummaryService runSummaryService;
 
     public BenchmarkDemoPersistenceRunner(
             LangfuseService langfuseService,
@@ -91,7 +95,9 @@ public class BenchmarkDemoPersistenceRunner implements CommandLineRunner {
             BenchmarkRepository benchmarkRepository,
             BenchmarkRunRepository benchmarkRunRepository,
             BenchmarkResultRepository benchmarkResultRepository,
-            MetricSnapshotRepository metricSnapshotRepository) {
+            MetricSnapshotRepository metricSnapshotRepository,
+            TextBlobService textBlobService,
+            RunSummaryService runSummaryService) {
         this.langfuseService = langfuseService;
         this.langfuseProperties = langfuseProperties;
         this.kpiParser = kpiParser;
@@ -102,6 +108,8 @@ public class BenchmarkDemoPersistenceRunner implements CommandLineRunner {
         this.benchmarkRunRepository = benchmarkRunRepository;
         this.benchmarkResultRepository = benchmarkResultRepository;
         this.metricSnapshotRepository = metricSnapshotRepository;
+        this.textBlobService = textBlobService;
+        this.runSummaryService = runSummaryService;
     }
 
     @Override
@@ -339,6 +347,7 @@ public class BenchmarkDemoPersistenceRunner implements CommandLineRunner {
                 traces,
                 kpiValues.getOrDefault(agent.getId(), Map.of())
             );
+            results.forEach(textBlobService::attachTexts);
             benchmarkResultRepository.saveAll(results);
             print("\n3. BenchmarkResult persistiti: " + results.size());
 
@@ -356,6 +365,8 @@ public class BenchmarkDemoPersistenceRunner implements CommandLineRunner {
 
             benchmarkRunService.completeRun(run, tracesProcessed, metricsComputed);
             run = benchmarkRunRepository.save(run);
+            runSummaryService.refresh(run);
+            runSummaryService.recordKpis(run.getId(), kpiValues.getOrDefault(agent.getId(), Map.of()));
             print("\n6. Completamento run persistito:");
             print("   ├─ Status: " + run.getStatus());
             print("   ├─ Completed at: " + run.getCompletedAt());
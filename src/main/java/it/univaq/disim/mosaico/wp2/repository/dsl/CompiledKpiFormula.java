@@ -0,0 +1,221 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KPIFormula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A KPI formula compiled from DSL text.
+ *
+ * Metrics are bound to slots at compile time: {@link #getSlotNames()} lists
+ * the metric keys in slot order and {@link #evaluate(double[])} runs the
+ * formula over an array of their values, with NaN for a missing metric. That
+ * form does not allocate, so callers evaluating many rows can bind their
+ * columns to slots once and reuse a single array.
+ *
+ * {@link #evaluate(Map)} fills the slots from a metric map on each call and
+ * rejects results left undefined by missing metrics.
+ *
+ * Series functions (MOVING_AVG, EWMA, DELTA_PREV, PCT_CHANGE,
+ * RANK_IN_BENCHMARK) are exposed as {@link WindowTerm}s. For each term the
+ * formula computes the run's input value and asks a {@link WindowAccumulator}
+ * for the term's value, so the caller decides where the series state lives.
+ * Without an accumulator every run is treated as the first of its series.
+ */
+public final class CompiledKpiFormula implements KPIFormula {
+
+    /**
+     * A series function call of the formula.
+     *
+     * @param index position among the formula's window terms
+     * @param function the series function
+     * @param parameter the window size or smoothing factor, NaN if the function takes none
+     * @param key normalized text of the call, stable across formulas using the same call
+     */
+    public record WindowTerm(int index, WindowFunction function, double parameter, String key) {
+    }
+
+    /**
+     * Supplies the value of a window term for the run being evaluated.
+     */
+    @FunctionalInterface
+    public interface WindowAccumulator {
+
+        /**
+         * @param term the window term
+         * @param value the term's input for this run, NaN if it depends on a missing metric
+         * @return the value of the series function
+         */
+        double accept(WindowTerm term, double value);
+    }
+
+    /** Treats every run as the first of its series. */
+    public static final WindowAccumulator FIRST_SAMPLE = (term, value) -> term.function().firstSample(value);
+
+    private final String source;
+    private final String[] slotNames;
+    private final KpiExpressionCompiler.Node root;
+    private final WindowTerm[] windowTerms;
+    private final KpiExpressionCompiler.Node[] windowInputs;
+
+    CompiledKpiFormula(String source, String[] slotNames, KpiExpressionCompiler.Node root,
+                       WindowTerm[] windowTerms, KpiExpressionCompiler.Node[] windowInputs) {
+        this.source = source;
+        this.slotNames = slotNames;
+        this.root = root;
+        this.windowTerms = windowTerms;
+        this.windowInputs = windowInputs;
+    }
+
+    /**
+     * @return the DSL text this formula was compiled from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the referenced metric keys, upper-cased, in slot order
+     */
+    public List<String> getSlotNames() {
+        return List.of(slotNames);
+    }
+
+    public int getSlotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * @return the slot of a metric key, or -1 if the formula does not reference it
+     */
+    public int slotOf(String metricKey) {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slotNames[i].equalsIgnoreCase(metricKey)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the formula uses series functions
+     */
+    public boolean isWindowed() {
+        return windowTerms.length > 0;
+    }
+
+    public List<WindowTerm> getWindowTerms() {
+        return List.of(windowTerms);
+    }
+
+    /**
+     * Evaluate the formula over slot values.
+     *
+     * @param slots one value per slot, NaN for a missing metric
+     * @return the result, NaN when it depends on a missing metric
+     */
+    public double evaluate(double[] slots) {
+        return windowTerms.length == 0 ? root.evaluate(slots) : evaluate(slots, FIRST_SAMPLE);
+    }
+
+    /**
+     * Evaluate the formula over slot values, taking window term values from
+     * an accumulator. Every term is passed to the accumulator exactly once,
+     * whichever branches the formula takes.
+     *
+     * @param slots one value per slot, NaN for a missing metric
+     * @param windows supplies the window term values
+     * @return the result, NaN when it depends on a missing metric
+     */
+    public double evaluate(double[] slots, WindowAccumulator windows) {
+        if (windowTerms.length == 0) {
+            return root.evaluate(slots);
+        }
+        double[] extended = Arrays.copyOf(slots, slotNames.length + windowTerms.length);
+        for (int i = 0; i < windowTerms.length; i++) {
+            extended[slotNames.length + i] = windows.accept(windowTerms[i], windowInputs[i].evaluate(slots));
+        }
+        return root.evaluate(extended);
+    }
+
+    /**
+     * Evaluate the formula over a range of rows of a columnar batch.
+     *
+     * @param columns one column per slot, in slot order, NaN for a missing value
+     * @param from first row, inclusive
+     * @param to last row, exclusive
+     * @param results receives the result of row {@code i} at index {@code i}
+     */
+    public void evaluateColumns(double[][] columns, int from, int to, double[] results) {
+        if (columns.length != slotNames.length) {
+            throw new IllegalArgumentException(
+                "Expected " + slotNames.length + " columns " + Arrays.toString(slotNames) + ", got " + columns.length);
+        }
+        double[] row = new double[slotNames.length];
+        for (int i = from; i < to; i++) {
+            for (int slot = 0; slot < row.length; slot++) {
+                row[slot] = columns[slot][i];
+            }
+            results[i] = evaluate(row);
+        }
+    }
+
+    @Override
+    public double evaluate(Map<?, Double> metricValues) {
+        return evaluate(metricValues, FIRST_SAMPLE);
+    }
+
+    /**
+     * Evaluate the formula over a metric map, taking window term values from
+     * an accumulator.
+     *
+     * @throws IllegalArgumentException if the result depends on a missing metric
+     */
+    public double evaluate(Map<?, Double> metricValues, WindowAccumulator windows) {
+        double[] slots = new double[slotNames.length];
+        for (int i = 0; i < slots.length; i++) {
+            Double value = metricValues != null ? lookup(metricValues, slotNames[i]) : null;
+            slots[i] = value != null ? value : Double.NaN;
+        }
+        double result = evaluate(slots, windows);
+        if (Double.isNaN(result)) {
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < slots.length; i++) {
+                if (Double.isNaN(slots[i])) {
+                    missing.add(slotNames[i]);
+                }
+            }
+            throw new IllegalArgumentException(missing.isEmpty()
+                ? "KPI formula '" + source + "' is undefined for the given metric values"
+                : "Missing required metrics " + missing + " for KPI formula '" + source + "'");
+        }
+        return result;
+    }
+
+    private static Double lookup(Map<?, Double> metricValues, String metricKey) {
+        Double value = metricValues.get(metricKey);
+        if (value != null) {
+            return value;
+        }
+        // String keys in another case, or MetricKey classes as used by typed formulas
+        for (Map.Entry<?, Double> entry : metricValues.entrySet()) {
+            Object key = entry.getKey();
+            if (key instanceof String name && name.equalsIgnoreCase(metricKey)) {
+                return entry.getValue();
+            }
+            if (key instanceof Class<?> type && type.getSimpleName().toUpperCase().contains(metricKey)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledKpiFormula[" + source + ", slots=" + Arrays.toString(slotNames)
+            + (windowTerms.length > 0 ? ", windows=" + Arrays.toString(windowTerms) : "") + "]";
+    }
+}
@@ -7,36 +7,76 @@ import it.univaq.disim.mosaico.wp2.repository.service.exception.DslValidationExc
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Default implementation of KPIFormulaDslService.
+ * Default implementation of KPIFormulaDslService, backed by the compiled
+ * expression language of {@link DefaultKPIFormulaParser}.
  *
- * <p><b>IMPORTANT:</b> This is a placeholder implementation that will be enhanced
- * when the partner's xText DSL grammar is integrated. It provides basic functionality
- * for testing and development.</p>
+ * <p>Parse results, successful or not, are kept in an LRU keyed by
+ * (DSL text, DSL version, metric vocabulary version), so each distinct formula
+ * is compiled once however often runs evaluate it or editors validate it.
+ * Registering new metric keys bumps the vocabulary version; the parser's
+ * change notification drops the cached entries.</p>
  */
 @Service
 public class DefaultKPIFormulaDslService implements KPIFormulaDslService {
 
     private static final Logger logger = LoggerFactory.getLogger(DefaultKPIFormulaDslService.class);
 
+    static final String CURRENT_DSL_VERSION = "1.0";
+    static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private record CacheKey(String dslText, String dslVersion, long metricKeysVersion) {
+    }
+
     private final KPIFormulaParser parser;
+    private final int maxCachedFormulas;
+    private final Map<CacheKey, DslParseResult> formulaCache;
+    private long cachedMetricKeysVersion;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
-    @Autowired
     public DefaultKPIFormulaDslService(KPIFormulaParser parser) {
+        this(parser, DEFAULT_CACHE_SIZE);
+    }
+
+    @Autowired
+    public DefaultKPIFormulaDslService(KPIFormulaParser parser,
+                                       @Value("${mosaico.kpi.formula-cache.max-entries:1024}") int maxCachedFormulas) {
         this.parser = parser;
+        this.maxCachedFormulas = maxCachedFormulas;
+        this.formulaCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, DslParseResult> eldest) {
+                return size() > DefaultKPIFormulaDslService.this.maxCachedFormulas;
+            }
+        };
+        parser.addMetricKeysListener(snapshot -> {
+            synchronized (formulaCache) {
+                evictIfVocabularyChanged(snapshot.version());
+            }
+        });
     }
 
     @Override
     public KPIFormula parseFormula(String dslExpression) throws DslParseException, DslValidationException {
+        return parseFormula(dslExpression, CURRENT_DSL_VERSION);
+    }
+
+    private KPIFormula parseFormula(String dslExpression, String dslVersion) throws DslParseException {
         logger.debug("Parsing DSL formula: {}", dslExpression);
 
-        DslParseResult result = parser.parse(dslExpression);
+        DslParseResult result = cachedParse(dslExpression, dslVersion);
 
         if (!result.isSuccess()) {
             String errorMessage = result.getErrorsAsString();
@@ -72,20 +112,21 @@ public class DefaultKPIFormulaDslService implements KPIFormulaDslService {
             }
         }
 
-        return parseFormula(dslText);
+        String dslVersion = specification.getDslVersion();
+        return parseFormula(dslText, dslVersion != null ? dslVersion : CURRENT_DSL_VERSION);
     }
 
     @Override
     public DslParseResult validateFormula(String dslExpression) {
         logger.debug("Validating DSL formula: {}", dslExpression);
-        return parser.validate(dslExpression);
+        return cachedParse(dslExpression, CURRENT_DSL_VERSION);
     }
 
     @Override
     public DslParseResult validateFormulaAgainstMetrics(String dslExpression, Set<String> availableMetrics) {
         logger.debug("Validating DSL formula against metrics: {}", availableMetrics);
 
-        DslParseResult result = parser.validate(dslExpression);
+        DslParseResult result = cachedParse(dslExpression, CURRENT_DSL_VERSION);
 
         if (!result.isSuccess()) {
             return result;
@@ -128,7 +169,7 @@ public class DefaultKPIFormulaDslService implements KPIFormulaDslService {
         KPISpecification spec = new KPISpecification();
         spec.setDslText(dslExpression);
         spec.setFormulaType(formulaType != null ? formulaType : detectFormulaType(dslExpression));
-        spec.setDslVersion("1.0"); // Placeholder version
+        spec.setDslVersion(CURRENT_DSL_VERSION);
 
         logger.info("Created KPISpecification with DSL: {}", dslExpression);
         return spec;
@@ -145,16 +186,77 @@ public class DefaultKPIFormulaDslService implements KPIFormulaDslService {
         logger.info("Registered custom metric keys: {}", metricKeys);
     }
 
+    @Override
+    public FormulaCacheStats getFormulaCacheStats() {
+        synchronized (formulaCache) {
+            return new FormulaCacheStats(cacheHits.get(), cacheMisses.get(),
+                formulaCache.size(), maxCachedFormulas, cachedMetricKeysVersion);
+        }
+    }
+
+    /**
+     * Parse a formula, reusing the result of an earlier parse of the same text
+     * against the same DSL and vocabulary versions.
+     */
+    private DslParseResult cachedParse(String dslExpression, String dslVersion) {
+        if (dslExpression == null || maxCachedFormulas <= 0) {
+            return parser.parse(dslExpression);
+        }
+        long metricKeysVersion = parser.getMetricKeysVersion();
+        CacheKey key = new CacheKey(dslExpression, dslVersion, metricKeysVersion);
+        DslParseResult cached;
+        synchronized (formulaCache) {
+            evictIfVocabularyChanged(metricKeysVersion);
+            cached = formulaCache.get(key);
+        }
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+
+        cacheMisses.incrementAndGet();
+        // Parse outside the lock; a concurrent miss on the same key computes an identical result
+        DslParseResult result = parser.parse(dslExpression);
+        synchronized (formulaCache) {
+            evictIfVocabularyChanged(metricKeysVersion);
+            if (metricKeysVersion == cachedMetricKeysVersion) {
+                formulaCache.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /** Must hold the cache lock. */
+    private void evictIfVocabularyChanged(long metricKeysVersion) {
+        // Versions only grow; a late notification for an older one is ignored
+        if (metricKeysVersion > cachedMetricKeysVersion) {
+            formulaCache.clear();
+            cachedMetricKeysVersion = metricKeysVersion;
+        }
+    }
+
     @Override
     public String getDslSyntaxHelp() {
         return """
-            KPI Formula DSL Syntax (Placeholder Implementation)
-            ====================================================
+            KPI Formula DSL Syntax
+            ======================
+
+            Formulas are expressions over metric keys (case-insensitive).
 
-            Note: This is a placeholder implementation. Full DSL support will be
-            provided by the partner's xText grammar implementation.
+            Operators, by increasing precedence:
+               OR (||), AND (&&), NOT (!)
+               < <= > >= == !=        comparisons yield 1.0 or 0.0
+               + -
+               * /
+               unary -
+               ^                      power, right-associative
+            Example: (ROUGE + BLEU) / 2
 
-            Currently Supported Patterns:
+            Conditionals:
+               IF ROUGE > 0.8 THEN 1.0 ELSE 0.0
+               IF(ROUGE > 0.8, 1.0, 0.0)
+
+            Aggregate functions (arguments may be any expression):
 
             1. AVERAGE(metric1, metric2, ...)
                Computes the arithmetic mean of the specified metrics.
@@ -176,15 +278,29 @@ public class DefaultKPIFormulaDslService implements KPIFormulaDslService {
                Returns 1.0 if metric >= threshold, 0.0 otherwise.
                Example: THRESHOLD(ROUGE, 0.7)
 
+            6. SUM(metric1, metric2, ...)
+
+            Aggregates skip missing metrics and return 0 when none is present.
+            Elsewhere a missing metric makes the formula fail to evaluate.
+
+            Mathematical functions: ABS(x), SQRT(x), POW(x, y), LOG(x), EXP(x),
+            CLAMP(x, low, high)
+            Example: MIN(AVERAGE(ROUGE, BLEU), F1_SCORE) * 100
+
+            Series functions, over the runs of the same benchmark and agent:
+               MOVING_AVG(x, n)       mean of x over the last n runs
+               EWMA(x, alpha)         exponentially weighted average, 0 < alpha <= 1
+               DELTA_PREV(x)          x minus its value in the previous run
+               PCT_CHANGE(x)          change from the previous run, in percent
+               RANK_IN_BENCHMARK(x)   1 for the agent with the highest latest x
+            They cannot be nested. On the first run of a series DELTA_PREV and
+            PCT_CHANGE are 0 and RANK_IN_BENCHMARK is 1.
+            Example: ROUGE - MOVING_AVG(ROUGE, 7)
+
             Available Metrics:
             - ROUGE, BLEU, ACCURACY, PRECISION, RECALL, F1_SCORE
+            - Run-level keys such as LATENCY_P95, COST_TOTAL, COST_PER_CORRECT
             - Custom metrics can be registered via registerCustomMetricKeys()
-
-            Future DSL Features (Partner Implementation):
-            - Arithmetic expressions: (ROUGE + BLEU) / 2
-            - Conditional expressions: IF ROUGE > 0.8 THEN 1.0 ELSE 0.0
-            - Mathematical functions: SQRT, POW, ABS, etc.
-            - Variable bindings and named expressions
             """;
     }
 
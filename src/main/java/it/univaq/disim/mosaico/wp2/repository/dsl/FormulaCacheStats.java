@@ -0,0 +1,27 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+/**
+ * Statistics of the parsed-formula cache of {@link KPIFormulaDslService}.
+ *
+ * @param hits lookups answered from the cache
+ * @param misses lookups that had to parse the formula
+ * @param size entries currently cached
+ * @param maxEntries capacity of the cache
+ * @param metricKeysVersion version of the metric vocabulary the entries were parsed against
+ */
+public record FormulaCacheStats(
+    long hits,
+    long misses,
+    int size,
+    int maxEntries,
+    long metricKeysVersion
+) {
+
+    /**
+     * @return fraction of lookups answered from the cache, 0 when there were none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+}
@@ -102,4 +102,11 @@ public interface KPIFormulaDslService {
      * @return DSL syntax documentation
      */
     String getDslSyntaxHelp();
+
+    /**
+     * Returns hit and miss counts of the parsed-formula cache.
+     *
+     * @return current cache statistics
+     */
+    FormulaCacheStats getFormulaCacheStats();
 }
@@ -56,4 +56,20 @@ public interface KPIFormulaParser {
      * @param metricKeys the metric keys to register
      */
     void registerMetricKeys(Set<String> metricKeys);
+
+    /**
+     * Returns a counter that changes whenever the set of known metric keys
+     * changes, so that callers caching parse results can tell when they may
+     * be stale.
+     *
+     * @return the current version of the metric vocabulary
+     */
+    long getMetricKeysVersion();
+
+    /**
+     * Registers a listener called whenever the set of known metric keys changes.
+     *
+     * @param listener the listener
+     */
+    void addMetricKeysListener(MetricVocabulary.Listener listener);
 }
@@ -0,0 +1,107 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import java.util.List;
+
+/**
+ * Syntax tree of a KPI formula, as produced by {@link KpiExpressionParser}.
+ *
+ * Booleans are numbers: comparisons and logical operators yield 1.0 or 0.0
+ * and any non-zero value is true.
+ */
+sealed interface KpiExpression {
+
+    record Constant(double value) implements KpiExpression {
+    }
+
+    /** Reference to a metric, by its upper-cased key. */
+    record Metric(String name) implements KpiExpression {
+    }
+
+    record Unary(UnaryOperator operator, KpiExpression operand) implements KpiExpression {
+    }
+
+    record Binary(BinaryOperator operator, KpiExpression left, KpiExpression right) implements KpiExpression {
+    }
+
+    record Conditional(KpiExpression condition, KpiExpression then, KpiExpression otherwise)
+        implements KpiExpression {
+    }
+
+    /**
+     * Built-in function call. For {@code WEIGHTED_SUM} the arguments alternate
+     * term and weight.
+     */
+    record Call(Function function, List<KpiExpression> arguments) implements KpiExpression {
+    }
+
+    enum UnaryOperator {
+        NEGATE, NOT
+    }
+
+    enum BinaryOperator {
+        ADD("+"), SUBTRACT("-"), MULTIPLY("*"), DIVIDE("/"), POWER("^"),
+        LESS("<"), LESS_EQUAL("<="), GREATER(">"), GREATER_EQUAL(">="), EQUAL("=="), NOT_EQUAL("!="),
+        AND("AND"), OR("OR");
+
+        final String symbol;
+
+        BinaryOperator(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * Built-in functions with their arity; {@code -1} means unbounded.
+     */
+    enum Function {
+        AVERAGE(1, -1),
+        WEIGHTED_SUM(2, -1),
+        SUM(1, -1),
+        MIN(1, -1),
+        MAX(1, -1),
+        THRESHOLD(2, 2),
+        IF(3, 3),
+        ABS(1, 1),
+        SQRT(1, 1),
+        POW(2, 2),
+        LOG(1, 1),
+        EXP(1, 1),
+        CLAMP(3, 3),
+        MOVING_AVG(2, 2, WindowFunction.MOVING_AVG),
+        EWMA(2, 2, WindowFunction.EWMA),
+        DELTA_PREV(1, 1, WindowFunction.DELTA_PREV),
+        PCT_CHANGE(1, 1, WindowFunction.PCT_CHANGE),
+        RANK_IN_BENCHMARK(1, 1, WindowFunction.RANK_IN_BENCHMARK);
+
+        final int minArguments;
+        final int maxArguments;
+        /** Non-null for functions over the run series. */
+        final WindowFunction window;
+
+        Function(int minArguments, int maxArguments) {
+            this(minArguments, maxArguments, null);
+        }
+
+        Function(int minArguments, int maxArguments, WindowFunction window) {
+            this.minArguments = minArguments;
+            this.maxArguments = maxArguments;
+            this.window = window;
+        }
+
+        boolean accepts(int arguments) {
+            return arguments >= minArguments && (maxArguments < 0 || arguments <= maxArguments);
+        }
+
+        static Function named(String name) {
+            if ("AVG".equals(name)) {
+                return AVERAGE;
+            }
+            for (Function function : values()) {
+                if (function.name().equals(name)) {
+                    return function;
+                }
+            }
+            return null;
+        }
+    }
+}
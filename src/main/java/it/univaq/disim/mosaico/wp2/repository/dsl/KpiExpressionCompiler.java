@@ -0,0 +1,348 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Binary;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Call;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Conditional;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Constant;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Metric;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Unary;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles a KPI syntax tree into a tree of closures over a slot array.
+ *
+ * Constant sub-expressions are folded first, then every metric gets a slot
+ * index so evaluation is array reads and arithmetic, without lookups, boxing
+ * or allocation.
+ *
+ * A missing metric is a NaN slot. Arithmetic, comparisons and conditions
+ * propagate it, while the aggregates keep the behaviour of the original
+ * pattern formulas: AVERAGE, SUM, MIN, MAX and WEIGHTED_SUM skip missing
+ * terms (0 when none is present) and THRESHOLD of a missing metric is 0.
+ *
+ * Series functions such as MOVING_AVG become window terms: their argument is
+ * compiled on its own, and the call reads the term's value from a slot after
+ * the metric slots, filled by {@link CompiledKpiFormula} before evaluation.
+ */
+final class KpiExpressionCompiler {
+
+    /** Compiled form of an expression. */
+    @FunctionalInterface
+    interface Node {
+        double evaluate(double[] slots);
+    }
+
+    private static final double[] NO_SLOTS = new double[0];
+
+    /** Longest term key stored as is; longer ones are hashed. */
+    static final int MAX_TERM_KEY_LENGTH = 255;
+
+    private final Map<String, Integer> slots = new LinkedHashMap<>();
+    private final Map<String, Integer> windowIndexes = new LinkedHashMap<>();
+    private final List<CompiledKpiFormula.WindowTerm> windowTerms = new ArrayList<>();
+    private final List<Node> windowInputs = new ArrayList<>();
+    /** First window slot, known once every metric has a slot. */
+    private final int[] windowBase = new int[1];
+
+    private KpiExpressionCompiler() {
+    }
+
+    static CompiledKpiFormula compile(KpiExpression expression, String source) {
+        KpiExpressionCompiler compiler = new KpiExpressionCompiler();
+        Node root = compiler.node(fold(expression));
+        compiler.windowBase[0] = compiler.slots.size();
+        return new CompiledKpiFormula(source, compiler.slots.keySet().toArray(new String[0]), root,
+            compiler.windowTerms.toArray(new CompiledKpiFormula.WindowTerm[0]),
+            compiler.windowInputs.toArray(new Node[0]));
+    }
+
+    /**
+     * Replace every sub-expression that does not depend on a metric with its
+     * value, and conditionals with a constant condition with the taken branch.
+     */
+    static KpiExpression fold(KpiExpression expression) {
+        return switch (expression) {
+            case Constant constant -> constant;
+            case Metric metric -> metric;
+            case Unary unary -> foldIfConstant(new Unary(unary.operator(), fold(unary.operand())));
+            case Binary binary -> foldIfConstant(
+                new Binary(binary.operator(), fold(binary.left()), fold(binary.right())));
+            case Conditional conditional -> {
+                KpiExpression condition = fold(conditional.condition());
+                if (condition instanceof Constant constant) {
+                    if (Double.isNaN(constant.value())) {
+                        yield constant;
+                    }
+                    yield fold(constant.value() != 0 ? conditional.then() : conditional.otherwise());
+                }
+                yield new Conditional(condition, fold(conditional.then()), fold(conditional.otherwise()));
+            }
+            case Call call -> {
+                List<KpiExpression> arguments = new ArrayList<>(call.arguments().size());
+                for (KpiExpression argument : call.arguments()) {
+                    arguments.add(fold(argument));
+                }
+                yield foldIfConstant(new Call(call.function(), arguments));
+            }
+        };
+    }
+
+    private static KpiExpression foldIfConstant(KpiExpression expression) {
+        boolean constant = switch (expression) {
+            case Unary unary -> unary.operand() instanceof Constant;
+            case Binary binary -> binary.left() instanceof Constant && binary.right() instanceof Constant;
+            case Call call -> call.function().window == null
+                && call.arguments().stream().allMatch(Constant.class::isInstance);
+            default -> false;
+        };
+        if (!constant) {
+            return expression;
+        }
+        return new Constant(new KpiExpressionCompiler().node(expression).evaluate(NO_SLOTS));
+    }
+
+    private Node node(KpiExpression expression) {
+        return switch (expression) {
+            case Constant constant -> {
+                double value = constant.value();
+                yield slots -> value;
+            }
+            case Metric metric -> {
+                int slot = slots.computeIfAbsent(metric.name(), name -> slots.size());
+                yield values -> values[slot];
+            }
+            case Unary unary -> unary(unary);
+            case Binary binary -> binary(binary);
+            case Conditional conditional -> {
+                Node condition = node(conditional.condition());
+                Node then = node(conditional.then());
+                Node otherwise = node(conditional.otherwise());
+                yield slots -> {
+                    double test = condition.evaluate(slots);
+                    if (Double.isNaN(test)) {
+                        return Double.NaN;
+                    }
+                    return test != 0 ? then.evaluate(slots) : otherwise.evaluate(slots);
+                };
+            }
+            case Call call -> call(call);
+        };
+    }
+
+    private Node unary(Unary unary) {
+        Node operand = node(unary.operand());
+        return switch (unary.operator()) {
+            case NEGATE -> slots -> -operand.evaluate(slots);
+            case NOT -> slots -> {
+                double value = operand.evaluate(slots);
+                return Double.isNaN(value) ? Double.NaN : bool(value == 0);
+            };
+        };
+    }
+
+    private Node binary(Binary binary) {
+        Node left = node(binary.left());
+        Node right = node(binary.right());
+        return switch (binary.operator()) {
+            case ADD -> slots -> left.evaluate(slots) + right.evaluate(slots);
+            case SUBTRACT -> slots -> left.evaluate(slots) - right.evaluate(slots);
+            case MULTIPLY -> slots -> left.evaluate(slots) * right.evaluate(slots);
+            case DIVIDE -> slots -> left.evaluate(slots) / right.evaluate(slots);
+            case POWER -> slots -> Math.pow(left.evaluate(slots), right.evaluate(slots));
+            case LESS -> slots -> compare(left.evaluate(slots), right.evaluate(slots), true, false, false);
+            case LESS_EQUAL -> slots -> compare(left.evaluate(slots), right.evaluate(slots), true, true, false);
+            case GREATER -> slots -> compare(left.evaluate(slots), right.evaluate(slots), false, false, true);
+            case GREATER_EQUAL -> slots -> compare(left.evaluate(slots), right.evaluate(slots), false, true, true);
+            case EQUAL -> slots -> compare(left.evaluate(slots), right.evaluate(slots), false, true, false);
+            case NOT_EQUAL -> slots -> compare(left.evaluate(slots), right.evaluate(slots), true, false, true);
+            case AND -> slots -> {
+                double a = left.evaluate(slots);
+                if (a == 0) {
+                    return 0.0;
+                }
+                double b = right.evaluate(slots);
+                return Double.isNaN(a) || Double.isNaN(b) ? Double.NaN : bool(b != 0);
+            };
+            case OR -> slots -> {
+                double a = left.evaluate(slots);
+                if (!Double.isNaN(a) && a != 0) {
+                    return 1.0;
+                }
+                double b = right.evaluate(slots);
+                if (!Double.isNaN(b) && b != 0) {
+                    return 1.0;
+                }
+                return Double.isNaN(a) || Double.isNaN(b) ? Double.NaN : 0.0;
+            };
+        };
+    }
+
+    private Node call(Call call) {
+        if (call.function().window != null) {
+            return window(call);
+        }
+        Node[] arguments = new Node[call.arguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = node(call.arguments().get(i));
+        }
+        return switch (call.function()) {
+            case AVERAGE -> slots -> {
+                double sum = 0;
+                int count = 0;
+                for (Node argument : arguments) {
+                    double value = argument.evaluate(slots);
+                    if (!Double.isNaN(value)) {
+                        sum += value;
+                        count++;
+                    }
+                }
+                return count > 0 ? sum / count : 0.0;
+            };
+            case SUM -> slots -> {
+                double sum = 0;
+                for (Node argument : arguments) {
+                    double value = argument.evaluate(slots);
+                    if (!Double.isNaN(value)) {
+                        sum += value;
+                    }
+                }
+                return sum;
+            };
+            case WEIGHTED_SUM -> slots -> {
+                double sum = 0;
+                for (int i = 0; i + 1 < arguments.length; i += 2) {
+                    double term = arguments[i].evaluate(slots) * arguments[i + 1].evaluate(slots);
+                    if (!Double.isNaN(term)) {
+                        sum += term;
+                    }
+                }
+                return sum;
+            };
+            case MIN -> slots -> {
+                double min = Double.NaN;
+                for (Node argument : arguments) {
+                    double value = argument.evaluate(slots);
+                    if (!Double.isNaN(value) && (Double.isNaN(min) || value < min)) {
+                        min = value;
+                    }
+                }
+                return Double.isNaN(min) ? 0.0 : min;
+            };
+            case MAX -> slots -> {
+                double max = Double.NaN;
+                for (Node argument : arguments) {
+                    double value = argument.evaluate(slots);
+                    if (!Double.isNaN(value) && (Double.isNaN(max) || value > max)) {
+                        max = value;
+                    }
+                }
+                return Double.isNaN(max) ? 0.0 : max;
+            };
+            case THRESHOLD -> slots -> bool(arguments[0].evaluate(slots) >= arguments[1].evaluate(slots));
+            case IF -> node(new Conditional(call.arguments().get(0), call.arguments().get(1), call.arguments().get(2)));
+            case ABS -> slots -> Math.abs(arguments[0].evaluate(slots));
+            case SQRT -> slots -> Math.sqrt(arguments[0].evaluate(slots));
+            case POW -> slots -> Math.pow(arguments[0].evaluate(slots), arguments[1].evaluate(slots));
+            case LOG -> slots -> Math.log(arguments[0].evaluate(slots));
+            case EXP -> slots -> Math.exp(arguments[0].evaluate(slots));
+            case MOVING_AVG, EWMA, DELTA_PREV, PCT_CHANGE, RANK_IN_BENCHMARK ->
+                throw new IllegalStateException(call.function() + " is a window term");
+            case CLAMP -> slots -> {
+                double value = arguments[0].evaluate(slots);
+                return Double.isNaN(value) ? Double.NaN
+                    : Math.max(arguments[1].evaluate(slots), Math.min(arguments[2].evaluate(slots), value));
+            };
+        };
+    }
+
+    /**
+     * Register a series function call as a window term. Identical calls share
+     * one term, so their state is only updated once per run.
+     */
+    private Node window(Call call) {
+        String key = termKey(call);
+        Integer existing = windowIndexes.get(key);
+        int index;
+        if (existing != null) {
+            index = existing;
+        } else {
+            index = windowTerms.size();
+            WindowFunction function = call.function().window;
+            double parameter = function.hasParameter() && call.arguments().get(1) instanceof Constant constant
+                ? constant.value() : Double.NaN;
+            windowIndexes.put(key, index);
+            windowTerms.add(new CompiledKpiFormula.WindowTerm(index, function, parameter, key));
+            windowInputs.add(node(call.arguments().get(0)));
+        }
+        int[] base = windowBase;
+        return slots -> slots[base[0] + index];
+    }
+
+    /**
+     * Identify a window term by its normalized text, hashed when it is too
+     * long to be stored as a key.
+     */
+    static String termKey(Call call) {
+        String text = render(call);
+        if (text.length() <= MAX_TERM_KEY_LENGTH) {
+            return text;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return call.function().name() + "#" + HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String render(KpiExpression expression) {
+        return switch (expression) {
+            case Constant constant -> {
+                double value = constant.value();
+                yield value == Math.rint(value) && Math.abs(value) < 1e15
+                    ? Long.toString((long) value) : Double.toString(value);
+            }
+            case Metric metric -> metric.name();
+            case Unary unary -> (unary.operator() == KpiExpression.UnaryOperator.NOT ? "NOT " : "-")
+                + render(unary.operand());
+            case Binary binary -> "(" + render(binary.left()) + " " + binary.operator().symbol + " "
+                + render(binary.right()) + ")";
+            case Conditional conditional -> "IF(" + render(conditional.condition()) + ", "
+                + render(conditional.then()) + ", " + render(conditional.otherwise()) + ")";
+            case Call call -> {
+                StringBuilder text = new StringBuilder(call.function().name()).append('(');
+                List<KpiExpression> arguments = call.arguments();
+                boolean pairs = call.function() == KpiExpression.Function.WEIGHTED_SUM;
+                for (int i = 0; i < arguments.size(); i++) {
+                    if (i > 0) {
+                        text.append(pairs && i % 2 == 1 ? ": " : ", ");
+                    }
+                    text.append(render(arguments.get(i)));
+                }
+                yield text.append(')').toString();
+            }
+        };
+    }
+
+    /**
+     * Compare two values, NaN if either is missing.
+     */
+    private static double compare(double a, double b, boolean whenLess, boolean whenEqual, boolean whenGreater) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return Double.NaN;
+        }
+        return bool(a < b ? whenLess : a > b ? whenGreater : whenEqual);
+    }
+
+    private static double bool(boolean value) {
+        return value ? 1.0 : 0.0;
+    }
+}
@@ -0,0 +1,496 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.BinaryOperator;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.Function;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KpiExpression.UnaryOperator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Recursive-descent parser for KPI formulas.
+ *
+ * <pre>
+ * expression     := or
+ * or             := and (OR and)*
+ * and            := not (AND not)*
+ * not            := NOT not | comparison
+ * comparison     := additive ((&lt; | &lt;= | &gt; | &gt;= | == | !=) additive)?
+ * additive       := multiplicative ((+ | -) multiplicative)*
+ * multiplicative := unary ((* | /) unary)*
+ * unary          := (- | +) unary | power
+ * power          := primary (^ unary)?
+ * primary        := NUMBER | TRUE | FALSE | METRIC | ( expression )
+ *                 | IF expression THEN expression ELSE expression
+ *                 | FUNCTION ( arguments )
+ * </pre>
+ *
+ * Keywords, function and metric names are case-insensitive. Syntax errors stop
+ * parsing; unknown metrics and functions and wrong argument counts are
+ * collected so that all of them are reported at once.
+ */
+final class KpiExpressionParser {
+
+    static final String SYNTAX_ERROR = "SYNTAX_ERROR";
+    static final String UNKNOWN_METRIC = "UNKNOWN_METRIC";
+    static final String UNKNOWN_FUNCTION = "UNKNOWN_FUNCTION";
+    static final String INVALID_ARGUMENTS = "INVALID_ARGUMENTS";
+
+    private static final Set<String> KEYWORDS = Set.of("IF", "THEN", "ELSE", "AND", "OR", "NOT", "TRUE", "FALSE");
+
+    private enum TokenType {
+        NUMBER, IDENTIFIER, OPERATOR, LEFT_PAREN, RIGHT_PAREN, COMMA, COLON, END
+    }
+
+    private record Token(TokenType type, String text, int line, int column) {
+    }
+
+    private final String source;
+    private final Predicate<String> knownMetric;
+    private final List<DslValidationError> errors = new ArrayList<>();
+    private final Set<String> referencedMetrics = new LinkedHashSet<>();
+
+    private int offset;
+    private int line = 1;
+    private int lineStart;
+    private Token current;
+
+    /**
+     * @param source the formula text
+     * @param knownMetric tells whether an upper-cased metric key may be referenced
+     */
+    KpiExpressionParser(String source, Predicate<String> knownMetric) {
+        this.source = source;
+        this.knownMetric = knownMetric;
+    }
+
+    /**
+     * Parse the whole source.
+     *
+     * @return the syntax tree; only usable when {@link #errors()} is empty
+     * @throws SyntaxError on malformed input
+     */
+    KpiExpression parse() {
+        current = nextToken();
+        KpiExpression expression = expression();
+        if (current.type != TokenType.END) {
+            throw error(current, "Unexpected '" + current.text + "' after end of expression");
+        }
+        return expression;
+    }
+
+    /** Semantic errors found while parsing. */
+    List<DslValidationError> errors() {
+        return errors;
+    }
+
+    /** Metric keys referenced by the formula, in order of appearance. */
+    Set<String> referencedMetrics() {
+        return referencedMetrics;
+    }
+
+    private KpiExpression expression() {
+        return or();
+    }
+
+    private KpiExpression or() {
+        KpiExpression left = and();
+        while (acceptKeyword("OR") || acceptOperator("||")) {
+            left = new KpiExpression.Binary(BinaryOperator.OR, left, and());
+        }
+        return left;
+    }
+
+    private KpiExpression and() {
+        KpiExpression left = not();
+        while (acceptKeyword("AND") || acceptOperator("&&")) {
+            left = new KpiExpression.Binary(BinaryOperator.AND, left, not());
+        }
+        return left;
+    }
+
+    private KpiExpression not() {
+        if (acceptKeyword("NOT") || acceptOperator("!")) {
+            return new KpiExpression.Unary(UnaryOperator.NOT, not());
+        }
+        return comparison();
+    }
+
+    private KpiExpression comparison() {
+        KpiExpression left = additive();
+        BinaryOperator operator = comparisonOperator(current);
+        if (operator != null) {
+            advance();
+            return new KpiExpression.Binary(operator, left, additive());
+        }
+        return left;
+    }
+
+    private KpiExpression additive() {
+        KpiExpression left = multiplicative();
+        while (true) {
+            if (acceptOperator("+")) {
+                left = new KpiExpression.Binary(BinaryOperator.ADD, left, multiplicative());
+            } else if (acceptOperator("-")) {
+                left = new KpiExpression.Binary(BinaryOperator.SUBTRACT, left, multiplicative());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private KpiExpression multiplicative() {
+        KpiExpression left = unary();
+        while (true) {
+            if (acceptOperator("*")) {
+                left = new KpiExpression.Binary(BinaryOperator.MULTIPLY, left, unary());
+            } else if (acceptOperator("/")) {
+                left = new KpiExpression.Binary(BinaryOperator.DIVIDE, left, unary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private KpiExpression unary() {
+        if (acceptOperator("-")) {
+            return new KpiExpression.Unary(UnaryOperator.NEGATE, unary());
+        }
+        if (acceptOperator("+")) {
+            return unary();
+        }
+        return power();
+    }
+
+    private KpiExpression power() {
+        KpiExpression base = primary();
+        if (acceptOperator("^")) {
+            // Right-associative, and binds tighter than a leading minus: -2^2 is -4
+            return new KpiExpression.Binary(BinaryOperator.POWER, base, unary());
+        }
+        return base;
+    }
+
+    private KpiExpression primary() {
+        Token token = current;
+        switch (token.type) {
+            case NUMBER -> {
+                advance();
+                return new KpiExpression.Constant(Double.parseDouble(token.text));
+            }
+            case LEFT_PAREN -> {
+                advance();
+                KpiExpression inner = expression();
+                expect(TokenType.RIGHT_PAREN, ")");
+                return inner;
+            }
+            case IDENTIFIER -> {
+                advance();
+                return identifier(token);
+            }
+            default -> throw error(token, token.type == TokenType.END
+                ? "Unexpected end of expression"
+                : "Unexpected '" + token.text + "'");
+        }
+    }
+
+    private KpiExpression identifier(Token token) {
+        String name = token.text.toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "TRUE" -> {
+                return new KpiExpression.Constant(1.0);
+            }
+            case "FALSE" -> {
+                return new KpiExpression.Constant(0.0);
+            }
+            case "IF" -> {
+                return conditional(token);
+            }
+            default -> {
+                if (KEYWORDS.contains(name)) {
+                    throw error(token, "Unexpected keyword '" + name + "'");
+                }
+            }
+        }
+        if (current.type == TokenType.LEFT_PAREN) {
+            return call(token, name);
+        }
+        if (!knownMetric.test(name)) {
+            errors.add(new DslValidationError(token.line, token.column,
+                "Unknown metric '" + name + "'",
+                UNKNOWN_METRIC, DslValidationError.ErrorSeverity.ERROR));
+        }
+        referencedMetrics.add(name);
+        return new KpiExpression.Metric(name);
+    }
+
+    /**
+     * {@code IF c THEN a ELSE b}, or the function form {@code IF(c, a, b)}. A
+     * parenthesized condition followed by THEN is the keyword form.
+     */
+    private KpiExpression conditional(Token token) {
+        KpiExpression condition;
+        if (current.type == TokenType.LEFT_PAREN) {
+            List<KpiExpression> arguments = arguments(Function.IF);
+            if (arguments.size() == 3) {
+                return new KpiExpression.Conditional(arguments.get(0), arguments.get(1), arguments.get(2));
+            }
+            if (arguments.size() != 1 || !isKeyword(current, "THEN")) {
+                throw error(token, "IF expects (condition, then, else) or IF condition THEN value ELSE value");
+            }
+            condition = arguments.get(0);
+        } else {
+            condition = expression();
+        }
+        expectKeyword("THEN");
+        KpiExpression then = expression();
+        expectKeyword("ELSE");
+        return new KpiExpression.Conditional(condition, then, expression());
+    }
+
+    private KpiExpression call(Token token, String name) {
+        Function function = Function.named(name);
+        List<KpiExpression> arguments = arguments(function);
+        if (function == null) {
+            errors.add(new DslValidationError(token.line, token.column,
+                "Unknown function '" + name + "'",
+                UNKNOWN_FUNCTION, DslValidationError.ErrorSeverity.ERROR));
+            return new KpiExpression.Constant(Double.NaN);
+        }
+        int count = function == Function.WEIGHTED_SUM ? arguments.size() / 2 : arguments.size();
+        int minimum = function == Function.WEIGHTED_SUM ? 1 : function.minArguments;
+        if (count < minimum || (function.maxArguments >= 0 && count > function.maxArguments)) {
+            errors.add(new DslValidationError(token.line, token.column,
+                function.name() + " does not take " + count + " argument(s)",
+                INVALID_ARGUMENTS, DslValidationError.ErrorSeverity.ERROR));
+        } else if (function.window != null) {
+            checkWindowArguments(token, function.window, arguments);
+        }
+        return new KpiExpression.Call(function, arguments);
+    }
+
+    /**
+     * Series functions take a constant parameter and cannot be nested: their
+     * state is kept per call site and updated once per run.
+     */
+    private void checkWindowArguments(Token token, WindowFunction window, List<KpiExpression> arguments) {
+        String problem = null;
+        if (containsWindow(arguments.get(0))) {
+            problem = window.name() + " cannot be applied to another series function";
+        } else if (window.hasParameter()) {
+            problem = arguments.get(1) instanceof KpiExpression.Constant constant
+                ? window.checkParameter(constant.value())
+                : window.name() + " parameter must be a number";
+        }
+        if (problem != null) {
+            errors.add(new DslValidationError(token.line, token.column, problem,
+                INVALID_ARGUMENTS, DslValidationError.ErrorSeverity.ERROR));
+        }
+    }
+
+    private static boolean containsWindow(KpiExpression expression) {
+        return switch (expression) {
+            case KpiExpression.Constant constant -> false;
+            case KpiExpression.Metric metric -> false;
+            case KpiExpression.Unary unary -> containsWindow(unary.operand());
+            case KpiExpression.Binary binary -> containsWindow(binary.left()) || containsWindow(binary.right());
+            case KpiExpression.Conditional conditional -> containsWindow(conditional.condition())
+                || containsWindow(conditional.then()) || containsWindow(conditional.otherwise());
+            case KpiExpression.Call call -> call.function().window != null
+                || call.arguments().stream().anyMatch(KpiExpressionParser::containsWindow);
+        };
+    }
+
+    /** Parenthesized argument list; WEIGHTED_SUM arguments are {@code term: weight} pairs. */
+    private List<KpiExpression> arguments(Function function) {
+        expect(TokenType.LEFT_PAREN, "(");
+        List<KpiExpression> arguments = new ArrayList<>();
+        if (current.type != TokenType.RIGHT_PAREN) {
+            do {
+                arguments.add(expression());
+                if (function == Function.WEIGHTED_SUM) {
+                    expect(TokenType.COLON, ":");
+                    arguments.add(expression());
+                }
+            } while (accept(TokenType.COMMA));
+        }
+        expect(TokenType.RIGHT_PAREN, ")");
+        return arguments;
+    }
+
+    private static BinaryOperator comparisonOperator(Token token) {
+        if (token.type != TokenType.OPERATOR) {
+            return null;
+        }
+        return switch (token.text) {
+            case "<" -> BinaryOperator.LESS;
+            case "<=" -> BinaryOperator.LESS_EQUAL;
+            case ">" -> BinaryOperator.GREATER;
+            case ">=" -> BinaryOperator.GREATER_EQUAL;
+            case "==", "=" -> BinaryOperator.EQUAL;
+            case "!=", "<>" -> BinaryOperator.NOT_EQUAL;
+            default -> null;
+        };
+    }
+
+    private boolean accept(TokenType type) {
+        if (current.type == type) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptOperator(String symbol) {
+        if (current.type == TokenType.OPERATOR && current.text.equals(symbol)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (isKeyword(current, keyword)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isKeyword(Token token, String keyword) {
+        return token.type == TokenType.IDENTIFIER && token.text.equalsIgnoreCase(keyword);
+    }
+
+    private void expect(TokenType type, String text) {
+        if (!accept(type)) {
+            throw error(current, "Expected '" + text + "' but found "
+                + (current.type == TokenType.END ? "end of expression" : "'" + current.text + "'"));
+        }
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error(current, "Expected " + keyword + " but found "
+                + (current.type == TokenType.END ? "end of expression" : "'" + current.text + "'"));
+        }
+    }
+
+    private void advance() {
+        current = nextToken();
+    }
+
+    private Token nextToken() {
+        while (offset < source.length() && Character.isWhitespace(source.charAt(offset))) {
+            if (source.charAt(offset) == '\n') {
+                line++;
+                lineStart = offset + 1;
+            }
+            offset++;
+        }
+        int column = offset - lineStart + 1;
+        if (offset >= source.length()) {
+            return new Token(TokenType.END, "", line, column);
+        }
+        int start = offset;
+        char c = source.charAt(offset);
+
+        if (Character.isDigit(c) || (c == '.' && offset + 1 < source.length()
+                && Character.isDigit(source.charAt(offset + 1)))) {
+            return number(start, column);
+        }
+        if (Character.isLetter(c) || c == '_') {
+            while (offset < source.length()
+                    && (Character.isLetterOrDigit(source.charAt(offset)) || source.charAt(offset) == '_')) {
+                offset++;
+            }
+            return new Token(TokenType.IDENTIFIER, source.substring(start, offset), line, column);
+        }
+
+        offset++;
+        switch (c) {
+            case '(' -> {
+                return new Token(TokenType.LEFT_PAREN, "(", line, column);
+            }
+            case ')' -> {
+                return new Token(TokenType.RIGHT_PAREN, ")", line, column);
+            }
+            case ',' -> {
+                return new Token(TokenType.COMMA, ",", line, column);
+            }
+            case ':' -> {
+                return new Token(TokenType.COLON, ":", line, column);
+            }
+            case '+', '-', '*', '/', '^' -> {
+                return new Token(TokenType.OPERATOR, String.valueOf(c), line, column);
+            }
+            case '<', '>', '=', '!', '&', '|' -> {
+                String pair = offset < source.length() ? source.substring(start, offset + 1) : "";
+                if (pair.equals("<=") || pair.equals(">=") || pair.equals("==") || pair.equals("!=")
+                        || pair.equals("<>") || pair.equals("&&") || pair.equals("||")) {
+                    offset++;
+                    return new Token(TokenType.OPERATOR, pair, line, column);
+                }
+                if (c == '&' || c == '|') {
+                    throw error(line, column, "Unexpected '" + c + "', did you mean '" + c + c + "'?");
+                }
+                return new Token(TokenType.OPERATOR, String.valueOf(c), line, column);
+            }
+            default -> throw error(line, column, "Unexpected character '" + c + "'");
+        }
+    }
+
+    private Token number(int start, int column) {
+        while (offset < source.length() && Character.isDigit(source.charAt(offset))) {
+            offset++;
+        }
+        if (offset < source.length() && source.charAt(offset) == '.') {
+            offset++;
+            while (offset < source.length() && Character.isDigit(source.charAt(offset))) {
+                offset++;
+            }
+        }
+        if (offset < source.length() && (source.charAt(offset) == 'e' || source.charAt(offset) == 'E')) {
+            int exponent = offset + 1;
+            if (exponent < source.length() && (source.charAt(exponent) == '+' || source.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < source.length() && Character.isDigit(source.charAt(exponent))) {
+                offset = exponent;
+                while (offset < source.length() && Character.isDigit(source.charAt(offset))) {
+                    offset++;
+                }
+            }
+        }
+        return new Token(TokenType.NUMBER, source.substring(start, offset), line, column);
+    }
+
+    private static SyntaxError error(Token token, String message) {
+        return error(token.line, token.column, message);
+    }
+
+    private static SyntaxError error(int line, int column, String message) {
+        return new SyntaxError(new DslValidationError(line, column, message,
+            SYNTAX_ERROR, DslValidationError.ErrorSeverity.ERROR));
+    }
+
+    /**
+     * Malformed input; parsing cannot continue past it.
+     */
+    static final class SyntaxError extends RuntimeException {
+
+        private final transient DslValidationError error;
+
+        SyntaxError(DslValidationError error) {
+            super(error.getFormattedMessage());
+            this.error = error;
+        }
+
+        DslValidationError error() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The metric keys KPI formulas may reference, shared by the DSL parser and
+ * the metric provider registry.
+ *
+ * The vocabulary is copy-on-write: readers take an immutable {@link Snapshot}
+ * with a single volatile read and never block, while writers publish a new
+ * snapshot with a higher version. Listeners are told about every new version,
+ * so caches of parse results can invalidate without sharing a lock with the
+ * parser.
+ *
+ * Keys are stored upper-cased, like the metric names in formulas.
+ */
+@Component
+public class MetricVocabulary {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricVocabulary.class);
+
+    /**
+     * An immutable view of the vocabulary.
+     *
+     * @param version incremented on every change
+     * @param keys the known metric keys
+     */
+    public record Snapshot(long version, Set<String> keys) {
+
+        public boolean contains(String metricKey) {
+            return keys.contains(metricKey);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void metricKeysChanged(Snapshot snapshot);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Create a vocabulary holding the names of all {@link MetricType}s.
+     */
+    public MetricVocabulary() {
+        Set<String> keys = new HashSet<>();
+        for (MetricType type : MetricType.values()) {
+            keys.add(type.name());
+        }
+        this.snapshot = new Snapshot(0, Set.copyOf(keys));
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    public boolean contains(String metricKey) {
+        return metricKey != null && snapshot.contains(metricKey.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Add metric keys. Keys already known are ignored; if none is new the
+     * version does not change and listeners are not called.
+     *
+     * @param metricKeys the keys to add
+     * @return true if the vocabulary changed
+     */
+    public boolean register(Collection<String> metricKeys) {
+        if (metricKeys == null || metricKeys.isEmpty()) {
+            return false;
+        }
+        Snapshot published;
+        synchronized (this) {
+            Set<String> keys = new HashSet<>(snapshot.keys());
+            boolean changed = false;
+            for (String metricKey : metricKeys) {
+                if (metricKey != null && !metricKey.isBlank()) {
+                    changed |= keys.add(metricKey.trim().toUpperCase(Locale.ROOT));
+                }
+            }
+            if (!changed) {
+                return false;
+            }
+            published = new Snapshot(snapshot.version() + 1, Set.copyOf(keys));
+            snapshot = published;
+        }
+        logger.debug("Metric vocabulary version {} has {} keys", published.version(), published.keys().size());
+        for (Listener listener : listeners) {
+            try {
+                listener.metricKeysChanged(published);
+            } catch (RuntimeException e) {
+                logger.warn("Metric vocabulary listener failed: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
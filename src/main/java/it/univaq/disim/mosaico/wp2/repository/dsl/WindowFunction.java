@@ -0,0 +1,60 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+/**
+ * KPI DSL functions whose value depends on earlier runs of the same series,
+ * i.e. the same benchmark, agent and KPI.
+ *
+ * They are evaluated from incremental per-series state instead of the KPI
+ * history; see {@link CompiledKpiFormula.WindowAccumulator}.
+ */
+public enum WindowFunction {
+
+    /** {@code MOVING_AVG(expr, n)}: mean of the last {@code n} runs, this one included. */
+    MOVING_AVG,
+    /** {@code EWMA(expr, alpha)}: exponentially weighted moving average, {@code 0 < alpha <= 1}. */
+    EWMA,
+    /** {@code DELTA_PREV(expr)}: difference from the previous run. */
+    DELTA_PREV,
+    /** {@code PCT_CHANGE(expr)}: change from the previous run, in percent of its value. */
+    PCT_CHANGE,
+    /** {@code RANK_IN_BENCHMARK(expr)}: 1 for the agent with the highest latest value in the benchmark. */
+    RANK_IN_BENCHMARK;
+
+    /** Largest window accepted by {@link #MOVING_AVG}. */
+    public static final int MAX_WINDOW = 1000;
+
+    /**
+     * @return true if the function takes a constant parameter after the expression
+     */
+    public boolean hasParameter() {
+        return this == MOVING_AVG || this == EWMA;
+    }
+
+    /**
+     * The value of the function on the first run of a series, also used when
+     * a formula is evaluated without series state (validation, previews).
+     */
+    public double firstSample(double value) {
+        if (Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        return switch (this) {
+            case MOVING_AVG, EWMA -> value;
+            case DELTA_PREV, PCT_CHANGE -> 0.0;
+            case RANK_IN_BENCHMARK -> 1.0;
+        };
+    }
+
+    /**
+     * @return an error message if {@code parameter} is not valid for this function, null otherwise
+     */
+    String checkParameter(double parameter) {
+        return switch (this) {
+            case MOVING_AVG -> parameter >= 1 && parameter <= MAX_WINDOW && parameter == Math.rint(parameter)
+                ? null : "MOVING_AVG window must be a whole number between 1 and " + MAX_WINDOW;
+            case EWMA -> parameter > 0 && parameter <= 1
+                ? null : "EWMA smoothing factor must be greater than 0 and at most 1";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+/**
+ * Scalar columns of an agent, as listed by the catalog endpoints.
+ */
+public record AgentSummary(
+    String id,
+    String name,
+    String description,
+    String version,
+    String role,
+    String license
+) {
+}
@@ -0,0 +1,18 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of re-scoring stored benchmark results with a set of metric providers.
+ */
+public record BackfillReport(
+    List<String> runIds,
+    List<String> providerIds,
+    int resultsProcessed,
+    int snapshotsWritten,
+    int failures,
+    Map<String, Map<String, Double>> kpiValuesByRun,
+    long durationMillis
+) {
+}
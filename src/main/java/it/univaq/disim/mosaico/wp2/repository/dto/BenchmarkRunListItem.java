@@ -0,0 +1,26 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+
+import java.time.Instant;
+
+/**
+ * Columns of a benchmark run read straight from benchmark_runs, as listed by
+ * the run endpoints. Unlike {@link BenchmarkRunSummary} it needs no results.
+ */
+public record BenchmarkRunListItem(
+    String id,
+    String benchmarkId,
+    String agentId,
+    RunStatus status,
+    TriggerType triggeredBy,
+    String triggeredByUser,
+    Instant startedAt,
+    Instant completedAt,
+    Integer tracesProcessed,
+    Integer metricsComputed,
+    Integer retryCount,
+    String errorMessage
+) {
+}
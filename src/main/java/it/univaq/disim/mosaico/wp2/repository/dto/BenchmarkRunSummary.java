@@ -1,6 +1,6 @@
 package it.univaq.disim.mosaico.wp2.repository.dto;
 
-import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.RunSummary;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
 
@@ -29,26 +29,24 @@ public record BenchmarkRunSummary(
     int resultCount,
     Map<String, Double> kpiValues
 ) {
-    public static BenchmarkRunSummary from(BenchmarkRun run) {
+    public static BenchmarkRunSummary from(RunSummary summary) {
         return new BenchmarkRunSummary(
-            run.getId(),
-            run.getBenchmarkId(),
-            run.getAgentId(),
-            run.getStatus(),
-            run.getTriggeredBy(),
-            run.getTriggeredByUser(),
-            run.getStartedAt(),
-            run.getCompletedAt(),
-            run.getErrorMessage(),
-            run.getTracesProcessed(),
-            run.getMetricsComputed(),
-            run.getRetryCount(),
-            run.getLangfuseRunName(),
-            run.getDurationMillis(),
-            run.getResults() != null ? run.getResults().size() : 0,
-            run.getResults() != null && !run.getResults().isEmpty()
-                ? run.getResults().get(0).getKpiValues()
-                : Map.of()
+            summary.getRunId(),
+            summary.getBenchmarkId(),
+            summary.getAgentId(),
+            summary.getStatus(),
+            summary.getTriggeredBy(),
+            summary.getTriggeredByUser(),
+            summary.getStartedAt(),
+            summary.getCompletedAt(),
+            summary.getErrorMessage(),
+            summary.getTracesProcessed(),
+            summary.getMetricsComputed(),
+            summary.getRetryCount(),
+            summary.getLangfuseRunName(),
+            summary.getDurationMillis(),
+            (int) summary.getResultCount(),
+            summary.getKpiValues() != null ? Map.copyOf(summary.getKpiValues()) : Map.of()
         );
     }
 }
@@ -0,0 +1,14 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+/**
+ * Scalar columns of a benchmark, as listed by the catalog endpoints.
+ */
+public record BenchmarkSummary(
+    String id,
+    String metadata,
+    String datasetRef,
+    String taskDef,
+    String protocolVersion,
+    String features
+) {
+}
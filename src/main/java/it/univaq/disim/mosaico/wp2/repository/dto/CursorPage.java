@@ -0,0 +1,34 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * @param items      the rows of the page
+ * @param nextCursor encoded {@link KeysetCursor} of the next page, null on the last page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Clamps a requested page size to [1, MAX_LIMIT].
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Builds a page from a query that fetched up to {@code limit + 1} rows;
+     * the extra row only tells whether a next page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, KeysetCursor> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,51 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page, from which the next page is read.
+ * Pages are sorted by {@code at} (when the listing has a time key) and then
+ * by {@code id}, so the next page is a range seek on an index instead of an
+ * offset scan. Clients only see it as an opaque string.
+ *
+ * @param at time key of the last row, null for id-ordered listings or rows without one
+ * @param id id of the last row
+ */
+public record KeysetCursor(Instant at, String id) {
+
+    /** Start of a listing sorted by time, newest first: every stored row is before it. */
+    public static final KeysetCursor LATEST = new KeysetCursor(Instant.parse("9999-12-31T23:59:59Z"), "");
+
+    public static KeysetCursor of(String id) {
+        return new KeysetCursor(null, id);
+    }
+
+    public String encode() {
+        String raw = (at != null ? at.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a null or blank value
+     * @throws IllegalArgumentException if the value was not produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0 || separator == raw.length() - 1) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+            Instant at = separator == 0 ? null : Instant.parse(raw.substring(0, separator));
+            return new KeysetCursor(at, raw.substring(separator + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value, e);
+        }
+    }
+}
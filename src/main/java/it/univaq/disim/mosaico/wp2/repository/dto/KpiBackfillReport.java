@@ -0,0 +1,15 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+/**
+ * Outcome of recomputing the history of a KPI with its current formula.
+ */
+public record KpiBackfillReport(
+    String kpiId,
+    String kpiName,
+    int runsProcessed,
+    int valuesWritten,
+    int valuesCreated,
+    int runsSkipped,
+    long durationMillis
+) {
+}
@@ -0,0 +1,12 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+/**
+ * Count, extremes and sum of the KPI history values in a time range.
+ */
+public record KpiBucketStats(
+    long count,
+    Double min,
+    Double max,
+    Double sum
+) {
+}
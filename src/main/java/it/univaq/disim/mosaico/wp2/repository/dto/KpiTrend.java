@@ -0,0 +1,22 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * KPI trend over a time range, at most a requested number of points.
+ *
+ * @param resolution RAW for history values, otherwise the rollup bucket size
+ * @param downsampled whether points were dropped by LTTB downsampling
+ */
+public record KpiTrend(
+    String benchmarkId,
+    String agentId,
+    String kpiName,
+    String resolution,
+    Instant from,
+    Instant to,
+    boolean downsampled,
+    List<KpiTrendPoint> points
+) {
+}
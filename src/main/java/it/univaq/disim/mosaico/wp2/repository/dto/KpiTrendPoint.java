@@ -0,0 +1,19 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.time.Instant;
+
+/**
+ * One point of a KPI trend: a raw history value, or the mean of a rollup bucket.
+ *
+ * @param timestamp the recording time, or the start of the bucket
+ * @param count the number of history values behind the point
+ */
+public record KpiTrendPoint(
+    Instant timestamp,
+    double value,
+    double min,
+    double max,
+    double last,
+    long count
+) {
+}
@@ -0,0 +1,24 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+
+import java.time.Instant;
+
+/**
+ * A KPI history value that was written, with the value it replaced.
+ *
+ * @param previousValue the value before the write, null for a new history entry
+ */
+public record KpiValueChange(
+    String benchmarkId,
+    String agentId,
+    String kpiName,
+    Instant recordedAt,
+    Double previousValue,
+    double value
+) {
+    public static KpiValueChange of(KPIHistory history, Double previousValue) {
+        return new KpiValueChange(history.getBenchmarkId(), history.getAgentId(), history.getKpiName(),
+            history.getRecordedAt(), previousValue, history.getValue());
+    }
+}
@@ -0,0 +1,20 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+
+import java.util.List;
+
+/**
+ * The top agents of a benchmark KPI.
+ *
+ * @param agentCount number of agents on the whole leaderboard
+ * @param rows the top agents, best first
+ */
+public record Leaderboard(
+    String benchmarkId,
+    String kpiName,
+    LeaderboardScore score,
+    long agentCount,
+    List<LeaderboardRow> rows
+) {
+}
@@ -0,0 +1,24 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import it.univaq.disim.mosaico.wp2.repository.data.LeaderboardEntry;
+
+import java.time.Instant;
+
+/**
+ * An agent's position on a benchmark KPI leaderboard.
+ *
+ * @param rank 1-based rank for the requested score
+ */
+public record LeaderboardRow(
+    long rank,
+    String agentId,
+    double latestValue,
+    Instant latestRecordedAt,
+    double bestValue,
+    Instant bestRecordedAt
+) {
+    public static LeaderboardRow of(long rank, LeaderboardEntry entry) {
+        return new LeaderboardRow(rank, entry.getAgentId(), entry.getLatestValue(), entry.getLatestRecordedAt(),
+            entry.getBestValue(), entry.getBestRecordedAt());
+    }
+}
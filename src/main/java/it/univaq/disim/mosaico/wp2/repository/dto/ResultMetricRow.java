@@ -0,0 +1,18 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import java.time.Instant;
+
+/**
+ * One metric value of a benchmark result, as streamed by the run export.
+ * {@code metricKey} and {@code value} are null for a result without metrics.
+ */
+public record ResultMetricRow(
+    String resultId,
+    String traceId,
+    Instant createdAt,
+    String expectedTextId,
+    String generatedTextId,
+    String metricKey,
+    Double value
+) {
+}
@@ -0,0 +1,11 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+/**
+ * Mean value of one metric over the snapshots of a run.
+ */
+public record RunMetricMean(
+    String runId,
+    String metricKey,
+    Double mean
+) {
+}
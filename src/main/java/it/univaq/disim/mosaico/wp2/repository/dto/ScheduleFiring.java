@@ -0,0 +1,15 @@
+package it.univaq.disim.mosaico.wp2.repository.dto;
+
+import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+
+/**
+ * The outcome of a schedule coming due.
+ *
+ * @param schedule the schedule, moved to its next run time if it fired
+ * @param runDue whether the schedule should run, false if it was not due or its run was skipped
+ */
+public record ScheduleFiring(
+    ScheduleConfig schedule,
+    boolean runDue
+) {
+}
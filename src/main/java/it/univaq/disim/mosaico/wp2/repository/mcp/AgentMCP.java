@@ -18,15 +18,18 @@ import io.modelcontextprotocol.spec.McpSchema.ReadResourceResult;
 import io.modelcontextprotocol.spec.McpSchema.TextResourceContents;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
-import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.Skill;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
 import it.univaq.disim.mosaico.wp2.repository.dto.AgentSearchResult;
 import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
 import it.univaq.disim.mosaico.wp2.repository.dto.LastBenchmarkRunResponse;
-import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.dto.Leaderboard;
+import it.univaq.disim.mosaico.wp2.repository.dto.LeaderboardRow;
 import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
 import it.univaq.disim.mosaico.wp2.repository.service.AlertEvaluationService;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import it.univaq.disim.mosaico.wp2.repository.service.SkillService;
 
 /**
@@ -39,23 +42,28 @@ import it.univaq.disim.mosaico.wp2.repository.service.SkillService;
 @Component
 public class AgentMCP {
 
+    /** Most recent run summaries returned by AgentBenchmarkResultsTool. */
+    static final int RUN_SUMMARY_LIMIT = 200;
+
     private final AgentService agentService;
     private final ObjectMapper objectMapper;
     private final BenchmarkService benchmarkService;
     private final SkillService skillService;
-    private final BenchmarkRunRepository benchmarkRunRepository;
+    private final RunSummaryService runSummaryService;
     private final AlertEvaluationService alertEvaluationService;
+    private final LeaderboardService leaderboardService;
     Logger logger = LoggerFactory.getLogger(AgentMCP.class);
 
     public AgentMCP(AgentService agentService, ObjectMapper objectMapper, BenchmarkService benchmarkService,
-            SkillService skillService, BenchmarkRunRepository benchmarkRunRepository,
-            AlertEvaluationService alertEvaluationService) {
+            SkillService skillService, RunSummaryService runSummaryService,
+            AlertEvaluationService alertEvaluationService, LeaderboardService leaderboardService) {
         this.agentService = agentService;
         this.objectMapper = objectMapper;
         this.benchmarkService = benchmarkService;
         this.skillService = skillService;
-        this.benchmarkRunRepository = benchmarkRunRepository;
+        this.runSummaryService = runSummaryService;
         this.alertEvaluationService = alertEvaluationService;
+        this.leaderboardService = leaderboardService;
     }
 
     @McpResource(name = "agents", description = "MOSAICO Agents exposed via MCP", uri = "document/agents")
@@ -207,7 +215,7 @@ public class AgentMCP {
 
     }
 
-    @McpTool(name = "AgentBenchmarkResultsTool", description = "Tool to list benchmark run summaries for a given agent. Returns lightweight summaries without full result details.")
+    @McpTool(name = "AgentBenchmarkResultsTool", description = "Tool to list benchmark run summaries for a given agent, most recent first. Returns lightweight summaries without full result details.")
     public String getAgentBenchmarkResults(@McpToolParam String agentId) {
 
         if (agentId == null || agentId.isBlank()) {
@@ -215,13 +223,8 @@ public class AgentMCP {
         }
         logger.info("Fetching benchmark results for agent: {}", agentId);
 
-        List<BenchmarkRun> runs = benchmarkRunRepository.findByAgentIdOrderByStartedAtDesc(agentId);
-        logger.info("Found {} benchmark runs for agent {}", runs.size(), agentId);
-
-        // Convert to lightweight summaries to avoid serializing huge result lists
-        List<BenchmarkRunSummary> summaries = runs.stream()
-            .map(BenchmarkRunSummary::from)
-            .toList();
+        // Precomputed summaries: one indexed read, results are never loaded
+        List<BenchmarkRunSummary> summaries = runSummaryService.findByAgentId(agentId, RUN_SUMMARY_LIMIT);
 
         String json;
         try {
@@ -233,7 +236,7 @@ public class AgentMCP {
         return json;
     }
 
-    @McpTool(name = "AgentLastBenchmarkRunTool", description = "Tool to get the last BenchmarkRun and its summary for a given agent. Returns the full BenchmarkRun entity along with a lightweight summary.")
+    @McpTool(name = "AgentLastBenchmarkRunTool", description = "Tool to get the summary of the last BenchmarkRun of a given agent: status, counts, duration and KPI values.")
     public String getLastBenchmarkRun(@McpToolParam String agentId) {
 
         if (agentId == null || agentId.isBlank()) {
@@ -241,15 +244,15 @@ public class AgentMCP {
         }
         logger.info("Fetching last benchmark run for agent: {}", agentId);
 
-        BenchmarkRun lastRun = benchmarkRunRepository.findTopByAgentIdOrderByStartedAtDesc(agentId);
+        Optional<BenchmarkRunSummary> lastRun = runSummaryService.findLatestForAgent(agentId);
 
-        if (lastRun == null) {
+        if (lastRun.isEmpty()) {
             logger.info("No benchmark runs found for agent {}", agentId);
             return "{}";
         }
 
-        LastBenchmarkRunResponse response = LastBenchmarkRunResponse.from(lastRun);
-        logger.info("Found last benchmark run {} for agent {}", lastRun.getId(), agentId);
+        LastBenchmarkRunResponse response = new LastBenchmarkRunResponse(lastRun.get());
+        logger.info("Found last benchmark run {} for agent {}", lastRun.get().id(), agentId);
 
         String json;
         try {
@@ -299,4 +302,49 @@ public class AgentMCP {
         }
         return json;
     }
+
+    @McpTool(name = "BenchmarkLeaderboardTool", description = "Tool to get the top agents of a benchmark for a KPI, ranked by their latest KPI value (higher is better). Returns at most topK agents with their latest and best values.")
+    public String getBenchmarkLeaderboard(@McpToolParam String benchmarkId, @McpToolParam String kpiName,
+            @McpToolParam int topK) {
+
+        if (benchmarkId == null || benchmarkId.isBlank() || kpiName == null || kpiName.isBlank()) {
+            throw new IllegalArgumentException("benchmarkId and kpiName must not be empty");
+        }
+        logger.info("Fetching top {} agents of benchmark {} for KPI {}", topK, benchmarkId, kpiName);
+
+        Leaderboard leaderboard = leaderboardService.getTop(benchmarkId, kpiName, LeaderboardScore.LATEST, topK);
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(leaderboard);
+        } catch (JsonProcessingException e) {
+            json = "{}";
+        }
+        return json;
+    }
+
+    @McpTool(name = "AgentLeaderboardRankTool", description = "Tool to get the rank of an agent on a benchmark for a KPI, by its latest KPI value (higher is better), along with its latest and best values.")
+    public String getAgentLeaderboardRank(@McpToolParam String benchmarkId, @McpToolParam String kpiName,
+            @McpToolParam String agentId) {
+
+        if (benchmarkId == null || benchmarkId.isBlank() || kpiName == null || kpiName.isBlank()
+                || agentId == null || agentId.isBlank()) {
+            throw new IllegalArgumentException("benchmarkId, kpiName and agentId must not be empty");
+        }
+        logger.info("Fetching rank of agent {} on benchmark {} for KPI {}", agentId, benchmarkId, kpiName);
+
+        Optional<LeaderboardRow> rank = leaderboardService.findRank(benchmarkId, kpiName, agentId,
+            LeaderboardScore.LATEST);
+        if (rank.isEmpty()) {
+            return "{}";
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(rank.get());
+        } catch (JsonProcessingException e) {
+            json = "{}";
+        }
+        return json;
+    }
 }
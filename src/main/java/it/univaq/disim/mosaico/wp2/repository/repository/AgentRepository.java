@@ -1,8 +1,12 @@
 package it.univaq.disim.mosaico.wp2.repository.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary;
 import java.util.List;
 
 /**
@@ -24,4 +28,20 @@ public interface AgentRepository extends JpaRepository<Agent, String> {
     List<Agent> findByRole(String role);
 
     List<Agent> findByObjective(String objective);
+
+    @Query("SELECT new it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary(" +
+           "a.id, a.name, a.description, a.version, a.role, a.license) " +
+           "FROM Agent a WHERE a.id > :afterId ORDER BY a.id")
+    List<AgentSummary> findSummariesAfter(@Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Agents evaluated by a benchmark assessing the skill (by id or name) that
+     * have no alerting KPI on at least one of those benchmarks.
+     */
+    @Query("SELECT a FROM Agent a WHERE a.id IN (" +
+           "SELECT e.id FROM Benchmark b JOIN b.evaluates e JOIN b.assess s " +
+           "WHERE (s.id = :skill OR s.name = :skill) AND NOT EXISTS (" +
+           "SELECT st.id FROM KpiAlertState st WHERE st.benchmarkId = b.id AND st.agentId = e.id " +
+           "AND st.alerting = true)) ORDER BY a.id")
+    List<Agent> findWithoutAlertingKpiBySkill(@Param("skill") String skillNameOrId);
 }
\ No newline at end of file
@@ -3,11 +3,14 @@ package it.univaq.disim.mosaico.wp2.repository.repository;
 import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.Severity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface AlertConfigRepository extends JpaRepository<AlertConfig, String> {
@@ -29,4 +32,28 @@ public interface AlertConfigRepository extends JpaRepository<AlertConfig, String
 
     @Query("SELECT ac FROM AlertConfig ac WHERE ac.enabled = true AND (ac.benchmarkId = :benchmarkId OR ac.benchmarkId IS NULL)")
     List<AlertConfig> findActiveAlertsForBenchmark(@Param("benchmarkId") String benchmarkId);
+
+    /**
+     * Compare-and-set of the last trigger time: only succeeds while the alert
+     * was not triggered after {@code cooldownStart}, so one caller wins each
+     * cooldown period.
+     */
+    @Modifying
+    @Query("UPDATE AlertConfig ac SET ac.lastTriggeredAt = :triggeredAt WHERE ac.id = :id " +
+           "AND (ac.lastTriggeredAt IS NULL OR ac.lastTriggeredAt <= :cooldownStart)")
+    int claimTrigger(
+        @Param("id") String id,
+        @Param("triggeredAt") Instant triggeredAt,
+        @Param("cooldownStart") Instant cooldownStart);
+
+    /**
+     * Move the last trigger time forward, never backwards.
+     */
+    @Modifying
+    @Query("UPDATE AlertConfig ac SET ac.lastTriggeredAt = :triggeredAt WHERE ac.id = :id " +
+           "AND (ac.lastTriggeredAt IS NULL OR ac.lastTriggeredAt < :triggeredAt)")
+    int advanceLastTriggeredAt(@Param("id") String id, @Param("triggeredAt") Instant triggeredAt);
+
+    @Query("SELECT ac.lastTriggeredAt FROM AlertConfig ac WHERE ac.id = :id")
+    Optional<Instant> findLastTriggeredAt(@Param("id") String id);
 }
@@ -1,10 +1,12 @@
 package it.univaq.disim.mosaico.wp2.repository.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary;
 import java.util.List;
 
 /**
@@ -22,4 +24,9 @@ public interface BenchmarkRepository extends JpaRepository<Benchmark, String> {
     @Query("SELECT b FROM Benchmark b JOIN b.assess s WHERE s.name = :skillName")
     List<Benchmark> findBySkillName(@Param("skillName") String skillName);
 
+    @Query("SELECT new it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary(" +
+           "b.id, b.metadata, b.datasetRef, b.taskDef, b.protocolVersion, b.features) " +
+           "FROM Benchmark b WHERE b.id > :afterId ORDER BY b.id")
+    List<BenchmarkSummary> findSummariesAfter(@Param("afterId") String afterId, Pageable pageable);
+
 }
\ No newline at end of file
@@ -1,12 +1,18 @@
 package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.dto.ResultMetricRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BenchmarkResultRepository extends JpaRepository<BenchmarkResult, String> {
@@ -21,4 +27,21 @@ public interface BenchmarkResultRepository extends JpaRepository<BenchmarkResult
 
     @Query("SELECT COUNT(br) FROM BenchmarkResult br WHERE br.benchmarkRun.id = :runId")
     long countByRunId(@Param("runId") String runId);
+
+    @Query("SELECT br FROM BenchmarkResult br WHERE br.benchmarkRun.id = :runId AND br.id > :afterId ORDER BY br.id")
+    List<BenchmarkResult> findBatchByRunId(
+        @Param("runId") String runId, @Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Streams the metric values of the results of a run, grouped by result.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new it.univaq.disim.mosaico.wp2.repository.dto.ResultMetricRow(" +
+           "br.id, br.traceId, br.createdAt, br.expectedTextId, br.generatedTextId, ms.metricKey, ms.value) " +
+           "FROM BenchmarkResult br LEFT JOIN br.metricSnapshots ms WHERE br.benchmarkRun.id = :runId ORDER BY br.id")
+    Stream<ResultMetricRow> streamMetricRowsByRunId(@Param("runId") String runId);
 }
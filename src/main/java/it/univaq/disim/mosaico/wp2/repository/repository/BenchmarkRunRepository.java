@@ -2,16 +2,18 @@ package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BenchmarkRunRepository extends JpaRepository<BenchmarkRun, String> {
+public interface BenchmarkRunRepository extends JpaRepository<BenchmarkRun, String>, BenchmarkRunRepositoryCustom {
 
     List<BenchmarkRun> findByBenchmarkId(String benchmarkId);
 
@@ -43,4 +45,24 @@ public interface BenchmarkRunRepository extends JpaRepository<BenchmarkRun, Stri
 
     @Query("SELECT br FROM BenchmarkRun br WHERE br.benchmarkId = :benchmarkId AND br.agentId = :agentId ORDER BY br.startedAt DESC")
     List<BenchmarkRun> findByBenchmarkIdAndAgentIdOrderByStartedAtDesc(@Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId);
+
+    @Query("SELECT br FROM BenchmarkRun br WHERE br.benchmarkId = :benchmarkId AND br.agentId = :agentId " +
+           "ORDER BY br.startedAt DESC NULLS FIRST, br.id DESC")
+    List<BenchmarkRun> findHistory(@Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId,
+                                   Pageable pageable);
+
+    @Query("SELECT br FROM BenchmarkRun br WHERE br.benchmarkId = :benchmarkId AND br.status = :status AND br.id > :afterId ORDER BY br.id")
+    List<BenchmarkRun> findBatchByBenchmarkIdAndStatus(
+        @Param("benchmarkId") String benchmarkId, @Param("status") RunStatus status,
+        @Param("afterId") String afterId, Pageable pageable);
+
+    /**
+     * Finished runs that were never archived, or that have snapshot rows
+     * written after they were archived.
+     */
+    @Query("SELECT br.id FROM BenchmarkRun br WHERE br.status IN :statuses AND br.completedAt < :before " +
+           "AND (NOT EXISTS (SELECT a FROM MetricSnapshotArchive a WHERE a.runId = br.id) " +
+           "OR EXISTS (SELECT ms FROM MetricSnapshot ms WHERE ms.runId = br.id)) ORDER BY br.completedAt")
+    List<String> findRunIdsToArchive(
+        @Param("statuses") Collection<RunStatus> statuses, @Param("before") Instant before, Pageable pageable);
 }
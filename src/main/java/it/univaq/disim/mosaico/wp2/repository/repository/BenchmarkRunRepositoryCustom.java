@@ -0,0 +1,23 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
+
+import java.util.List;
+
+/**
+ * Keyset-paginated run listings.
+ */
+public interface BenchmarkRunRepositoryCustom {
+
+    /**
+     * Runs matching every non-null filter, most recently started first (runs
+     * not started yet come first), then by id descending.
+     *
+     * @param before cursor of the last row of the previous page, null for the first page
+     * @param limit  maximum number of rows returned
+     */
+    List<BenchmarkRunListItem> findSummaries(String benchmarkId, String agentId, RunStatus status,
+                                            KeysetCursor before, int limit);
+}
@@ -0,0 +1,69 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of BenchmarkRunRepositoryCustom.
+ *
+ * started_at is null until a run starts, so the seek has two shapes: inside
+ * the leading group of pending runs only the id moves, past it the
+ * (started_at, id) pair does. Both are range scans on the
+ * (filter, started_at, id) indexes read backwards.
+ */
+public class BenchmarkRunRepositoryCustomImpl implements BenchmarkRunRepositoryCustom {
+
+    private static final String SELECT_SUMMARY =
+        "SELECT new it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem(" +
+        "br.id, br.benchmarkId, br.agentId, br.status, br.triggeredBy, br.triggeredByUser, br.startedAt, " +
+        "br.completedAt, br.tracesProcessed, br.metricsComputed, br.retryCount, br.errorMessage) " +
+        "FROM BenchmarkRun br";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BenchmarkRunListItem> findSummaries(String benchmarkId, String agentId, RunStatus status,
+                                                   KeysetCursor before, int limit) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (benchmarkId != null) {
+            conditions.add("br.benchmarkId = :benchmarkId");
+            parameters.put("benchmarkId", benchmarkId);
+        }
+        if (agentId != null) {
+            conditions.add("br.agentId = :agentId");
+            parameters.put("agentId", agentId);
+        }
+        if (status != null) {
+            conditions.add("br.status = :status");
+            parameters.put("status", status);
+        }
+        if (before != null) {
+            if (before.at() == null) {
+                conditions.add("((br.startedAt IS NULL AND br.id < :beforeId) OR br.startedAt IS NOT NULL)");
+            } else {
+                conditions.add("(br.startedAt < :beforeStartedAt " +
+                    "OR (br.startedAt = :beforeStartedAt AND br.id < :beforeId))");
+                parameters.put("beforeStartedAt", before.at());
+            }
+            parameters.put("beforeId", before.id());
+        }
+
+        String jpql = SELECT_SUMMARY
+            + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+            + " ORDER BY br.startedAt DESC NULLS FIRST, br.id DESC";
+        TypedQuery<BenchmarkRunListItem> query = entityManager.createQuery(jpql, BenchmarkRunListItem.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
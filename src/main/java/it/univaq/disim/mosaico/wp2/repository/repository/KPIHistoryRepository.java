@@ -2,12 +2,15 @@ package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.KPIStatus;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBucketStats;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,22 +25,79 @@ public interface KPIHistoryRepository extends JpaRepository<KPIHistory, String>
 
     List<KPIHistory> findByStatus(KPIStatus status);
 
+    List<KPIHistory> findByRunId(String runId);
+
+    Optional<KPIHistory> findFirstByRunIdAndKpiName(String runId, String kpiName);
+
+    List<KPIHistory> findByRunIdInAndKpiName(Collection<String> runIds, String kpiName);
+
     @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId ORDER BY kh.recordedAt DESC")
     List<KPIHistory> findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc(
         @Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId);
 
+    /**
+     * Page of the history of an agent on a benchmark, newest first, after the
+     * row ({@code beforeRecordedAt}, {@code beforeId}).
+     */
+    @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId " +
+           "AND (kh.recordedAt < :beforeRecordedAt OR (kh.recordedAt = :beforeRecordedAt AND kh.id < :beforeId)) " +
+           "ORDER BY kh.recordedAt DESC, kh.id DESC")
+    List<KPIHistory> findPageBefore(
+        @Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId,
+        @Param("beforeRecordedAt") Instant beforeRecordedAt, @Param("beforeId") String beforeId, Pageable pageable);
+
+    @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId " +
+           "AND kh.kpiName = :kpiName " +
+           "AND (kh.recordedAt < :beforeRecordedAt OR (kh.recordedAt = :beforeRecordedAt AND kh.id < :beforeId)) " +
+           "ORDER BY kh.recordedAt DESC, kh.id DESC")
+    List<KPIHistory> findPageForKpiBefore(
+        @Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId, @Param("kpiName") String kpiName,
+        @Param("beforeRecordedAt") Instant beforeRecordedAt, @Param("beforeId") String beforeId, Pageable pageable);
+
     @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId AND kh.kpiName = :kpiName ORDER BY kh.recordedAt DESC")
     List<KPIHistory> findHistoryForKpi(
         @Param("benchmarkId") String benchmarkId,
         @Param("agentId") String agentId,
         @Param("kpiName") String kpiName);
 
+    @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId AND kh.kpiName = :kpiName " +
+           "AND kh.recordedAt >= :since ORDER BY kh.recordedAt")
+    List<KPIHistory> findHistoryForKpiSince(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName,
+        @Param("since") Instant since);
+
+    @Query("SELECT COUNT(kh) FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId " +
+           "AND kh.kpiName = :kpiName AND kh.recordedAt >= :since")
+    long countHistoryForKpiSince(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName,
+        @Param("since") Instant since);
+
+    @Query("SELECT new it.univaq.disim.mosaico.wp2.repository.dto.KpiBucketStats(COUNT(kh), MIN(kh.value), MAX(kh.value), SUM(kh.value)) " +
+           "FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId AND kh.kpiName = :kpiName " +
+           "AND kh.recordedAt >= :from AND kh.recordedAt < :to")
+    KpiBucketStats findStatsForKpiBetween(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName,
+        @Param("from") Instant from,
+        @Param("to") Instant to);
+
     @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId AND kh.kpiName = :kpiName ORDER BY kh.recordedAt DESC LIMIT 1")
     Optional<KPIHistory> findLatestForKpi(
         @Param("benchmarkId") String benchmarkId,
         @Param("agentId") String agentId,
         @Param("kpiName") String kpiName);
 
+    @Query("SELECT kh FROM KPIHistory kh WHERE kh.benchmarkId = :benchmarkId AND kh.agentId = :agentId AND kh.kpiName = :kpiName ORDER BY kh.value DESC, kh.recordedAt DESC LIMIT 1")
+    Optional<KPIHistory> findBestForKpi(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName);
+
     @Query("SELECT kh FROM KPIHistory kh WHERE kh.recordedAt >= :since AND kh.status IN :statuses")
     List<KPIHistory> findByRecordedAtAfterAndStatusIn(@Param("since") Instant since, @Param("statuses") List<KPIStatus> statuses);
 
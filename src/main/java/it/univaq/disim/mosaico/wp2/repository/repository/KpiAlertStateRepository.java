@@ -0,0 +1,48 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KpiAlertState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface KpiAlertStateRepository extends JpaRepository<KpiAlertState, String> {
+
+    /**
+     * Inserts an empty state unless the series already has one. Concurrent
+     * runs that start a series therefore never fail the surrounding
+     * transaction; the one whose insert lost locks the winner's row instead.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO kpi_alert_states (id, benchmark_id, agent_id, kpi_name, kpi_value, recorded_at, "
+        + "alerting, alert_count, evaluated_at, detector_samples, cusum_high, cusum_low, prior_cusum_high, "
+        + "prior_cusum_low, window_position) "
+        + "VALUES (:id, :benchmarkId, :agentId, :kpiName, 0, :now, false, 0, :now, 0, 0, 0, 0, 0, 0) "
+        + "ON CONFLICT DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("benchmarkId") String benchmarkId,
+                       @Param("agentId") String agentId,
+                       @Param("kpiName") String kpiName,
+                       @Param("now") Instant now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM KpiAlertState s WHERE s.benchmarkId = :benchmarkId AND s.agentId = :agentId " +
+           "AND s.kpiName = :kpiName")
+    Optional<KpiAlertState> findForUpdate(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName);
+
+    List<KpiAlertState> findByBenchmarkIdAndKpiName(String benchmarkId, String kpiName);
+
+    Optional<KpiAlertState> findByBenchmarkIdAndAgentIdAndKpiName(String benchmarkId, String agentId, String kpiName);
+}
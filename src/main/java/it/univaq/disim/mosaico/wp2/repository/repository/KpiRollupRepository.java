@@ -0,0 +1,57 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KpiRollup;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RollupResolution;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface KpiRollupRepository extends JpaRepository<KpiRollup, String> {
+
+    /**
+     * Inserts an empty bucket unless it already exists. Concurrent runs that
+     * start the same bucket therefore never fail the surrounding transaction;
+     * the one whose insert lost locks the winner's row instead.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO kpi_rollups (id, benchmark_id, agent_id, kpi_name, resolution, bucket_start, "
+        + "sample_count, min_value, max_value, value_sum, last_value, last_recorded_at) "
+        + "VALUES (:id, :benchmarkId, :agentId, :kpiName, :resolution, :bucketStart, 0, 0, 0, 0, 0, :bucketStart) "
+        + "ON CONFLICT DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("benchmarkId") String benchmarkId,
+                       @Param("agentId") String agentId,
+                       @Param("kpiName") String kpiName,
+                       @Param("resolution") String resolution,
+                       @Param("bucketStart") Instant bucketStart);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM KpiRollup r WHERE r.benchmarkId = :benchmarkId AND r.agentId = :agentId " +
+           "AND r.kpiName = :kpiName AND r.resolution = :resolution AND r.bucketStart = :bucketStart")
+    Optional<KpiRollup> findForUpdate(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName,
+        @Param("resolution") RollupResolution resolution,
+        @Param("bucketStart") Instant bucketStart);
+
+    @Query("SELECT r FROM KpiRollup r WHERE r.benchmarkId = :benchmarkId AND r.agentId = :agentId " +
+           "AND r.kpiName = :kpiName AND r.resolution = :resolution AND r.bucketStart >= :since " +
+           "ORDER BY r.bucketStart")
+    List<KpiRollup> findSeriesSince(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("agentId") String agentId,
+        @Param("kpiName") String kpiName,
+        @Param("resolution") RollupResolution resolution,
+        @Param("since") Instant since);
+}
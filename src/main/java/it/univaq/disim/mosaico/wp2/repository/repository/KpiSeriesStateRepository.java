@@ -0,0 +1,68 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KpiSeriesState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface KpiSeriesStateRepository extends JpaRepository<KpiSeriesState, String> {
+
+    /**
+     * Inserts an empty state unless the series already has one. Concurrent
+     * runs that start a series therefore never fail the surrounding
+     * transaction; the one whose insert lost locks the winner's row instead.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO kpi_series_states (id, benchmark_id, agent_id, kpi_id, term_key, window_function, "
+        + "sample_count, running_sum, window_position, updated_at) "
+        + "VALUES (:id, :benchmarkId, :agentId, :kpiId, :termKey, :function, 0, 0, 0, :now) "
+        + "ON CONFLICT DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("benchmarkId") String benchmarkId,
+                       @Param("agentId") String agentId,
+                       @Param("kpiId") String kpiId,
+                       @Param("termKey") String termKey,
+                       @Param("function") String function,
+                       @Param("now") Instant now);
+
+    /**
+     * Load a series state for update, so concurrent runs of the same agent
+     * apply their samples one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM KpiSeriesState s WHERE s.benchmarkId = :benchmarkId AND s.kpiId = :kpiId " +
+           "AND s.termKey = :termKey AND s.agentId = :agentId")
+    Optional<KpiSeriesState> findForUpdate(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiId") String kpiId,
+        @Param("termKey") String termKey,
+        @Param("agentId") String agentId);
+
+    Optional<KpiSeriesState> findByBenchmarkIdAndKpiIdAndTermKeyAndAgentId(
+        String benchmarkId, String kpiId, String termKey, String agentId);
+
+    /**
+     * Count the other agents of the benchmark whose latest value is higher.
+     */
+    @Query("SELECT COUNT(s) FROM KpiSeriesState s WHERE s.benchmarkId = :benchmarkId AND s.kpiId = :kpiId " +
+           "AND s.termKey = :termKey AND s.agentId <> :agentId AND s.lastValue > :value")
+    long countHigherValues(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiId") String kpiId,
+        @Param("termKey") String termKey,
+        @Param("agentId") String agentId,
+        @Param("value") double value);
+
+    @Modifying
+    @Query("DELETE FROM KpiSeriesState s WHERE s.kpiId = :kpiId")
+    int deleteByKpiId(@Param("kpiId") String kpiId);
+}
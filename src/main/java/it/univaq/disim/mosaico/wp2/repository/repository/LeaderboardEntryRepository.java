@@ -0,0 +1,79 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.LeaderboardEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LeaderboardEntryRepository extends JpaRepository<LeaderboardEntry, String> {
+
+    /**
+     * Inserts an empty entry unless the agent already has one. Concurrent runs
+     * that give an agent its first value therefore never fail the surrounding
+     * transaction; the one whose insert lost locks the winner's row instead.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO kpi_leaderboard_entries (id, benchmark_id, kpi_name, agent_id, latest_value, "
+        + "latest_recorded_at, best_value, best_recorded_at, updated_at) "
+        + "VALUES (:id, :benchmarkId, :kpiName, :agentId, 0, :now, 0, :now, :now) ON CONFLICT DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("benchmarkId") String benchmarkId,
+                       @Param("kpiName") String kpiName,
+                       @Param("agentId") String agentId,
+                       @Param("now") Instant now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM LeaderboardEntry e WHERE e.benchmarkId = :benchmarkId AND e.kpiName = :kpiName " +
+           "AND e.agentId = :agentId")
+    Optional<LeaderboardEntry> findForUpdate(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiName") String kpiName,
+        @Param("agentId") String agentId);
+
+    Optional<LeaderboardEntry> findByBenchmarkIdAndKpiNameAndAgentId(String benchmarkId, String kpiName, String agentId);
+
+    long countByBenchmarkIdAndKpiName(String benchmarkId, String kpiName);
+
+    // Ties are broken by agent id so ranks are stable and match the rank counts below
+
+    @Query("SELECT e FROM LeaderboardEntry e WHERE e.benchmarkId = :benchmarkId AND e.kpiName = :kpiName " +
+           "ORDER BY e.latestValue DESC, e.agentId ASC")
+    List<LeaderboardEntry> findTopByLatest(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiName") String kpiName,
+        Pageable pageable);
+
+    @Query("SELECT e FROM LeaderboardEntry e WHERE e.benchmarkId = :benchmarkId AND e.kpiName = :kpiName " +
+           "ORDER BY e.bestValue DESC, e.agentId ASC")
+    List<LeaderboardEntry> findTopByBest(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiName") String kpiName,
+        Pageable pageable);
+
+    @Query("SELECT COUNT(e) FROM LeaderboardEntry e WHERE e.benchmarkId = :benchmarkId AND e.kpiName = :kpiName " +
+           "AND (e.latestValue > :value OR (e.latestValue = :value AND e.agentId < :agentId))")
+    long countAheadByLatest(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiName") String kpiName,
+        @Param("value") double value,
+        @Param("agentId") String agentId);
+
+    @Query("SELECT COUNT(e) FROM LeaderboardEntry e WHERE e.benchmarkId = :benchmarkId AND e.kpiName = :kpiName " +
+           "AND (e.bestValue > :value OR (e.bestValue = :value AND e.agentId < :agentId))")
+    long countAheadByBest(
+        @Param("benchmarkId") String benchmarkId,
+        @Param("kpiName") String kpiName,
+        @Param("value") double value,
+        @Param("agentId") String agentId);
+}
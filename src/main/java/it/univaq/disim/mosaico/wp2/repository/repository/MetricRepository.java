@@ -2,7 +2,10 @@ package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
@@ -11,4 +14,7 @@ import it.univaq.disim.mosaico.wp2.repository.data.Metric;
 public interface MetricRepository extends JpaRepository<Metric, String> {
     
     List<Metric> findByName(String name);
+
+    @Query("SELECT m FROM Metric m WHERE m.id > :afterId ORDER BY m.id")
+    List<Metric> findPageAfter(@Param("afterId") String afterId, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricResultCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MetricResultCacheRepository extends JpaRepository<MetricResultCacheEntry, String> {
+
+    @Modifying
+    @Query("DELETE FROM MetricResultCacheEntry e WHERE e.providerId = :providerId AND e.providerVersion <> :version")
+    int deleteStaleVersions(@Param("providerId") String providerId, @Param("version") String version);
+}
@@ -0,0 +1,9 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MetricSnapshotArchiveRepository extends JpaRepository<MetricSnapshotArchive, String> {
+}
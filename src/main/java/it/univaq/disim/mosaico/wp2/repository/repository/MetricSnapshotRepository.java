@@ -3,6 +3,7 @@ package it.univaq.disim.mosaico.wp2.repository.repository;
 import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,20 +12,23 @@ import java.time.Instant;
 import java.util.List;
 
 @Repository
-public interface MetricSnapshotRepository extends JpaRepository<MetricSnapshot, String> {
-
-    List<MetricSnapshot> findByRunId(String runId);
-
-    List<MetricSnapshot> findByRunIdAndMetricType(String runId, MetricType metricType);
+public interface MetricSnapshotRepository extends JpaRepository<MetricSnapshot, String>, MetricSnapshotRepositoryCustom {
 
     List<MetricSnapshot> findByTraceId(String traceId);
 
-    @Query("SELECT ms FROM MetricSnapshot ms WHERE ms.runId = :runId ORDER BY ms.timestamp DESC")
-    List<MetricSnapshot> findByRunIdOrderByTimestampDesc(@Param("runId") String runId);
-
-    @Query("SELECT AVG(ms.value) FROM MetricSnapshot ms WHERE ms.runId = :runId AND ms.metricType = :metricType")
-    Double findAverageValueByRunIdAndMetricType(@Param("runId") String runId, @Param("metricType") MetricType metricType);
-
     @Query("SELECT ms FROM MetricSnapshot ms WHERE ms.timestamp >= :since AND ms.metricType = :metricType ORDER BY ms.timestamp")
     List<MetricSnapshot> findByTimestampAfterAndMetricType(@Param("since") Instant since, @Param("metricType") MetricType metricType);
+
+    @Query("SELECT DISTINCT ms.metricKey FROM MetricSnapshot ms WHERE ms.runId = :runId")
+    List<String> findMetricKeysByRunId(@Param("runId") String runId);
+
+    /**
+     * The snapshots of a run stored as rows, not counting archived ones.
+     */
+    @Query("SELECT COUNT(ms) FROM MetricSnapshot ms WHERE ms.runId = :runId")
+    long countRowsByRunId(@Param("runId") String runId);
+
+    @Modifying
+    @Query("DELETE FROM MetricSnapshot ms WHERE ms.runId = :runId")
+    int deleteByRunId(@Param("runId") String runId);
 }
@@ -0,0 +1,35 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dto.RunMetricMean;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Run-scoped snapshot reads. Snapshots of runs moved to the columnar archive
+ * ({@link MetricSnapshotArchive}) are decoded and returned together with any
+ * snapshot still stored as a row, so callers do not need to know whether a
+ * run was archived.
+ */
+public interface MetricSnapshotRepositoryCustom {
+
+    List<MetricSnapshot> findByRunId(String runId);
+
+    /**
+     * The archived snapshots of a run only, decoded, detached and without id.
+     */
+    List<MetricSnapshot> findArchivedByRunId(String runId);
+
+    List<MetricSnapshot> findByRunIdAndMetricType(String runId, MetricType metricType);
+
+    List<MetricSnapshot> findByRunIdOrderByTimestampDesc(String runId);
+
+    Double findAverageValueByRunIdAndMetricType(String runId, MetricType metricType);
+
+    List<MetricSnapshot> findByRunIdIn(Collection<String> runIds);
+
+    List<RunMetricMean> findMeanValuesByRunIds(Collection<String> runIds, Collection<String> metricKeys);
+}
@@ -0,0 +1,174 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dto.RunMetricMean;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Implementation of MetricSnapshotRepositoryCustom. Runs that were never
+ * archived cost one extra primary-key lookup; aggregates over them still run
+ * in the database.
+ */
+public class MetricSnapshotRepositoryCustomImpl implements MetricSnapshotRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final MetricSnapshotArchiveRepository archiveRepository;
+
+    public MetricSnapshotRepositoryCustomImpl(MetricSnapshotArchiveRepository archiveRepository) {
+        this.archiveRepository = archiveRepository;
+    }
+
+    @Override
+    public List<MetricSnapshot> findByRunId(String runId) {
+        List<MetricSnapshot> live = entityManager
+            .createQuery("SELECT ms FROM MetricSnapshot ms WHERE ms.runId = :runId", MetricSnapshot.class)
+            .setParameter("runId", runId)
+            .getResultList();
+        return withArchived(live, archiveRepository.findById(runId));
+    }
+
+    @Override
+    public List<MetricSnapshot> findArchivedByRunId(String runId) {
+        return archiveRepository.findById(runId).map(this::decode).orElseGet(List::of);
+    }
+
+    @Override
+    public List<MetricSnapshot> findByRunIdAndMetricType(String runId, MetricType metricType) {
+        List<MetricSnapshot> live = entityManager
+            .createQuery("SELECT ms FROM MetricSnapshot ms WHERE ms.runId = :runId AND ms.metricType = :metricType",
+                MetricSnapshot.class)
+            .setParameter("runId", runId)
+            .setParameter("metricType", metricType)
+            .getResultList();
+        Optional<MetricSnapshotArchive> archive = archiveRepository.findById(runId);
+        if (archive.isEmpty()) {
+            return live;
+        }
+        List<MetricSnapshot> snapshots = new ArrayList<>(live);
+        for (MetricSnapshot snapshot : decode(archive.get())) {
+            if (snapshot.getMetricType() == metricType) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<MetricSnapshot> findByRunIdOrderByTimestampDesc(String runId) {
+        Optional<MetricSnapshotArchive> archive = archiveRepository.findById(runId);
+        List<MetricSnapshot> live = entityManager
+            .createQuery("SELECT ms FROM MetricSnapshot ms WHERE ms.runId = :runId ORDER BY ms.timestamp DESC",
+                MetricSnapshot.class)
+            .setParameter("runId", runId)
+            .getResultList();
+        if (archive.isEmpty()) {
+            return live;
+        }
+        List<MetricSnapshot> snapshots = withArchived(live, archive);
+        snapshots.sort(Comparator.comparing(MetricSnapshot::getTimestamp).reversed());
+        return snapshots;
+    }
+
+    @Override
+    public Double findAverageValueByRunIdAndMetricType(String runId, MetricType metricType) {
+        if (!archiveRepository.existsById(runId)) {
+            return entityManager
+                .createQuery("SELECT AVG(ms.value) FROM MetricSnapshot ms WHERE ms.runId = :runId " +
+                    "AND ms.metricType = :metricType", Double.class)
+                .setParameter("runId", runId)
+                .setParameter("metricType", metricType)
+                .getSingleResult();
+        }
+        List<MetricSnapshot> snapshots = findByRunIdAndMetricType(runId, metricType);
+        return snapshots.isEmpty() ? null
+            : snapshots.stream().mapToDouble(MetricSnapshot::getValue).average().orElseThrow();
+    }
+
+    @Override
+    public List<MetricSnapshot> findByRunIdIn(Collection<String> runIds) {
+        List<MetricSnapshot> live = entityManager
+            .createQuery("SELECT ms FROM MetricSnapshot ms WHERE ms.runId IN :runIds", MetricSnapshot.class)
+            .setParameter("runIds", runIds)
+            .getResultList();
+        List<MetricSnapshotArchive> archives = archiveRepository.findAllById(runIds);
+        if (archives.isEmpty()) {
+            return live;
+        }
+        List<MetricSnapshot> snapshots = new ArrayList<>(live);
+        for (MetricSnapshotArchive archive : archives) {
+            snapshots.addAll(decode(archive));
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<RunMetricMean> findMeanValuesByRunIds(Collection<String> runIds, Collection<String> metricKeys) {
+        List<MetricSnapshotArchive> archives = archiveRepository.findAllById(runIds);
+        Set<String> archived = new HashSet<>();
+        archives.forEach(archive -> archived.add(archive.getRunId()));
+        List<String> liveOnly = runIds.stream().filter(runId -> !archived.contains(runId)).toList();
+
+        List<RunMetricMean> means = new ArrayList<>();
+        if (!liveOnly.isEmpty()) {
+            means.addAll(entityManager
+                .createQuery("SELECT new it.univaq.disim.mosaico.wp2.repository.dto.RunMetricMean(ms.runId, ms.metricKey, AVG(ms.value)) " +
+                    "FROM MetricSnapshot ms WHERE ms.runId IN :runIds AND ms.metricKey IN :metricKeys " +
+                    "GROUP BY ms.runId, ms.metricKey", RunMetricMean.class)
+                .setParameter("runIds", liveOnly)
+                .setParameter("metricKeys", metricKeys)
+                .getResultList());
+        }
+        if (archived.isEmpty()) {
+            return means;
+        }
+
+        // Archived runs: average the decoded snapshots together with rows written after archiving
+        Set<String> keys = new HashSet<>(metricKeys);
+        Map<String, Map<String, double[]>> sums = new HashMap<>();
+        List<MetricSnapshot> snapshots = new ArrayList<>(entityManager
+            .createQuery("SELECT ms FROM MetricSnapshot ms WHERE ms.runId IN :runIds", MetricSnapshot.class)
+            .setParameter("runIds", archived)
+            .getResultList());
+        archives.forEach(archive -> snapshots.addAll(decode(archive)));
+        for (MetricSnapshot snapshot : snapshots) {
+            if (keys.contains(snapshot.getMetricKey()) && snapshot.getValue() != null) {
+                double[] sum = sums.computeIfAbsent(snapshot.getRunId(), k -> new HashMap<>())
+                    .computeIfAbsent(snapshot.getMetricKey(), k -> new double[2]);
+                sum[0] += snapshot.getValue();
+                sum[1]++;
+            }
+        }
+        sums.forEach((runId, byKey) -> byKey.forEach((metricKey, sum) ->
+            means.add(new RunMetricMean(runId, metricKey, sum[0] / sum[1]))));
+        return means;
+    }
+
+    private List<MetricSnapshot> withArchived(List<MetricSnapshot> live, Optional<MetricSnapshotArchive> archive) {
+        if (archive.isEmpty()) {
+            return live;
+        }
+        List<MetricSnapshot> snapshots = new ArrayList<>(live);
+        snapshots.addAll(decode(archive.get()));
+        return snapshots;
+    }
+
+    private List<MetricSnapshot> decode(MetricSnapshotArchive archive) {
+        return archive.snapshots(resultId -> entityManager.getReference(BenchmarkResult.class, resultId));
+    }
+}
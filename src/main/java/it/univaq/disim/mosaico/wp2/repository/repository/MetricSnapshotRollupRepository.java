@@ -0,0 +1,13 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MetricSnapshotRollupRepository extends JpaRepository<MetricSnapshotRollup, String> {
+
+    List<MetricSnapshotRollup> findByRunId(String runId);
+}
@@ -1,6 +1,7 @@
 package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.MonitoringConfig;
@@ -8,4 +9,7 @@ import it.univaq.disim.mosaico.wp2.repository.data.MonitoringConfig;
 @Repository
 public interface MonitoringConfigRepository extends JpaRepository<MonitoringConfig, String> {
     // Repository base per MonitoringConfig
-}
\ No newline at end of file
+
+    @Query("SELECT MAX(mc.dataRetentionDays) FROM MonitoringConfig mc WHERE mc.dataRetentionDays > 0")
+    Integer findMaxDataRetentionDays();
+}
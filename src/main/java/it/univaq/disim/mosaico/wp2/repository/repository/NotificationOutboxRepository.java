@@ -0,0 +1,41 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.NotificationOutboxEntry;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntry, String> {
+
+    /**
+     * Due entries, oldest first. Rows locked by another dispatcher are
+     * skipped (lock timeout -2 is SKIP LOCKED), so dispatchers never claim
+     * the same entry.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM NotificationOutboxEntry n WHERE n.status IN :statuses AND n.nextAttemptAt <= :now " +
+           "ORDER BY n.nextAttemptAt")
+    List<NotificationOutboxEntry> findDueForUpdate(
+        @Param("statuses") Collection<NotificationStatus> statuses,
+        @Param("now") Instant now,
+        Pageable pageable);
+
+    List<NotificationOutboxEntry> findByChannelAndRecipientAndStatus(
+        NotificationChannel channel, String recipient, NotificationStatus status);
+
+    List<NotificationOutboxEntry> findByStatus(NotificationStatus status);
+}
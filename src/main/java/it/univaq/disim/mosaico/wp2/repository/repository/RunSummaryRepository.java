@@ -0,0 +1,24 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.RunSummary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RunSummaryRepository extends JpaRepository<RunSummary, String> {
+
+    // Runs not started yet sort first, as they do on PostgreSQL with the default DESC ordering
+    @Query("SELECT rs FROM RunSummary rs WHERE rs.agentId = :agentId " +
+           "ORDER BY rs.startedAt DESC NULLS FIRST, rs.runId DESC")
+    List<RunSummary> findByAgentIdLatestFirst(@Param("agentId") String agentId, Pageable pageable);
+
+    @Query("SELECT rs FROM RunSummary rs WHERE rs.benchmarkId = :benchmarkId AND rs.agentId = :agentId " +
+           "ORDER BY rs.startedAt DESC NULLS FIRST, rs.runId DESC")
+    List<RunSummary> findHistory(@Param("benchmarkId") String benchmarkId, @Param("agentId") String agentId,
+                                 Pageable pageable);
+}
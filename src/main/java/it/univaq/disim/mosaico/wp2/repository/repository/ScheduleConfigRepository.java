@@ -1,7 +1,9 @@
 package it.univaq.disim.mosaico.wp2.repository.repository;
 
 import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,6 +23,10 @@ public interface ScheduleConfigRepository extends JpaRepository<ScheduleConfig,
 
     Optional<ScheduleConfig> findByBenchmarkIdAndAgentId(String benchmarkId, String agentId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sc FROM ScheduleConfig sc WHERE sc.id = :id")
+    Optional<ScheduleConfig> findForUpdate(@Param("id") String id);
+
     @Query("SELECT sc FROM ScheduleConfig sc WHERE sc.enabled = true AND sc.nextRunAt <= :now")
     List<ScheduleConfig> findDueSchedules(@Param("now") Instant now);
 
@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.repository;
+
+import it.univaq.disim.mosaico.wp2.repository.data.TextBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface TextBlobRepository extends JpaRepository<TextBlob, String> {
+
+    /**
+     * Inserts a blob unless one with the same id already exists. Concurrent
+     * writers of the same text therefore never fail the surrounding transaction.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO text_blobs (id, codec, original_length, content, created_at) "
+        + "VALUES (:id, :codec, :originalLength, :content, :createdAt) ON CONFLICT DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("codec") String codec,
+                       @Param("originalLength") int originalLength,
+                       @Param("content") byte[] content,
+                       @Param("createdAt") Instant createdAt);
+}
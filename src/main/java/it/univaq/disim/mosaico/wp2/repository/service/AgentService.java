@@ -6,6 +6,9 @@ import java.util.Optional;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.IOModality;
 import it.univaq.disim.mosaico.wp2.repository.dto.AgentSearchResult;
+import it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 
 /**
  * Service interface for Agent operations.
@@ -13,6 +16,12 @@ import it.univaq.disim.mosaico.wp2.repository.dto.AgentSearchResult;
 public interface AgentService {
 
     List<Agent> findAll();
+    /**
+     * Page of agent summaries ordered by id.
+     *
+     * @param after cursor returned with the previous page, null for the first page
+     */
+    CursorPage<AgentSummary> findSummaries(KeysetCursor after, int limit);
     Optional<Agent> findById(String id);
     Agent save(Agent agent);
     void deleteById(String id);
@@ -58,7 +58,8 @@ public interface AlertEvaluationService {
     Optional<AlertConfig> findById(String alertId);
 
     /**
-     * Checks if a KPI value would trigger an alert condition.
+     * Checks if a KPI value would trigger an alert condition. Conditions
+     * that depend on the history of a series never match a single value.
      */
     boolean checkAlertCondition(AlertConfig alert, double value);
 
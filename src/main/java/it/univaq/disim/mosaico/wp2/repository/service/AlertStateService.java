@@ -0,0 +1,36 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KpiDetector;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Maintains the current alert status of each benchmark, agent and KPI.
+ */
+public interface AlertStateService {
+
+    /**
+     * Evaluates written KPI history values against the enabled alerts of
+     * their KPI, adding the values newer than the state of their series to
+     * its detector. Must be called in the transaction that saved the history
+     * entries.
+     *
+     * @param changes the values written, with the values they replaced
+     */
+    void record(Collection<KpiValueChange> changes);
+
+    /**
+     * Re-evaluates the states of a benchmark KPI after its alerts changed.
+     * Does nothing when the benchmark is null.
+     */
+    void refresh(String benchmarkId, String kpiName);
+
+    /**
+     * The detector state of a series, if the value recorded at the given
+     * time is still its latest one.
+     */
+    Optional<KpiDetector> findDetector(String benchmarkId, String agentId, String kpiName, Instant recordedAt);
+}
@@ -2,6 +2,8 @@ package it.univaq.disim.mosaico.wp2.repository.service;
 
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 
+import java.util.Map;
+
 /**
  * Orchestrates the complete benchmark execution flow.
  * Coordinates data acquisition, metric computation, KPI evaluation,
@@ -25,12 +27,23 @@ public interface BenchmarkOrchestrator {
     void executeBenchmarkRunAsync(String runId);
 
     /**
-     * Cancels a running benchmark.
+     * Cancels a running benchmark. A run executing on this instance stops
+     * after the trace it is processing and records its cancellation itself;
+     * a finished run keeps its status.
      *
      * @param runId the ID of the benchmark run to cancel
      */
     void cancelBenchmarkRun(String runId);
 
+    /**
+     * Asks a run executing on this instance to stop after the trace it is
+     * processing, or before it starts, without waiting for it. The run records
+     * its cancellation when it stops.
+     *
+     * @param runId the ID of the benchmark run to stop
+     */
+    void requestCancel(String runId);
+
     /**
      * Retries a failed benchmark run.
      *
@@ -38,4 +51,14 @@ public interface BenchmarkOrchestrator {
      * @return the new run ID
      */
     String retryBenchmarkRun(String runId);
+
+    /**
+     * Recomputes the KPIs of an already executed run from its stored metric snapshots,
+     * updating the run's KPI history in place. KPIs using series functions keep their
+     * value unless the run is the latest sample of their series.
+     *
+     * @param runId the ID of the benchmark run
+     * @return the recomputed KPI values keyed by KPI name
+     */
+    Map<String, Double> recomputeKpis(String runId);
 }
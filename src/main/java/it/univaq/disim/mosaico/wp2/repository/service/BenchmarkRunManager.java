@@ -3,6 +3,9 @@ package it.univaq.disim.mosaico.wp2.repository.service;
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 
 import java.util.List;
 import java.util.Optional;
@@ -43,7 +46,16 @@ public interface BenchmarkRunManager {
     List<BenchmarkRun> findByStatus(RunStatus status);
 
     /**
-     * Gets the run history for a benchmark and agent.
+     * Finds one page of runs matching every non-null filter, most recently
+     * started first.
+     *
+     * @param before cursor returned with the previous page, null for the first page
+     */
+    CursorPage<BenchmarkRunListItem> findRuns(String benchmarkId, String agentId, RunStatus status,
+                                             KeysetCursor before, int limit);
+
+    /**
+     * Gets the most recent runs of an agent on a benchmark.
      */
     List<BenchmarkRun> getRunHistory(String benchmarkId, String agentId, int limit);
 
@@ -63,7 +75,8 @@ public interface BenchmarkRunManager {
     BenchmarkRun failRun(String runId, String errorMessage);
 
     /**
-     * Cancels a run.
+     * Cancels a run. A run that already completed, failed or was cancelled
+     * keeps its status.
      */
     BenchmarkRun cancelRun(String runId);
 
@@ -1,7 +1,10 @@
 package it.univaq.disim.mosaico.wp2.repository.service;
 
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.dto.ScheduleFiring;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -41,6 +44,23 @@ public interface BenchmarkSchedulerService {
      */
     List<ScheduleConfig> findDueSchedules();
 
+    /**
+     * Fires a due schedule: moves it to its next run time and tells whether it
+     * should run, which it should not if it is no longer due or a misfired run
+     * is skipped by its misfire policy.
+     *
+     * @param misfired whether the run time was missed by more than the misfire threshold
+     * @return the outcome, or empty if the schedule no longer exists
+     */
+    Optional<ScheduleFiring> fireSchedule(String scheduleId, Instant now, boolean misfired);
+
+    /**
+     * Creates a run of an enabled schedule, linked to the schedule.
+     *
+     * @return the run, or empty if the schedule no longer exists or is disabled
+     */
+    Optional<BenchmarkRun> createScheduledRun(String scheduleId);
+
     /**
      * Enables a schedule.
      */
@@ -7,12 +7,21 @@ import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
 import it.univaq.disim.mosaico.wp2.repository.data.PerformanceKPI;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 
 /**
  * Service interface for Benchmark operations.
  */
 public interface BenchmarkService {
     List<Benchmark> findAll();
+    /**
+     * Page of benchmark summaries ordered by id.
+     *
+     * @param after cursor returned with the previous page, null for the first page
+     */
+    CursorPage<BenchmarkSummary> findSummaries(KeysetCursor after, int limit);
     Optional<Benchmark> findById(String id);
     Benchmark save(Benchmark benchmark);
     void deleteById(String id);
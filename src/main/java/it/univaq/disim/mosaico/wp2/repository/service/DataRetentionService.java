@@ -0,0 +1,35 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Maintenance of the monthly partitions of metric_snapshots and kpi_history.
+ */
+public interface DataRetentionService {
+
+    /**
+     * Create the partitions from the current month up to the configured
+     * number of months ahead, so inserts always find a partition.
+     *
+     * @return the number of partitions created
+     */
+    int ensurePartitions();
+
+    /**
+     * Create the metric_snapshots partitions covering a past time range, so
+     * rows older than the retention period can be inserted again (e.g. when
+     * an archived run is restored).
+     *
+     * @return the number of partitions created
+     */
+    int ensureSnapshotPartitions(Instant from, Instant to);
+
+    /**
+     * Roll up and drop the partitions whose whole month is older than the
+     * retention period.
+     *
+     * @return the names of the dropped partitions
+     */
+    List<String> dropExpiredPartitions();
+}
@@ -0,0 +1,31 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBackfillReport;
+
+import java.util.List;
+
+/**
+ * Recomputes stored KPI history from the metric snapshots already persisted,
+ * so that a new or changed KPI formula applies to past runs without
+ * re-running the benchmark.
+ */
+public interface KpiBackfillService {
+
+    /**
+     * Re-evaluates a KPI over every completed run of its benchmark and
+     * updates (or creates) the corresponding KPI history entries.
+     *
+     * @param kpiId the PerformanceKPI to recompute
+     * @return a summary of the work done
+     * @throws IllegalArgumentException if the KPI does not exist or has no usable formula
+     */
+    KpiBackfillReport backfillKpi(String kpiId);
+
+    /**
+     * Re-evaluates every KPI of a benchmark.
+     *
+     * @param benchmarkId the benchmark whose KPIs should be recomputed
+     * @return one summary per KPI
+     */
+    List<KpiBackfillReport> backfillBenchmark(String benchmarkId);
+}
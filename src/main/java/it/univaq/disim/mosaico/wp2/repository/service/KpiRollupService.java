@@ -0,0 +1,32 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrend;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+
+import java.util.Collection;
+
+/**
+ * Maintains hourly, daily and weekly rollups of the KPI history and serves
+ * bounded KPI trends from them.
+ */
+public interface KpiRollupService {
+
+    /**
+     * Folds written KPI history values into their rollups. Must be called in
+     * the transaction that saved the history entries.
+     *
+     * @param changes the values written, with the values they replaced
+     */
+    void record(Collection<KpiValueChange> changes);
+
+    /**
+     * Returns the trend of a KPI over the last {@code days} days with at most
+     * {@code maxPoints} points. Raw history values are returned when they fit,
+     * otherwise the finest rollup that fits, downsampled with LTTB if even
+     * weekly buckets do not.
+     *
+     * @param days the range, counted back from now
+     * @param maxPoints the point budget
+     */
+    KpiTrend getTrend(String benchmarkId, String agentId, String kpiName, int days, int maxPoints);
+}
@@ -0,0 +1,49 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
+
+import java.util.Map;
+
+/**
+ * Evaluates KPI formulas that use series functions (MOVING_AVG, EWMA,
+ * DELTA_PREV, PCT_CHANGE, RANK_IN_BENCHMARK) against the persisted state of
+ * each series, updating that state with the run's values.
+ */
+public interface KpiSeriesService {
+
+    /**
+     * Evaluates a formula for a run and records the run in the state of each
+     * of its series functions. Evaluating the same run again replaces its
+     * sample rather than adding another one.
+     *
+     * @param formula the compiled formula
+     * @param metricValues the run's aggregated metrics
+     * @param run the run, which identifies the benchmark and agent of the series
+     * @param kpiId the PerformanceKPI the formula belongs to
+     * @return the KPI value
+     * @throws IllegalArgumentException if the value depends on a missing metric
+     */
+    double evaluate(CompiledKpiFormula formula, Map<?, Double> metricValues, BenchmarkRun run, String kpiId);
+
+    /**
+     * Whether the run is the last sample of every series of the formula, or
+     * the series have no sample yet. Only then can the run be evaluated again:
+     * the state cannot take back the sample of an older run once later runs
+     * have been added.
+     *
+     * @param formula the compiled formula
+     * @param run the run, which identifies the benchmark and agent of the series
+     * @param kpiId the PerformanceKPI the formula belongs to
+     * @return true if evaluating the run replaces its own samples or starts the series
+     */
+    boolean isLatestRun(CompiledKpiFormula formula, BenchmarkRun run, String kpiId);
+
+    /**
+     * Drops the series state of a KPI.
+     *
+     * @param kpiId the PerformanceKPI
+     * @return the number of states removed
+     */
+    int deleteKpiState(String kpiId);
+}
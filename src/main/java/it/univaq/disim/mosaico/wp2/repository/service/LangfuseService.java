@@ -375,6 +375,7 @@ public class LangfuseService {
                     traceData.input = extractInput(datasetItem);
                     traceData.expectedOutput = extractExpectedOutput(datasetItem);
                     traceData.generatedOutput = extractGeneratedOutput(trace);
+                    traceData.usage = TraceUsage.of(trace);
 
                     // Fetch scores from Langfuse using generalized method
                     traceData.langfuseScores = getScoresForTrace(trace);
@@ -756,5 +757,6 @@ public class LangfuseService {
         public String expectedOutput;
         public String generatedOutput;
         public Map<String, Double> langfuseScores = new LinkedHashMap<>();
+        public TraceUsage usage = TraceUsage.EMPTY;
     }
 }
@@ -0,0 +1,35 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.dto.Leaderboard;
+import it.univaq.disim.mosaico.wp2.repository.dto.LeaderboardRow;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Maintains per-benchmark KPI leaderboards and serves top-K and rank reads
+ * from them.
+ */
+public interface LeaderboardService {
+
+    /**
+     * Folds written KPI history values into the leaderboards. Must be called
+     * in the transaction that saved the history entries.
+     *
+     * @param changes the values written, with the values they replaced
+     */
+    void record(Collection<KpiValueChange> changes);
+
+    /**
+     * Returns the {@code limit} highest ranked agents of a benchmark KPI.
+     */
+    Leaderboard getTop(String benchmarkId, String kpiName, LeaderboardScore score, int limit);
+
+    /**
+     * Returns the rank of an agent on a benchmark KPI, empty if no value was
+     * recorded for it.
+     */
+    Optional<LeaderboardRow> findRank(String benchmarkId, String kpiName, String agentId, LeaderboardScore score);
+}
@@ -0,0 +1,38 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.BackfillReport;
+
+import java.util.Collection;
+
+/**
+ * Re-scores stored benchmark results with selected metric providers, without
+ * going back to Langfuse.
+ *
+ * Only the expected and generated texts are stored with a result, so
+ * providers that also read the trace (see {@link MetricProvider#isCacheable()})
+ * cannot be re-scored and keep their snapshots.
+ */
+public interface MetricBackfillService {
+
+    /**
+     * Re-scores every result of a run with the given providers, replaces their
+     * snapshots for the affected metric types and recomputes the run KPIs.
+     *
+     * @param runId the benchmark run to re-score
+     * @param providerIds ids of the providers to apply (see {@link MetricProvider#id()});
+     *                    all registered text-only providers when empty
+     * @return a summary of the work done
+     * @throws IllegalArgumentException if a provider is unknown or reads the trace
+     */
+    BackfillReport rescoreRun(String runId, Collection<String> providerIds);
+
+    /**
+     * Re-scores every completed run of a benchmark.
+     *
+     * @param benchmarkId the benchmark whose runs should be re-scored
+     * @param providerIds ids of the providers to apply; all registered text-only providers when empty
+     * @return a summary of the work done
+     * @throws IllegalArgumentException if a provider is unknown or reads the trace
+     */
+    BackfillReport rescoreBenchmark(String benchmarkId, Collection<String> providerIds);
+}
@@ -6,7 +6,49 @@ import it.univaq.disim.mosaico.wp2.repository.data.Metric;
 import it.univaq.disim.mosaico.wp2.repository.data.MetricKey;
 import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
 
+import java.util.Locale;
+
 public interface MetricProvider <K extends MetricKey> {
     Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace);
     Class<K> key();
+
+    /**
+     * Stable identifier of this provider, used to key memoized results.
+     */
+    default String id() {
+        return key().getSimpleName();
+    }
+
+    /**
+     * Version of the scoring logic. Bump it whenever the computation changes so
+     * that previously cached results are no longer reused.
+     */
+    default String version() {
+        return "1";
+    }
+
+    /**
+     * Whether the result depends only on the reference and generated texts and
+     * can therefore be memoized across traces and runs.
+     */
+    default boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Name under which this provider's results are stored and referenced in
+     * KPI formulas, i.e. the {@code MetricType} it reports. Derived from the
+     * key class by default: {@code F1ScoreMetric} becomes {@code F1_SCORE}.
+     */
+    default String metricKey() {
+        return metricKeyOf(key());
+    }
+
+    static String metricKeyOf(Class<?> key) {
+        String name = key.getSimpleName();
+        if (name.endsWith("Metric") && name.length() > "Metric".length()) {
+            name = name.substring(0, name.length() - "Metric".length());
+        }
+        return name.replaceAll("(?<=[a-z0-9])(?=[A-Z])", "_").toUpperCase(Locale.ROOT);
+    }
 }
@@ -4,6 +4,8 @@ import java.util.List;
 import org.springframework.stereotype.Service;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 
 @Service
 public interface MetricService {
@@ -16,6 +18,14 @@ public interface MetricService {
      * @return a list of all metrics
      */
     public List<Metric> findAll();
+
+    /*
+     * This method retrieves one page of metrics, ordered by id.
+     * @param after - the cursor returned with the previous page, null for the first page
+     * @param limit - the maximum number of metrics returned
+     * @return the page, with the cursor of the next one if any
+     */
+    public CursorPage<Metric> findPage(KeysetCursor after, int limit);
     
     /*
      * This method retrieves a metric by its id from the repository.
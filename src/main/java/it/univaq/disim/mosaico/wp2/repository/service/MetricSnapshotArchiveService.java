@@ -0,0 +1,31 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+/**
+ * Moves the metric snapshots of old completed runs into compressed columnar
+ * archives. Archived snapshots stay readable through MetricSnapshotRepository.
+ */
+public interface MetricSnapshotArchiveService {
+
+    /**
+     * Archive every finished run completed before the configured age.
+     *
+     * @return the number of runs archived
+     */
+    int archiveExpiredRuns();
+
+    /**
+     * Archive the snapshots of one run and delete their rows. Rows of a run
+     * that is already archived are folded into its archive.
+     *
+     * @return false if the run was already archived and has no rows left
+     */
+    boolean archiveRun(String runId);
+
+    /**
+     * Move the archived snapshots of one run back to rows and drop its
+     * archive, so they can be replaced (e.g. by a re-score).
+     *
+     * @return false if the run was not archived
+     */
+    boolean restoreRun(String runId);
+}
@@ -8,10 +8,20 @@ import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
 public interface NotificationDispatcher {
 
     /**
-     * Dispatches an alert notification to all configured channels.
+     * Queues an alert notification for all configured channels, in the
+     * caller's transaction. Notifications are sent by {@link #dispatchPending()}.
      */
     void dispatch(AlertConfig alert, String kpiName, double value);
 
+    /**
+     * Sends the queued notifications that are due, one message per channel
+     * and recipient. Failed notifications are retried later, and kept as
+     * dead letters once they run out of attempts.
+     *
+     * @return the number of queued notifications sent
+     */
+    int dispatchPending();
+
     /**
      * Sends an email notification.
      */
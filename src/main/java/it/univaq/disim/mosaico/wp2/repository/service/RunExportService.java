@@ -0,0 +1,21 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Bulk export of the results of a benchmark run.
+ */
+public interface RunExportService {
+
+    /**
+     * Write one record per result of the run, with the mean value of each of
+     * its metrics. Rows are streamed from the database, so memory does not
+     * grow with the size of the run.
+     *
+     * @return the number of results written
+     */
+    long exportRun(String runId, ExportFormat format, OutputStream out) throws IOException;
+}
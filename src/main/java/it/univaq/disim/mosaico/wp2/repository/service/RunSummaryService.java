@@ -0,0 +1,42 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maintains and reads the benchmark_run_summaries read model.
+ */
+public interface RunSummaryService {
+
+    /**
+     * Write the current state of a run into its summary. Called in the
+     * transaction of each run transition.
+     */
+    void refresh(BenchmarkRun run);
+
+    /**
+     * Replace the KPI values of a run's summary.
+     */
+    void recordKpis(String runId, Map<String, Double> kpiValues);
+
+    Optional<BenchmarkRunSummary> findByRunId(String runId);
+
+    /**
+     * The most recent run of an agent; runs not started yet come first.
+     */
+    Optional<BenchmarkRunSummary> findLatestForAgent(String agentId);
+
+    /**
+     * Runs of an agent, most recent first, at most {@code limit}.
+     */
+    List<BenchmarkRunSummary> findByAgentId(String agentId, int limit);
+
+    /**
+     * Runs of an agent on a benchmark, most recent first, at most {@code limit}.
+     */
+    List<BenchmarkRunSummary> findHistory(String benchmarkId, String agentId, int limit);
+}
@@ -0,0 +1,167 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.langfuse.client.core.ObjectMappers;
+import com.langfuse.client.resources.commons.types.TraceWithFullDetails;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Latency, token and cost figures of a Langfuse trace.
+ *
+ * Values are read from the trace JSON rather than through the generated
+ * getters, so that fields missing from older Langfuse servers simply come back
+ * as {@code null}. Token counts are summed over the trace's generation
+ * observations; latency and cost fall back to the observations when the trace
+ * itself does not carry them.
+ *
+ * @param latencySeconds end-to-end latency of the trace
+ * @param timeToFirstTokenSeconds time from trace start to the first streamed token
+ * @param inputTokens prompt tokens over all generations
+ * @param outputTokens completion tokens over all generations
+ * @param totalCost total cost as computed by Langfuse, in USD
+ */
+public record TraceUsage(
+    Double latencySeconds,
+    Double timeToFirstTokenSeconds,
+    Long inputTokens,
+    Long outputTokens,
+    Double totalCost
+) {
+
+    public static final TraceUsage EMPTY = new TraceUsage(null, null, null, null, null);
+
+    /**
+     * Extract usage figures from a Langfuse trace.
+     *
+     * @param trace the trace, may be null
+     * @return the usage, {@link #EMPTY} when the trace is null
+     */
+    public static TraceUsage of(TraceWithFullDetails trace) {
+        if (trace == null) {
+            return EMPTY;
+        }
+        return from(ObjectMappers.JSON_MAPPER.valueToTree(trace));
+    }
+
+    /**
+     * Extract usage figures from the JSON form of a trace, as returned by
+     * {@code GET /api/public/traces/{id}}.
+     */
+    public static TraceUsage from(JsonNode trace) {
+        if (trace == null || !trace.isObject()) {
+            return EMPTY;
+        }
+        Instant traceStart = instant(trace.get("timestamp"));
+        Instant firstStart = null;
+        Instant lastEnd = null;
+        Instant firstToken = null;
+        Double observedTimeToFirstToken = null;
+        Long inputTokens = null;
+        Long outputTokens = null;
+        Double observedCost = null;
+
+        JsonNode observations = trace.get("observations");
+        if (observations != null && observations.isArray()) {
+            for (JsonNode observation : observations) {
+                Instant start = instant(observation.get("startTime"));
+                Instant end = instant(observation.get("endTime"));
+                firstStart = min(firstStart, start);
+                lastEnd = max(lastEnd, end);
+
+                if (!"GENERATION".equals(text(observation.get("type")))) {
+                    continue;
+                }
+                firstToken = min(firstToken, instant(observation.get("completionStartTime")));
+                if (observedTimeToFirstToken == null) {
+                    observedTimeToFirstToken = number(observation.get("timeToFirstToken"));
+                }
+                inputTokens = add(inputTokens, tokens(observation, "input", "promptTokens"));
+                outputTokens = add(outputTokens, tokens(observation, "output", "completionTokens"));
+                observedCost = add(observedCost, number(observation.get("calculatedTotalCost")));
+            }
+        }
+
+        Double latency = number(trace.get("latency"));
+        if (latency == null && firstStart != null && lastEnd != null) {
+            latency = seconds(firstStart, lastEnd);
+        }
+
+        Instant start = traceStart != null ? traceStart : firstStart;
+        Double timeToFirstToken = observedTimeToFirstToken;
+        if (firstToken != null && start != null && !firstToken.isBefore(start)) {
+            timeToFirstToken = seconds(start, firstToken);
+        }
+
+        Double cost = number(trace.get("totalCost"));
+        if (cost == null) {
+            cost = observedCost;
+        }
+        return new TraceUsage(latency, timeToFirstToken, inputTokens, outputTokens, cost);
+    }
+
+    private static Long tokens(JsonNode observation, String usageField, String legacyField) {
+        for (String container : new String[] {"usageDetails", "usage"}) {
+            JsonNode usage = observation.get(container);
+            if (usage != null && usage.hasNonNull(usageField) && usage.get(usageField).isNumber()) {
+                return usage.get(usageField).asLong();
+            }
+        }
+        JsonNode legacy = observation.get(legacyField);
+        return legacy != null && legacy.isNumber() ? legacy.asLong() : null;
+    }
+
+    private static Double number(JsonNode node) {
+        return node != null && node.isNumber() ? node.asDouble() : null;
+    }
+
+    private static String text(JsonNode node) {
+        return node != null && node.isTextual() ? node.asText() : null;
+    }
+
+    private static Instant instant(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            // Dates serialized as timestamps: epoch seconds with a fractional part
+            double epochSeconds = node.asDouble();
+            long whole = (long) Math.floor(epochSeconds);
+            return Instant.ofEpochSecond(whole, Math.round((epochSeconds - whole) * 1e9));
+        }
+        try {
+            return OffsetDateTime.parse(node.asText()).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static double seconds(Instant from, Instant to) {
+        return Duration.between(from, to).toNanos() / 1e9;
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a == null || (b != null && b.isBefore(a)) ? b : a;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private static Long add(Long sum, Long value) {
+        if (value == null) {
+            return sum;
+        }
+        return sum == null ? value : Long.valueOf(sum + value);
+    }
+
+    private static Double add(Double sum, Double value) {
+        if (value == null) {
+            return sum;
+        }
+        return sum == null ? value : Double.valueOf(sum + value);
+    }
+}
@@ -5,11 +5,15 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Provider;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.IOModality;
 import it.univaq.disim.mosaico.wp2.repository.dto.AgentSearchResult;
+import it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.repository.AgentRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.ProviderRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
@@ -31,6 +35,13 @@ public class AgentServiceImpl implements AgentService {
     public List<Agent> findAll() {
         return agentRepository.findAll();
     }
+
+    @Override
+    public CursorPage<AgentSummary> findSummaries(KeysetCursor after, int limit) {
+        List<AgentSummary> fetched = agentRepository.findSummariesAfter(
+            after != null ? after.id() : "", PageRequest.of(0, limit + 1));
+        return CursorPage.of(fetched, limit, summary -> KeysetCursor.of(summary.id()));
+    }
     
     @Override
     public Optional<Agent> findById(String id) {
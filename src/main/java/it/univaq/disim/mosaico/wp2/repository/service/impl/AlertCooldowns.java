@@ -0,0 +1,154 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Last trigger time of each alert, kept in memory so that the cooldown of a
+ * hot alert is checked without reading or writing its row.
+ *
+ * An alert whose cooldown has expired is claimed with two compare-and-set
+ * steps: on the in-memory entry, so one evaluation of this instance wins, then
+ * on {@code alert_configs.last_triggered_at}, so one instance of the cluster
+ * wins. The row update runs in its own short transaction and only matches
+ * while the stored time is outside the cooldown, so claims never wait on a
+ * run's transaction and a claim is kept even if that transaction rolls back.
+ *
+ * Alerts without a cooldown never claim their row: their trigger times are
+ * recorded in memory and flushed periodically, never moving the stored time
+ * backwards.
+ */
+@Component
+public class AlertCooldowns {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertCooldowns.class);
+
+    private record Trigger(Instant at, boolean flushed) {
+
+        static Trigger latest(Trigger current, Trigger next) {
+            return next.at().isAfter(current.at()) ? next : current;
+        }
+    }
+
+    private final AlertConfigRepository alertConfigRepository;
+    private final TransactionTemplate rowTransaction;
+    private final ConcurrentMap<String, Trigger> triggers = new ConcurrentHashMap<>();
+
+    public AlertCooldowns(AlertConfigRepository alertConfigRepository, PlatformTransactionManager transactionManager) {
+        this.alertConfigRepository = alertConfigRepository;
+        this.rowTransaction = new TransactionTemplate(transactionManager);
+        this.rowTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Record a trigger of the alert unless it is in cooldown.
+     *
+     * @return whether the alert was triggered and should notify
+     */
+    public boolean tryTrigger(AlertConfig alert, Instant now) {
+        Duration cooldown = cooldown(alert);
+        if (cooldown.isZero()) {
+            recordTrigger(alert, now);
+            return true;
+        }
+
+        String alertId = alert.getId();
+        Trigger current;
+        Trigger claimed = new Trigger(now, true);
+        while (true) {
+            current = triggers.get(alertId);
+            Instant last = current != null ? current.at() : null;
+            if (alert.getLastTriggeredAt() != null && (last == null || alert.getLastTriggeredAt().isAfter(last))) {
+                last = alert.getLastTriggeredAt();
+            }
+            if (last != null && now.isBefore(last.plus(cooldown))) {
+                return false;
+            }
+            boolean won = current == null
+                ? triggers.putIfAbsent(alertId, claimed) == null
+                : triggers.replace(alertId, current, claimed);
+            if (won) {
+                break;
+            }
+        }
+
+        try {
+            return Boolean.TRUE.equals(rowTransaction.execute(status -> {
+                if (alertConfigRepository.claimTrigger(alertId, now, now.minus(cooldown)) > 0) {
+                    return true;
+                }
+                // Another instance triggered it first: its time starts the cooldown
+                alertConfigRepository.findLastTriggeredAt(alertId)
+                    .ifPresent(stored -> triggers.replace(alertId, claimed, new Trigger(stored, true)));
+                return false;
+            }));
+        } catch (RuntimeException e) {
+            // Not claimed: the next evaluation tries again
+            if (current == null) {
+                triggers.remove(alertId, claimed);
+            } else {
+                triggers.replace(alertId, claimed, current);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Record a trigger of the alert regardless of its cooldown. The time is
+     * stored by the next flush.
+     */
+    public void recordTrigger(AlertConfig alert, Instant now) {
+        triggers.merge(alert.getId(), new Trigger(now, false), Trigger::latest);
+    }
+
+    /**
+     * Stores the trigger times of alerts without a cooldown.
+     */
+    @Scheduled(fixedDelayString = "${mosaico.alerts.cooldown-flush-millis:10000}")
+    @PreDestroy
+    public void runFlush() {
+        flush();
+    }
+
+    int flush() {
+        int flushed = 0;
+        for (Map.Entry<String, Trigger> entry : triggers.entrySet()) {
+            Trigger trigger = entry.getValue();
+            if (trigger.flushed()) {
+                continue;
+            }
+            try {
+                rowTransaction.executeWithoutResult(status ->
+                    alertConfigRepository.advanceLastTriggeredAt(entry.getKey(), trigger.at()));
+                // A trigger recorded meanwhile is flushed next time
+                triggers.replace(entry.getKey(), trigger, new Trigger(trigger.at(), true));
+                flushed++;
+            } catch (RuntimeException e) {
+                logger.warn("Failed to store the last trigger time of alert {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        if (flushed > 0) {
+            logger.debug("Stored the last trigger time of {} alerts", flushed);
+        }
+        return flushed;
+    }
+
+    private static Duration cooldown(AlertConfig alert) {
+        Integer minutes = alert.getCooldownMinutes();
+        return minutes != null && minutes > 0 ? Duration.ofMinutes(minutes) : Duration.ZERO;
+    }
+}
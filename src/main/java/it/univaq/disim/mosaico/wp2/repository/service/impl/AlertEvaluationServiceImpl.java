@@ -2,25 +2,25 @@ package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
-import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
-import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
-import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiDetector;
+import it.univaq.disim.mosaico.wp2.repository.repository.AgentRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.AlertEvaluationService;
-import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService;
+import it.univaq.disim.mosaico.wp2.repository.service.AlertStateService;
 import it.univaq.disim.mosaico.wp2.repository.service.NotificationDispatcher;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.AlertRuleIndex.AlertRule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -33,19 +33,28 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
     private final KPIHistoryRepository kpiHistoryRepository;
     private final BenchmarkRunRepository benchmarkRunRepository;
     private final NotificationDispatcher notificationDispatcher;
-    private final BenchmarkService benchmarkService;
+    private final AgentRepository agentRepository;
+    private final AlertStateService alertStateService;
+    private final AlertRuleIndex alertRuleIndex;
+    private final AlertCooldowns alertCooldowns;
 
     public AlertEvaluationServiceImpl(
             AlertConfigRepository alertConfigRepository,
             KPIHistoryRepository kpiHistoryRepository,
             BenchmarkRunRepository benchmarkRunRepository,
             NotificationDispatcher notificationDispatcher,
-            BenchmarkService benchmarkService) {
+            AgentRepository agentRepository,
+            AlertStateService alertStateService,
+            AlertRuleIndex alertRuleIndex,
+            AlertCooldowns alertCooldowns) {
         this.alertConfigRepository = alertConfigRepository;
         this.kpiHistoryRepository = kpiHistoryRepository;
         this.benchmarkRunRepository = benchmarkRunRepository;
         this.notificationDispatcher = notificationDispatcher;
-        this.benchmarkService = benchmarkService;
+        this.agentRepository = agentRepository;
+        this.alertStateService = alertStateService;
+        this.alertRuleIndex = alertRuleIndex;
+        this.alertCooldowns = alertCooldowns;
     }
 
     @Override
@@ -58,21 +67,21 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
             return;
         }
 
-        // Get KPI history for this run
-        List<KPIHistory> kpiHistories = kpiHistoryRepository
-            .findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc(run.getBenchmarkId(), run.getAgentId());
-
-        // Get active alerts for this benchmark
-        List<AlertConfig> alerts = alertConfigRepository.findByBenchmarkIdAndEnabled(run.getBenchmarkId(), true);
-
-        for (KPIHistory kpiHistory : kpiHistories) {
-            if (!runId.equals(kpiHistory.getRunId())) {
-                continue; // Only evaluate KPIs from this run
+        // Only the KPIs of this run, and only the alerts on each of them
+        for (KPIHistory kpiHistory : kpiHistoryRepository.findByRunId(runId)) {
+            List<AlertRule> rules = alertRuleIndex.rulesFor(run.getBenchmarkId(), kpiHistory.getKpiName());
+            if (rules.isEmpty()) {
+                continue;
             }
-
-            for (AlertConfig alert : alerts) {
-                if (alert.getKpiName().equals(kpiHistory.getKpiName())) {
-                    evaluateAlert(alert, kpiHistory);
+            // Historical conditions read the detector state of the series, kept up to date as KPIs are written
+            KpiDetector detector = rules.stream().anyMatch(rule -> rule.condition().isHistorical())
+                ? alertStateService.findDetector(kpiHistory.getBenchmarkId(), kpiHistory.getAgentId(),
+                    kpiHistory.getKpiName(), kpiHistory.getRecordedAt()).orElse(null)
+                : null;
+            for (AlertRule rule : rules) {
+                if (rule.isTriggeredBy(kpiHistory.getValue(), detector)) {
+                    alertConfigRepository.findById(rule.alertId())
+                        .ifPresent(alert -> evaluateAlert(alert, kpiHistory, detector));
                 }
             }
         }
@@ -86,6 +95,7 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
         for (AlertConfig alert : alerts) {
             if (checkAlertCondition(alert, value)) {
                 triggeredAlerts.add(alert);
+                alertCooldowns.recordTrigger(alert, Instant.now());
                 triggerAlert(alert, kpiName, value);
             }
         }
@@ -102,19 +112,34 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
     @Override
     public AlertConfig createAlert(AlertConfig config) {
         logger.info("Creating alert: {}", config.getName());
-        return alertConfigRepository.save(config);
+        AlertConfig saved = alertConfigRepository.save(config);
+        refreshStates(AlertKey.of(saved));
+        alertRuleIndex.alertsChanged();
+        return saved;
     }
 
     @Override
     public AlertConfig updateAlert(AlertConfig config) {
         logger.info("Updating alert: {}", config.getId());
-        return alertConfigRepository.save(config);
+        // The alert may move to another benchmark KPI, whose states must then drop it
+        Optional<AlertKey> previous = Optional.ofNullable(config.getId())
+            .flatMap(alertConfigRepository::findById)
+            .map(AlertKey::of);
+        AlertConfig saved = alertConfigRepository.save(config);
+        AlertKey current = AlertKey.of(saved);
+        refreshStates(current);
+        previous.filter(key -> !key.equals(current)).ifPresent(this::refreshStates);
+        alertRuleIndex.alertsChanged();
+        return saved;
     }
 
     @Override
     public void deleteAlert(String alertId) {
         logger.info("Deleting alert: {}", alertId);
+        Optional<AlertKey> key = alertConfigRepository.findById(alertId).map(AlertKey::of);
         alertConfigRepository.deleteById(alertId);
+        key.ifPresent(this::refreshStates);
+        alertRuleIndex.alertsChanged();
     }
 
     @Override
@@ -122,6 +147,8 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
         alertConfigRepository.findById(alertId).ifPresent(alert -> {
             alert.setEnabled(true);
             alertConfigRepository.save(alert);
+            refreshStates(AlertKey.of(alert));
+            alertRuleIndex.alertsChanged();
             logger.info("Enabled alert: {}", alertId);
         });
     }
@@ -131,6 +158,8 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
         alertConfigRepository.findById(alertId).ifPresent(alert -> {
             alert.setEnabled(false);
             alertConfigRepository.save(alert);
+            refreshStates(AlertKey.of(alert));
+            alertRuleIndex.alertsChanged();
             logger.info("Disabled alert: {}", alertId);
         });
     }
@@ -141,39 +170,42 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
         return alertConfigRepository.findById(alertId);
     }
 
-    private void evaluateAlert(AlertConfig alert, KPIHistory kpiHistory) {
-        if (alert.isInCooldown()) {
-            logger.debug("Alert {} is in cooldown, skipping", alert.getId());
+    private void evaluateAlert(AlertConfig alert, KPIHistory kpiHistory, KpiDetector detector) {
+        // The index may briefly lag behind a change made on another instance
+        if (!Boolean.TRUE.equals(alert.getEnabled())) {
             return;
         }
-
-        if (checkAlertCondition(alert, kpiHistory.getValue())) {
-            triggerAlert(alert, kpiHistory.getKpiName(), kpiHistory.getValue());
+        if (!alert.isTriggeredBy(kpiHistory.getValue(), detector)) {
+            return;
+        }
+        // The cooldown is checked in memory; only a trigger after it expires writes the alert row
+        if (!alertCooldowns.tryTrigger(alert, Instant.now())) {
+            logger.debug("Alert {} is in cooldown, skipping", alert.getId());
+            return;
         }
+        triggerAlert(alert, kpiHistory.getKpiName(), kpiHistory.getValue());
     }
 
     @Override
     public boolean checkAlertCondition(AlertConfig alert, double value) {
-        AlertCondition condition = alert.getCondition();
-        double threshold = alert.getThreshold();
+        return alert.isTriggeredBy(value);
+    }
+
+    private record AlertKey(String benchmarkId, String kpiName) {
+        static AlertKey of(AlertConfig alert) {
+            return new AlertKey(alert.getBenchmarkId(), alert.getKpiName());
+        }
+    }
 
-        return switch (condition) {
-            case LESS_THAN -> value < threshold;
-            case GREATER_THAN -> value > threshold;
-            case EQUALS -> Math.abs(value - threshold) < 0.0001;
-            case NOT_EQUALS -> Math.abs(value - threshold) >= 0.0001;
-            case PERCENTAGE_DROP, PERCENTAGE_RISE, ANOMALY_DETECTED -> false; // Require historical data
-        };
+    private void refreshStates(AlertKey key) {
+        alertStateService.refresh(key.benchmarkId(), key.kpiName());
     }
 
     private void triggerAlert(AlertConfig alert, String kpiName, double value) {
         logger.warn("Alert triggered: {} - KPI {} = {} (threshold: {})",
             alert.getName(), kpiName, value, alert.getThreshold());
 
-        alert.markTriggered();
-        alertConfigRepository.save(alert);
-
-        // Dispatch notification
+        // Queued with this transaction and sent once it commits
         notificationDispatcher.dispatch(alert, kpiName, value);
     }
 
@@ -186,64 +218,8 @@ public class AlertEvaluationServiceImpl implements AlertEvaluationService {
 
         logger.info("Fetching agents with non-alerting KPIs for skill: {}", skillNameOrId);
 
-        List<Benchmark> benchmarks = benchmarkService.findBySkill(skillNameOrId);
-
-        if (benchmarks.isEmpty()) {
-            logger.info("No benchmarks found for skill: {}", skillNameOrId);
-            return new ArrayList<>();
-        }
-
-        List<Agent> nonAlertingAgents = new ArrayList<>();
-
-        for (Benchmark benchmark : benchmarks) {
-            String benchmarkId = benchmark.getId();
-
-            // Get all active alert configs for this benchmark
-            List<AlertConfig> alertConfigs = alertConfigRepository.findByBenchmarkIdAndEnabled(benchmarkId, true);
-
-            // Get all agents evaluated by this benchmark
-            for (Agent agent : benchmark.getEvaluates()) {
-                // Get the latest benchmark run for this agent and benchmark
-                List<BenchmarkRun> runs = benchmarkRunRepository
-                        .findByBenchmarkIdAndAgentIdOrderByStartedAtDesc(benchmarkId, agent.getId());
-
-                if (runs.isEmpty()) {
-                    // No runs, consider agent as non-alerting (no data to alert on)
-                    if (!nonAlertingAgents.contains(agent)) {
-                        nonAlertingAgents.add(agent);
-                    }
-                    continue;
-                }
-
-                BenchmarkRun latestRun = runs.get(0);
-                List<BenchmarkResult> results = latestRun.getResults();
-
-                boolean hasAlert = false;
-
-                // Check each result's KPI values against alert configs
-                for (BenchmarkResult result : results) {
-                    Map<String, Double> kpiValues = result.getKpiValues();
-
-                    for (AlertConfig alertConfig : alertConfigs) {
-                        String kpiName = alertConfig.getKpiName();
-                        Double kpiValue = kpiValues.get(kpiName);
-
-                        if (kpiValue != null && checkAlertCondition(alertConfig, kpiValue)) {
-                            hasAlert = true;
-                            break;
-                        }
-                    }
-
-                    if (hasAlert) {
-                        break;
-                    }
-                }
-
-                if (!hasAlert && !nonAlertingAgents.contains(agent)) {
-                    nonAlertingAgents.add(agent);
-                }
-            }
-        }
+        // One query on the alert states, kept current as KPIs are written and alerts change
+        List<Agent> nonAlertingAgents = agentRepository.findWithoutAlertingKpiBySkill(skillNameOrId);
 
         logger.info("Found {} agents with non-alerting KPIs for skill: {}", nonAlertingAgents.size(), skillNameOrId);
         return nonAlertingAgents;
@@ -0,0 +1,117 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Keeps the {@link AlertRuleIndex} of this instance in step with alert
+ * changes made by other instances.
+ *
+ * A daemon thread holds one pooled connection listening on the alert rule
+ * notification channel and rebuilds the index on every notification sent by
+ * another instance. Notifications sent while the connection is down are lost,
+ * so the index is also rebuilt every time listening (re)starts.
+ */
+@Component
+@ConditionalOnProperty(name = "mosaico.alerts.rule-notifications.enabled", havingValue = "true", matchIfMissing = true)
+public class AlertRuleChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertRuleChangeListener.class);
+
+    private final DataSource dataSource;
+    private final AlertRuleIndex alertRuleIndex;
+    private final int pollMillis;
+    private final long retryMillis;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public AlertRuleChangeListener(
+            DataSource dataSource,
+            AlertRuleIndex alertRuleIndex,
+            @Value("${mosaico.alerts.rule-notifications.poll-millis:5000}") int pollMillis,
+            @Value("${mosaico.alerts.rule-notifications.retry-millis:10000}") long retryMillis) {
+        this.dataSource = dataSource;
+        this.alertRuleIndex = alertRuleIndex;
+        this.pollMillis = Math.max(100, pollMillis);
+        this.retryMillis = Math.max(100, retryMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!alertRuleIndex.notificationsSupported()) {
+            logger.info("Database does not support notifications, alert rules are only refreshed locally");
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "alert-rule-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + AlertRuleIndex.CHANNEL);
+                }
+                logger.info("Listening for alert rule changes on {}", AlertRuleIndex.CHANNEL);
+                alertRuleIndex.reload();
+
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications(pollMillis);
+                    if (received != null && fromOtherInstance(received)) {
+                        alertRuleIndex.reload();
+                    }
+                }
+            } catch (SQLException | DataAccessException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Alert rule listener failed, retrying in {} ms: {}", retryMillis, e.getMessage());
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean fromOtherInstance(PGNotification[] received) {
+        for (PGNotification notification : received) {
+            if (!alertRuleIndex.instanceId().equals(notification.getParameter())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
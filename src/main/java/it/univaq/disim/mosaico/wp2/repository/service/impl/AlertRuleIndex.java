@@ -0,0 +1,181 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiDetector;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AnomalyDetector;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory index of the enabled alerts, keyed by benchmark and KPI name, so
+ * that evaluating the KPIs of a run costs one map lookup per KPI instead of a
+ * scan of every alert of the benchmark.
+ *
+ * The index holds immutable {@link AlertRule}s, not entities: mutable alert
+ * state such as the last trigger time is read from the database only for the
+ * alerts that match. It is rebuilt as a whole and published with a single
+ * volatile write, so readers never block.
+ *
+ * Alert changes rebuild the index once their transaction commits and are
+ * announced to the other instances on the {@value #CHANNEL} PostgreSQL
+ * notification channel (see {@link AlertRuleChangeListener}). Other databases
+ * only see their own changes.
+ */
+@Component
+public class AlertRuleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertRuleIndex.class);
+
+    static final String CHANNEL = "mosaico_alert_rules";
+
+    static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    /**
+     * The part of an alert needed to match a KPI value.
+     */
+    public record AlertRule(String alertId, String kpiName, AlertCondition condition, double threshold,
+                            Integer comparisonWindowHours, AnomalyDetector anomalyDetector) {
+
+        static AlertRule of(AlertConfig alert) {
+            return new AlertRule(alert.getId(), alert.getKpiName(), alert.getCondition(), alert.getThreshold(),
+                alert.getComparisonWindowHours(), alert.getAnomalyDetector());
+        }
+
+        public boolean isTriggeredBy(double value) {
+            return condition.isMetBy(value, threshold);
+        }
+
+        /**
+         * Like {@link AlertConfig#isTriggeredBy(double, KpiDetector)}.
+         */
+        public boolean isTriggeredBy(double value, KpiDetector detector) {
+            if (!condition.isHistorical()) {
+                return isTriggeredBy(value);
+            }
+            return detector != null && detector.isTriggered(condition, threshold, comparisonWindowHours, anomalyDetector);
+        }
+    }
+
+    private record RuleKey(String benchmarkId, String kpiName) {
+    }
+
+    private final AlertConfigRepository alertConfigRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private volatile Map<RuleKey, List<AlertRule>> rules;
+    private volatile Boolean notificationsSupported;
+
+    public AlertRuleIndex(AlertConfigRepository alertConfigRepository, JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.alertConfigRepository = alertConfigRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * The enabled alerts on a KPI of a benchmark. Alerts without a benchmark
+     * are not indexed.
+     */
+    public List<AlertRule> rulesFor(String benchmarkId, String kpiName) {
+        Map<RuleKey, List<AlertRule>> current = rules;
+        if (current == null) {
+            current = load();
+        }
+        return current.getOrDefault(new RuleKey(benchmarkId, kpiName), List.of());
+    }
+
+    /**
+     * Rebuild the index from the database. Rebuilds are serialized, so the
+     * last one to finish has read the latest committed alerts.
+     */
+    public void reload() {
+        load();
+    }
+
+    private synchronized Map<RuleKey, List<AlertRule>> load() {
+        List<AlertConfig> enabled = readTransaction.execute(status -> alertConfigRepository.findByEnabled(true));
+        Map<RuleKey, List<AlertRule>> byKey = new HashMap<>();
+        int count = 0;
+        for (AlertConfig alert : enabled != null ? enabled : List.<AlertConfig>of()) {
+            if (alert.getBenchmarkId() == null || alert.getKpiName() == null
+                    || alert.getCondition() == null || alert.getThreshold() == null) {
+                continue;
+            }
+            byKey.computeIfAbsent(new RuleKey(alert.getBenchmarkId(), alert.getKpiName()), k -> new ArrayList<>())
+                .add(AlertRule.of(alert));
+            count++;
+        }
+        byKey.replaceAll((key, list) -> List.copyOf(list));
+        Map<RuleKey, List<AlertRule>> rebuilt = Map.copyOf(byKey);
+        rules = rebuilt;
+        logger.debug("Indexed {} alert rules on {} benchmark KPIs", count, rebuilt.size());
+        return rebuilt;
+    }
+
+    /**
+     * Rebuild the index once the current transaction commits, or right away
+     * without one, and announce the change to the other instances.
+     */
+    public void alertsChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+        if (notificationsSupported()) {
+            // Delivered by PostgreSQL only if and when the transaction commits
+            jdbcTemplate.queryForList(NOTIFY, CHANNEL, instanceId);
+        }
+    }
+
+    /**
+     * Identifies the notifications sent by this instance.
+     */
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Whether the database supports change notifications (PostgreSQL).
+     */
+    public boolean notificationsSupported() {
+        Boolean supported = notificationsSupported;
+        if (supported == null) {
+            try {
+                supported = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            } catch (DataAccessException e) {
+                logger.warn("Cannot determine the database product: {}", e.getMessage());
+                return false;
+            }
+            notificationsSupported = supported;
+        }
+        return supported;
+    }
+}
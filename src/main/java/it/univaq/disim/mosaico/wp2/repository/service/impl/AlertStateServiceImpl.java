@@ -0,0 +1,124 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiAlertState;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiDetector;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiAlertStateRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AlertStateService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Implementation of AlertStateService.
+ *
+ * Changes are applied per series in time order, so the detector sees every
+ * new value, and each state is evaluated once, on its latest value. The
+ * alerts of each benchmark KPI are loaded once per call. A missing state is
+ * inserted before it is locked, so concurrent runs that start a series
+ * update it one after the other.
+ */
+@Service
+@Transactional
+public class AlertStateServiceImpl implements AlertStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertStateServiceImpl.class);
+
+    private final KpiAlertStateRepository stateRepository;
+    private final AlertConfigRepository alertConfigRepository;
+
+    public AlertStateServiceImpl(KpiAlertStateRepository stateRepository, AlertConfigRepository alertConfigRepository) {
+        this.stateRepository = stateRepository;
+        this.alertConfigRepository = alertConfigRepository;
+    }
+
+    private record SeriesKey(String benchmarkId, String agentId, String kpiName) {
+    }
+
+    private record KpiKey(String benchmarkId, String kpiName) {
+    }
+
+    @Override
+    public void record(Collection<KpiValueChange> changes) {
+        Map<SeriesKey, List<KpiValueChange>> bySeries = new LinkedHashMap<>();
+        for (KpiValueChange change : changes) {
+            if (change.recordedAt() == null || Double.isNaN(change.value())) {
+                continue;
+            }
+            bySeries.computeIfAbsent(new SeriesKey(change.benchmarkId(), change.agentId(), change.kpiName()),
+                k -> new ArrayList<>()).add(change);
+        }
+
+        Map<KpiKey, List<AlertConfig>> alertsByKpi = new HashMap<>();
+        bySeries.forEach((key, seriesChanges) -> {
+            KpiAlertState state = lockOrCreate(key);
+            seriesChanges.sort(Comparator.comparing(KpiValueChange::recordedAt));
+            boolean updated = false;
+            for (KpiValueChange change : seriesChanges) {
+                // Re-scores of older runs leave the state of a newer value alone
+                if (state.getRecordedAt() != null && change.recordedAt().isBefore(state.getRecordedAt())) {
+                    continue;
+                }
+                state.record(change.recordedAt(), change.value());
+                updated = true;
+            }
+            if (!updated) {
+                return;
+            }
+            state.evaluate(alertsByKpi.computeIfAbsent(new KpiKey(key.benchmarkId(), key.kpiName()),
+                k -> alertConfigRepository.findActiveAlertsForKpi(k.benchmarkId(), k.kpiName())));
+            stateRepository.save(state);
+        });
+    }
+
+    private KpiAlertState lockOrCreate(SeriesKey key) {
+        String id = UUID.randomUUID().toString();
+        if (stateRepository.insertIfAbsent(id, key.benchmarkId(), key.agentId(), key.kpiName(), Instant.now()) > 0) {
+            // Our empty row: saving the new state overwrites it
+            KpiAlertState state = new KpiAlertState(key.benchmarkId(), key.agentId(), key.kpiName());
+            state.setId(id);
+            return state;
+        }
+        return stateRepository.findForUpdate(key.benchmarkId(), key.agentId(), key.kpiName())
+            .orElseThrow(() -> new IllegalStateException("KPI alert state not found: " + key));
+    }
+
+    @Override
+    public void refresh(String benchmarkId, String kpiName) {
+        if (benchmarkId == null || kpiName == null) {
+            return;
+        }
+        List<KpiAlertState> states = stateRepository.findByBenchmarkIdAndKpiName(benchmarkId, kpiName);
+        if (states.isEmpty()) {
+            return;
+        }
+        List<AlertConfig> alerts = alertConfigRepository.findActiveAlertsForKpi(benchmarkId, kpiName);
+        for (KpiAlertState state : states) {
+            state.evaluate(alerts);
+        }
+        stateRepository.saveAll(states);
+        logger.debug("Re-evaluated {} alert states of KPI {} on benchmark {}", states.size(), kpiName, benchmarkId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<KpiDetector> findDetector(String benchmarkId, String agentId, String kpiName, Instant recordedAt) {
+        return stateRepository.findByBenchmarkIdAndAgentIdAndKpiName(benchmarkId, agentId, kpiName)
+            .filter(state -> state.getRecordedAt() != null && state.getRecordedAt().equals(recordedAt))
+            .map(KpiAlertState::getDetector);
+    }
+}
@@ -2,8 +2,11 @@ package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
 import com.langfuse.client.resources.commons.types.TraceWithFullDetails;
 import it.univaq.disim.mosaico.wp2.repository.data.*;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
 import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
@@ -19,6 +22,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Implementation of BenchmarkOrchestrator.
@@ -42,6 +47,18 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
     private final MetricSnapshotRepository metricSnapshotRepository;
     private final KPIHistoryRepository kpiHistoryRepository;
     private final PerformanceKPIRepository performanceKPIRepository;
+    private final MetricResultCache metricResultCache;
+    private final TextBlobService textBlobService;
+    private final RunMetricAggregator runMetricAggregator;
+    private final KpiSeriesService kpiSeriesService;
+    private final KpiRollupService kpiRollupService;
+    private final LeaderboardService leaderboardService;
+    private final AlertStateService alertStateService;
+    private final RunSummaryService runSummaryService;
+
+    // Runs executing on this instance, and those of them asked to stop
+    private final Set<String> executing = ConcurrentHashMap.newKeySet();
+    private final Set<String> cancelRequested = ConcurrentHashMap.newKeySet();
 
     public BenchmarkOrchestratorImpl(
             BenchmarkRunManager runManager,
@@ -54,7 +71,15 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
             BenchmarkResultRepository resultRepository,
             MetricSnapshotRepository metricSnapshotRepository,
             KPIHistoryRepository kpiHistoryRepository,
-            PerformanceKPIRepository performanceKPIRepository) {
+            PerformanceKPIRepository performanceKPIRepository,
+            MetricResultCache metricResultCache,
+            TextBlobService textBlobService,
+            RunMetricAggregator runMetricAggregator,
+            KpiSeriesService kpiSeriesService,
+            KpiRollupService kpiRollupService,
+            LeaderboardService leaderboardService,
+            AlertStateService alertStateService,
+            RunSummaryService runSummaryService) {
         this.runManager = runManager;
         this.benchmarkService = benchmarkService;
         this.agentService = agentService;
@@ -66,12 +91,41 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
         this.metricSnapshotRepository = metricSnapshotRepository;
         this.kpiHistoryRepository = kpiHistoryRepository;
         this.performanceKPIRepository = performanceKPIRepository;
+        this.metricResultCache = metricResultCache;
+        this.textBlobService = textBlobService;
+        this.runMetricAggregator = runMetricAggregator;
+        this.kpiSeriesService = kpiSeriesService;
+        this.kpiRollupService = kpiRollupService;
+        this.leaderboardService = leaderboardService;
+        this.alertStateService = alertStateService;
+        this.runSummaryService = runSummaryService;
     }
 
     @Override
     public BenchmarkRun executeBenchmarkRun(String runId) {
         logger.info("Starting benchmark execution for run: {}", runId);
 
+        executing.add(runId);
+        try {
+            BenchmarkRun cancelled = runManager.findById(runId)
+                .filter(existing -> existing.getStatus() == RunStatus.CANCELLED)
+                .orElse(null);
+            if (cancelled != null) {
+                logger.info("Benchmark run {} was cancelled before it started", runId);
+                return cancelled;
+            }
+            if (cancelRequested.contains(runId)) {
+                logger.info("Benchmark run {} was asked to stop before it started", runId);
+                return runManager.cancelRun(runId);
+            }
+            return execute(runId);
+        } finally {
+            executing.remove(runId);
+            cancelRequested.remove(runId);
+        }
+    }
+
+    private BenchmarkRun execute(String runId) {
         BenchmarkRun run = runManager.startRun(runId);
 
         try {
@@ -98,6 +152,10 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
 
             // 3. Process each trace
             for (TraceData trace : traces) {
+                if (cancelRequested.contains(runId)) {
+                    logger.info("Benchmark run {} cancelled after {} traces", runId, tracesProcessed);
+                    return runManager.cancelRun(runId);
+                }
                 BenchmarkResult result = processTrace(run, benchmark, agent, trace);
                 resultRepository.save(result);
                 tracesProcessed++;
@@ -106,7 +164,7 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
             }
 
             // 4. Compute and persist KPIs
-            computeAndPersistKPIs(run, benchmark, agent);
+            computeAndPersistKPIs(run, benchmark, agent, false);
 
             // 5. Evaluate alerts
             alertEvaluationService.evaluateAlertsForRun(runId);
@@ -130,9 +188,20 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
     @Override
     public void cancelBenchmarkRun(String runId) {
         logger.info("Cancelling benchmark run: {}", runId);
+        // While it executes, its transaction holds the run's row: let it write the status
+        if (executing.contains(runId)) {
+            requestCancel(runId);
+            return;
+        }
         runManager.cancelRun(runId);
     }
 
+    @Override
+    public void requestCancel(String runId) {
+        // Cleared when the run's execution ends
+        cancelRequested.add(runId);
+    }
+
     @Override
     public String retryBenchmarkRun(String runId) {
         BenchmarkRun failedRun = runManager.findById(runId)
@@ -155,6 +224,17 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
         return newRun.getId();
     }
 
+    @Override
+    public Map<String, Double> recomputeKpis(String runId) {
+        BenchmarkRun run = runManager.findById(runId)
+            .orElseThrow(() -> new IllegalArgumentException("Run not found: " + runId));
+        Benchmark benchmark = benchmarkService.findById(run.getBenchmarkId())
+            .orElseThrow(() -> new IllegalStateException("Benchmark not found: " + run.getBenchmarkId()));
+        Agent agent = agentService.findById(run.getAgentId())
+            .orElseThrow(() -> new IllegalStateException("Agent not found: " + run.getAgentId()));
+        return computeAndPersistKPIs(run, benchmark, agent, true);
+    }
+
     private BenchmarkResult processTrace(BenchmarkRun run, Benchmark benchmark, Agent agent, TraceData trace) {
         BenchmarkResult result = new BenchmarkResult(run, trace.traceId);
 
@@ -162,28 +242,38 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
         String generatedText = trace.generatedOutput;
         result.setExpectedText(expectedText);
         result.setGeneratedText(generatedText);
+        textBlobService.attachTexts(result);
 
-        // Compute metrics for this trace
+        // Score on this thread, reusing memoized results for identical texts: providers block
+        // on HTTP and cache transactions, and each scoring thread would take its own connection
         for (MetricProvider<?> provider : metricProviderRegistry.getAllProviders()) {
-            try {
-                Metric metric = provider.compute(agent, expectedText, generatedText, trace);
-                MetricSnapshot snapshot = MetricSnapshot.fromMetric(run.getId(), metric, trace.traceId);
-                result.addMetricSnapshot(snapshot);
-            } catch (Exception e) {
-                logger.warn("Failed to compute metric {} for trace {}: {}",
-                    provider.getClass().getSimpleName(), trace.traceId, e.getMessage());
+            Metric metric = computeMetric(provider, agent, expectedText, generatedText, trace);
+            if (metric != null) {
+                result.addMetricSnapshot(MetricSnapshot.fromMetric(run.getId(), metric, trace.traceId));
             }
         }
 
         return result;
     }
 
-    private void computeAndPersistKPIs(BenchmarkRun run, Benchmark benchmark, Agent agent) {
+    private Metric computeMetric(MetricProvider<?> provider, Agent agent, String expectedText,
+                                 String generatedText, TraceData trace) {
+        try {
+            return metricResultCache.computeIfAbsent(provider, agent, expectedText, generatedText, trace);
+        } catch (Exception e) {
+            logger.warn("Failed to compute metric {} for trace {}: {}",
+                provider.getClass().getSimpleName(), trace.traceId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Double> computeAndPersistKPIs(BenchmarkRun run, Benchmark benchmark, Agent agent,
+                                                      boolean recompute) {
         // Load KPIs from database instead of using @Transient field
         List<PerformanceKPI> kpis = performanceKPIRepository.findByBenchmark_Id(benchmark.getId());
         if (kpis == null || kpis.isEmpty()) {
             logger.debug("No KPIs configured for benchmark {}", benchmark.getId());
-            return;
+            return Map.of();
         }
         logger.info("Found {} KPIs for benchmark {}", kpis.size(), benchmark.getId());
 
@@ -196,22 +286,40 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
         for (PerformanceKPI kpi : kpis) {
             try {
                 KPIFormula formula = kpiFormulaDslService.buildFromSpecification(kpi.getSpecification());
+                if (recompute && formula instanceof CompiledKpiFormula compiled && compiled.isWindowed()
+                        && !kpiSeriesService.isLatestRun(compiled, run, kpi.getId())) {
+                    // Later runs are already in the series: keep the value the run got in its turn
+                    logger.info("Keeping KPI {} of run {}: its series already hold later runs",
+                        kpi.getDescription(), run.getId());
+                    kpiHistoryRepository.findFirstByRunIdAndKpiName(run.getId(), kpi.getDescription())
+                        .ifPresent(history -> computedKpiValues.put(kpi.getDescription(), history.getValue()));
+                    continue;
+                }
                 // Convert string keys to class keys if needed
-                double kpiValue = evaluateKpiFormula(formula, aggregatedMetrics);
+                double kpiValue = evaluateKpiFormula(formula, aggregatedMetrics, run, kpi);
 
                 // Store computed KPI value for later assignment to results
                 computedKpiValues.put(kpi.getDescription(), kpiValue);
 
-                KPIHistory history = new KPIHistory(
-                    benchmark.getId(),
-                    agent.getId(),
-                    kpi.getDescription(),
-                    kpiValue
-                );
+                // Update the run's entry in place when KPIs are recomputed (e.g. after a re-score)
+                KPIHistory history = kpiHistoryRepository
+                    .findFirstByRunIdAndKpiName(run.getId(), kpi.getDescription())
+                    .orElseGet(() -> new KPIHistory(
+                        benchmark.getId(),
+                        agent.getId(),
+                        kpi.getDescription(),
+                        kpiValue
+                    ));
+                Double previousValue = history.getId() != null ? history.getValue() : null;
+                history.setValue(kpiValue);
                 history.setRunId(run.getId());
                 history.setKpiId(kpi.getId());
                 history.evaluateStatus();
                 kpiHistoryRepository.save(history);
+                List<KpiValueChange> changes = List.of(KpiValueChange.of(history, previousValue));
+                kpiRollupService.record(changes);
+                leaderboardService.record(changes);
+                alertStateService.record(changes);
 
                 logger.debug("Computed KPI {} = {} for run {}", kpi.getDescription(), kpiValue, run.getId());
             } catch (Exception e) {
@@ -228,16 +336,14 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
             }
             logger.debug("Updated {} benchmark results with {} KPI values for run {}",
                 results.size(), computedKpiValues.size(), run.getId());
+            runSummaryService.recordKpis(run.getId(), computedKpiValues);
         }
+        return computedKpiValues;
     }
 
     private Map<String, Double> aggregateMetricsForRun(String runId) {
-        List<MetricSnapshot> snapshots = metricSnapshotRepository.findByRunId(runId);
-        return snapshots.stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                MetricSnapshot::getMetricKey,
-                java.util.stream.Collectors.averagingDouble(MetricSnapshot::getValue)
-            ));
+        // Means per metric plus run-level percentiles of latency, tokens and cost
+        return runMetricAggregator.aggregate(metricSnapshotRepository.findByRunId(runId));
     }
 
     private String resolveLangfuseRunName(BenchmarkRun run, Benchmark benchmark) {
@@ -249,20 +355,25 @@ public class BenchmarkOrchestratorImpl implements BenchmarkOrchestrator {
     }
 
     @SuppressWarnings("unchecked")
-    private double evaluateKpiFormula(KPIFormula formula, Map<String, Double> metricValues) {
-        // Convert String keys to Class<MetricKey> for the formula
-        Map<Class<? extends MetricKey>, Double> classKeyMap = new java.util.HashMap<>();
+    private double evaluateKpiFormula(KPIFormula formula, Map<String, Double> metricValues,
+                                      BenchmarkRun run, PerformanceKPI kpi) {
+        // Keep the string keys for DSL formulas and add Class<MetricKey> keys for typed ones
+        Map<Object, Double> formulaInputs = new java.util.HashMap<>(metricValues);
         for (Map.Entry<String, Double> entry : metricValues.entrySet()) {
             // Try to find matching MetricKey class
             String key = entry.getKey();
             if ("ROUGE".equalsIgnoreCase(key)) {
-                classKeyMap.put(RougeMetric.class, entry.getValue());
+                formulaInputs.put(RougeMetric.class, entry.getValue());
             } else if ("BLEU".equalsIgnoreCase(key)) {
-                classKeyMap.put(BlueMetric.class, entry.getValue());
+                formulaInputs.put(BlueMetric.class, entry.getValue());
             }
             // Add more mappings as needed
         }
-        return formula.evaluate(classKeyMap);
+        if (formula instanceof CompiledKpiFormula compiled && compiled.isWindowed()) {
+            // MOVING_AVG, EWMA, ... read and advance the persisted series state
+            return kpiSeriesService.evaluate(compiled, formulaInputs, run, kpi.getId());
+        }
+        return formula.evaluate(formulaInputs);
     }
 
     private String extractExpectedText(TraceWithFullDetails trace) {
@@ -3,15 +3,22 @@ package it.univaq.disim.mosaico.wp2.repository.service.impl;
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -19,10 +26,14 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
 
     private static final Logger logger = LoggerFactory.getLogger(BenchmarkRunManagerImpl.class);
 
+    private static final Set<RunStatus> FINISHED = EnumSet.of(RunStatus.COMPLETED, RunStatus.FAILED, RunStatus.CANCELLED);
+
     private final BenchmarkRunRepository repository;
+    private final RunSummaryService runSummaryService;
 
-    public BenchmarkRunManagerImpl(BenchmarkRunRepository repository) {
+    public BenchmarkRunManagerImpl(BenchmarkRunRepository repository, RunSummaryService runSummaryService) {
         this.repository = repository;
+        this.runSummaryService = runSummaryService;
     }
 
     @Override
@@ -32,6 +43,7 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
         run.setTriggeredByUser(triggeredBy);
         run.setLangfuseRunName(langfuseRunName);
         run = repository.save(run);
+        runSummaryService.refresh(run);
         logger.info("Created benchmark run: {}", run.getId());
         return run;
     }
@@ -60,13 +72,21 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
         return repository.findByStatus(status);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BenchmarkRunListItem> findRuns(String benchmarkId, String agentId, RunStatus status,
+                                                    KeysetCursor before, int limit) {
+        List<BenchmarkRunListItem> fetched = repository.findSummaries(benchmarkId, agentId, status, before, limit + 1);
+        return CursorPage.of(fetched, limit, run -> new KeysetCursor(run.startedAt(), run.id()));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<BenchmarkRun> getRunHistory(String benchmarkId, String agentId, int limit) {
-        return repository.findByBenchmarkIdAndAgentId(benchmarkId, agentId)
-            .stream()
-            .limit(limit)
-            .toList();
+        if (limit <= 0) {
+            return List.of();
+        }
+        return repository.findHistory(benchmarkId, agentId, PageRequest.of(0, limit));
     }
 
     @Override
@@ -75,6 +95,7 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
             .orElseThrow(() -> new IllegalArgumentException("Run not found: " + runId));
         run.start();
         run = repository.save(run);
+        runSummaryService.refresh(run);
         logger.info("Started benchmark run: {}", runId);
         return run;
     }
@@ -87,6 +108,7 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
         run.setMetricsComputed(metricsComputed);
         run.complete();
         run = repository.save(run);
+        runSummaryService.refresh(run);
         logger.info("Completed benchmark run: {} (traces={}, metrics={})", runId, tracesProcessed, metricsComputed);
         return run;
     }
@@ -97,6 +119,7 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
             .orElseThrow(() -> new IllegalArgumentException("Run not found: " + runId));
         run.fail(errorMessage);
         run = repository.save(run);
+        runSummaryService.refresh(run);
         logger.error("Failed benchmark run: {} - {}", runId, errorMessage);
         return run;
     }
@@ -105,8 +128,13 @@ public class BenchmarkRunManagerImpl implements BenchmarkRunManager {
     public BenchmarkRun cancelRun(String runId) {
         BenchmarkRun run = repository.findById(runId)
             .orElseThrow(() -> new IllegalArgumentException("Run not found: " + runId));
+        if (FINISHED.contains(run.getStatus())) {
+            logger.info("Benchmark run {} already finished as {}, not cancelling it", runId, run.getStatus());
+            return run;
+        }
         run.cancel();
         run = repository.save(run);
+        runSummaryService.refresh(run);
         logger.info("Cancelled benchmark run: {}", runId);
         return run;
     }
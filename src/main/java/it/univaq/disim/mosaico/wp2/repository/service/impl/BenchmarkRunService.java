@@ -21,8 +21,6 @@ import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
 @Service
 public class BenchmarkRunService {
 
-    private static final int DEFAULT_TEXT_MAX_LENGTH = 100;
-
     /**
      * Creates a new {@link BenchmarkRun} for the provided benchmark and agent.
      */
@@ -44,6 +42,7 @@ public class BenchmarkRunService {
 
     /**
      * Builds {@link BenchmarkResult} entries for every trace that participated in the run.
+     * Texts are clamped to {@code maxTextLength} characters; a non-positive value keeps them whole.
      */
     public List<BenchmarkResult> buildBenchmarkResults(BenchmarkRun run,
                                                        List<TraceData> traces,
@@ -54,11 +53,10 @@ public class BenchmarkRunService {
             return results;
         }
 
-        int clamp = maxTextLength > 0 ? maxTextLength : DEFAULT_TEXT_MAX_LENGTH;
         for (TraceData trace : traces) {
             BenchmarkResult result = new BenchmarkResult(run, trace.traceId);
-            result.setExpectedText(truncate(trace.expectedOutput, clamp));
-            result.setGeneratedText(truncate(trace.generatedOutput, clamp));
+            result.setExpectedText(truncate(trace.expectedOutput, maxTextLength));
+            result.setGeneratedText(truncate(trace.generatedOutput, maxTextLength));
             result.setKpiValues(kpiValues);
             results.add(result);
         }
@@ -95,18 +93,18 @@ public class BenchmarkRunService {
     }
 
     /**
-     * Convenience overload that clamps text using the service default.
+     * Convenience overload that keeps the full texts, so results can be re-scored later.
      */
     public List<BenchmarkResult> buildBenchmarkResults(BenchmarkRun run,
                                                        List<TraceData> traces,
                                                        Map<String, Double> kpiValues) {
-        return buildBenchmarkResults(run, traces, kpiValues, DEFAULT_TEXT_MAX_LENGTH);
+        return buildBenchmarkResults(run, traces, kpiValues, 0);
     }
 
     private String truncate(String text, int maxLen) {
         if (text == null) {
             return "";
         }
-        return text.length() > maxLen ? text.substring(0, maxLen) + "..." : text;
+        return maxLen > 0 && text.length() > maxLen ? text.substring(0, maxLen) + "..." : text;
     }
 }
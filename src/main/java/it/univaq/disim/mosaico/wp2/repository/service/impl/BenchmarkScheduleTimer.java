@@ -0,0 +1,325 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.repository.ScheduleConfigRepository;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Fires benchmark schedules at their run times.
+ *
+ * One instance of the cluster leads: on PostgreSQL, the one holding a
+ * session-level advisory lock on its listening connection; other databases
+ * only support a single instance. The leader keeps the next fire time of
+ * every enabled schedule in a {@link ScheduleQueue} and its thread sleeps
+ * until the earliest one, so schedules cost nothing between firings. Changes
+ * made through {@link ScheduleChanges} reach the leader as notifications, and
+ * the queue is also reloaded periodically. Followers try to take the lock
+ * every retry interval, so a new leader takes over when the leader's
+ * connection drops.
+ *
+ * Each fire time is the schedule's next run time plus a jitter, so that
+ * schedules sharing a cron expression do not all start at once. The jitter
+ * is bounded by the schedule's start jitter, or else by a fraction of its
+ * cron interval, and never reaches the following run time; it is derived from
+ * the schedule and run time so that every leader picks the same one. A run
+ * time missed by more than the misfire threshold is fired according to the
+ * schedule's misfire policy.
+ */
+@Component
+@ConditionalOnProperty(name = "mosaico.scheduler.enabled", havingValue = "true", matchIfMissing = true)
+public class BenchmarkScheduleTimer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkScheduleTimer.class);
+
+    static final long LEADER_LOCK = "mosaico_scheduler_leader".hashCode();
+
+    private interface Changes {
+        Set<String> await(long millis) throws SQLException, InterruptedException;
+    }
+
+    private final DataSource dataSource;
+    private final ScheduleConfigRepository repository;
+    private final TransactionTemplate readTransaction;
+    private final ScheduleChanges scheduleChanges;
+    private final BenchmarkScheduledTaskRunner taskRunner;
+    private final Duration misfireThreshold;
+    private final long pollMillis;
+    private final long reloadMillis;
+    private final long retryMillis;
+    private final double jitterFraction;
+    private final ScheduleQueue queue = new ScheduleQueue();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public BenchmarkScheduleTimer(
+            DataSource dataSource,
+            ScheduleConfigRepository repository,
+            PlatformTransactionManager transactionManager,
+            ScheduleChanges scheduleChanges,
+            BenchmarkScheduledTaskRunner taskRunner,
+            @Value("${mosaico.scheduler.misfire-threshold-seconds:60}") long misfireThresholdSeconds,
+            @Value("${mosaico.scheduler.poll-millis:5000}") long pollMillis,
+            @Value("${mosaico.scheduler.reload-millis:300000}") long reloadMillis,
+            @Value("${mosaico.scheduler.retry-millis:10000}") long retryMillis,
+            @Value("${mosaico.scheduler.jitter-fraction:0.05}") double jitterFraction) {
+        this.dataSource = dataSource;
+        this.repository = repository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.scheduleChanges = scheduleChanges;
+        this.taskRunner = taskRunner;
+        this.misfireThreshold = Duration.ofSeconds(Math.max(0, misfireThresholdSeconds));
+        this.pollMillis = Math.max(100, pollMillis);
+        this.reloadMillis = Math.max(this.pollMillis, reloadMillis);
+        this.retryMillis = Math.max(100, retryMillis);
+        this.jitterFraction = Math.min(1, Math.max(0, jitterFraction));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "benchmark-schedule-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        boolean cluster = scheduleChanges.notificationsSupported();
+        if (!cluster) {
+            logger.info("Database does not support advisory locks, this instance fires all schedules");
+        }
+        while (running) {
+            try {
+                if (cluster) {
+                    leadCluster();
+                } else {
+                    lead(scheduleChanges::awaitLocalChanges);
+                }
+            } catch (SQLException | DataAccessException e) {
+                if (running) {
+                    logger.warn("Benchmark schedule timer failed, retrying in {} ms: {}", retryMillis, e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.clear();
+            if (!pause(retryMillis)) {
+                return;
+            }
+        }
+    }
+
+    private void leadCluster() throws SQLException, InterruptedException {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!tryLock(connection)) {
+                return;
+            }
+            try {
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                execute(connection, "LISTEN " + ScheduleChanges.CHANNEL);
+                logger.info("Leading benchmark schedules, listening for changes on {}", ScheduleChanges.CHANNEL);
+                lead(millis -> changedIds(notifications.getNotifications((int) Math.max(1, millis))));
+            } finally {
+                // The connection goes back to the pool with its session
+                try {
+                    execute(connection, "UNLISTEN *");
+                    execute(connection, "SELECT pg_advisory_unlock(" + LEADER_LOCK + ")");
+                } catch (SQLException e) {
+                    logger.debug("Could not release the scheduler connection: {}", e.getMessage());
+                }
+                logger.info("Stopped leading benchmark schedules");
+            }
+        }
+    }
+
+    private void lead(Changes changes) throws SQLException, InterruptedException {
+        reload();
+        Instant reloadAt = Instant.now().plusMillis(reloadMillis);
+        while (running) {
+            Instant now = Instant.now();
+            if (!now.isBefore(reloadAt)) {
+                reload();
+                reloadAt = now.plusMillis(reloadMillis);
+            }
+            tick(now);
+
+            long waitMillis = pollMillis;
+            Instant next = queue.nextFireAt();
+            if (next != null) {
+                waitMillis = Math.min(waitMillis, Math.max(1, Duration.between(Instant.now(), next).toMillis()));
+            }
+            Set<String> changed = changes.await(waitMillis);
+            if (!changed.isEmpty()) {
+                refresh(changed);
+            }
+        }
+    }
+
+    /**
+     * Load the fire times of all enabled schedules.
+     */
+    void reload() {
+        List<ScheduleConfig> schedules = readTransaction.execute(status -> repository.findByEnabled(true));
+        queue.clear();
+        if (schedules != null) {
+            schedules.forEach(this::enqueue);
+        }
+        logger.debug("Loaded {} benchmark schedules", queue.size());
+    }
+
+    /**
+     * Reload the fire times of the given schedules.
+     */
+    void refresh(Collection<String> scheduleIds) {
+        for (String scheduleId : scheduleIds) {
+            Optional<ScheduleConfig> schedule = readTransaction.execute(status -> repository.findById(scheduleId));
+            queue.remove(scheduleId);
+            if (schedule != null) {
+                schedule.ifPresent(this::enqueue);
+            }
+        }
+    }
+
+    /**
+     * Fire the schedules that are due at the given time.
+     *
+     * @return the number of schedules fired
+     */
+    int tick(Instant now) {
+        List<ScheduleQueue.Due> due = queue.pollDue(now);
+        for (ScheduleQueue.Due entry : due) {
+            boolean misfired = Duration.between(entry.fireAt(), now).compareTo(misfireThreshold) > 0;
+            try {
+                taskRunner.fire(entry.scheduleId(), now, misfired).ifPresent(this::enqueue);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to fire schedule {}, retrying in {} ms: {}",
+                    entry.scheduleId(), retryMillis, e.getMessage());
+                queue.put(entry.scheduleId(), now.plusMillis(retryMillis));
+            }
+        }
+        return due.size();
+    }
+
+    /**
+     * The time the given schedule fires at, or null if it is not queued.
+     */
+    Instant fireTime(String scheduleId) {
+        return queue.fireTime(scheduleId);
+    }
+
+    private void enqueue(ScheduleConfig schedule) {
+        if (!Boolean.TRUE.equals(schedule.getEnabled()) || schedule.getNextRunAt() == null) {
+            queue.remove(schedule.getId());
+            return;
+        }
+        queue.put(schedule.getId(), schedule.getNextRunAt().plusMillis(jitterMillis(schedule)));
+    }
+
+    long jitterMillis(ScheduleConfig schedule) {
+        Integer jitterSeconds = schedule.getStartJitterSeconds();
+        if (jitterSeconds != null && jitterSeconds <= 0) {
+            return 0;
+        }
+        long windowMillis = cronWindowMillis(schedule);
+        long boundMillis = jitterSeconds != null
+            ? Math.min(jitterSeconds * 1000L, windowMillis)
+            : (long) (windowMillis * jitterFraction);
+        if (boundMillis <= 0) {
+            return 0;
+        }
+        long seed = Objects.hash(schedule.getId(), schedule.getNextRunAt());
+        return new SplittableRandom(seed).nextLong(boundMillis);
+    }
+
+    /**
+     * The time from the schedule's next run time to the one after.
+     */
+    private static long cronWindowMillis(ScheduleConfig schedule) {
+        try {
+            ZonedDateTime next = schedule.getNextRunAt().atZone(schedule.getTimezoneId());
+            ZonedDateTime after = CronExpression.parse(schedule.getCronExpression()).next(next);
+            return after != null ? Duration.between(next, after).toMillis() : 0;
+        } catch (RuntimeException e) {
+            logger.warn("Cannot compute the run interval of schedule {}: {}", schedule.getId(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT pg_try_advisory_lock(" + LEADER_LOCK + ")")) {
+            return result.next() && result.getBoolean(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Set<String> changedIds(PGNotification[] received) {
+        Set<String> changed = new HashSet<>();
+        if (received != null) {
+            for (PGNotification notification : received) {
+                changed.add(notification.getParameter());
+            }
+        }
+        return changed;
+    }
+}
@@ -1,21 +1,20 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
-import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
-import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
-import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
-import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
+import it.univaq.disim.mosaico.wp2.repository.dto.ScheduleFiring;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkSchedulerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.time.Instant;
+import java.util.Optional;
 
 /**
  * Scheduled task runner for automated benchmark execution.
- * Runs periodically to check for due schedules and execute them.
+ * Hands the schedules fired by the {@link BenchmarkScheduleTimer} to the
+ * {@link ScheduledRunLauncher} and runs the periodic maintenance tasks.
  */
 @Component
 public class BenchmarkScheduledTaskRunner {
@@ -23,63 +22,37 @@ public class BenchmarkScheduledTaskRunner {
     private static final Logger logger = LoggerFactory.getLogger(BenchmarkScheduledTaskRunner.class);
 
     private final BenchmarkSchedulerService schedulerService;
-    private final BenchmarkRunManager runManager;
-    private final BenchmarkOrchestrator orchestrator;
+    private final ScheduledRunLauncher runLauncher;
 
     public BenchmarkScheduledTaskRunner(
             BenchmarkSchedulerService schedulerService,
-            BenchmarkRunManager runManager,
-            BenchmarkOrchestrator orchestrator) {
+            ScheduledRunLauncher runLauncher) {
         this.schedulerService = schedulerService;
-        this.runManager = runManager;
-        this.orchestrator = orchestrator;
+        this.runLauncher = runLauncher;
     }
 
     /**
-     * Runs every minute to check for due benchmark schedules.
+     * Fires a due schedule and lines up its run.
+     *
+     * @param misfired whether the run time was missed by more than the misfire threshold
+     * @return the schedule as left by the firing, or empty if it no longer exists
      */
-    @Scheduled(fixedRate = 60000) // Every minute
-    public void runDueSchedules() {
-        List<ScheduleConfig> dueSchedules = schedulerService.findDueSchedules();
-
-        if (dueSchedules.isEmpty()) {
-            return;
+    public Optional<ScheduleConfig> fire(String scheduleId, Instant now, boolean misfired) {
+        try {
+            Optional<ScheduleFiring> firing = schedulerService.fireSchedule(scheduleId, now, misfired);
+            firing.filter(ScheduleFiring::runDue).ifPresent(fired -> {
+                ScheduleConfig schedule = fired.schedule();
+                logger.info("Executing scheduled benchmark: schedule={}, benchmark={}, agent={}",
+                    scheduleId, schedule.getBenchmarkId(), schedule.getAgentId());
+                runLauncher.launch(schedule);
+            });
+            return firing.map(ScheduleFiring::schedule);
+        } catch (Exception e) {
+            logger.error("Failed to execute scheduled benchmark for schedule {}: {}",
+                scheduleId, e.getMessage(), e);
+            schedulerService.recordRunFailure(scheduleId, null);
+            return schedulerService.findById(scheduleId);
         }
-
-        logger.info("Found {} due schedules to execute", dueSchedules.size());
-
-        for (ScheduleConfig schedule : dueSchedules) {
-            try {
-                executeBenchmark(schedule);
-            } catch (Exception e) {
-                logger.error("Failed to execute scheduled benchmark for schedule {}: {}",
-                    schedule.getId(), e.getMessage(), e);
-                schedulerService.recordRunFailure(schedule.getId(), null);
-            }
-        }
-    }
-
-    private void executeBenchmark(ScheduleConfig schedule) {
-        logger.info("Executing scheduled benchmark: schedule={}, benchmark={}, agent={}",
-            schedule.getId(), schedule.getBenchmarkId(), schedule.getAgentId());
-
-        // Create the run
-        BenchmarkRun run = runManager.createRun(
-            schedule.getBenchmarkId(),
-            schedule.getAgentId(),
-            TriggerType.SCHEDULED,
-            "scheduler",
-            schedule.getLangfuseRunName()
-        );
-        run.setScheduleConfigId(schedule.getId());
-
-        // Update next run time before execution
-        schedulerService.updateNextRunTime(schedule.getId());
-
-        // Execute asynchronously
-        orchestrator.executeBenchmarkRunAsync(run.getId());
-
-        logger.info("Started scheduled benchmark run: {}", run.getId());
     }
 
     /**
@@ -1,7 +1,12 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MisfirePolicy;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.ScheduleFiring;
 import it.univaq.disim.mosaico.wp2.repository.repository.ScheduleConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkSchedulerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,9 +29,16 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
     private static final Logger logger = LoggerFactory.getLogger(BenchmarkSchedulerServiceImpl.class);
 
     private final ScheduleConfigRepository repository;
+    private final BenchmarkRunManager runManager;
+    private final ScheduleChanges scheduleChanges;
 
-    public BenchmarkSchedulerServiceImpl(ScheduleConfigRepository repository) {
+    public BenchmarkSchedulerServiceImpl(
+            ScheduleConfigRepository repository,
+            BenchmarkRunManager runManager,
+            ScheduleChanges scheduleChanges) {
         this.repository = repository;
+        this.runManager = runManager;
+        this.scheduleChanges = scheduleChanges;
     }
 
     @Override
@@ -60,8 +72,10 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
             config.setAutoDisableOnFailure(true);
         }
 
-        calculateNextRunTime(config);
-        return repository.save(config);
+        calculateNextRunTime(config, Instant.now());
+        ScheduleConfig saved = repository.save(config);
+        scheduleChanges.scheduleChanged(saved.getId());
+        return saved;
     }
 
     @Override
@@ -69,9 +83,11 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
         logger.info("Updating schedule {}", config.getId());
         if (config.getCronExpression() != null) {
             validateCronExpression(config.getCronExpression());
-            calculateNextRunTime(config);
+            calculateNextRunTime(config, Instant.now());
         }
-        return repository.save(config);
+        ScheduleConfig saved = repository.save(config);
+        scheduleChanges.scheduleChanged(saved.getId());
+        return saved;
     }
 
     @Override
@@ -98,12 +114,51 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
         return repository.findDueSchedules(Instant.now());
     }
 
+    @Override
+    public Optional<ScheduleFiring> fireSchedule(String scheduleId, Instant now, boolean misfired) {
+        // The row lock makes a firing and a concurrent edit of the schedule wait for each other
+        return repository.findForUpdate(scheduleId).map(config -> {
+            if (!Boolean.TRUE.equals(config.getEnabled())
+                    || config.getNextRunAt() == null || config.getNextRunAt().isAfter(now)) {
+                return new ScheduleFiring(config, false);
+            }
+
+            boolean runDue = true;
+            if (misfired && config.getMisfirePolicy() == MisfirePolicy.SKIP) {
+                logger.info("Skipping run of schedule {} missed at {}", scheduleId, config.getNextRunAt());
+                runDue = false;
+            }
+
+            // Missed run times are not caught up one by one
+            calculateNextRunTime(config, now);
+            return new ScheduleFiring(repository.save(config), runDue);
+        });
+    }
+
+    @Override
+    public Optional<BenchmarkRun> createScheduledRun(String scheduleId) {
+        return repository.findById(scheduleId)
+            .filter(config -> Boolean.TRUE.equals(config.getEnabled()))
+            .map(config -> {
+                BenchmarkRun run = runManager.createRun(
+                    config.getBenchmarkId(),
+                    config.getAgentId(),
+                    TriggerType.SCHEDULED,
+                    "scheduler",
+                    config.getLangfuseRunName()
+                );
+                run.setScheduleConfigId(config.getId());
+                return run;
+            });
+    }
+
     @Override
     public void enableSchedule(String scheduleId) {
         repository.findById(scheduleId).ifPresent(config -> {
             config.setEnabled(true);
-            calculateNextRunTime(config);
+            calculateNextRunTime(config, Instant.now());
             repository.save(config);
+            scheduleChanges.scheduleChanged(scheduleId);
             logger.info("Enabled schedule {}", scheduleId);
         });
     }
@@ -113,6 +168,7 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
         repository.findById(scheduleId).ifPresent(config -> {
             config.setEnabled(false);
             repository.save(config);
+            scheduleChanges.scheduleChanged(scheduleId);
             logger.info("Disabled schedule {}", scheduleId);
         });
     }
@@ -120,14 +176,16 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
     @Override
     public void deleteSchedule(String scheduleId) {
         repository.deleteById(scheduleId);
+        scheduleChanges.scheduleChanged(scheduleId);
         logger.info("Deleted schedule {}", scheduleId);
     }
 
     @Override
     public void updateNextRunTime(String scheduleId) {
         repository.findById(scheduleId).ifPresent(config -> {
-            calculateNextRunTime(config);
+            calculateNextRunTime(config, Instant.now());
             repository.save(config);
+            scheduleChanges.scheduleChanged(scheduleId);
         });
     }
 
@@ -135,7 +193,6 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
     public void recordRunSuccess(String scheduleId, String runId) {
         repository.findById(scheduleId).ifPresent(config -> {
             config.recordRunSuccess(runId);
-            calculateNextRunTime(config);
             repository.save(config);
             logger.info("Recorded successful run {} for schedule {}", runId, scheduleId);
         });
@@ -145,8 +202,9 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
     public void recordRunFailure(String scheduleId, String runId) {
         repository.findById(scheduleId).ifPresent(config -> {
             config.recordRunFailure(runId);
-            calculateNextRunTime(config);
             repository.save(config);
+            // It may have been disabled
+            scheduleChanges.scheduleChanged(scheduleId);
             logger.warn("Recorded failed run {} for schedule {}. Consecutive failures: {}",
                 runId, scheduleId, config.getConsecutiveFailures());
         });
@@ -158,11 +216,10 @@ public class BenchmarkSchedulerServiceImpl implements BenchmarkSchedulerService
         }
     }
 
-    private void calculateNextRunTime(ScheduleConfig config) {
+    private void calculateNextRunTime(ScheduleConfig config, Instant after) {
         try {
             CronExpression cron = CronExpression.parse(config.getCronExpression());
-            ZonedDateTime now = ZonedDateTime.now(config.getTimezoneId());
-            ZonedDateTime next = cron.next(now);
+            ZonedDateTime next = cron.next(after.atZone(config.getTimezoneId()));
             if (next != null) {
                 config.setNextRunAt(next.toInstant());
             }
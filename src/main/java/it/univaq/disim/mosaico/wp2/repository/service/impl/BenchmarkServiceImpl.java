@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import com.langfuse.client.resources.commons.types.TraceWithFullDetails;
@@ -15,6 +16,9 @@ import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
 import it.univaq.disim.mosaico.wp2.repository.data.MetricKey;
 import it.univaq.disim.mosaico.wp2.repository.data.PerformanceKPI;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRepository;
 import it.univaq.disim.mosaico.wp2.repository.data.Skill;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService;
@@ -50,6 +54,13 @@ public class BenchmarkServiceImpl implements BenchmarkService {
         return benchmarkRepository.findAll();
     }
 
+    @Override
+    public CursorPage<BenchmarkSummary> findSummaries(KeysetCursor after, int limit) {
+        List<BenchmarkSummary> fetched = benchmarkRepository.findSummariesAfter(
+            after != null ? after.id() : "", PageRequest.of(0, limit + 1));
+        return CursorPage.of(fetched, limit, summary -> KeysetCursor.of(summary.id()));
+    }
+
     @Override
     public Optional<Benchmark> findById(String id) {
         return benchmarkRepository.findById(id);
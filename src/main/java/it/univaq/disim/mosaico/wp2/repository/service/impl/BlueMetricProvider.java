@@ -72,4 +72,9 @@ public class BlueMetricProvider implements MetricProvider<BlueMetric> {
     public Class<BlueMetric> key() {
         return BlueMetric.class;
     }
+
+    @Override
+    public String metricKey() {
+        return MetricType.BLEU.name();
+    }
 }
@@ -0,0 +1,68 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers used to address content (texts, metric inputs) by value.
+ */
+public final class ContentHash {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash a text as UTF-8. A null text hashes like the empty string.
+     *
+     * @param text the text to hash
+     * @return lowercase hex SHA-256 digest (64 characters)
+     */
+    public static String sha256(String text) {
+        return sha256(text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash raw bytes.
+     *
+     * @param bytes the bytes to hash
+     * @return lowercase hex SHA-256 digest (64 characters)
+     */
+    public static String sha256(byte[] bytes) {
+        return HEX.formatHex(digest().digest(bytes));
+    }
+
+    /**
+     * Hash an ordered list of parts. Each part is length-prefixed so that
+     * ("ab", "c") and ("a", "bc") produce different digests.
+     *
+     * @param parts the parts to hash
+     * @return lowercase hex SHA-256 digest (64 characters)
+     */
+    public static String sha256Of(String... parts) {
+        MessageDigest digest = digest();
+        for (String part : parts) {
+            byte[] bytes = part == null ? new byte[0] : part.getBytes(StandardCharsets.UTF_8);
+            digest.update(intToBytes(bytes.length));
+            digest.update(bytes);
+        }
+        return HEX.formatHex(digest.digest());
+    }
+
+    private static byte[] intToBytes(int value) {
+        return new byte[] {
+            (byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value
+        };
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.CosinePredGoldMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * TF-IDF cosine between generated and reference text, the
+ * {@code cosine_pred_gold} score of the llm-usecase evaluator.
+ */
+@Service
+public class CosinePredGoldMetricProvider implements MetricProvider<CosinePredGoldMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        double[] similarities = TfidfCosine.similarities(generatedText, referenceText, sourceText(trace));
+        Metric metric = new Metric();
+        metric.setName("cosine_pred_gold");
+        metric.setType(MetricType.COSINE_PRED_GOLD);
+        metric.setFloatValue((float) similarities[0]);
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<CosinePredGoldMetric> key() {
+        return CosinePredGoldMetric.class;
+    }
+
+    /**
+     * The IDF weights are fitted on the source text too, so the score is not a
+     * function of the two texts alone.
+     */
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
+    static String sourceText(TraceData trace) {
+        return trace == null || trace.input == null ? "" : trace.input;
+    }
+}
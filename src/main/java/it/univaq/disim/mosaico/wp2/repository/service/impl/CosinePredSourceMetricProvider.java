@@ -0,0 +1,44 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.CosinePredSourceMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * TF-IDF cosine between generated text and the trace input, the
+ * {@code cosine_pred_source} score of the llm-usecase evaluator. A high value
+ * flags answers that copy the source instead of summarizing it.
+ */
+@Service
+public class CosinePredSourceMetricProvider implements MetricProvider<CosinePredSourceMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        double[] similarities = TfidfCosine.similarities(generatedText, referenceText,
+            CosinePredGoldMetricProvider.sourceText(trace));
+        Metric metric = new Metric();
+        metric.setName("cosine_pred_source");
+        metric.setType(MetricType.COSINE_PRED_SOURCE);
+        metric.setFloatValue((float) similarities[1]);
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<CosinePredSourceMetric> key() {
+        return CosinePredSourceMetric.class;
+    }
+
+    /**
+     * Depends on the trace input, which is not part of the memoization key.
+     */
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.CostMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * Total cost of the trace as computed by Langfuse, in USD.
+ */
+@Service
+public class CostMetricProvider extends TraceUsageMetricProvider<CostMetric> {
+
+    public CostMetricProvider() {
+        super("Cost", MetricType.COST, "USD");
+    }
+
+    @Override
+    protected Number extract(TraceUsage usage) {
+        return usage.totalCost();
+    }
+
+    @Override
+    public Class<CostMetric> key() {
+        return CostMetric.class;
+    }
+}
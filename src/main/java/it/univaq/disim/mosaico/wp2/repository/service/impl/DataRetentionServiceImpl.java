@@ -0,0 +1,258 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.repository.MonitoringConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.DataRetentionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Implementation of DataRetentionService on PostgreSQL declarative partitioning.
+ *
+ * metric_snapshots and kpi_history are range-partitioned by month (see the V9
+ * migration). Expired data is removed by dropping whole partitions, which is
+ * constant-time and leaves no dead tuples or index bloat behind, instead of
+ * row-by-row deletes. Before a partition is dropped its content is summarized:
+ * snapshots into metric_snapshot_rollups, KPI values into kpi_rollups.
+ *
+ * Upcoming partitions are always created, since V9 leaves no default
+ * partition for inserts to fall back on; {@code mosaico.retention.enabled}
+ * only controls dropping. Tables that are not partitioned (migrations not
+ * applied) and databases other than PostgreSQL are left untouched.
+ */
+@Service
+public class DataRetentionServiceImpl implements DataRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataRetentionServiceImpl.class);
+
+    static final String METRIC_SNAPSHOTS = "metric_snapshots";
+    static final String KPI_HISTORY = "kpi_history";
+
+    /** Partition names created by mosaico_create_monthly_partitions: table_pYYYYMM. */
+    private static final Pattern PARTITION_NAME = Pattern.compile("(metric_snapshots|kpi_history)_p(\\d{4})(\\d{2})");
+
+    static final String IS_PARTITIONED =
+        "SELECT COUNT(*) FROM pg_partitioned_table WHERE partrelid = to_regclass(?)";
+
+    static final String LIST_PARTITIONS =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname";
+
+    static final String CREATE_PARTITIONS = "SELECT mosaico_create_monthly_partitions(?, ?, ?)";
+
+    // Day buckets never straddle a monthly partition, so re-running the rollup replaces it exactly
+    private static final String ROLLUP_METRIC_SNAPSHOTS =
+        "INSERT INTO metric_snapshot_rollups (id, run_id, metric_type, metric_key, bucket_start, " +
+        "sample_count, min_value, max_value, value_sum) " +
+        "SELECT gen_random_uuid()::text, s.run_id, s.metric_type, s.metric_key, " +
+        "date_trunc('day', s.\"timestamp\" AT TIME ZONE 'UTC') AT TIME ZONE 'UTC', " +
+        "COUNT(*), MIN(s.value), MAX(s.value), SUM(s.value) " +
+        "FROM %s s GROUP BY s.run_id, s.metric_type, s.metric_key, 5 " +
+        "ON CONFLICT (run_id, metric_type, metric_key, bucket_start) DO UPDATE SET " +
+        "sample_count = EXCLUDED.sample_count, min_value = EXCLUDED.min_value, " +
+        "max_value = EXCLUDED.max_value, value_sum = EXCLUDED.value_sum";
+
+    // kpi_rollups are maintained on write; this only fills buckets that are missing
+    private static final String ROLLUP_KPI_HISTORY =
+        "INSERT INTO kpi_rollups (id, benchmark_id, agent_id, kpi_name, resolution, bucket_start, " +
+        "sample_count, min_value, max_value, value_sum, last_value, last_recorded_at) " +
+        "SELECT gen_random_uuid()::text, b.benchmark_id, b.agent_id, b.kpi_name, b.resolution, b.bucket_start, " +
+        "COUNT(*), MIN(b.value), MAX(b.value), SUM(b.value), " +
+        "(array_agg(b.value ORDER BY b.recorded_at DESC))[1], MAX(b.recorded_at) " +
+        "FROM (SELECT h.benchmark_id, h.agent_id, h.kpi_name, r.resolution, h.value, h.recorded_at, " +
+        "date_trunc(r.unit, h.recorded_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' AS bucket_start " +
+        "FROM %s h CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day'), ('WEEK', 'week')) AS r(resolution, unit)) b " +
+        "GROUP BY b.benchmark_id, b.agent_id, b.kpi_name, b.resolution, b.bucket_start " +
+        "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MonitoringConfigRepository monitoringConfigRepository;
+    private final TransactionTemplate partitionTransaction;
+    private final int retentionDays;
+    private final int kpiHistoryRetentionDays;
+    private final int monthsAhead;
+    private final boolean retentionEnabled;
+    private volatile Boolean postgres;
+
+    public DataRetentionServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            MonitoringConfigRepository monitoringConfigRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${mosaico.retention.days:90}") int retentionDays,
+            @Value("${mosaico.retention.kpi-history-days:365}") int kpiHistoryRetentionDays,
+            @Value("${mosaico.retention.months-ahead:3}") int monthsAhead,
+            @Value("${mosaico.retention.enabled:true}") boolean retentionEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monitoringConfigRepository = monitoringConfigRepository;
+        this.partitionTransaction = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.kpiHistoryRetentionDays = kpiHistoryRetentionDays;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retentionEnabled = retentionEnabled;
+    }
+
+    /**
+     * Creates the upcoming partitions as soon as the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!isPostgres()) {
+            logger.info("Database is not PostgreSQL, skipping partition maintenance");
+            return;
+        }
+        try {
+            ensurePartitions();
+        } catch (DataAccessException e) {
+            logger.error("Failed to create upcoming partitions: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs daily to create upcoming partitions and, when retention is
+     * enabled, drop expired ones.
+     */
+    @Scheduled(cron = "${mosaico.retention.cron:0 30 2 * * *}")
+    public void runRetention() {
+        if (!isPostgres()) {
+            return;
+        }
+        try {
+            ensurePartitions();
+            if (retentionEnabled) {
+                dropExpiredPartitions();
+            }
+        } catch (DataAccessException e) {
+            logger.error("Data retention run failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int ensurePartitions() {
+        return ensurePartitions(Instant.now());
+    }
+
+    int ensurePartitions(Instant now) {
+        LocalDate month = now.atZone(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1);
+        int created = 0;
+        for (String table : List.of(METRIC_SNAPSHOTS, KPI_HISTORY)) {
+            if (!isPartitioned(table)) {
+                logger.debug("Table {} is not partitioned, skipping partition maintenance", table);
+                continue;
+            }
+            Integer count = jdbcTemplate.queryForObject(CREATE_PARTITIONS, Integer.class,
+                table, Date.valueOf(month), Date.valueOf(month.plusMonths(monthsAhead)));
+            created += count != null ? count : 0;
+        }
+        if (created > 0) {
+            logger.info("Created {} monthly partitions", created);
+        }
+        return created;
+    }
+
+    @Override
+    public int ensureSnapshotPartitions(Instant from, Instant to) {
+        if (!isPostgres() || !isPartitioned(METRIC_SNAPSHOTS)) {
+            return 0;
+        }
+        LocalDate first = from.atZone(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1);
+        LocalDate last = to.atZone(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1);
+        Integer count = jdbcTemplate.queryForObject(CREATE_PARTITIONS, Integer.class,
+            METRIC_SNAPSHOTS, Date.valueOf(first), Date.valueOf(last));
+        int created = count != null ? count : 0;
+        if (created > 0) {
+            logger.info("Created {} metric snapshot partitions for {} to {}", created, first, last);
+        }
+        return created;
+    }
+
+    @Override
+    public List<String> dropExpiredPartitions() {
+        return dropExpiredPartitions(Instant.now());
+    }
+
+    List<String> dropExpiredPartitions(Instant now) {
+        int snapshotDays = effectiveRetentionDays();
+        int historyDays = snapshotDays > 0 && kpiHistoryRetentionDays > 0
+            ? Math.max(snapshotDays, kpiHistoryRetentionDays) : 0;
+
+        List<String> dropped = new ArrayList<>();
+        dropped.addAll(dropExpired(METRIC_SNAPSHOTS, snapshotDays, now, ROLLUP_METRIC_SNAPSHOTS));
+        dropped.addAll(dropExpired(KPI_HISTORY, historyDays, now, ROLLUP_KPI_HISTORY));
+        return dropped;
+    }
+
+    /**
+     * The longest retention requested by a monitoring configuration, or the
+     * configured default when none sets one.
+     */
+    int effectiveRetentionDays() {
+        Integer configured = monitoringConfigRepository.findMaxDataRetentionDays();
+        return configured != null && configured > 0 ? configured : retentionDays;
+    }
+
+    private List<String> dropExpired(String table, int days, Instant now, String rollupSql) {
+        if (days <= 0 || !isPartitioned(table)) {
+            return List.of();
+        }
+        Instant cutoff = now.minus(Duration.ofDays(days));
+        List<String> dropped = new ArrayList<>();
+        for (String partition : jdbcTemplate.queryForList(LIST_PARTITIONS, String.class, table)) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            // Partitions not created by us are left alone
+            if (!matcher.matches() || !matcher.group(1).equals(table)) {
+                continue;
+            }
+            Instant end = LocalDate.of(Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)), 1)
+                .plusMonths(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            if (end.isAfter(cutoff)) {
+                continue;
+            }
+            partitionTransaction.executeWithoutResult(status -> {
+                int buckets = jdbcTemplate.update(String.format(rollupSql, partition));
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                logger.info("Dropped expired partition {} after rolling up {} buckets", partition, buckets);
+            });
+            dropped.add(partition);
+        }
+        return dropped;
+    }
+
+    private boolean isPostgres() {
+        Boolean supported = postgres;
+        if (supported == null) {
+            try {
+                supported = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            } catch (DataAccessException e) {
+                logger.warn("Cannot determine the database product: {}", e.getMessage());
+                return false;
+            }
+            postgres = supported;
+        }
+        return supported;
+    }
+
+    private boolean isPartitioned(String table) {
+        Long count = jdbcTemplate.queryForObject(IS_PARTITIONED, Long.class, table);
+        return count != null && count > 0;
+    }
+}
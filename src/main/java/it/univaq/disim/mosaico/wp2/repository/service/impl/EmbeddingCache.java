@@ -0,0 +1,290 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.service.exception.MetricComputationException;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Persistent embedding cache backed by a memory-mapped file of float vectors.
+ *
+ * Vectors are keyed by SHA-256 of (embedding model, text), so a reference
+ * text is embedded once per dataset and then reused by every agent and run
+ * that is scored against it, across restarts.
+ *
+ * File layout: a 16 byte header (magic, format version, dimensions) followed
+ * by fixed-size records of 32 hash bytes and {@code dimensions} little-endian
+ * floats. The file is mapped in regions of {@value #RECORDS_PER_REGION}
+ * records; the key to record index map is rebuilt by scanning on open.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private static final int MAGIC = 0x4D454D42;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    static final int RECORDS_PER_REGION = 4096;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path file;
+    private final String modelId;
+    private final Function<String, float[]> embedder;
+
+    private final Map<String, Integer> index = new ConcurrentHashMap<>();
+    private final List<MappedByteBuffer> regions = new CopyOnWriteArrayList<>();
+    private FileChannel channel;
+    private int dimensions;
+    private int recordBytes;
+    private int count;
+    private volatile boolean opened;
+    private boolean dimensionMismatchLogged;
+
+    @Autowired
+    public EmbeddingCache(ObjectProvider<EmbeddingModel> embeddingModel,
+                          @Value("${mosaico.embedding-cache.path:cache/embeddings.bin}") String path,
+                          @Value("${spring.ai.ollama.embedding.options.model:default}") String modelId) {
+        this(Path.of(path), modelId, text -> embedWith(embeddingModel.getIfAvailable(), text));
+    }
+
+    EmbeddingCache(Path file, String modelId, Function<String, float[]> embedder) {
+        this.file = file;
+        this.modelId = modelId;
+        this.embedder = embedder;
+    }
+
+    /**
+     * Return the embedding of a text, computing and caching it on a miss.
+     *
+     * @param text the text to embed
+     * @return the embedding vector (a private copy)
+     */
+    public float[] embed(String text) {
+        String key = key(text);
+        Optional<float[]> cached = lookupKey(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        float[] vector = embedder.apply(text == null ? "" : text);
+        append(key, vector);
+        return vector;
+    }
+
+    /**
+     * Return the cached embedding of a text without computing it.
+     *
+     * @param text the text to look up
+     * @return the cached vector, or empty on a miss
+     */
+    public Optional<float[]> lookup(String text) {
+        return lookupKey(key(text));
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    public int size() {
+        ensureOpen();
+        return index.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            for (MappedByteBuffer region : regions) {
+                region.force();
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close embedding cache {}: {}", file, e.getMessage());
+        } finally {
+            channel = null;
+            regions.clear();
+            index.clear();
+            opened = false;
+        }
+    }
+
+    private String key(String text) {
+        return ContentHash.sha256Of(modelId, text);
+    }
+
+    private Optional<float[]> lookupKey(String key) {
+        ensureOpen();
+        Integer slot = index.get(key);
+        return slot == null ? Optional.empty() : Optional.of(read(slot));
+    }
+
+    private float[] read(int slot) {
+        ByteBuffer record = regions.get(slot / RECORDS_PER_REGION).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        record.position((slot % RECORDS_PER_REGION) * recordBytes + HASH_BYTES);
+        float[] vector = new float[dimensions];
+        record.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    private synchronized void append(String key, float[] vector) {
+        if (channel == null || index.containsKey(key)) {
+            return;
+        }
+        try {
+            if (dimensions == 0) {
+                initialize(vector.length);
+            } else if (vector.length != dimensions) {
+                if (!dimensionMismatchLogged) {
+                    logger.warn("Embedding cache {} holds {}-dimensional vectors, model {} returned {}: not caching",
+                        file, dimensions, modelId, vector.length);
+                    dimensionMismatchLogged = true;
+                }
+                return;
+            }
+
+            int slot = count;
+            ByteBuffer region = region(slot / RECORDS_PER_REGION).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            int offset = (slot % RECORDS_PER_REGION) * recordBytes;
+            // Vector first, hash last: a record with a hash is always complete
+            region.position(offset + HASH_BYTES);
+            region.asFloatBuffer().put(vector);
+            region.position(offset);
+            region.put(HEX.parseHex(key));
+            count++;
+            index.put(key, slot);
+        } catch (IOException e) {
+            logger.warn("Failed to append to embedding cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void ensureOpen() {
+        if (!opened) {
+            open();
+        }
+    }
+
+    private synchronized void open() {
+        if (opened) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            if (channel.size() >= HEADER_BYTES) {
+                load();
+            }
+            logger.info("Embedding cache {} opened with {} vectors", file, index.size());
+        } catch (IOException e) {
+            logger.warn("Embedding cache {} unavailable, embeddings will not be persisted: {}", file, e.getMessage());
+            channel = null;
+        } finally {
+            opened = true;
+        }
+    }
+
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        int magic = header.getInt();
+        int version = header.getInt();
+        int dims = header.getInt();
+        if (magic != MAGIC || version != FORMAT_VERSION || dims <= 0) {
+            logger.warn("Embedding cache {} has an unknown format, starting from scratch", file);
+            channel.truncate(0);
+            return;
+        }
+        dimensions = dims;
+        recordBytes = HASH_BYTES + dims * Float.BYTES;
+
+        long recordsInFile = (channel.size() - HEADER_BYTES) / recordBytes;
+        byte[] hash = new byte[HASH_BYTES];
+        for (int slot = 0; slot < recordsInFile; slot++) {
+            ByteBuffer region = region(slot / RECORDS_PER_REGION).duplicate();
+            region.position((slot % RECORDS_PER_REGION) * recordBytes);
+            region.get(hash);
+            if (isZero(hash)) {
+                break;
+            }
+            index.put(HEX.formatHex(hash), slot);
+            count = slot + 1;
+        }
+    }
+
+    private void initialize(int dims) throws IOException {
+        dimensions = dims;
+        recordBytes = HASH_BYTES + dims * Float.BYTES;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(dims).putInt(0);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private MappedByteBuffer region(int number) throws IOException {
+        while (regions.size() <= number) {
+            long regionBytes = (long) RECORDS_PER_REGION * recordBytes;
+            long start = HEADER_BYTES + regions.size() * regionBytes;
+            // Mapping past the end grows the file; unused records stay zeroed
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, start, regionBytes));
+        }
+        return regions.get(number);
+    }
+
+    private static boolean isZero(byte[] bytes) {
+        for (byte b : bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float[] embedWith(EmbeddingModel model, String text) {
+        if (model == null) {
+            throw new MetricComputationException("No embedding model configured");
+        }
+        // embed(String) returns List<Double> or float[] depending on the Spring AI release
+        Object embedding = model.embed(text);
+        if (embedding instanceof float[] floats) {
+            return floats;
+        }
+        if (embedding instanceof List<?> values) {
+            float[] vector = new float[values.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = ((Number) values.get(i)).floatValue();
+            }
+            return vector;
+        }
+        throw new MetricComputationException("Unsupported embedding type: "
+            + (embedding == null ? "null" : embedding.getClass().getName()));
+    }
+}
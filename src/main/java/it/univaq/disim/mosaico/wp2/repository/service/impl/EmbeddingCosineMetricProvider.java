@@ -0,0 +1,56 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.SemanticSimilarityMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * Semantic similarity between reference and generated text, computed as the
+ * cosine of their embeddings. Embeddings come from the {@link EmbeddingCache},
+ * so reference texts are embedded once and shared by all agents and runs.
+ */
+@Service
+public class EmbeddingCosineMetricProvider implements MetricProvider<SemanticSimilarityMetric> {
+
+    private final EmbeddingCache embeddingCache;
+
+    public EmbeddingCosineMetricProvider(EmbeddingCache embeddingCache) {
+        this.embeddingCache = embeddingCache;
+    }
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        float similarity = 0f;
+        if (referenceText != null && !referenceText.isBlank()
+                && generatedText != null && !generatedText.isBlank()) {
+            float[] reference = embeddingCache.embed(referenceText);
+            float[] generated = embeddingCache.embed(generatedText);
+            similarity = (float) VectorMath.cosine(reference, generated);
+        }
+        Metric metric = new Metric();
+        metric.setName("Semantic Similarity");
+        metric.setType(MetricType.SEMANTIC_SIMILARITY);
+        metric.setFloatValue(similarity);
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<SemanticSimilarityMetric> key() {
+        return SemanticSimilarityMetric.class;
+    }
+
+    /**
+     * Scores depend on the embedding model, so switching model must not reuse
+     * memoized results.
+     */
+    @Override
+    public String version() {
+        return "1:" + embeddingCache.getModelId();
+    }
+}
@@ -4,6 +4,7 @@ import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.EventTriggerService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -19,9 +20,11 @@ public class EventTriggerServiceImpl implements EventTriggerService {
     private static final Logger logger = LoggerFactory.getLogger(EventTriggerServiceImpl.class);
 
     private final BenchmarkRunRepository runRepository;
+    private final RunSummaryService runSummaryService;
 
-    public EventTriggerServiceImpl(BenchmarkRunRepository runRepository) {
+    public EventTriggerServiceImpl(BenchmarkRunRepository runRepository, RunSummaryService runSummaryService) {
         this.runRepository = runRepository;
+        this.runSummaryService = runSummaryService;
     }
 
     @Override
@@ -32,6 +35,7 @@ public class EventTriggerServiceImpl implements EventTriggerService {
         BenchmarkRun run = new BenchmarkRun(benchmarkId, agentId, triggerType);
         run.setTriggeredByUser(triggeredBy);
         run = runRepository.save(run);
+        runSummaryService.refresh(run);
 
         logger.info("Created benchmark run: {}", run.getId());
         return run.getId();
@@ -0,0 +1,35 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.ExactContainsMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * 1 when the stripped reference text occurs verbatim in the generated text,
+ * the {@code exact_contains} score of the llm-usecase evaluator.
+ */
+@Service
+public class ExactContainsMetricProvider implements MetricProvider<ExactContainsMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        String needle = LengthRatioMetricProvider.strip(referenceText);
+        boolean contains = !needle.isEmpty() && generatedText != null && generatedText.contains(needle);
+        Metric metric = new Metric();
+        metric.setName("exact_contains");
+        metric.setType(MetricType.EXACT_CONTAINS);
+        metric.setFloatValue(contains ? 1f : 0f);
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<ExactContainsMetric> key() {
+        return ExactContainsMetric.class;
+    }
+}
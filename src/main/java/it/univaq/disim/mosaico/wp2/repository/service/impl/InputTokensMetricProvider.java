@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.InputTokensMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * Prompt tokens consumed by the generations of the trace.
+ */
+@Service
+public class InputTokensMetricProvider extends TraceUsageMetricProvider<InputTokensMetric> {
+
+    public InputTokensMetricProvider() {
+        super("Input Tokens", MetricType.INPUT_TOKENS, "tokens");
+    }
+
+    @Override
+    protected Number extract(TraceUsage usage) {
+        return usage.inputTokens();
+    }
+
+    @Override
+    public Class<InputTokensMetric> key() {
+        return InputTokensMetric.class;
+    }
+}
@@ -0,0 +1,295 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.KPIFormula;
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.PerformanceKPI;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.dto.RunMetricMean;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.PerformanceKPIRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AlertStateService;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiBackfillService;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiRollupService;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import it.univaq.disim.mosaico.wp2.repository.service.exception.DslParseException;
+import it.univaq.disim.mosaico.wp2.repository.service.exception.DslValidationException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of KpiBackfillService.
+ *
+ * Completed runs are streamed in keyset-ordered batches, each in its own
+ * transaction. For every batch the run-level metric values are laid out as
+ * columns, one {@code double[]} per metric the formula references, and the
+ * compiled formula is evaluated over them in one pass. The results are
+ * written back with one bulk lookup and one {@code saveAll} per batch.
+ *
+ * Plain metric means are aggregated by the database; formulas referencing
+ * run-level percentiles or cost figures load the batch's snapshots and go
+ * through {@link RunMetricAggregator}, exactly as a live run does.
+ */
+@Service
+public class KpiBackfillServiceImpl implements KpiBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiBackfillServiceImpl.class);
+
+    private final PerformanceKPIRepository performanceKPIRepository;
+    private final BenchmarkRunRepository runRepository;
+    private final MetricSnapshotRepository metricSnapshotRepository;
+    private final KPIHistoryRepository kpiHistoryRepository;
+    private final KPIFormulaDslService kpiFormulaDslService;
+    private final RunMetricAggregator runMetricAggregator;
+    private final KpiRollupService kpiRollupService;
+    private final LeaderboardService leaderboardService;
+    private final AlertStateService alertStateService;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+
+    public KpiBackfillServiceImpl(
+            PerformanceKPIRepository performanceKPIRepository,
+            BenchmarkRunRepository runRepository,
+            MetricSnapshotRepository metricSnapshotRepository,
+            KPIHistoryRepository kpiHistoryRepository,
+            KPIFormulaDslService kpiFormulaDslService,
+            RunMetricAggregator runMetricAggregator,
+            KpiRollupService kpiRollupService,
+            LeaderboardService leaderboardService,
+            AlertStateService alertStateService,
+            PlatformTransactionManager transactionManager,
+            @Value("${mosaico.kpi-backfill.batch-size:2000}") int batchSize) {
+        this.performanceKPIRepository = performanceKPIRepository;
+        this.runRepository = runRepository;
+        this.metricSnapshotRepository = metricSnapshotRepository;
+        this.kpiHistoryRepository = kpiHistoryRepository;
+        this.kpiFormulaDslService = kpiFormulaDslService;
+        this.runMetricAggregator = runMetricAggregator;
+        this.kpiRollupService = kpiRollupService;
+        this.leaderboardService = leaderboardService;
+        this.alertStateService = alertStateService;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public KpiBackfillReport backfillKpi(String kpiId) {
+        PerformanceKPI kpi = performanceKPIRepository.findById(kpiId)
+            .orElseThrow(() -> new IllegalArgumentException("KPI not found: " + kpiId));
+        return backfill(kpi);
+    }
+
+    @Override
+    public List<KpiBackfillReport> backfillBenchmark(String benchmarkId) {
+        List<KpiBackfillReport> reports = new ArrayList<>();
+        for (PerformanceKPI kpi : performanceKPIRepository.findByBenchmark_Id(benchmarkId)) {
+            try {
+                reports.add(backfill(kpi));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping backfill of KPI {}: {}", kpi.getDescription(), e.getMessage());
+            }
+        }
+        return reports;
+    }
+
+    private KpiBackfillReport backfill(PerformanceKPI kpi) {
+        if (kpi.getBenchmark() == null) {
+            throw new IllegalArgumentException("KPI " + kpi.getId() + " is not attached to a benchmark");
+        }
+        KPIFormula formula;
+        try {
+            formula = kpiFormulaDslService.buildFromSpecification(kpi.getSpecification());
+        } catch (DslParseException | DslValidationException e) {
+            throw new IllegalArgumentException("KPI " + kpi.getId() + " has no usable formula: " + e.getMessage(), e);
+        }
+        if (formula instanceof CompiledKpiFormula compiled && compiled.isWindowed()) {
+            // Series state advances run by run and cannot be rebuilt from unordered batches
+            throw new IllegalArgumentException("KPI " + kpi.getId() + " uses series functions and cannot be backfilled");
+        }
+
+        long start = System.currentTimeMillis();
+        String benchmarkId = kpi.getBenchmark().getId();
+        int runs = 0;
+        int written = 0;
+        int created = 0;
+        int skipped = 0;
+
+        String afterId = "";
+        while (true) {
+            String cursor = afterId;
+            BatchOutcome outcome = batchTransaction.execute(
+                status -> backfillBatch(benchmarkId, cursor, kpi, formula));
+            if (outcome == null || outcome.size() == 0) {
+                break;
+            }
+            runs += outcome.size();
+            written += outcome.written();
+            created += outcome.created();
+            skipped += outcome.skipped();
+            afterId = outcome.lastRunId();
+            if (outcome.size() < batchSize) {
+                break;
+            }
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        logger.info("Backfilled KPI {} over {} runs ({} written, {} skipped) in {} ms",
+            kpi.getDescription(), runs, written, skipped, duration);
+        return new KpiBackfillReport(kpi.getId(), kpi.getDescription(), runs, written, created, skipped, duration);
+    }
+
+    private BatchOutcome backfillBatch(String benchmarkId, String afterId, PerformanceKPI kpi, KPIFormula formula) {
+        List<BenchmarkRun> runs = runRepository.findBatchByBenchmarkIdAndStatus(
+            benchmarkId, RunStatus.COMPLETED, afterId, PageRequest.of(0, batchSize));
+        if (runs.isEmpty()) {
+            return new BatchOutcome(0, 0, 0, 0, afterId);
+        }
+        List<String> runIds = runs.stream().map(BenchmarkRun::getId).toList();
+
+        double[] values = formula instanceof CompiledKpiFormula compiled
+            ? evaluateColumnar(compiled, runIds)
+            : evaluatePerRun(formula, runIds);
+
+        Map<String, KPIHistory> existing = new HashMap<>();
+        for (KPIHistory history : kpiHistoryRepository.findByRunIdInAndKpiName(runIds, kpi.getDescription())) {
+            existing.putIfAbsent(history.getRunId(), history);
+        }
+
+        List<KPIHistory> toSave = new ArrayList<>(runs.size());
+        List<KpiValueChange> changes = new ArrayList<>(runs.size());
+        int created = 0;
+        int skipped = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            BenchmarkRun run = runs.get(i);
+            double value = values[i];
+            if (!Double.isFinite(value) || run.getAgentId() == null) {
+                skipped++;
+                continue;
+            }
+            KPIHistory history = existing.get(run.getId());
+            Double previousValue = history != null ? history.getValue() : null;
+            if (history == null) {
+                history = new KPIHistory(benchmarkId, run.getAgentId(), kpi.getDescription(), value);
+                history.setRunId(run.getId());
+                history.setRecordedAt(recordedAt(run));
+                created++;
+            }
+            history.setValue(value);
+            history.setKpiId(kpi.getId());
+            history.evaluateStatus();
+            toSave.add(history);
+            changes.add(KpiValueChange.of(history, previousValue));
+        }
+        kpiHistoryRepository.saveAll(toSave);
+        kpiRollupService.record(changes);
+        leaderboardService.record(changes);
+        alertStateService.record(changes);
+
+        return new BatchOutcome(runs.size(), toSave.size(), created, skipped, runs.get(runs.size() - 1).getId());
+    }
+
+    /**
+     * Lay out the referenced metrics of the runs as columns and evaluate the
+     * formula over them.
+     *
+     * @return one value per run, NaN when it could not be computed
+     */
+    double[] evaluateColumnar(CompiledKpiFormula formula, List<String> runIds) {
+        double[][] columns = loadColumns(formula.getSlotNames(), runIds);
+        double[] results = new double[runIds.size()];
+        formula.evaluateColumns(columns, 0, runIds.size(), results);
+        return results;
+    }
+
+    private double[][] loadColumns(List<String> metricKeys, List<String> runIds) {
+        Map<String, Integer> rowOf = new HashMap<>(runIds.size() * 2);
+        for (int i = 0; i < runIds.size(); i++) {
+            rowOf.put(runIds.get(i), i);
+        }
+        Map<String, Integer> slotOf = new HashMap<>();
+        double[][] columns = new double[metricKeys.size()][runIds.size()];
+        for (int slot = 0; slot < columns.length; slot++) {
+            Arrays.fill(columns[slot], Double.NaN);
+            slotOf.put(metricKeys.get(slot), slot);
+        }
+        if (metricKeys.isEmpty()) {
+            return columns;
+        }
+
+        Set<String> derived = RunMetricAggregator.derivedMetricKeys();
+        if (metricKeys.stream().noneMatch(derived::contains)) {
+            for (RunMetricMean mean : metricSnapshotRepository.findMeanValuesByRunIds(runIds, metricKeys)) {
+                Integer slot = slotOf.get(mean.metricKey());
+                Integer row = rowOf.get(mean.runId());
+                if (slot != null && row != null && mean.mean() != null) {
+                    columns[slot][row] = mean.mean();
+                }
+            }
+            return columns;
+        }
+
+        aggregatePerRun(runIds).forEach((runId, aggregated) -> {
+            int row = rowOf.get(runId);
+            aggregated.forEach((metricKey, value) -> {
+                Integer slot = slotOf.get(metricKey);
+                if (slot != null && value != null) {
+                    columns[slot][row] = value;
+                }
+            });
+        });
+        return columns;
+    }
+
+    private double[] evaluatePerRun(KPIFormula formula, List<String> runIds) {
+        Map<String, Map<String, Double>> aggregated = aggregatePerRun(runIds);
+        double[] results = new double[runIds.size()];
+        for (int i = 0; i < results.length; i++) {
+            try {
+                results[i] = formula.evaluate(aggregated.getOrDefault(runIds.get(i), Map.of()));
+            } catch (IllegalArgumentException e) {
+                results[i] = Double.NaN;
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Map<String, Double>> aggregatePerRun(List<String> runIds) {
+        Map<String, List<MetricSnapshot>> snapshotsByRun = metricSnapshotRepository.findByRunIdIn(runIds).stream()
+            .collect(Collectors.groupingBy(MetricSnapshot::getRunId));
+        Map<String, Map<String, Double>> aggregated = new HashMap<>();
+        snapshotsByRun.forEach((runId, snapshots) -> aggregated.put(runId, runMetricAggregator.aggregate(snapshots)));
+        return aggregated;
+    }
+
+    private static Instant recordedAt(BenchmarkRun run) {
+        if (run.getCompletedAt() != null) {
+            return run.getCompletedAt();
+        }
+        return run.getStartedAt() != null ? run.getStartedAt() : Instant.now();
+    }
+
+    private record BatchOutcome(int size, int written, int created, int skipped, String lastRunId) {
+    }
+}
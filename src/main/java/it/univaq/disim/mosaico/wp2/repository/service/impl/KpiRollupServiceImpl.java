@@ -0,0 +1,153 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiRollup;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RollupResolution;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBucketStats;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrend;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrendPoint;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiRollupRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Implementation of KpiRollupService.
+ *
+ * Each written value touches one bucket per resolution. Within a call the
+ * changes are grouped by bucket first, so a backfill batch costs one locked
+ * read and one write per distinct bucket rather than per value. Min and max
+ * cannot be undone when a value is replaced, so a bucket whose extreme was
+ * replaced is re-aggregated from the history with one indexed query.
+ * A missing bucket is inserted before it is locked, so concurrent runs that
+ * start the same bucket update it one after the other.
+ */
+@Service
+@Transactional
+public class KpiRollupServiceImpl implements KpiRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiRollupServiceImpl.class);
+
+    /** Upper bound on the point budget of a trend request. */
+    static final int MAX_POINTS = 5000;
+
+    private final KpiRollupRepository rollupRepository;
+    private final KPIHistoryRepository kpiHistoryRepository;
+
+    public KpiRollupServiceImpl(KpiRollupRepository rollupRepository, KPIHistoryRepository kpiHistoryRepository) {
+        this.rollupRepository = rollupRepository;
+        this.kpiHistoryRepository = kpiHistoryRepository;
+    }
+
+    private record BucketKey(String benchmarkId, String agentId, String kpiName,
+                             RollupResolution resolution, Instant bucketStart) {
+    }
+
+    @Override
+    public void record(Collection<KpiValueChange> changes) {
+        Map<BucketKey, List<KpiValueChange>> byBucket = new LinkedHashMap<>();
+        for (KpiValueChange change : changes) {
+            if (change.recordedAt() == null || Double.isNaN(change.value())) {
+                continue;
+            }
+            for (RollupResolution resolution : RollupResolution.values()) {
+                BucketKey key = new BucketKey(change.benchmarkId(), change.agentId(), change.kpiName(),
+                    resolution, resolution.bucketStart(change.recordedAt()));
+                byBucket.computeIfAbsent(key, k -> new ArrayList<>()).add(change);
+            }
+        }
+        byBucket.forEach(this::apply);
+    }
+
+    private void apply(BucketKey key, List<KpiValueChange> changes) {
+        KpiRollup rollup = lockOrCreate(key);
+
+        boolean exact = true;
+        for (KpiValueChange change : changes) {
+            if (change.previousValue() == null || rollup.getSampleCount() == 0) {
+                rollup.add(change.value(), change.recordedAt());
+            } else {
+                exact &= rollup.replace(change.previousValue(), change.value(), change.recordedAt());
+            }
+        }
+        if (!exact) {
+            Instant end = key.bucketStart().plus(key.resolution().getWidth());
+            KpiBucketStats stats = kpiHistoryRepository.findStatsForKpiBetween(
+                key.benchmarkId(), key.agentId(), key.kpiName(), key.bucketStart(), end);
+            if (stats != null && stats.count() > 0) {
+                rollup.setSampleCount(stats.count());
+                rollup.setMinValue(stats.min());
+                rollup.setMaxValue(stats.max());
+                rollup.setValueSum(stats.sum());
+            }
+        }
+        rollupRepository.save(rollup);
+    }
+
+    private KpiRollup lockOrCreate(BucketKey key) {
+        String id = UUID.randomUUID().toString();
+        if (rollupRepository.insertIfAbsent(id, key.benchmarkId(), key.agentId(), key.kpiName(),
+                key.resolution().name(), key.bucketStart()) > 0) {
+            // Our empty row: saving the new bucket overwrites it
+            KpiRollup rollup = new KpiRollup(key.benchmarkId(), key.agentId(), key.kpiName(),
+                key.resolution(), key.bucketStart());
+            rollup.setId(id);
+            return rollup;
+        }
+        return rollupRepository
+            .findForUpdate(key.benchmarkId(), key.agentId(), key.kpiName(), key.resolution(), key.bucketStart())
+            .orElseThrow(() -> new IllegalStateException("KPI rollup bucket not found: " + key));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KpiTrend getTrend(String benchmarkId, String agentId, String kpiName, int days, int maxPoints) {
+        int budget = Math.max(3, Math.min(maxPoints, MAX_POINTS));
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofDays(Math.max(1, days)));
+
+        long rawCount = kpiHistoryRepository.countHistoryForKpiSince(benchmarkId, agentId, kpiName, from);
+        if (rawCount <= budget) {
+            List<KpiTrendPoint> points = new ArrayList<>((int) rawCount);
+            for (KPIHistory history : kpiHistoryRepository.findHistoryForKpiSince(benchmarkId, agentId, kpiName, from)) {
+                double value = history.getValue();
+                points.add(new KpiTrendPoint(history.getRecordedAt(), value, value, value, value, 1));
+            }
+            return new KpiTrend(benchmarkId, agentId, kpiName, "RAW", from, to, false, points);
+        }
+
+        // Finest resolution whose bucket count over the range fits the budget
+        RollupResolution resolution = RollupResolution.WEEK;
+        Duration range = Duration.between(from, to);
+        for (RollupResolution candidate : RollupResolution.values()) {
+            if (range.dividedBy(candidate.getWidth()) + 1 <= budget) {
+                resolution = candidate;
+                break;
+            }
+        }
+        Instant since = resolution.bucketStart(from);
+        List<KpiTrendPoint> points = new ArrayList<>();
+        for (KpiRollup rollup : rollupRepository.findSeriesSince(benchmarkId, agentId, kpiName, resolution, since)) {
+            points.add(new KpiTrendPoint(rollup.getBucketStart(), rollup.getMeanValue(), rollup.getMinValue(),
+                rollup.getMaxValue(), rollup.getLastValue(), rollup.getSampleCount()));
+        }
+        List<KpiTrendPoint> sampled = Lttb.downsample(points, budget);
+        logger.debug("KPI trend {} for agent {}: {} raw values, {} {} buckets, {} points",
+            kpiName, agentId, rawCount, points.size(), resolution, sampled.size());
+        return new KpiTrend(benchmarkId, agentId, kpiName, resolution.name(), from, to,
+            sampled.size() < points.size(), sampled);
+    }
+}
@@ -0,0 +1,96 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiSeriesState;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula.WindowTerm;
+import it.univaq.disim.mosaico.wp2.repository.dsl.WindowFunction;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiSeriesStateRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiSeriesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Implementation of KpiSeriesService.
+ *
+ * Each series function call of a formula has one {@link KpiSeriesState} row
+ * per benchmark and agent, keyed by the call's normalized text. A run costs
+ * one locked lookup and one save per call; RANK_IN_BENCHMARK adds one
+ * indexed count over the other agents' latest values. A missing state is
+ * inserted before it is locked, so concurrent runs that start a series
+ * apply their samples one after the other.
+ */
+@Service
+@Transactional
+public class KpiSeriesServiceImpl implements KpiSeriesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiSeriesServiceImpl.class);
+
+    private final KpiSeriesStateRepository stateRepository;
+
+    public KpiSeriesServiceImpl(KpiSeriesStateRepository stateRepository) {
+        this.stateRepository = stateRepository;
+    }
+
+    @Override
+    public double evaluate(CompiledKpiFormula formula, Map<?, Double> metricValues, BenchmarkRun run, String kpiId) {
+        return formula.evaluate(metricValues, (term, value) -> accept(term, value, run, kpiId));
+    }
+
+    private double accept(WindowTerm term, double value, BenchmarkRun run, String kpiId) {
+        if (Double.isNaN(value)) {
+            // A missing metric leaves the series untouched
+            return Double.NaN;
+        }
+        KpiSeriesState state = lockOrCreate(term, run, kpiId);
+        double result = state.accept(run.getId(), value);
+        stateRepository.save(state);
+
+        if (term.function() == WindowFunction.RANK_IN_BENCHMARK) {
+            result = 1 + stateRepository.countHigherValues(
+                run.getBenchmarkId(), kpiId, term.key(), run.getAgentId(), value);
+        }
+        logger.debug("Series {} of KPI {} for agent {}: {} after {} samples",
+            term.key(), kpiId, run.getAgentId(), result, state.getSampleCount());
+        return result;
+    }
+
+    private KpiSeriesState lockOrCreate(WindowTerm term, BenchmarkRun run, String kpiId) {
+        String id = UUID.randomUUID().toString();
+        if (stateRepository.insertIfAbsent(id, run.getBenchmarkId(), run.getAgentId(), kpiId, term.key(),
+                term.function().name(), Instant.now()) > 0) {
+            // Our empty row: saving the new state overwrites it
+            KpiSeriesState state = new KpiSeriesState(run.getBenchmarkId(), run.getAgentId(), kpiId,
+                term.key(), term.function(), term.parameter());
+            state.setId(id);
+            return state;
+        }
+        return stateRepository.findForUpdate(run.getBenchmarkId(), kpiId, term.key(), run.getAgentId())
+            .orElseThrow(() -> new IllegalStateException("KPI series state not found: " + term.key()));
+    }
+
+    @Override
+    public boolean isLatestRun(CompiledKpiFormula formula, BenchmarkRun run, String kpiId) {
+        for (WindowTerm term : formula.getWindowTerms()) {
+            String lastRunId = stateRepository
+                .findByBenchmarkIdAndKpiIdAndTermKeyAndAgentId(run.getBenchmarkId(), kpiId, term.key(), run.getAgentId())
+                .map(KpiSeriesState::getLastRunId)
+                .orElse(null);
+            if (lastRunId != null && !lastRunId.equals(run.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int deleteKpiState(String kpiId) {
+        return stateRepository.deleteByKpiId(kpiId);
+    }
+}
@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.LatencyMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * End-to-end latency of the trace, in seconds.
+ */
+@Service
+public class LatencyMetricProvider extends TraceUsageMetricProvider<LatencyMetric> {
+
+    public LatencyMetricProvider() {
+        super("Latency", MetricType.LATENCY, "s");
+    }
+
+    @Override
+    protected Number extract(TraceUsage usage) {
+        return usage.latencySeconds();
+    }
+
+    @Override
+    public Class<LatencyMetric> key() {
+        return LatencyMetric.class;
+    }
+}
@@ -0,0 +1,130 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.LeaderboardEntry;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.dto.Leaderboard;
+import it.univaq.disim.mosaico.wp2.repository.dto.LeaderboardRow;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.LeaderboardEntryRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Implementation of LeaderboardService.
+ *
+ * Each leaderboard is kept sorted by the B-tree indexes on (benchmark, KPI,
+ * value, agent): a top-K read is an index range scan of K entries and the rank
+ * of an agent is an index-only count of the entries ahead of it, so neither
+ * touches the KPI history. As in the rollups, a best value cannot be undone
+ * when it is replaced by a lower one, so it is then recomputed with one
+ * indexed query. A missing entry is inserted before it is locked, so
+ * concurrent runs of a new agent update it one after the other.
+ */
+@Service
+@Transactional
+public class LeaderboardServiceImpl implements LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardServiceImpl.class);
+
+    private final LeaderboardEntryRepository entryRepository;
+    private final KPIHistoryRepository kpiHistoryRepository;
+
+    public LeaderboardServiceImpl(LeaderboardEntryRepository entryRepository,
+                                  KPIHistoryRepository kpiHistoryRepository) {
+        this.entryRepository = entryRepository;
+        this.kpiHistoryRepository = kpiHistoryRepository;
+    }
+
+    private record EntryKey(String benchmarkId, String kpiName, String agentId) {
+    }
+
+    @Override
+    public void record(Collection<KpiValueChange> changes) {
+        Map<EntryKey, List<KpiValueChange>> byEntry = new LinkedHashMap<>();
+        for (KpiValueChange change : changes) {
+            if (change.recordedAt() == null || Double.isNaN(change.value())) {
+                continue;
+            }
+            byEntry.computeIfAbsent(new EntryKey(change.benchmarkId(), change.kpiName(), change.agentId()),
+                k -> new ArrayList<>()).add(change);
+        }
+        byEntry.forEach(this::apply);
+    }
+
+    private void apply(EntryKey key, List<KpiValueChange> changes) {
+        LeaderboardEntry entry = lockOrCreate(key);
+
+        boolean exact = true;
+        for (KpiValueChange change : changes) {
+            exact &= entry.record(change.value(), change.previousValue(), change.recordedAt());
+        }
+        if (!exact) {
+            kpiHistoryRepository.findBestForKpi(key.benchmarkId(), key.agentId(), key.kpiName())
+                .ifPresent(best -> {
+                    entry.setBestValue(best.getValue());
+                    entry.setBestRecordedAt(best.getRecordedAt());
+                });
+            logger.debug("Recomputed best {} of agent {} on benchmark {}", key.kpiName(), key.agentId(),
+                key.benchmarkId());
+        }
+        entryRepository.save(entry);
+    }
+
+    private LeaderboardEntry lockOrCreate(EntryKey key) {
+        String id = UUID.randomUUID().toString();
+        if (entryRepository.insertIfAbsent(id, key.benchmarkId(), key.kpiName(), key.agentId(), Instant.now()) > 0) {
+            // Our empty row: saving the new entry overwrites it
+            LeaderboardEntry entry = new LeaderboardEntry(key.benchmarkId(), key.kpiName(), key.agentId());
+            entry.setId(id);
+            return entry;
+        }
+        return entryRepository.findForUpdate(key.benchmarkId(), key.kpiName(), key.agentId())
+            .orElseThrow(() -> new IllegalStateException("Leaderboard entry not found: " + key));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Leaderboard getTop(String benchmarkId, String kpiName, LeaderboardScore score, int limit) {
+        PageRequest top = PageRequest.of(0, CursorPage.clampLimit(limit));
+        List<LeaderboardEntry> entries = switch (score) {
+            case LATEST -> entryRepository.findTopByLatest(benchmarkId, kpiName, top);
+            case BEST -> entryRepository.findTopByBest(benchmarkId, kpiName, top);
+        };
+        List<LeaderboardRow> rows = new ArrayList<>(entries.size());
+        for (LeaderboardEntry entry : entries) {
+            rows.add(LeaderboardRow.of(rows.size() + 1, entry));
+        }
+        return new Leaderboard(benchmarkId, kpiName, score,
+            entryRepository.countByBenchmarkIdAndKpiName(benchmarkId, kpiName), rows);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<LeaderboardRow> findRank(String benchmarkId, String kpiName, String agentId,
+                                             LeaderboardScore score) {
+        return entryRepository.findByBenchmarkIdAndKpiNameAndAgentId(benchmarkId, kpiName, agentId)
+            .map(entry -> {
+                double value = entry.getValue(score);
+                long ahead = switch (score) {
+                    case LATEST -> entryRepository.countAheadByLatest(benchmarkId, kpiName, value, agentId);
+                    case BEST -> entryRepository.countAheadByBest(benchmarkId, kpiName, value, agentId);
+                };
+                return LeaderboardRow.of(ahead + 1, entry);
+            });
+    }
+}
@@ -0,0 +1,80 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.LengthRatioMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * Length of the generated text relative to the reference, the
+ * {@code len_ratio} score of the llm-usecase evaluator: stripped character
+ * counts, rounded to three decimals.
+ */
+@Service
+public class LengthRatioMetricProvider implements MetricProvider<LengthRatioMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        Metric metric = new Metric();
+        metric.setName("len_ratio");
+        metric.setType(MetricType.LEN_RATIO);
+        metric.setFloatValue((float) lengthRatio(strippedLength(generatedText), strippedLength(referenceText)));
+        metric.setUnit("ratio");
+        return metric;
+    }
+
+    @Override
+    public Class<LengthRatioMetric> key() {
+        return LengthRatioMetric.class;
+    }
+
+    @Override
+    public String metricKey() {
+        return MetricType.LEN_RATIO.name();
+    }
+
+    /**
+     * {@code round(max(1e-6, generated) / max(1, reference), 3)}, rounding half
+     * to even on the exact binary value like Python's {@code round}.
+     */
+    static double lengthRatio(int generatedLength, int referenceLength) {
+        double ratio = Math.max(1e-6, generatedLength) / Math.max(1, referenceLength);
+        return new BigDecimal(ratio).setScale(3, RoundingMode.HALF_EVEN).doubleValue();
+    }
+
+    /** Code point count after Python-style {@code strip()}. */
+    static int strippedLength(String text) {
+        String stripped = strip(text);
+        return stripped.codePointCount(0, stripped.length());
+    }
+
+    /**
+     * Python's {@code str.strip()}, which also removes non-breaking and other
+     * Unicode spaces that {@link String#strip()} keeps.
+     */
+    static String strip(String text) {
+        if (text == null) {
+            return "";
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && isPythonSpace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && isPythonSpace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+
+    private static boolean isPythonSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\u0085';
+    }
+}
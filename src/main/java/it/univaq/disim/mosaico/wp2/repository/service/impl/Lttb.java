@@ -0,0 +1,79 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrendPoint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of a time series.
+ *
+ * The first and last points are kept; the points in between are split into
+ * equal buckets and from each bucket the point forming the largest triangle
+ * with the previously selected point and the mean of the next bucket is kept.
+ * This preserves peaks and dips that plain averaging would flatten.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * @param points the series, ordered by timestamp
+     * @param threshold the number of points to keep, at least 3 to have any effect
+     * @return the selected points, or {@code points} itself if it is already small enough
+     */
+    public static List<KpiTrendPoint> downsample(List<KpiTrendPoint> points, int threshold) {
+        int size = points.size();
+        if (threshold >= size || threshold < 3) {
+            return points;
+        }
+        List<KpiTrendPoint> sampled = new ArrayList<>(threshold);
+        sampled.add(points.get(0));
+
+        double bucketWidth = (double) (size - 2) / (threshold - 2);
+        int selected = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) (bucket * bucketWidth) + 1;
+            int end = (int) ((bucket + 1) * bucketWidth) + 1;
+
+            // Mean of the next bucket, or the last point for the final bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketWidth) + 1, size);
+            if (nextStart >= size - 1) {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double meanX = 0;
+            double meanY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                meanX += x(points.get(i));
+                meanY += points.get(i).value();
+            }
+            meanX /= nextEnd - nextStart;
+            meanY /= nextEnd - nextStart;
+
+            double ax = x(points.get(selected));
+            double ay = points.get(selected).value();
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - meanX) * (points.get(i).value() - ay)
+                    - (ax - x(points.get(i))) * (meanY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            sampled.add(points.get(chosen));
+            selected = chosen;
+        }
+
+        sampled.add(points.get(size - 1));
+        return sampled;
+    }
+
+    private static double x(KpiTrendPoint point) {
+        return point.timestamp().toEpochMilli();
+    }
+}
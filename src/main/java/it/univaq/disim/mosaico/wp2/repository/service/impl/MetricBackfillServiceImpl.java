@@ -0,0 +1,266 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.dto.BackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricBackfillService;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricSnapshotArchiveService;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of MetricBackfillService.
+ * Streams the stored results of a run in keyset-ordered batches, each in its
+ * own transaction, and scores every batch in parallel on a bounded pool.
+ * The snapshots of an archived run are restored as rows while they are
+ * replaced, and the run is archived again once its KPIs are recomputed.
+ * Providers that are not cacheable read the trace input or usage, which are
+ * not stored with results, so they are left out.
+ *
+ * Workers take their own connections for the metric and embedding caches
+ * while the batch holds one, so by default the pool is sized to at most half
+ * of the connection pool, which also serves the executing runs.
+ */
+@Service
+public class MetricBackfillServiceImpl implements MetricBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricBackfillServiceImpl.class);
+
+    private final BenchmarkRunRepository runRepository;
+    private final BenchmarkResultRepository resultRepository;
+    private final AgentService agentService;
+    private final MetricProviderRegistry metricProviderRegistry;
+    private final MetricResultCache metricResultCache;
+    private final TextBlobService textBlobService;
+    private final BenchmarkOrchestrator orchestrator;
+    private final MetricSnapshotArchiveService archiveService;
+    private final TransactionTemplate batchTransaction;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public MetricBackfillServiceImpl(
+            BenchmarkRunRepository runRepository,
+            BenchmarkResultRepository resultRepository,
+            AgentService agentService,
+            MetricProviderRegistry metricProviderRegistry,
+            MetricResultCache metricResultCache,
+            TextBlobService textBlobService,
+            BenchmarkOrchestrator orchestrator,
+            MetricSnapshotArchiveService archiveService,
+            PlatformTransactionManager transactionManager,
+            @Value("${mosaico.backfill.batch-size:500}") int batchSize,
+            @Value("${mosaico.backfill.parallelism:0}") int parallelism,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.runRepository = runRepository;
+        this.resultRepository = resultRepository;
+        this.agentService = agentService;
+        this.metricProviderRegistry = metricProviderRegistry;
+        this.metricResultCache = metricResultCache;
+        this.textBlobService = textBlobService;
+        this.orchestrator = orchestrator;
+        this.archiveService = archiveService;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        int threads = parallelism > 0 ? parallelism
+            : defaultParallelism(Runtime.getRuntime().availableProcessors(), connectionPoolSize);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "metric-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * One worker per CPU, but no more than half of the connection pool.
+     */
+    static int defaultParallelism(int cpus, int connectionPoolSize) {
+        return Math.max(1, Math.min(cpus, connectionPoolSize / 2));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public BackfillReport rescoreRun(String runId, Collection<String> providerIds) {
+        List<MetricProvider<?>> providers = resolveProviders(providerIds);
+        BenchmarkRun run = runRepository.findById(runId)
+            .orElseThrow(() -> new IllegalArgumentException("Run not found: " + runId));
+        return rescore(List.of(run), providers);
+    }
+
+    @Override
+    public BackfillReport rescoreBenchmark(String benchmarkId, Collection<String> providerIds) {
+        List<MetricProvider<?>> providers = resolveProviders(providerIds);
+        List<BenchmarkRun> runs = runRepository.findByBenchmarkIdAndStatus(benchmarkId, RunStatus.COMPLETED);
+        return rescore(runs, providers);
+    }
+
+    private BackfillReport rescore(List<BenchmarkRun> runs, List<MetricProvider<?>> providers) {
+        long start = System.currentTimeMillis();
+        int results = 0;
+        int snapshots = 0;
+        int failures = 0;
+        Map<String, Map<String, Double>> kpiValuesByRun = new LinkedHashMap<>();
+
+        for (BenchmarkRun run : runs) {
+            Agent agent = agentService.findById(run.getAgentId())
+                .orElseThrow(() -> new IllegalStateException("Agent not found: " + run.getAgentId()));
+            // If re-scoring fails half-way the rows stay, and the archiver folds them back later
+            boolean archived;
+            try {
+                archived = archiveService.restoreRun(run.getId());
+            } catch (RuntimeException e) {
+                logger.error("Failed to restore the archived snapshots of run {}, skipping it: {}",
+                    run.getId(), e.getMessage(), e);
+                continue;
+            }
+
+            String afterId = "";
+            while (true) {
+                String cursor = afterId;
+                BatchOutcome outcome = batchTransaction.execute(
+                    status -> rescoreBatch(run.getId(), cursor, agent, providers));
+                if (outcome == null || outcome.size() == 0) {
+                    break;
+                }
+                results += outcome.size();
+                snapshots += outcome.snapshotsWritten();
+                failures += outcome.failures();
+                afterId = outcome.lastResultId();
+                if (outcome.size() < batchSize) {
+                    break;
+                }
+            }
+
+            kpiValuesByRun.put(run.getId(), orchestrator.recomputeKpis(run.getId()));
+            if (archived) {
+                archiveService.archiveRun(run.getId());
+            }
+            logger.info("Re-scored run {} with {} providers", run.getId(), providers.size());
+        }
+
+        return new BackfillReport(
+            runs.stream().map(BenchmarkRun::getId).toList(),
+            providers.stream().map(MetricProvider::id).toList(),
+            results,
+            snapshots,
+            failures,
+            kpiValuesByRun,
+            System.currentTimeMillis() - start
+        );
+    }
+
+    private BatchOutcome rescoreBatch(String runId, String afterId, Agent agent, List<MetricProvider<?>> providers) {
+        List<BenchmarkResult> batch = resultRepository.findBatchByRunId(runId, afterId, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return new BatchOutcome(0, 0, 0, afterId);
+        }
+        textBlobService.resolveTexts(batch);
+
+        // Texts are read on this thread: entities must not be touched from the pool
+        List<CompletableFuture<Scored>> futures = new ArrayList<>(batch.size());
+        for (BenchmarkResult result : batch) {
+            TraceData trace = new TraceData();
+            trace.traceId = result.getTraceId();
+            trace.expectedOutput = result.getExpectedText();
+            trace.generatedOutput = result.getGeneratedText();
+            futures.add(CompletableFuture.supplyAsync(() -> score(providers, agent, trace), executor));
+        }
+
+        int written = 0;
+        int failures = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            BenchmarkResult result = batch.get(i);
+            Scored scored = futures.get(i).join();
+            failures += scored.failures();
+
+            // Replace snapshots of the re-scored metric types, keep everything else
+            Set<MetricType> rescoredTypes = scored.metrics().stream()
+                .map(Metric::getType)
+                .collect(Collectors.toSet());
+            result.getMetricSnapshots().removeIf(s -> rescoredTypes.contains(s.getMetricType()));
+            for (Metric metric : scored.metrics()) {
+                result.addMetricSnapshot(MetricSnapshot.fromMetric(runId, metric, result.getTraceId()));
+                written++;
+            }
+        }
+        resultRepository.saveAll(batch);
+
+        return new BatchOutcome(batch.size(), written, failures, batch.get(batch.size() - 1).getId());
+    }
+
+    private Scored score(List<MetricProvider<?>> providers, Agent agent, TraceData trace) {
+        List<Metric> metrics = new ArrayList<>(providers.size());
+        int failures = 0;
+        for (MetricProvider<?> provider : providers) {
+            try {
+                Metric metric = metricResultCache.computeIfAbsent(
+                    provider, agent, trace.expectedOutput, trace.generatedOutput, trace);
+                if (metric != null && metric.getType() != null) {
+                    metrics.add(metric);
+                }
+            } catch (Exception e) {
+                failures++;
+                logger.warn("Failed to re-score metric {} for trace {}: {}",
+                    provider.id(), trace.traceId, e.getMessage());
+            }
+        }
+        return new Scored(metrics, failures);
+    }
+
+    private List<MetricProvider<?>> resolveProviders(Collection<String> providerIds) {
+        if (providerIds == null || providerIds.isEmpty()) {
+            return metricProviderRegistry.getAllProviders().stream()
+                .filter(MetricProvider::isCacheable)
+                .toList();
+        }
+        List<MetricProvider<?>> providers = new ArrayList<>();
+        for (String id : providerIds) {
+            MetricProvider<?> provider = metricProviderRegistry.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown metric provider: " + id));
+            if (!provider.isCacheable()) {
+                throw new IllegalArgumentException(
+                    "Metric provider " + id + " reads trace data that is not stored and cannot be re-scored");
+            }
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    private record Scored(List<Metric> metrics, int failures) {
+    }
+
+    private record BatchOutcome(int size, int snapshotsWritten, int failures, String lastResultId) {
+    }
+}
@@ -4,31 +4,49 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import it.univaq.disim.mosaico.wp2.repository.data.MetricKey;
+import it.univaq.disim.mosaico.wp2.repository.dsl.MetricVocabulary;
 import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
 import it.univaq.disim.mosaico.wp2.repository.service.exception.MetricProviderNotFoundException;
 
 /**
  * Registry for managing MetricProvider instances.
  * Automatically discovers and registers all MetricProvider beans at startup.
- * Provides type-safe lookup of providers by their MetricKey.
+ * Provides type-safe lookup of providers by their MetricKey, and adds the
+ * providers' metric keys to the {@link MetricVocabulary} so KPI formulas can
+ * reference every metric that is actually computed.
  */
 @Service
 public class MetricProviderRegistry {
     private final Map<Class<? extends MetricKey>, MetricProvider<?>> byKey = new HashMap<>();
+    private final MetricVocabulary vocabulary;
+
+    /**
+     * Creates a registry with a vocabulary of its own.
+     * @param providers List of MetricProvider instances
+     */
+    public MetricProviderRegistry(List<MetricProvider<?>> providers) {
+        this(providers, new MetricVocabulary());
+    }
 
     /**
      * Constructor that auto-discovers all MetricProvider beans via Spring dependency injection.
      * @param providers List of all MetricProvider instances managed by Spring
+     * @param vocabulary The metric vocabulary shared with the KPI formula parser
      */
-    public MetricProviderRegistry(List<MetricProvider<?>> providers) {
+    @Autowired
+    public MetricProviderRegistry(List<MetricProvider<?>> providers, MetricVocabulary vocabulary) {
         for (var p : providers)
             byKey.put(p.key(), p);
+        this.vocabulary = vocabulary;
+        vocabulary.register(byKey.values().stream().map(MetricProvider::metricKey).toList());
     }
 
     /**
@@ -69,4 +87,24 @@ public class MetricProviderRegistry {
     public boolean hasProvider(Class<? extends MetricKey> key) {
         return byKey.containsKey(key);
     }
+
+    /**
+     * Returns the metric vocabulary the providers' keys are registered in.
+     * @return The shared vocabulary
+     */
+    public MetricVocabulary getMetricVocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * Looks up a provider by its {@link MetricProvider#id()}.
+     * @param id The provider id (case-insensitive)
+     * @return The matching provider, or empty if none is registered
+     */
+    public Optional<MetricProvider<?>> findById(String id) {
+        if (id == null) return Optional.empty();
+        return byKey.values().stream()
+            .filter(p -> p.id().equalsIgnoreCase(id))
+            .findFirst();
+    }
 }
\ No newline at end of file
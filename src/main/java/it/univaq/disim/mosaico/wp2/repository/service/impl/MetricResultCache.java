@@ -0,0 +1,166 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricResultCacheEntry;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricResultCacheRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier memoization of metric results keyed by
+ * (provider id, provider version, hash(reference), hash(generated)).
+ *
+ * The first tier is an in-process LRU, the second one is the
+ * {@code metric_result_cache} table. Database access runs in its own
+ * transaction so that a failing cache lookup or a concurrent insert of the
+ * same key never rolls back the benchmark run that is using the cache.
+ */
+@Service
+public class MetricResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricResultCache.class);
+
+    private final MetricResultCacheRepository repository;
+    private final TransactionTemplate cacheTransaction;
+    private final int maxEntries;
+    private final Map<String, MetricResultCacheEntry> lru;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MetricResultCache(MetricResultCacheRepository repository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${mosaico.metric-cache.max-entries:10000}") int maxEntries) {
+        this.repository = repository;
+        this.cacheTransaction = new TransactionTemplate(transactionManager);
+        this.cacheTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxEntries = maxEntries;
+        this.lru = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MetricResultCacheEntry> eldest) {
+                return size() > MetricResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the memoized result for the given provider and texts, computing
+     * and storing it on a miss. Providers that are not cacheable are always
+     * computed.
+     *
+     * @param provider the metric provider
+     * @param agent the agent being evaluated
+     * @param referenceText the expected text
+     * @param generatedText the generated text
+     * @param trace the trace the texts come from
+     * @return a fresh Metric instance owned by the caller
+     */
+    public Metric computeIfAbsent(MetricProvider<?> provider, Agent agent,
+                                  String referenceText, String generatedText, TraceData trace) {
+        if (!provider.isCacheable()) {
+            return provider.compute(agent, referenceText, generatedText, trace);
+        }
+
+        String referenceHash = ContentHash.sha256(referenceText);
+        String generatedHash = ContentHash.sha256(generatedText);
+        String key = cacheKey(provider, referenceHash, generatedHash);
+
+        MetricResultCacheEntry cached;
+        synchronized (lru) {
+            cached = lru.get(key);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return cached.toMetric();
+        }
+
+        Optional<MetricResultCacheEntry> stored = loadFromDatabase(key);
+        if (stored.isPresent()) {
+            databaseHits.incrementAndGet();
+            remember(key, stored.get());
+            return stored.get().toMetric();
+        }
+
+        misses.incrementAndGet();
+        Metric metric = provider.compute(agent, referenceText, generatedText, trace);
+        if (metric == null || metric.getType() == null) {
+            return metric;
+        }
+        MetricResultCacheEntry entry = new MetricResultCacheEntry(
+            key, provider.id(), provider.version(), referenceHash, generatedHash, metric);
+        remember(key, entry);
+        storeInDatabase(entry);
+        return metric;
+    }
+
+    /**
+     * Drop every entry (memory and database) written by older versions of the
+     * given provider. Lookups never match stale versions anyway, so this only
+     * reclaims space.
+     *
+     * @param provider the provider whose stale entries should be removed
+     * @return number of database rows removed
+     */
+    public int evictStaleVersions(MetricProvider<?> provider) {
+        synchronized (lru) {
+            lru.values().removeIf(entry -> entry.getProviderId().equals(provider.id())
+                && !entry.getProviderVersion().equals(provider.version()));
+        }
+        Integer removed = cacheTransaction.execute(
+            status -> repository.deleteStaleVersions(provider.id(), provider.version()));
+        return removed != null ? removed : 0;
+    }
+
+    public long getMemoryHits() { return memoryHits.get(); }
+    public long getDatabaseHits() { return databaseHits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public int size() {
+        synchronized (lru) {
+            return lru.size();
+        }
+    }
+
+    static String cacheKey(MetricProvider<?> provider, String referenceHash, String generatedHash) {
+        return ContentHash.sha256Of(provider.id(), provider.version(), referenceHash, generatedHash);
+    }
+
+    private void remember(String key, MetricResultCacheEntry entry) {
+        synchronized (lru) {
+            lru.put(key, entry);
+        }
+    }
+
+    private Optional<MetricResultCacheEntry> loadFromDatabase(String key) {
+        try {
+            return cacheTransaction.execute(status -> repository.findById(key));
+        } catch (Exception e) {
+            logger.warn("Metric cache lookup failed for key {}: {}", key, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void storeInDatabase(MetricResultCacheEntry entry) {
+        try {
+            cacheTransaction.executeWithoutResult(status -> repository.save(entry));
+        } catch (Exception e) {
+            // Most likely a concurrent insert of the same key: the value is identical.
+            logger.debug("Could not persist metric cache entry {}: {}", entry.getId(), e.getMessage());
+        }
+    }
+}
@@ -2,8 +2,11 @@ package it.univaq.disim.mosaico.wp2.repository.service.impl;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.repository.MetricNotFoundException;
 import it.univaq.disim.mosaico.wp2.repository.repository.MetricRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.MetricService;
@@ -40,6 +43,15 @@ public class MetricServiceImpl implements MetricService {
         return metricRepository.findAll();
     }
 
+    @Override
+    /*
+     * Retrieves one page of metrics with a range seek on the id.
+     */
+    public CursorPage<Metric> findPage(KeysetCursor after, int limit) {
+        List<Metric> fetched = metricRepository.findPageAfter(after != null ? after.id() : "", PageRequest.of(0, limit + 1));
+        return CursorPage.of(fetched, limit, metric -> KeysetCursor.of(metric.getId()));
+    }
+
     @Override
     /*
      * Retrieves a metric by its id from the repository.
@@ -0,0 +1,148 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotArchiveRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.DataRetentionService;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricSnapshotArchiveService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Implementation of MetricSnapshotArchiveService.
+ *
+ * Each run is archived in its own transaction: the segment is written and the
+ * rows deleted together, so a run is never readable twice or not at all.
+ * Runs whose archiving fails are logged and retried on the next pass, as are
+ * archived runs that have snapshot rows again. Restoring a run first creates
+ * the partitions its snapshots need, since retention may have dropped them.
+ */
+@Service
+public class MetricSnapshotArchiveServiceImpl implements MetricSnapshotArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricSnapshotArchiveServiceImpl.class);
+
+    private static final Set<RunStatus> FINISHED = EnumSet.of(RunStatus.COMPLETED, RunStatus.FAILED, RunStatus.CANCELLED);
+
+    private final BenchmarkRunRepository runRepository;
+    private final MetricSnapshotRepository metricSnapshotRepository;
+    private final MetricSnapshotArchiveRepository archiveRepository;
+    private final DataRetentionService dataRetentionService;
+    private final TransactionTemplate runTransaction;
+    private final int archiveAfterDays;
+    private final int batchSize;
+
+    public MetricSnapshotArchiveServiceImpl(
+            BenchmarkRunRepository runRepository,
+            MetricSnapshotRepository metricSnapshotRepository,
+            MetricSnapshotArchiveRepository archiveRepository,
+            DataRetentionService dataRetentionService,
+            PlatformTransactionManager transactionManager,
+            @Value("${mosaico.snapshot-archive.days:30}") int archiveAfterDays,
+            @Value("${mosaico.snapshot-archive.batch-size:100}") int batchSize) {
+        this.runRepository = runRepository;
+        this.metricSnapshotRepository = metricSnapshotRepository;
+        this.archiveRepository = archiveRepository;
+        this.dataRetentionService = dataRetentionService;
+        this.runTransaction = new TransactionTemplate(transactionManager);
+        this.archiveAfterDays = archiveAfterDays;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Runs daily, before the partition retention job, to archive old runs.
+     */
+    @Scheduled(cron = "${mosaico.snapshot-archive.cron:0 0 2 * * *}")
+    public void runArchiver() {
+        archiveExpiredRuns();
+    }
+
+    @Override
+    public int archiveExpiredRuns() {
+        return archiveExpiredRuns(Instant.now());
+    }
+
+    int archiveExpiredRuns(Instant now) {
+        if (archiveAfterDays <= 0) {
+            return 0;
+        }
+        Instant before = now.minus(Duration.ofDays(archiveAfterDays));
+        int archived = 0;
+        while (true) {
+            List<String> runIds = runRepository.findRunIdsToArchive(FINISHED, before, PageRequest.of(0, batchSize));
+            int archivedInBatch = 0;
+            for (String runId : runIds) {
+                try {
+                    if (archiveRun(runId)) {
+                        archivedInBatch++;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Failed to archive metric snapshots of run {}: {}", runId, e.getMessage(), e);
+                }
+            }
+            archived += archivedInBatch;
+            // A short batch is the last one; a batch without progress would only be selected again
+            if (runIds.size() < batchSize || archivedInBatch == 0) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            logger.info("Archived the metric snapshots of {} runs completed before {}", archived, before);
+        }
+        return archived;
+    }
+
+    @Override
+    public boolean archiveRun(String runId) {
+        return Boolean.TRUE.equals(runTransaction.execute(status -> {
+            Optional<MetricSnapshotArchive> existing = archiveRepository.findById(runId);
+            if (existing.isPresent() && metricSnapshotRepository.countRowsByRunId(runId) == 0) {
+                return false;
+            }
+            // Archived snapshots come back decoded with the rows, so an existing segment is rewritten
+            List<MetricSnapshot> snapshots = metricSnapshotRepository.findByRunId(runId);
+            MetricSnapshotArchive archive = MetricSnapshotArchive.of(runId, snapshots);
+            archiveRepository.save(archive);
+            metricSnapshotRepository.deleteByRunId(runId);
+            logger.debug("Archived {} metric snapshots of run {} into {} bytes",
+                snapshots.size(), runId, archive.getContent().length);
+            return true;
+        }));
+    }
+
+    @Override
+    public boolean restoreRun(String runId) {
+        // Outside the restore: creating a partition locks the whole table
+        archiveRepository.findById(runId)
+            .filter(archive -> archive.getFirstTimestamp() != null)
+            .ifPresent(archive -> dataRetentionService.ensureSnapshotPartitions(
+                archive.getFirstTimestamp(), archive.getLastTimestamp()));
+        return Boolean.TRUE.equals(runTransaction.execute(status -> {
+            Optional<MetricSnapshotArchive> archive = archiveRepository.findById(runId);
+            if (archive.isEmpty()) {
+                return false;
+            }
+            List<MetricSnapshot> snapshots = metricSnapshotRepository.findArchivedByRunId(runId);
+            metricSnapshotRepository.saveAll(snapshots);
+            archiveRepository.delete(archive.get());
+            logger.debug("Restored {} archived metric snapshots of run {}", snapshots.size(), runId);
+            return true;
+        }));
+    }
+}
@@ -1,47 +1,248 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
 import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.NotificationOutboxEntry;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationStatus;
+import it.univaq.disim.mosaico.wp2.repository.repository.NotificationOutboxRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.NotificationDispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of NotificationDispatcher.
- * Placeholder implementation - actual integrations to be added.
+ *
+ * Alerts are queued in the notification outbox in the transaction that
+ * triggers them and sent by a scheduled pass outside of any transaction:
+ * <ul>
+ *   <li>an alert queued for a recipient that already has unsent alerts joins
+ *       their coalescing window, so they go out as one message; an unsent
+ *       alert triggered again only keeps its latest value;</li>
+ *   <li>due entries are claimed in a short transaction, skipping the ones
+ *       claimed by other instances;</li>
+ *   <li>webhooks are posted with a non-blocking WebClient, with a bounded
+ *       number of requests in flight per endpoint;</li>
+ *   <li>failed entries are retried with exponential backoff and kept as dead
+ *       letters after the last attempt.</li>
+ * </ul>
+ * Delivery is at least once: an instance stopping between sending and
+ * removing its entries sends them again once their claim expires. Email and
+ * Slack are still placeholders.
  */
 @Service
 public class NotificationDispatcherImpl implements NotificationDispatcher {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcherImpl.class);
 
+    private static final Set<NotificationStatus> CLAIMABLE = EnumSet.of(NotificationStatus.PENDING, NotificationStatus.SENDING);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofHours(6);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final TransactionTemplate transaction;
+    private final WebClient webClient;
+    private final Duration coalesceWindow;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration lease;
+    private final Duration webhookTimeout;
+    private final int maxConcurrencyPerEndpoint;
+
+    public NotificationDispatcherImpl(
+            NotificationOutboxRepository outboxRepository,
+            PlatformTransactionManager transactionManager,
+            WebClient.Builder webClientBuilder,
+            @Value("${mosaico.notifications.coalesce-window-millis:30000}") long coalesceWindowMillis,
+            @Value("${mosaico.notifications.batch-size:100}") int batchSize,
+            @Value("${mosaico.notifications.max-attempts:5}") int maxAttempts,
+            @Value("${mosaico.notifications.retry-millis:60000}") long retryMillis,
+            @Value("${mosaico.notifications.lease-millis:300000}") long leaseMillis,
+            @Value("${mosaico.notifications.webhook.timeout-millis:10000}") long webhookTimeoutMillis,
+            @Value("${mosaico.notifications.webhook.max-concurrency-per-endpoint:2}") int maxConcurrencyPerEndpoint) {
+        this.outboxRepository = outboxRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.webClient = webClientBuilder.build();
+        this.coalesceWindow = Duration.ofMillis(Math.max(0, coalesceWindowMillis));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelay = Duration.ofMillis(Math.max(1, retryMillis));
+        this.lease = Duration.ofMillis(Math.max(1, leaseMillis));
+        this.webhookTimeout = Duration.ofMillis(Math.max(1, webhookTimeoutMillis));
+        this.maxConcurrencyPerEndpoint = Math.max(1, maxConcurrencyPerEndpoint);
+    }
+
     @Override
+    @Transactional
     public void dispatch(AlertConfig alert, String kpiName, double value) {
-        String message = formatAlertMessage(alert, kpiName, value);
+        dispatch(alert, kpiName, value, Instant.now());
+    }
 
+    void dispatch(AlertConfig alert, String kpiName, double value, Instant now) {
+        String message = formatAlertMessage(alert, kpiName, value);
         for (NotificationChannel channel : alert.getChannels()) {
-            try {
-                switch (channel) {
-                    case EMAIL -> {
-                        for (String recipient : alert.getRecipients()) {
-                            sendEmail(recipient, "Alert: " + alert.getName(), message);
-                        }
-                    }
-                    case SLACK -> sendSlackMessage(null, message);
-                    case TEAMS -> logger.info("Teams notification (not implemented): {}", message);
-                    case WEBHOOK -> {
-                        if (alert.getWebhookUrl() != null) {
-                            sendWebhook(alert.getWebhookUrl(), message);
-                        }
-                    }
-                    case IN_APP -> logger.info("In-app notification: {}", message);
+            for (String recipient : recipients(alert, channel)) {
+                enqueue(new NotificationOutboxEntry(alert, channel, recipient, kpiName, value, message, now));
+            }
+        }
+    }
+
+    private static List<String> recipients(AlertConfig alert, NotificationChannel channel) {
+        return switch (channel) {
+            case EMAIL -> alert.getRecipients() != null ? alert.getRecipients() : List.of();
+            case WEBHOOK -> alert.getWebhookUrl() != null ? List.of(alert.getWebhookUrl()) : List.of();
+            case SLACK, TEAMS, IN_APP -> Collections.singletonList(null);
+        };
+    }
+
+    private void enqueue(NotificationOutboxEntry entry) {
+        Instant sendAt = entry.getCreatedAt().plus(coalesceWindow);
+        for (NotificationOutboxEntry queued : outboxRepository.findByChannelAndRecipientAndStatus(
+                entry.getChannel(), entry.getRecipient(), NotificationStatus.PENDING)) {
+            // Retries keep their own schedule
+            if (queued.getAttempts() > 0) {
+                continue;
+            }
+            if (queued.getAlertId().equals(entry.getAlertId())) {
+                queued.setKpiName(entry.getKpiName());
+                queued.setKpiValue(entry.getKpiValue());
+                queued.setMessage(entry.getMessage());
+                outboxRepository.save(queued);
+                return;
+            }
+            if (queued.getNextAttemptAt().isBefore(sendAt)) {
+                sendAt = queued.getNextAttemptAt();
+            }
+        }
+        entry.setNextAttemptAt(sendAt);
+        outboxRepository.save(entry);
+    }
+
+    /**
+     * Polls the outbox; each pass finishes before the next one is scheduled.
+     */
+    @Scheduled(fixedDelayString = "${mosaico.notifications.poll-millis:2000}")
+    public void runDispatcher() {
+        dispatchPending();
+    }
+
+    @Override
+    public int dispatchPending() {
+        return dispatchPending(Instant.now());
+    }
+
+    int dispatchPending(Instant now) {
+        List<NotificationOutboxEntry> claimed = claim(now);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        Map<Recipient, List<NotificationOutboxEntry>> byRecipient = claimed.stream()
+            .collect(Collectors.groupingBy(Recipient::of, LinkedHashMap::new, Collectors.toList()));
+        List<Delivery> deliveries = Flux.fromIterable(byRecipient.entrySet())
+            .groupBy(recipient -> recipient.getKey().endpoint())
+            .flatMap(endpoint -> endpoint.flatMap(
+                    recipient -> send(recipient.getKey(), recipient.getValue()), maxConcurrencyPerEndpoint),
+                byRecipient.size())
+            .collectList()
+            .block();
+
+        List<NotificationOutboxEntry> sent = new ArrayList<>();
+        List<NotificationOutboxEntry> failed = new ArrayList<>();
+        for (Delivery delivery : deliveries) {
+            if (delivery.error() == null) {
+                sent.addAll(delivery.entries());
+                continue;
+            }
+            logger.warn("Failed to send {} notifications to {}: {}",
+                delivery.entries().size(), delivery.recipient(), delivery.error());
+            for (NotificationOutboxEntry entry : delivery.entries()) {
+                Instant retryAt = entry.getAttempts() + 1 < maxAttempts ? now.plus(backoff(entry.getAttempts())) : null;
+                entry.failed(delivery.error(), retryAt);
+                if (retryAt == null) {
+                    logger.error("Giving up {} notification of alert {} after {} attempts: {}",
+                        entry.getChannel(), entry.getAlertId(), entry.getAttempts(), delivery.error());
                 }
-            } catch (Exception e) {
-                logger.error("Failed to send {} notification for alert {}: {}",
-                    channel, alert.getId(), e.getMessage());
+                failed.add(entry);
             }
         }
+        transaction.executeWithoutResult(status -> {
+            outboxRepository.deleteAll(sent);
+            outboxRepository.saveAll(failed);
+        });
+        return sent.size();
+    }
+
+    private List<NotificationOutboxEntry> claim(Instant now) {
+        List<NotificationOutboxEntry> claimed = transaction.execute(status -> {
+            List<NotificationOutboxEntry> due = outboxRepository.findDueForUpdate(
+                CLAIMABLE, now, PageRequest.of(0, batchSize));
+            // Claimed until the lease expires, so entries of a stopped instance are sent again
+            for (NotificationOutboxEntry entry : due) {
+                entry.setStatus(NotificationStatus.SENDING);
+                entry.setNextAttemptAt(now.plus(lease));
+            }
+            outboxRepository.saveAll(due);
+            return due;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts, 20));
+        return delay.compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay;
+    }
+
+    private Mono<Delivery> send(Recipient recipient, List<NotificationOutboxEntry> entries) {
+        Mono<Void> sending = switch (recipient.channel()) {
+            case WEBHOOK -> post(recipient.address(), webhookPayload(entries));
+            case EMAIL -> blocking(() -> sendEmail(recipient.address(), subject(entries), body(entries)));
+            case SLACK -> blocking(() -> sendSlackMessage(null, body(entries)));
+            case TEAMS -> blocking(() -> logger.info("Teams notification (not implemented): {}", body(entries)));
+            case IN_APP -> blocking(() -> logger.info("In-app notification: {}", body(entries)));
+        };
+        return sending
+            .thenReturn(new Delivery(recipient, entries, null))
+            .onErrorResume(e -> Mono.just(new Delivery(recipient, entries,
+                e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName())));
+    }
+
+    private static Mono<Void> blocking(Runnable send) {
+        return Mono.<Void>fromRunnable(send).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> post(String url, Object payload) {
+        return webClient.post()
+            .uri(url)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(payload)
+            .retrieve()
+            .toBodilessEntity()
+            .timeout(webhookTimeout)
+            .then();
     }
 
     @Override
@@ -58,8 +259,37 @@ public class NotificationDispatcherImpl implements NotificationDispatcher {
 
     @Override
     public void sendWebhook(String url, String payload) {
-        // Placeholder - integrate with HTTP client
-        logger.info("Webhook notification to {}: {}", url, payload);
+        post(url, payload).block();
+    }
+
+    private static Map<String, Object> webhookPayload(List<NotificationOutboxEntry> entries) {
+        List<Map<String, Object>> alerts = new ArrayList<>();
+        for (NotificationOutboxEntry entry : entries) {
+            Map<String, Object> alert = new LinkedHashMap<>();
+            alert.put("alertId", entry.getAlertId());
+            alert.put("alertName", entry.getAlertName());
+            alert.put("severity", entry.getSeverity() != null ? entry.getSeverity().name() : null);
+            alert.put("kpiName", entry.getKpiName());
+            alert.put("value", entry.getKpiValue());
+            alert.put("triggeredAt", entry.getCreatedAt().toString());
+            alert.put("message", entry.getMessage());
+            alerts.add(alert);
+        }
+        return Map.of("alerts", alerts);
+    }
+
+    private static String subject(List<NotificationOutboxEntry> entries) {
+        if (entries.size() == 1) {
+            return "Alert: " + entries.get(0).getAlertName();
+        }
+        return entries.size() + " alerts: " + entries.stream()
+            .map(NotificationOutboxEntry::getAlertName).distinct().collect(Collectors.joining(", "));
+    }
+
+    private static String body(List<NotificationOutboxEntry> entries) {
+        return entries.stream()
+            .map(NotificationOutboxEntry::getMessage)
+            .collect(Collectors.joining(System.lineSeparator().repeat(2)));
     }
 
     private String formatAlertMessage(AlertConfig alert, String kpiName, double value) {
@@ -77,4 +307,35 @@ public class NotificationDispatcherImpl implements NotificationDispatcher {
             alert.getCondition()
         );
     }
+
+    private record Recipient(NotificationChannel channel, String address) {
+
+        static Recipient of(NotificationOutboxEntry entry) {
+            return new Recipient(entry.getChannel(), entry.getRecipient());
+        }
+
+        /** Webhooks are limited per host, the other channels per service. */
+        String endpoint() {
+            if (channel == NotificationChannel.WEBHOOK) {
+                try {
+                    String authority = URI.create(address).getAuthority();
+                    if (authority != null) {
+                        return authority;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Sent as is and failed by the client
+                }
+                return address;
+            }
+            return channel.name();
+        }
+
+        @Override
+        public String toString() {
+            return address != null ? channel + " " + address : channel.toString();
+        }
+    }
+
+    private record Delivery(Recipient recipient, List<NotificationOutboxEntry> entries, String error) {
+    }
 }
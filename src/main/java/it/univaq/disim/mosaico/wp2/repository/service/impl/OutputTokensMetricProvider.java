@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.OutputTokensMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * Completion tokens produced by the generations of the trace.
+ */
+@Service
+public class OutputTokensMetricProvider extends TraceUsageMetricProvider<OutputTokensMetric> {
+
+    public OutputTokensMetricProvider() {
+        super("Output Tokens", MetricType.OUTPUT_TOKENS, "tokens");
+    }
+
+    @Override
+    protected Number extract(TraceUsage usage) {
+        return usage.outputTokens();
+    }
+
+    @Override
+    public Class<OutputTokensMetric> key() {
+        return OutputTokensMetric.class;
+    }
+}
@@ -0,0 +1,273 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Porter stemmer with the NLTK extensions, as used by the Python
+ * {@code rouge_score} package that scores the llm-usecase evaluation.
+ *
+ * This is a rule-for-rule port of {@code nltk.stem.porter.PorterStemmer} in its
+ * default {@code NLTK_EXTENSIONS} mode, so that ROUGE scores computed here match
+ * the ones the Python evaluator pushes to Langfuse. Input is expected to be
+ * lowercase ASCII.
+ */
+final class PorterStemmer {
+
+    private static final Map<String, String> IRREGULAR_FORMS = Map.ofEntries(
+        Map.entry("sky", "sky"), Map.entry("skies", "sky"),
+        Map.entry("dying", "die"), Map.entry("lying", "lie"), Map.entry("tying", "tie"),
+        Map.entry("news", "news"),
+        Map.entry("innings", "inning"), Map.entry("inning", "inning"),
+        Map.entry("outings", "outing"), Map.entry("outing", "outing"),
+        Map.entry("cannings", "canning"), Map.entry("canning", "canning"),
+        Map.entry("howe", "howe"),
+        Map.entry("proceed", "proceed"), Map.entry("exceed", "exceed"), Map.entry("succeed", "succeed"));
+
+    private PorterStemmer() {
+    }
+
+    static String stem(String word) {
+        String irregular = IRREGULAR_FORMS.get(word);
+        if (irregular != null) {
+            return irregular;
+        }
+        if (word.length() <= 2) {
+            return word;
+        }
+        String stem = step1a(word);
+        stem = step1b(stem);
+        stem = step1c(stem);
+        stem = step2(stem);
+        stem = step3(stem);
+        stem = step4(stem);
+        stem = step5a(stem);
+        return step5b(stem);
+    }
+
+    private record Rule(String suffix, String replacement, Predicate<String> condition) {
+    }
+
+    private static Rule rule(String suffix, String replacement, Predicate<String> condition) {
+        return new Rule(suffix, replacement, condition);
+    }
+
+    private static Rule rule(String suffix, String replacement) {
+        return new Rule(suffix, replacement, null);
+    }
+
+    private static String step1a(String word) {
+        if (word.endsWith("ies") && word.length() == 4) {
+            return replaceSuffix(word, "ies", "ie");
+        }
+        return applyRules(word,
+            rule("sses", "ss"),
+            rule("ies", "i"),
+            rule("ss", "ss"),
+            rule("s", ""));
+    }
+
+    private static String step1b(String word) {
+        if (word.endsWith("ied")) {
+            return replaceSuffix(word, "ied", word.length() == 4 ? "ie" : "i");
+        }
+        if (word.endsWith("eed")) {
+            String stem = replaceSuffix(word, "eed", "");
+            return measure(stem) > 0 ? stem + "ee" : word;
+        }
+
+        String intermediate = null;
+        for (String suffix : new String[] {"ed", "ing"}) {
+            if (word.endsWith(suffix)) {
+                String candidate = replaceSuffix(word, suffix, "");
+                if (containsVowel(candidate)) {
+                    intermediate = candidate;
+                    break;
+                }
+            }
+        }
+        if (intermediate == null) {
+            return word;
+        }
+
+        char last = intermediate.charAt(intermediate.length() - 1);
+        if (intermediate.endsWith("at")) {
+            return replaceSuffix(intermediate, "at", "ate");
+        }
+        if (intermediate.endsWith("bl")) {
+            return replaceSuffix(intermediate, "bl", "ble");
+        }
+        if (intermediate.endsWith("iz")) {
+            return replaceSuffix(intermediate, "iz", "ize");
+        }
+        if (endsDoubleConsonant(intermediate)) {
+            // A double consonant is undoubled unless it is l, s or z; either way no further rule applies
+            return last != 'l' && last != 's' && last != 'z'
+                ? intermediate.substring(0, intermediate.length() - 1)
+                : intermediate;
+        }
+        if (measure(intermediate) == 1 && endsCvc(intermediate)) {
+            return intermediate + "e";
+        }
+        return intermediate;
+    }
+
+    private static String step1c(String word) {
+        return applyRules(word,
+            rule("y", "i", stem -> stem.length() > 1 && isConsonant(stem, stem.length() - 1)));
+    }
+
+    private static String step2(String word) {
+        if (word.endsWith("alli") && measure(replaceSuffix(word, "alli", "")) > 0) {
+            return step2(replaceSuffix(word, "alli", "al"));
+        }
+        Predicate<String> positive = stem -> measure(stem) > 0;
+        return applyRules(word,
+            rule("ational", "ate", positive),
+            rule("tional", "tion", positive),
+            rule("enci", "ence", positive),
+            rule("anci", "ance", positive),
+            rule("izer", "ize", positive),
+            rule("bli", "ble", positive),
+            rule("alli", "al", positive),
+            rule("entli", "ent", positive),
+            rule("eli", "e", positive),
+            rule("ousli", "ous", positive),
+            rule("ization", "ize", positive),
+            rule("ation", "ate", positive),
+            rule("ator", "ate", positive),
+            rule("alism", "al", positive),
+            rule("iveness", "ive", positive),
+            rule("fulness", "ful", positive),
+            rule("ousness", "ous", positive),
+            rule("aliti", "al", positive),
+            rule("iviti", "ive", positive),
+            rule("biliti", "ble", positive),
+            rule("fulli", "ful", positive),
+            // The 'l' of 'logi' stays with the stem so that short stems like 'geo' qualify
+            rule("logi", "log", stem -> measure(word.substring(0, word.length() - 3)) > 0));
+    }
+
+    private static String step3(String word) {
+        Predicate<String> positive = stem -> measure(stem) > 0;
+        return applyRules(word,
+            rule("icate", "ic", positive),
+            rule("ative", "", positive),
+            rule("alize", "al", positive),
+            rule("iciti", "ic", positive),
+            rule("ical", "ic", positive),
+            rule("ful", "", positive),
+            rule("ness", "", positive));
+    }
+
+    private static String step4(String word) {
+        Predicate<String> greaterThanOne = stem -> measure(stem) > 1;
+        return applyRules(word,
+            rule("al", "", greaterThanOne),
+            rule("ance", "", greaterThanOne),
+            rule("ence", "", greaterThanOne),
+            rule("er", "", greaterThanOne),
+            rule("ic", "", greaterThanOne),
+            rule("able", "", greaterThanOne),
+            rule("ible", "", greaterThanOne),
+            rule("ant", "", greaterThanOne),
+            rule("ement", "", greaterThanOne),
+            rule("ment", "", greaterThanOne),
+            rule("ent", "", greaterThanOne),
+            rule("ion", "", stem -> measure(stem) > 1
+                && (stem.endsWith("s") || stem.endsWith("t"))),
+            rule("ou", "", greaterThanOne),
+            rule("ism", "", greaterThanOne),
+            rule("ate", "", greaterThanOne),
+            rule("iti", "", greaterThanOne),
+            rule("ous", "", greaterThanOne),
+            rule("ive", "", greaterThanOne),
+            rule("ize", "", greaterThanOne));
+    }
+
+    private static String step5a(String word) {
+        if (word.endsWith("e")) {
+            String stem = replaceSuffix(word, "e", "");
+            int m = measure(stem);
+            if (m > 1 || (m == 1 && !endsCvc(stem))) {
+                return stem;
+            }
+        }
+        return word;
+    }
+
+    private static String step5b(String word) {
+        return applyRules(word,
+            rule("ll", "l", stem -> measure(word.substring(0, word.length() - 1)) > 1));
+    }
+
+    /**
+     * Apply the first rule whose suffix matches; a matching rule whose
+     * condition fails stops the step, as in the reference implementation.
+     */
+    private static String applyRules(String word, Rule... rules) {
+        for (Rule rule : rules) {
+            if (word.endsWith(rule.suffix())) {
+                String stem = replaceSuffix(word, rule.suffix(), "");
+                if (rule.condition() == null || rule.condition().test(stem)) {
+                    return stem + rule.replacement();
+                }
+                return word;
+            }
+        }
+        return word;
+    }
+
+    private static String replaceSuffix(String word, String suffix, String replacement) {
+        return word.substring(0, word.length() - suffix.length()) + replacement;
+    }
+
+    private static boolean isConsonant(String word, int i) {
+        char c = word.charAt(i);
+        if (c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u') {
+            return false;
+        }
+        if (c == 'y') {
+            return i == 0 || !isConsonant(word, i - 1);
+        }
+        return true;
+    }
+
+    /** Number of vowel-consonant sequences, the m of the Porter paper. */
+    private static int measure(String stem) {
+        int m = 0;
+        boolean previousVowel = false;
+        for (int i = 0; i < stem.length(); i++) {
+            boolean consonant = isConsonant(stem, i);
+            if (consonant && previousVowel) {
+                m++;
+            }
+            previousVowel = !consonant;
+        }
+        return m;
+    }
+
+    private static boolean containsVowel(String stem) {
+        for (int i = 0; i < stem.length(); i++) {
+            if (!isConsonant(stem, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean endsDoubleConsonant(String word) {
+        int n = word.length();
+        return n >= 2 && word.charAt(n - 1) == word.charAt(n - 2) && isConsonant(word, n - 1);
+    }
+
+    private static boolean endsCvc(String word) {
+        int n = word.length();
+        if (n >= 3) {
+            char last = word.charAt(n - 1);
+            return isConsonant(word, n - 3) && !isConsonant(word, n - 2) && isConsonant(word, n - 1)
+                && last != 'w' && last != 'x' && last != 'y';
+        }
+        return n == 2 && !isConsonant(word, 0) && isConsonant(word, 1);
+    }
+}
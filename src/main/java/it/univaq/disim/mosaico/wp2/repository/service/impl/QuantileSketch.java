@@ -0,0 +1,169 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch with relative-error guarantees, after DDSketch.
+ *
+ * Values are counted in logarithmic buckets of ratio {@code (1 + a) / (1 - a)},
+ * so any quantile is returned within a relative error {@code a} of the true
+ * value whatever the distribution, using a few kilobytes for values spanning
+ * many orders of magnitude. Sketches with the same accuracy can be merged,
+ * which makes them suitable for run-level latency and cost percentiles.
+ *
+ * Values are expected to be non-negative; anything below
+ * {@value #MIN_INDEXABLE} (including negatives) is counted as zero.
+ */
+public final class QuantileSketch {
+
+    static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    private static final double MIN_INDEXABLE = 1e-9;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (value < MIN_INDEXABLE) {
+            zeroCount++;
+        } else {
+            increment(index(value), 1);
+        }
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add all values of another sketch to this one.
+     *
+     * @throws IllegalArgumentException if the sketches have different accuracies
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracies");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                increment(i + other.offset, other.counts[i]);
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimate a quantile.
+     *
+     * @param q the quantile, in [0, 1]
+     * @return the estimate, or NaN if the sketch is empty
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        // The extremes are tracked exactly
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        double rank = q * (count - 1);
+        long seen = zeroCount;
+        if (seen > rank) {
+            return Math.max(min, 0.0);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return clamp(bucketValue(i + offset));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /** Value minimizing the relative error over the bucket (gamma^(i-1), gamma^i]. */
+    private double bucketValue(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private void increment(int index, long delta) {
+        if (counts.length == 0) {
+            counts = new long[16];
+            offset = index - 8;
+        } else if (index < offset) {
+            int grow = Math.max(offset - index, counts.length / 2);
+            long[] grown = new long[counts.length + grow];
+            System.arraycopy(counts, 0, grown, grow, counts.length);
+            counts = grown;
+            offset -= grow;
+        } else if (index >= offset + counts.length) {
+            int needed = index - offset + 1;
+            counts = Arrays.copyOf(counts, Math.max(needed, counts.length + counts.length / 2));
+        }
+        counts[index - offset] += delta;
+    }
+}
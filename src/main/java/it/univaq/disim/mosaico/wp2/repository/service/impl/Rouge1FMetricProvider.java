@@ -0,0 +1,33 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.Rouge1FMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * ROUGE-1 F-measure with stemming, the {@code rouge1_f} score of the
+ * llm-usecase evaluator.
+ */
+@Service
+public class Rouge1FMetricProvider implements MetricProvider<Rouge1FMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        Metric metric = new Metric();
+        metric.setName("rouge1_f");
+        metric.setType(MetricType.ROUGE1_F);
+        metric.setFloatValue((float) RougeScorer.rouge1F(referenceText, generatedText));
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<Rouge1FMetric> key() {
+        return Rouge1FMetric.class;
+    }
+}
@@ -0,0 +1,38 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.RougeLFMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * ROUGE-L (longest common subsequence) F-measure with stemming, the
+ * {@code rougeL_f} score of the llm-usecase evaluator.
+ */
+@Service
+public class RougeLFMetricProvider implements MetricProvider<RougeLFMetric> {
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        Metric metric = new Metric();
+        metric.setName("rougeL_f");
+        metric.setType(MetricType.ROUGEL_F);
+        metric.setFloatValue((float) RougeScorer.rougeLF(referenceText, generatedText));
+        metric.setUnit("score");
+        return metric;
+    }
+
+    @Override
+    public Class<RougeLFMetric> key() {
+        return RougeLFMetric.class;
+    }
+
+    @Override
+    public String metricKey() {
+        return MetricType.ROUGEL_F.name();
+    }
+}
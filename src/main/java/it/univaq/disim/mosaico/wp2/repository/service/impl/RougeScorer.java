@@ -0,0 +1,123 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * ROUGE-1 and ROUGE-L F-measures with the semantics of the Python
+ * {@code rouge_score} package ({@code RougeScorer(["rouge1", "rougeL"], use_stemmer=True)}),
+ * which the llm-usecase evaluator uses.
+ *
+ * Tokenization lowercases, replaces every run of characters outside
+ * {@code [a-z0-9]} with a space and Porter-stems tokens longer than three
+ * characters.
+ */
+final class RougeScorer {
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+
+    private RougeScorer() {
+    }
+
+    /** Tokens of a text as produced by {@code rouge_score.tokenize} with stemming. */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = NON_ALPHANUMERIC.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalized.split(" ")) {
+            if (!token.isEmpty()) {
+                tokens.add(token.length() > 3 ? PorterStemmer.stem(token) : token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Unigram overlap F-measure.
+     *
+     * @param target the reference text
+     * @param prediction the generated text
+     */
+    static double rouge1F(String target, String prediction) {
+        return rouge1F(tokenize(target), tokenize(prediction));
+    }
+
+    static double rouge1F(List<String> targetTokens, List<String> predictionTokens) {
+        Map<String, Integer> targetCounts = new HashMap<>();
+        for (String token : targetTokens) {
+            targetCounts.merge(token, 1, Integer::sum);
+        }
+        Map<String, Integer> predictionCounts = new HashMap<>();
+        for (String token : predictionTokens) {
+            predictionCounts.merge(token, 1, Integer::sum);
+        }
+        int overlap = 0;
+        for (Map.Entry<String, Integer> entry : targetCounts.entrySet()) {
+            Integer predicted = predictionCounts.get(entry.getKey());
+            if (predicted != null) {
+                overlap += Math.min(entry.getValue(), predicted);
+            }
+        }
+        double precision = (double) overlap / Math.max(predictionTokens.size(), 1);
+        double recall = (double) overlap / Math.max(targetTokens.size(), 1);
+        return fmeasure(precision, recall);
+    }
+
+    /**
+     * Longest common subsequence F-measure.
+     *
+     * @param target the reference text
+     * @param prediction the generated text
+     */
+    static double rougeLF(String target, String prediction) {
+        return rougeLF(tokenize(target), tokenize(prediction));
+    }
+
+    static double rougeLF(List<String> targetTokens, List<String> predictionTokens) {
+        if (targetTokens.isEmpty() || predictionTokens.isEmpty()) {
+            return 0.0;
+        }
+        int lcs = lcsLength(targetTokens, predictionTokens);
+        double precision = (double) lcs / predictionTokens.size();
+        double recall = (double) lcs / targetTokens.size();
+        return fmeasure(precision, recall);
+    }
+
+    private static int lcsLength(List<String> a, List<String> b) {
+        // Compare interned ids rather than strings and keep only two DP rows
+        Map<String, Integer> ids = new HashMap<>();
+        int[] x = toIds(a, ids);
+        int[] y = toIds(b, ids);
+        int[] previous = new int[y.length + 1];
+        int[] current = new int[y.length + 1];
+        for (int i = 1; i <= x.length; i++) {
+            for (int j = 1; j <= y.length; j++) {
+                current[j] = x[i - 1] == y[j - 1]
+                    ? previous[j - 1] + 1
+                    : Math.max(previous[j], current[j - 1]);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[y.length];
+    }
+
+    private static int[] toIds(List<String> tokens, Map<String, Integer> ids) {
+        int[] result = new int[tokens.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.computeIfAbsent(tokens.get(i), token -> ids.size());
+        }
+        return result;
+    }
+
+    private static double fmeasure(double precision, double recall) {
+        return precision + recall > 0 ? 2 * precision * recall / (precision + recall) : 0.0;
+    }
+}
@@ -0,0 +1,212 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive.ResultValues;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.ExportFormat;
+import it.univaq.disim.mosaico.wp2.repository.dto.ResultMetricRow;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotArchiveRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.RunExportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of RunExportService.
+ *
+ * Metric rows come ordered by result from a forward-only database cursor and
+ * are folded into one record per result as they arrive, so only the result
+ * being written is held in memory. For a run whose snapshots were archived,
+ * the segment is decoded once into primitive columns indexed by result (see
+ * {@link MetricSnapshotArchive.ResultValues}), and each result picks up its
+ * archived values as it is written. No snapshot or per-result map is built.
+ */
+@Service
+public class RunExportServiceImpl implements RunExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunExportServiceImpl.class);
+
+    private static final List<String> CSV_COLUMNS =
+        List.of("run_id", "result_id", "trace_id", "created_at", "expected_text_id", "generated_text_id");
+
+    private final BenchmarkResultRepository resultRepository;
+    private final MetricSnapshotRepository metricSnapshotRepository;
+    private final MetricSnapshotArchiveRepository archiveRepository;
+    private final ObjectMapper objectMapper;
+
+    public RunExportServiceImpl(BenchmarkResultRepository resultRepository,
+                                MetricSnapshotRepository metricSnapshotRepository,
+                                MetricSnapshotArchiveRepository archiveRepository,
+                                ObjectMapper objectMapper) {
+        this.resultRepository = resultRepository;
+        this.metricSnapshotRepository = metricSnapshotRepository;
+        this.archiveRepository = archiveRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /** One result with the running sum and count of each of its metrics. */
+    private record ResultRecord(ResultMetricRow first, Map<String, double[]> metrics) {
+
+        Map<String, Double> means() {
+            Map<String, Double> means = new TreeMap<>();
+            metrics.forEach((key, acc) -> means.put(key, acc[0] / acc[1]));
+            return means;
+        }
+    }
+
+    private interface RecordWriter {
+        void write(ResultRecord record) throws IOException;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportRun(String runId, ExportFormat format, OutputStream out) throws IOException {
+        ResultValues archived = archiveRepository.findById(runId)
+            .map(MetricSnapshotArchive::valuesByResult)
+            .orElse(ResultValues.EMPTY);
+
+        long written;
+        if (format == ExportFormat.CSV) {
+            TreeSet<String> metricKeys = new TreeSet<>(metricSnapshotRepository.findMetricKeysByRunId(runId));
+            metricKeys.addAll(archived.metricKeys());
+            List<String> keys = new ArrayList<>(metricKeys);
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            List<String> header = new ArrayList<>(CSV_COLUMNS);
+            header.addAll(keys);
+            writeCsvLine(writer, header);
+            written = stream(runId, archived, record -> writeCsvRecord(writer, runId, record, keys));
+            writer.flush();
+        } else {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+            written = stream(runId, archived, record -> {
+                writeJsonRecord(generator, runId, record);
+                generator.writeRaw('\n');
+            });
+            generator.flush();
+        }
+        logger.info("Exported {} results of run {} as {}", written, runId, format);
+        return written;
+    }
+
+    private long stream(String runId, ResultValues archived, RecordWriter writer)
+            throws IOException {
+        long written = 0;
+        try (Stream<ResultMetricRow> rows = resultRepository.streamMetricRowsByRunId(runId)) {
+            ResultRecord current = null;
+            Iterator<ResultMetricRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                ResultMetricRow row = iterator.next();
+                if (current == null || !current.first().resultId().equals(row.resultId())) {
+                    if (current != null) {
+                        writer.write(current);
+                        written++;
+                    }
+                    Map<String, double[]> metrics = new HashMap<>();
+                    archived.forEach(row.resultId(), (key, value) -> {
+                        if (key != null && !Double.isNaN(value)) {
+                            accumulate(metrics, key, value);
+                        }
+                    });
+                    current = new ResultRecord(row, metrics);
+                }
+                if (row.metricKey() != null && row.value() != null && !row.value().isNaN()) {
+                    accumulate(current.metrics(), row.metricKey(), row.value());
+                }
+            }
+            if (current != null) {
+                writer.write(current);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void accumulate(Map<String, double[]> metrics, String key, double value) {
+        double[] acc = metrics.computeIfAbsent(key, k -> new double[2]);
+        acc[0] += value;
+        acc[1]++;
+    }
+
+    private static void writeJsonRecord(JsonGenerator generator, String runId, ResultRecord record)
+            throws IOException {
+        ResultMetricRow row = record.first();
+        generator.writeStartObject();
+        generator.writeStringField("runId", runId);
+        generator.writeStringField("resultId", row.resultId());
+        generator.writeStringField("traceId", row.traceId());
+        generator.writeStringField("createdAt", format(row.createdAt()));
+        generator.writeStringField("expectedTextId", row.expectedTextId());
+        generator.writeStringField("generatedTextId", row.generatedTextId());
+        generator.writeObjectFieldStart("metrics");
+        for (Map.Entry<String, Double> metric : record.means().entrySet()) {
+            generator.writeNumberField(metric.getKey(), metric.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private static void writeCsvRecord(Writer writer, String runId, ResultRecord record, List<String> keys)
+            throws IOException {
+        ResultMetricRow row = record.first();
+        Map<String, Double> means = record.means();
+        List<String> values = new ArrayList<>(CSV_COLUMNS.size() + keys.size());
+        values.add(runId);
+        values.add(row.resultId());
+        values.add(row.traceId());
+        values.add(format(row.createdAt()));
+        values.add(row.expectedTextId());
+        values.add(row.generatedTextId());
+        for (String key : keys) {
+            Double mean = means.get(key);
+            values.add(mean != null ? mean.toString() : null);
+        }
+        writeCsvLine(writer, values);
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String format(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+}
@@ -0,0 +1,126 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns the metric snapshots of a run into the values KPI formulas are
+ * evaluated against.
+ *
+ * Every metric key gets its mean over the run. Operational metrics (latency,
+ * tokens, cost) additionally get p50/p95/p99 from a {@link QuantileSketch},
+ * exposed as e.g. {@code LATENCY_P95}, and the run gets {@code COST_TOTAL} and
+ * {@code COST_PER_CORRECT}, where a trace counts as correct when its
+ * configured correctness metric reaches the threshold.
+ */
+@Component
+public class RunMetricAggregator {
+
+    static final List<MetricType> QUANTILE_METRICS = List.of(
+        MetricType.LATENCY, MetricType.TIME_TO_FIRST_TOKEN,
+        MetricType.INPUT_TOKENS, MetricType.OUTPUT_TOKENS, MetricType.COST);
+    static final List<Integer> PERCENTILES = List.of(50, 95, 99);
+    static final String COST_TOTAL = "COST_TOTAL";
+    static final String COST_PER_CORRECT = "COST_PER_CORRECT";
+
+    private final KPIFormulaDslService kpiFormulaDslService;
+    private final String correctnessMetric;
+    private final double correctnessThreshold;
+
+    public RunMetricAggregator(KPIFormulaDslService kpiFormulaDslService,
+                               @Value("${mosaico.kpi.correctness-metric:EXACT_CONTAINS}") String correctnessMetric,
+                               @Value("${mosaico.kpi.correctness-threshold:1.0}") double correctnessThreshold) {
+        this.kpiFormulaDslService = kpiFormulaDslService;
+        this.correctnessMetric = correctnessMetric;
+        this.correctnessThreshold = correctnessThreshold;
+    }
+
+    /**
+     * Make the derived keys usable in KPI formulas.
+     */
+    @PostConstruct
+    void registerDerivedMetricKeys() {
+        kpiFormulaDslService.registerCustomMetricKeys(derivedMetricKeys());
+    }
+
+    /**
+     * @return the keys this aggregator adds on top of the per-metric means
+     */
+    public static Set<String> derivedMetricKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (MetricType type : QUANTILE_METRICS) {
+            for (int percentile : PERCENTILES) {
+                keys.add(percentileKey(type, percentile));
+            }
+        }
+        keys.add(COST_TOTAL);
+        keys.add(COST_PER_CORRECT);
+        return keys;
+    }
+
+    /**
+     * Aggregate the snapshots of one run.
+     *
+     * @param snapshots all metric snapshots of the run
+     * @return metric key to value
+     */
+    public Map<String, Double> aggregate(Collection<MetricSnapshot> snapshots) {
+        Map<String, double[]> sums = new HashMap<>();
+        Map<MetricType, QuantileSketch> sketches = new EnumMap<>(MetricType.class);
+        Set<String> correctTraces = new HashSet<>();
+
+        for (MetricSnapshot snapshot : snapshots) {
+            if (snapshot.getValue() == null) {
+                continue;
+            }
+            double value = snapshot.getValue();
+            double[] sum = sums.computeIfAbsent(snapshot.getMetricKey(), key -> new double[2]);
+            sum[0] += value;
+            sum[1]++;
+
+            MetricType type = snapshot.getMetricType();
+            if (QUANTILE_METRICS.contains(type)) {
+                sketches.computeIfAbsent(type, t -> new QuantileSketch()).add(value);
+            }
+            if (correctnessMetric.equalsIgnoreCase(snapshot.getMetricKey())
+                    && value >= correctnessThreshold && snapshot.getTraceId() != null) {
+                correctTraces.add(snapshot.getTraceId());
+            }
+        }
+
+        Map<String, Double> aggregated = new HashMap<>();
+        sums.forEach((key, sum) -> aggregated.put(key, sum[0] / sum[1]));
+        sketches.forEach((type, sketch) -> {
+            for (int percentile : PERCENTILES) {
+                aggregated.put(percentileKey(type, percentile), sketch.quantile(percentile / 100.0));
+            }
+        });
+
+        QuantileSketch cost = sketches.get(MetricType.COST);
+        if (cost != null) {
+            aggregated.put(COST_TOTAL, cost.getSum());
+            if (!correctTraces.isEmpty()) {
+                aggregated.put(COST_PER_CORRECT, cost.getSum() / correctTraces.size());
+            }
+        }
+        return aggregated;
+    }
+
+    static String percentileKey(MetricType type, int percentile) {
+        return type.name() + "_P" + percentile;
+    }
+}
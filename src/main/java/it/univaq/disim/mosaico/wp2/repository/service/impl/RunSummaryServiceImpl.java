@@ -0,0 +1,90 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.RunSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.RunSummaryRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implementation of RunSummaryService.
+ *
+ * The result count is taken with one indexed count when the run changes, so
+ * reads never touch benchmark_results. KPI values are written by the
+ * orchestrator when it computes them and survive later transitions.
+ */
+@Service
+@Transactional
+public class RunSummaryServiceImpl implements RunSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunSummaryServiceImpl.class);
+
+    private final RunSummaryRepository summaryRepository;
+    private final BenchmarkResultRepository resultRepository;
+
+    public RunSummaryServiceImpl(RunSummaryRepository summaryRepository, BenchmarkResultRepository resultRepository) {
+        this.summaryRepository = summaryRepository;
+        this.resultRepository = resultRepository;
+    }
+
+    @Override
+    public void refresh(BenchmarkRun run) {
+        RunSummary summary = summaryRepository.findById(run.getId())
+            .orElseGet(() -> new RunSummary(run.getId()));
+        summary.update(run, resultRepository.countByRunId(run.getId()));
+        summaryRepository.save(summary);
+        logger.debug("Refreshed summary of run {} ({})", run.getId(), run.getStatus());
+    }
+
+    @Override
+    public void recordKpis(String runId, Map<String, Double> kpiValues) {
+        Optional<RunSummary> summary = summaryRepository.findById(runId);
+        if (summary.isEmpty()) {
+            logger.warn("No summary for run {}, KPI values not recorded", runId);
+            return;
+        }
+        summary.get().setKpiValues(new HashMap<>(kpiValues));
+        summaryRepository.save(summary.get());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BenchmarkRunSummary> findByRunId(String runId) {
+        return summaryRepository.findById(runId).map(BenchmarkRunSummary::from);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BenchmarkRunSummary> findLatestForAgent(String agentId) {
+        return summaryRepository.findByAgentIdLatestFirst(agentId, PageRequest.of(0, 1)).stream()
+            .findFirst()
+            .map(BenchmarkRunSummary::from);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BenchmarkRunSummary> findByAgentId(String agentId, int limit) {
+        return summaryRepository.findByAgentIdLatestFirst(agentId, PageRequest.of(0, Math.max(1, limit))).stream()
+            .map(BenchmarkRunSummary::from)
+            .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BenchmarkRunSummary> findHistory(String benchmarkId, String agentId, int limit) {
+        return summaryRepository.findHistory(benchmarkId, agentId, PageRequest.of(0, Math.max(1, limit))).stream()
+            .map(BenchmarkRunSummary::from)
+            .toList();
+    }
+}
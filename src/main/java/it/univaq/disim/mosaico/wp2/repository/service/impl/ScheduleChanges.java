@@ -0,0 +1,98 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the leading {@link BenchmarkScheduleTimer} which schedules changed.
+ *
+ * On PostgreSQL the id of a changed schedule is sent on the {@value #CHANNEL}
+ * notification channel, delivered when the transaction commits to whichever
+ * instance leads. Other databases have a single scheduler, in this instance,
+ * which takes the ids from a local queue once the transaction commits.
+ */
+@Component
+public class ScheduleChanges {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleChanges.class);
+
+    static final String CHANNEL = "mosaico_schedules";
+
+    static final String NOTIFY = "SELECT pg_notify(?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Bounded in case no timer takes them; changes dropped when full are picked up by the periodic reload
+    private final BlockingQueue<String> localChanges = new LinkedBlockingQueue<>(10_000);
+
+    private volatile Boolean notificationsSupported;
+
+    public ScheduleChanges(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Announce that a schedule was created, changed or deleted.
+     */
+    public void scheduleChanged(String scheduleId) {
+        if (scheduleId == null) {
+            return;
+        }
+        if (notificationsSupported()) {
+            // Delivered by PostgreSQL only if and when the transaction commits
+            jdbcTemplate.queryForList(NOTIFY, CHANNEL, scheduleId);
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    localChanges.offer(scheduleId);
+                }
+            });
+        } else {
+            localChanges.offer(scheduleId);
+        }
+    }
+
+    /**
+     * Wait up to the given time for local changes, and return all of them.
+     */
+    Set<String> awaitLocalChanges(long millis) throws InterruptedException {
+        Set<String> changed = new LinkedHashSet<>();
+        String first = localChanges.poll(millis, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            changed.add(first);
+            localChanges.drainTo(changed);
+        }
+        return changed;
+    }
+
+    /**
+     * Whether the database supports change notifications and advisory locks
+     * (PostgreSQL).
+     */
+    public boolean notificationsSupported() {
+        Boolean supported = notificationsSupported;
+        if (supported == null) {
+            try {
+                supported = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            } catch (DataAccessException e) {
+                logger.warn("Cannot determine the database product: {}", e.getMessage());
+                return false;
+            }
+            notificationsSupported = supported;
+        }
+        return supported;
+    }
+}
@@ -0,0 +1,72 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Next fire time of each schedule, ordered by time: adding, moving and
+ * removing a schedule cost O(log n), and the next fire time is read in O(1),
+ * so the scheduler only wakes up when something is due.
+ *
+ * Not thread-safe: it is owned by the scheduler thread.
+ */
+class ScheduleQueue {
+
+    record Due(String scheduleId, Instant fireAt) {
+    }
+
+    private final Map<String, Instant> fireTimes = new HashMap<>();
+    private final TreeSet<Due> byTime = new TreeSet<>(
+        Comparator.comparing(Due::fireAt).thenComparing(Due::scheduleId));
+
+    void put(String scheduleId, Instant fireAt) {
+        remove(scheduleId);
+        fireTimes.put(scheduleId, fireAt);
+        byTime.add(new Due(scheduleId, fireAt));
+    }
+
+    void remove(String scheduleId) {
+        Instant fireAt = fireTimes.remove(scheduleId);
+        if (fireAt != null) {
+            byTime.remove(new Due(scheduleId, fireAt));
+        }
+    }
+
+    Instant fireTime(String scheduleId) {
+        return fireTimes.get(scheduleId);
+    }
+
+    /**
+     * The earliest fire time, or null when nothing is queued.
+     */
+    Instant nextFireAt() {
+        return byTime.isEmpty() ? null : byTime.first().fireAt();
+    }
+
+    /**
+     * Remove and return the schedules due at the given time, earliest first.
+     */
+    List<Due> pollDue(Instant now) {
+        List<Due> due = new ArrayList<>();
+        while (!byTime.isEmpty() && !byTime.first().fireAt().isAfter(now)) {
+            Due next = byTime.pollFirst();
+            fireTimes.remove(next.scheduleId());
+            due.add(next);
+        }
+        return due;
+    }
+
+    void clear() {
+        fireTimes.clear();
+        byTime.clear();
+    }
+
+    int size() {
+        return fireTimes.size();
+    }
+}
@@ -0,0 +1,199 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.OverlapPolicy;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkSchedulerService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts the runs of fired schedules, at most a fixed number at a time.
+ *
+ * A fired schedule waits in line until a slot is free and its previous run
+ * has finished, and its run is only created when it starts. A schedule that
+ * fires while its previous run is executing or waiting follows its
+ * {@link OverlapPolicy}: it is skipped (the default), waits for one more run,
+ * or cancels the previous run and waits for it to stop. Waiting schedules are
+ * coalesced, so a schedule is never in line twice.
+ *
+ * Runs are tracked in memory by the leading scheduler, which starts them all.
+ */
+@Component
+public class ScheduledRunLauncher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledRunLauncher.class);
+
+    // Holds a slot while the run of a schedule is being created
+    private static final String STARTING = "";
+
+    private final BenchmarkSchedulerService schedulerService;
+    private final BenchmarkOrchestrator orchestrator;
+    private final int maxConcurrentRuns;
+    private final Executor executor;
+
+    // Guarded by this: executing run of each schedule, and schedules waiting in line
+    private final Map<String, String> executing = new HashMap<>();
+    private final Set<String> waiting = new LinkedHashSet<>();
+
+    public ScheduledRunLauncher(
+            BenchmarkSchedulerService schedulerService,
+            BenchmarkOrchestrator orchestrator,
+            @Value("${mosaico.scheduler.max-concurrent-runs:8}") int maxConcurrentRuns) {
+        this(schedulerService, orchestrator, maxConcurrentRuns,
+            Executors.newFixedThreadPool(Math.max(1, maxConcurrentRuns), runnable -> {
+                Thread thread = new Thread(runnable, "scheduled-run");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    }
+
+    ScheduledRunLauncher(
+            BenchmarkSchedulerService schedulerService,
+            BenchmarkOrchestrator orchestrator,
+            int maxConcurrentRuns,
+            Executor executor) {
+        this.schedulerService = schedulerService;
+        this.orchestrator = orchestrator;
+        this.maxConcurrentRuns = Math.max(1, maxConcurrentRuns);
+        this.executor = executor;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Line up a run of the fired schedule, and start the waiting runs that can.
+     */
+    public void launch(ScheduleConfig schedule) {
+        String scheduleId = schedule.getId();
+        synchronized (this) {
+            String executingRunId = executing.get(scheduleId);
+            if (executingRunId != null || waiting.contains(scheduleId)) {
+                OverlapPolicy policy = schedule.getOverlapPolicy() != null ? schedule.getOverlapPolicy() : OverlapPolicy.SKIP;
+                switch (policy) {
+                    case SKIP -> {
+                        logger.info("Skipping run of schedule {}: its previous run has not finished", scheduleId);
+                        return;
+                    }
+                    case QUEUE -> logger.info("Run of schedule {} waits for its previous run", scheduleId);
+                    case CANCEL_PREVIOUS -> {
+                        if (executingRunId != null && !STARTING.equals(executingRunId)) {
+                            // Only flags the run: it records its cancellation when it stops
+                            logger.info("Cancelling run {} of schedule {} for its next run", executingRunId, scheduleId);
+                            orchestrator.requestCancel(executingRunId);
+                        }
+                    }
+                }
+            }
+            waiting.add(scheduleId);
+        }
+        startWaiting();
+    }
+
+    /**
+     * The number of scheduled runs executing.
+     */
+    public synchronized int executingCount() {
+        return executing.size();
+    }
+
+    /**
+     * The number of schedules waiting for their run to start.
+     */
+    public synchronized int waitingCount() {
+        return waiting.size();
+    }
+
+    private void startWaiting() {
+        List<String> starting = new ArrayList<>();
+        synchronized (this) {
+            Iterator<String> next = waiting.iterator();
+            while (executing.size() + starting.size() < maxConcurrentRuns && next.hasNext()) {
+                String scheduleId = next.next();
+                if (!executing.containsKey(scheduleId)) {
+                    next.remove();
+                    starting.add(scheduleId);
+                }
+            }
+            starting.forEach(scheduleId -> executing.put(scheduleId, STARTING));
+        }
+        for (String scheduleId : starting) {
+            start(scheduleId);
+        }
+    }
+
+    private void start(String scheduleId) {
+        Optional<BenchmarkRun> run;
+        try {
+            run = schedulerService.createScheduledRun(scheduleId);
+        } catch (RuntimeException e) {
+            logger.error("Failed to create the run of schedule {}: {}", scheduleId, e.getMessage(), e);
+            release(scheduleId, STARTING);
+            schedulerService.recordRunFailure(scheduleId, null);
+            return;
+        }
+        if (run.isEmpty()) {
+            logger.info("Schedule {} was deleted or disabled before its run started", scheduleId);
+            release(scheduleId, STARTING);
+            return;
+        }
+
+        String runId = run.get().getId();
+        synchronized (this) {
+            executing.put(scheduleId, runId);
+        }
+        logger.info("Starting scheduled run {} of schedule {}", runId, scheduleId);
+        try {
+            executor.execute(() -> execute(scheduleId, runId));
+        } catch (RuntimeException e) {
+            logger.error("Failed to start scheduled run {}: {}", runId, e.getMessage());
+            release(scheduleId, runId);
+        }
+    }
+
+    private void execute(String scheduleId, String runId) {
+        try {
+            BenchmarkRun finished = orchestrator.executeBenchmarkRun(runId);
+            RunStatus status = finished != null ? finished.getStatus() : null;
+            if (status == RunStatus.COMPLETED) {
+                schedulerService.recordRunSuccess(scheduleId, runId);
+            } else if (status == RunStatus.FAILED) {
+                schedulerService.recordRunFailure(scheduleId, runId);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Scheduled run {} of schedule {} failed: {}", runId, scheduleId, e.getMessage(), e);
+            schedulerService.recordRunFailure(scheduleId, runId);
+        } finally {
+            release(scheduleId, runId);
+        }
+    }
+
+    private void release(String scheduleId, String runId) {
+        synchronized (this) {
+            executing.remove(scheduleId, runId);
+        }
+        startWaiting();
+    }
+}
@@ -0,0 +1,236 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.TextBlob;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TextCodec;
+import it.univaq.disim.mosaico.wp2.repository.repository.TextBlobRepository;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores benchmark texts once per distinct content, deflate-compressed, and
+ * resolves them back for re-scoring and inspection.
+ */
+@Service
+@Transactional
+public class TextBlobService {
+
+    /** Below this size deflate rarely pays for its header. */
+    private static final int MIN_COMPRESSIBLE_BYTES = 128;
+    private static final int MAX_CACHED_IDS = 50_000;
+    private static final int MAX_CACHED_TEXTS = 1_000;
+
+    private final TextBlobRepository repository;
+
+    // Ids known to be committed, so repeated texts skip the insert round-trip
+    private final Map<String, Boolean> storedIds = lru(MAX_CACHED_IDS);
+    // Recently decoded texts; reference texts are shared by every agent and run
+    private final Map<String, String> decodedTexts = lru(MAX_CACHED_TEXTS);
+
+    public TextBlobService(TextBlobRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Store a text if not already present.
+     *
+     * @param text the text to store
+     * @return the blob id (SHA-256 of the text), or null for a null text
+     */
+    public String store(String text) {
+        if (text == null) {
+            return null;
+        }
+        String id = ContentHash.sha256(text);
+        synchronized (storedIds) {
+            if (storedIds.containsKey(id)) {
+                return id;
+            }
+        }
+
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        TextCodec codec = TextCodec.NONE;
+        byte[] content = raw;
+        if (raw.length >= MIN_COMPRESSIBLE_BYTES) {
+            byte[] compressed = deflate(raw);
+            if (compressed.length < raw.length) {
+                codec = TextCodec.DEFLATE;
+                content = compressed;
+            }
+        }
+        repository.insertIfAbsent(id, codec.name(), raw.length, content, Instant.now());
+        rememberStoredAfterCommit(id);
+        return id;
+    }
+
+    /**
+     * Store the expected and generated texts of a result and point it at them.
+     *
+     * @param result the result whose texts should be persisted
+     */
+    public void attachTexts(BenchmarkResult result) {
+        result.setExpectedTextId(store(result.getExpectedText()));
+        result.setGeneratedTextId(store(result.getGeneratedText()));
+    }
+
+    /**
+     * Load a text by id.
+     *
+     * @param id the blob id
+     * @return the decoded text, or empty if unknown
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> load(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        synchronized (decodedTexts) {
+            String cached = decodedTexts.get(id);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        return repository.findById(id).map(this::decodeAndRemember);
+    }
+
+    /**
+     * Fill in the texts of the given results with a single lookup for all
+     * missing blobs.
+     *
+     * @param results the results to hydrate
+     */
+    @Transactional(readOnly = true)
+    public void resolveTexts(Collection<BenchmarkResult> results) {
+        Map<String, String> texts = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (BenchmarkResult result : results) {
+            collect(result.getExpectedTextId(), texts, missing);
+            collect(result.getGeneratedTextId(), texts, missing);
+        }
+        if (!missing.isEmpty()) {
+            for (TextBlob blob : repository.findAllById(missing)) {
+                texts.put(blob.getId(), decodeAndRemember(blob));
+            }
+        }
+        for (BenchmarkResult result : results) {
+            if (result.getExpectedText() == null && result.getExpectedTextId() != null) {
+                result.setExpectedText(texts.get(result.getExpectedTextId()));
+            }
+            if (result.getGeneratedText() == null && result.getGeneratedTextId() != null) {
+                result.setGeneratedText(texts.get(result.getGeneratedTextId()));
+            }
+        }
+    }
+
+    static String decode(TextBlob blob) {
+        byte[] content = blob.getContent();
+        if (blob.getCodec() == TextCodec.DEFLATE) {
+            content = inflate(content, blob.getOriginalLength());
+        }
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    private void collect(String id, Map<String, String> texts, Set<String> missing) {
+        if (id == null || texts.containsKey(id)) {
+            return;
+        }
+        synchronized (decodedTexts) {
+            String cached = decodedTexts.get(id);
+            if (cached != null) {
+                texts.put(id, cached);
+                return;
+            }
+        }
+        missing.add(id);
+    }
+
+    private String decodeAndRemember(TextBlob blob) {
+        String text = decode(blob);
+        synchronized (decodedTexts) {
+            decodedTexts.put(blob.getId(), text);
+        }
+        return text;
+    }
+
+    private void rememberStoredAfterCommit(String id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                synchronized (storedIds) {
+                    storedIds.put(id, Boolean.TRUE);
+                }
+            }
+        });
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] out = new byte[originalLength];
+            int offset = 0;
+            while (offset < originalLength && !inflater.finished()) {
+                int n = inflater.inflate(out, offset, originalLength - offset);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                offset += n;
+            }
+            if (offset != originalLength) {
+                throw new IllegalStateException("Corrupted text blob: expected " + originalLength
+                    + " bytes, got " + offset);
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted text blob", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static <V> Map<String, V> lru(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TF-IDF cosine similarity with the defaults of scikit-learn's
+ * {@code TfidfVectorizer}, fitted on the small per-item corpus the llm-usecase
+ * evaluator builds from the prediction, the gold answer and the source text.
+ *
+ * Tokens are lowercased runs of at least two word characters, IDF is smoothed
+ * ({@code ln((1 + n) / (1 + df)) + 1}) and raw term counts are weighted and
+ * L2-normalized.
+ */
+final class TfidfCosine {
+
+    // Python's \w: letters, digits and underscore; token_pattern is \b\w\w+\b
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}_]{2,}");
+
+    private TfidfCosine() {
+    }
+
+    /**
+     * Cosine similarities of a prediction against the gold answer and against
+     * the source text, with IDF fitted on those three documents.
+     *
+     * @return {@code [cosine(pred, gold), cosine(pred, source)]}
+     */
+    static double[] similarities(String prediction, String gold, String source) {
+        Map<String, Integer> pred = termCounts(prediction);
+        Map<String, Integer> ref = termCounts(gold);
+        Map<String, Integer> src = termCounts(source);
+
+        Map<String, Double> idf = new HashMap<>();
+        int documents = 3;
+        for (Map<String, Integer> document : List.of(pred, ref, src)) {
+            for (String term : document.keySet()) {
+                idf.merge(term, 1.0, Double::sum);
+            }
+        }
+        idf.replaceAll((term, df) -> Math.log((1.0 + documents) / (1.0 + df)) + 1.0);
+
+        return new double[] {cosine(pred, ref, idf), cosine(pred, src, idf)};
+    }
+
+    static Map<String, Integer> termCounts(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null || text.isEmpty()) {
+            return counts;
+        }
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            counts.merge(matcher.group(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static double cosine(Map<String, Integer> a, Map<String, Integer> b, Map<String, Double> idf) {
+        double normA = squaredNorm(a, idf);
+        double normB = squaredNorm(b, idf);
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        Map<String, Integer> smaller = a.size() <= b.size() ? a : b;
+        Map<String, Integer> larger = smaller == a ? b : a;
+        double dot = 0;
+        for (Map.Entry<String, Integer> entry : smaller.entrySet()) {
+            Integer other = larger.get(entry.getKey());
+            if (other != null) {
+                double weight = idf.get(entry.getKey());
+                dot += entry.getValue() * weight * other * weight;
+            }
+        }
+        return Math.min(1.0, dot / Math.sqrt(normA * normB));
+    }
+
+    private static double squaredNorm(Map<String, Integer> counts, Map<String, Double> idf) {
+        double sum = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            double weighted = entry.getValue() * idf.get(entry.getKey());
+            sum += weighted * weighted;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,28 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.springframework.stereotype.Service;
+
+import it.univaq.disim.mosaico.wp2.repository.data.TimeToFirstTokenMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * Time from the start of the trace to the first streamed token, in seconds.
+ */
+@Service
+public class TimeToFirstTokenMetricProvider extends TraceUsageMetricProvider<TimeToFirstTokenMetric> {
+
+    public TimeToFirstTokenMetricProvider() {
+        super("Time To First Token", MetricType.TIME_TO_FIRST_TOKEN, "s");
+    }
+
+    @Override
+    protected Number extract(TraceUsage usage) {
+        return usage.timeToFirstTokenSeconds();
+    }
+
+    @Override
+    public Class<TimeToFirstTokenMetric> key() {
+        return TimeToFirstTokenMetric.class;
+    }
+}
@@ -0,0 +1,59 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricKey;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * Base class for providers that report an operational figure of the trace
+ * (latency, tokens, cost) rather than scoring its text.
+ *
+ * No metric is produced when the trace does not carry the figure, so missing
+ * data never shows up as a zero in averages and percentiles.
+ */
+abstract class TraceUsageMetricProvider<K extends MetricKey> implements MetricProvider<K> {
+
+    private final String name;
+    private final MetricType type;
+    private final String unit;
+
+    protected TraceUsageMetricProvider(String name, MetricType type, String unit) {
+        this.name = name;
+        this.type = type;
+        this.unit = unit;
+    }
+
+    /**
+     * @return the figure for this provider, or null when unknown
+     */
+    protected abstract Number extract(TraceUsage usage);
+
+    @Override
+    public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+        if (trace == null || trace.usage == null) {
+            return null;
+        }
+        Number value = extract(trace.usage);
+        if (value == null) {
+            return null;
+        }
+        Metric metric = new Metric();
+        metric.setName(name);
+        metric.setType(type);
+        metric.setFloatValue(value.floatValue());
+        metric.setUnit(unit);
+        return metric;
+    }
+
+    /**
+     * The value belongs to the trace, not to its texts.
+     */
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+}
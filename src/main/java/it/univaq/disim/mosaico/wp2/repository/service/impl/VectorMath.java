@@ -0,0 +1,115 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+/**
+ * Dense vector kernels for embedding similarity.
+ *
+ * When the JVM runs with {@code --add-modules jdk.incubator.vector} the
+ * kernels run on the JDK Vector API ({@link VectorMathSimd}); otherwise the
+ * scalar loops keep four independent accumulators so the JIT can overlap the
+ * multiply-adds instead of serializing them on a single sum.
+ */
+public final class VectorMath {
+
+    private static final boolean SIMD = simdAvailable();
+
+    private VectorMath() {
+    }
+
+    /**
+     * Whether the kernels run on the JDK Vector API.
+     */
+    public static boolean simdEnabled() {
+        return SIMD;
+    }
+
+    /**
+     * Cosine similarity of two vectors of equal length.
+     *
+     * @return similarity in [-1, 1], or 0 when either vector is all zeros
+     * @throws IllegalArgumentException if the lengths differ
+     */
+    public static double cosine(float[] a, float[] b) {
+        checkLengths(a, b);
+        if (SIMD) {
+            double[] sums = VectorMathSimd.dotAndNorms(a, b);
+            return cosine(sums[0], sums[1], sums[2]);
+        }
+        return scalarCosine(a, b);
+    }
+
+    static double scalarCosine(float[] a, float[] b) {
+        double dot0 = 0, dot1 = 0, dot2 = 0, dot3 = 0;
+        double na0 = 0, na1 = 0, na2 = 0, na3 = 0;
+        double nb0 = 0, nb1 = 0, nb2 = 0, nb3 = 0;
+        int n = a.length;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            float a0 = a[i], a1 = a[i + 1], a2 = a[i + 2], a3 = a[i + 3];
+            float b0 = b[i], b1 = b[i + 1], b2 = b[i + 2], b3 = b[i + 3];
+            dot0 += a0 * b0; dot1 += a1 * b1; dot2 += a2 * b2; dot3 += a3 * b3;
+            na0 += a0 * a0; na1 += a1 * a1; na2 += a2 * a2; na3 += a3 * a3;
+            nb0 += b0 * b0; nb1 += b1 * b1; nb2 += b2 * b2; nb3 += b3 * b3;
+        }
+        for (; i < n; i++) {
+            dot0 += a[i] * b[i];
+            na0 += a[i] * a[i];
+            nb0 += b[i] * b[i];
+        }
+        double dot = (dot0 + dot1) + (dot2 + dot3);
+        double normA = (na0 + na1) + (na2 + na3);
+        double normB = (nb0 + nb1) + (nb2 + nb3);
+        return cosine(dot, normA, normB);
+    }
+
+    private static double cosine(double dot, double normA, double normB) {
+        if (normA == 0 || normB == 0) {
+            return 0.0;
+        }
+        double cosine = dot / Math.sqrt(normA * normB);
+        return Math.max(-1.0, Math.min(1.0, cosine));
+    }
+
+    /**
+     * Dot product of two vectors of equal length.
+     *
+     * @throws IllegalArgumentException if the lengths differ
+     */
+    public static double dot(float[] a, float[] b) {
+        checkLengths(a, b);
+        return SIMD ? VectorMathSimd.dot(a, b) : scalarDot(a, b);
+    }
+
+    static double scalarDot(float[] a, float[] b) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int n = a.length;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static boolean simdAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return VectorMathSimd.worthwhile();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    private static void checkLengths(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException(
+                "Vector dimensions differ: " + a.length + " vs " + b.length);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link VectorMath} kernels on the incubating JDK Vector API.
+ *
+ * Products are computed on float lanes, as in the scalar loops, and summed
+ * on double lanes, so the results match the scalar kernels to rounding.
+ * Only loaded once {@link VectorMath} has checked that the
+ * {@code jdk.incubator.vector} module is present.
+ */
+final class VectorMathSimd {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // Same bit size: each float vector widens into two of these
+    private static final VectorSpecies<Double> DOUBLES =
+        VectorSpecies.of(double.class, FLOATS.vectorShape());
+
+    private VectorMathSimd() {
+    }
+
+    /**
+     * Whether the platform has vector registers wide enough to beat the
+     * unrolled scalar loops.
+     */
+    static boolean worthwhile() {
+        return FLOATS.length() >= 4;
+    }
+
+    /**
+     * Dot product and squared norms of two vectors of equal length.
+     *
+     * @return {dot, normA, normB}
+     */
+    static double[] dotAndNorms(float[] a, float[] b) {
+        DoubleVector dot = DoubleVector.zero(DOUBLES);
+        DoubleVector normA = DoubleVector.zero(DOUBLES);
+        DoubleVector normB = DoubleVector.zero(DOUBLES);
+        int n = a.length;
+        int bound = FLOATS.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, i);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, i);
+            FloatVector ab = va.mul(vb);
+            FloatVector aa = va.mul(va);
+            FloatVector bb = vb.mul(vb);
+            dot = dot.add(widen(ab, 0)).add(widen(ab, 1));
+            normA = normA.add(widen(aa, 0)).add(widen(aa, 1));
+            normB = normB.add(widen(bb, 0)).add(widen(bb, 1));
+        }
+        double sumDot = dot.reduceLanes(VectorOperators.ADD);
+        double sumA = normA.reduceLanes(VectorOperators.ADD);
+        double sumB = normB.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sumDot += a[i] * b[i];
+            sumA += a[i] * a[i];
+            sumB += b[i] * b[i];
+        }
+        return new double[] {sumDot, sumA, sumB};
+    }
+
+    /**
+     * Dot product of two vectors of equal length.
+     */
+    static double dot(float[] a, float[] b) {
+        DoubleVector dot = DoubleVector.zero(DOUBLES);
+        int n = a.length;
+        int bound = FLOATS.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector ab = FloatVector.fromArray(FLOATS, a, i).mul(FloatVector.fromArray(FLOATS, b, i));
+            dot = dot.add(widen(ab, 0)).add(widen(ab, 1));
+        }
+        double sum = dot.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static DoubleVector widen(FloatVector v, int part) {
+        return (DoubleVector) v.convertShape(VectorOperators.F2D, DOUBLES, part);
+    }
+}
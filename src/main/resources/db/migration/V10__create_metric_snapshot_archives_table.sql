@@ -0,0 +1,13 @@
+-- Metric snapshots of old completed runs, one compressed columnar segment per run
+CREATE TABLE IF NOT EXISTS metric_snapshot_archives (
+    run_id VARCHAR(255) PRIMARY KEY,
+    format_version INTEGER NOT NULL,
+    snapshot_count INTEGER NOT NULL,
+    first_timestamp TIMESTAMP WITH TIME ZONE,
+    last_timestamp TIMESTAMP WITH TIME ZONE,
+    content BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Runs eligible for archiving: completed before a cutoff
+CREATE INDEX IF NOT EXISTS idx_benchmark_run_status_completed_at ON benchmark_runs(status, completed_at);
@@ -0,0 +1,16 @@
+-- Keyset pagination of run listings: each filter followed by (started_at, id), read backwards for
+-- newest first. They replace the single-column filter indexes, which they cover as a prefix.
+CREATE INDEX IF NOT EXISTS idx_benchmark_run_benchmark_started_id ON benchmark_runs(benchmark_id, started_at, id);
+CREATE INDEX IF NOT EXISTS idx_benchmark_run_agent_started_id ON benchmark_runs(agent_id, started_at, id);
+CREATE INDEX IF NOT EXISTS idx_benchmark_run_status_started_id ON benchmark_runs(status, started_at, id);
+CREATE INDEX IF NOT EXISTS idx_benchmark_run_history ON benchmark_runs(benchmark_id, agent_id, started_at, id);
+DROP INDEX IF EXISTS idx_benchmark_run_benchmark_id;
+DROP INDEX IF EXISTS idx_benchmark_run_agent_id;
+DROP INDEX IF EXISTS idx_benchmark_run_status;
+
+-- Keyset pagination of KPI history on (recorded_at, id), per agent and per KPI series. The series
+-- index gains id as a tie-breaker and keeps serving the trend and rollup queries.
+CREATE INDEX IF NOT EXISTS idx_kpi_history_agent_recorded_id ON kpi_history(benchmark_id, agent_id, recorded_at, id);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_series_recorded_id
+    ON kpi_history(benchmark_id, agent_id, kpi_name, recorded_at, id);
+DROP INDEX IF EXISTS idx_kpi_history_series_recorded_at;
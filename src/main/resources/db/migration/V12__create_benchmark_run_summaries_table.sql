@@ -0,0 +1,48 @@
+-- Read model of benchmark runs: lifecycle columns, result count, duration and KPI values in one row
+CREATE TABLE IF NOT EXISTS benchmark_run_summaries (
+    run_id VARCHAR(255) PRIMARY KEY,
+    benchmark_id VARCHAR(255) NOT NULL,
+    agent_id VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    triggered_by VARCHAR(255) NOT NULL,
+    triggered_by_user VARCHAR(255),
+    started_at TIMESTAMP WITH TIME ZONE,
+    completed_at TIMESTAMP WITH TIME ZONE,
+    error_message TEXT,
+    traces_processed INTEGER,
+    metrics_computed INTEGER,
+    retry_count INTEGER,
+    langfuse_run_name VARCHAR(255),
+    duration_millis BIGINT NOT NULL DEFAULT 0,
+    result_count BIGINT NOT NULL DEFAULT 0,
+    kpi_values JSONB NOT NULL DEFAULT '{}'::jsonb,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Latest runs of an agent (MCP tools) and of an agent on a benchmark (history)
+CREATE INDEX IF NOT EXISTS idx_run_summary_agent_started ON benchmark_run_summaries(agent_id, started_at, run_id);
+CREATE INDEX IF NOT EXISTS idx_run_summary_history ON benchmark_run_summaries(benchmark_id, agent_id, started_at, run_id);
+
+-- Backfill existing runs; every result of a run carries the same KPI map, so one result is enough
+INSERT INTO benchmark_run_summaries (run_id, benchmark_id, agent_id, status, triggered_by, triggered_by_user,
+    started_at, completed_at, error_message, traces_processed, metrics_computed, retry_count, langfuse_run_name,
+    duration_millis, result_count, kpi_values, updated_at)
+SELECT r.id, r.benchmark_id, r.agent_id, r.status, r.triggered_by, r.triggered_by_user,
+    r.started_at, r.completed_at, r.error_message, r.traces_processed, r.metrics_computed, r.retry_count,
+    r.langfuse_run_name,
+    COALESCE((EXTRACT(EPOCH FROM (r.completed_at - r.started_at)) * 1000)::BIGINT, 0),
+    COALESCE(c.result_count, 0),
+    COALESCE(k.kpi_values, '{}'::jsonb),
+    now()
+FROM benchmark_runs r
+LEFT JOIN (
+    SELECT run_id, COUNT(*) AS result_count, MIN(id) AS first_result_id
+    FROM benchmark_results
+    GROUP BY run_id
+) c ON c.run_id = r.id
+LEFT JOIN (
+    SELECT result_id, jsonb_object_agg(kpi_name, kpi_value) AS kpi_values
+    FROM benchmark_result_kpi_values
+    GROUP BY result_id
+) k ON k.result_id = c.first_result_id
+ON CONFLICT (run_id) DO NOTHING;
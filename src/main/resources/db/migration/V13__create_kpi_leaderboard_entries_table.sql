@@ -0,0 +1,38 @@
+-- Latest and best KPI value of each agent per benchmark and KPI
+CREATE TABLE IF NOT EXISTS kpi_leaderboard_entries (
+    id VARCHAR(255) PRIMARY KEY,
+    benchmark_id VARCHAR(255) NOT NULL,
+    kpi_name VARCHAR(255) NOT NULL,
+    agent_id VARCHAR(255) NOT NULL,
+    latest_value DOUBLE PRECISION NOT NULL,
+    latest_recorded_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    best_value DOUBLE PRECISION NOT NULL,
+    best_recorded_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_kpi_leaderboard_entries_agent UNIQUE (benchmark_id, kpi_name, agent_id)
+);
+
+-- Top-K reads and rank counts walk these in value order
+CREATE INDEX IF NOT EXISTS idx_leaderboard_latest
+    ON kpi_leaderboard_entries(benchmark_id, kpi_name, latest_value, agent_id);
+CREATE INDEX IF NOT EXISTS idx_leaderboard_best
+    ON kpi_leaderboard_entries(benchmark_id, kpi_name, best_value, agent_id);
+
+-- Seed the leaderboards from the existing history
+INSERT INTO kpi_leaderboard_entries (id, benchmark_id, kpi_name, agent_id, latest_value, latest_recorded_at,
+                                     best_value, best_recorded_at, updated_at)
+SELECT gen_random_uuid()::text, l.benchmark_id, l.kpi_name, l.agent_id, l.value, l.recorded_at,
+       b.value, b.recorded_at, now()
+FROM (
+    SELECT DISTINCT ON (benchmark_id, kpi_name, agent_id) benchmark_id, kpi_name, agent_id, value, recorded_at
+    FROM kpi_history
+    WHERE value <> 'NaN'
+    ORDER BY benchmark_id, kpi_name, agent_id, recorded_at DESC
+) l
+JOIN (
+    SELECT DISTINCT ON (benchmark_id, kpi_name, agent_id) benchmark_id, kpi_name, agent_id, value, recorded_at
+    FROM kpi_history
+    WHERE value <> 'NaN'
+    ORDER BY benchmark_id, kpi_name, agent_id, value DESC, recorded_at DESC
+) b ON b.benchmark_id = l.benchmark_id AND b.kpi_name = l.kpi_name AND b.agent_id = l.agent_id
+ON CONFLICT DO NOTHING;
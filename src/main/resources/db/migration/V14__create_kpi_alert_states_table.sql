@@ -0,0 +1,42 @@
+-- Latest KPI value of each series and whether it meets an enabled alert
+CREATE TABLE IF NOT EXISTS kpi_alert_states (
+    id VARCHAR(255) PRIMARY KEY,
+    benchmark_id VARCHAR(255) NOT NULL,
+    agent_id VARCHAR(255) NOT NULL,
+    kpi_name VARCHAR(255) NOT NULL,
+    kpi_value DOUBLE PRECISION NOT NULL,
+    recorded_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    alerting BOOLEAN NOT NULL,
+    alert_count INTEGER NOT NULL,
+    evaluated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_kpi_alert_states_series UNIQUE (benchmark_id, agent_id, kpi_name)
+);
+
+-- Alerting agents of a benchmark, and states to re-evaluate when an alert changes
+CREATE INDEX IF NOT EXISTS idx_kpi_alert_state_alerting ON kpi_alert_states(benchmark_id, agent_id, alerting);
+CREATE INDEX IF NOT EXISTS idx_kpi_alert_state_kpi ON kpi_alert_states(benchmark_id, kpi_name);
+
+-- Seed the states from the latest history value, with the conditions of AlertConfig.isTriggeredBy
+INSERT INTO kpi_alert_states (id, benchmark_id, agent_id, kpi_name, kpi_value, recorded_at,
+                              alerting, alert_count, evaluated_at)
+SELECT gen_random_uuid()::text, l.benchmark_id, l.agent_id, l.kpi_name, l.value, l.recorded_at,
+       c.alert_count > 0, c.alert_count, now()
+FROM (
+    SELECT DISTINCT ON (benchmark_id, agent_id, kpi_name) benchmark_id, agent_id, kpi_name, value, recorded_at
+    FROM kpi_history
+    WHERE value <> 'NaN'
+    ORDER BY benchmark_id, agent_id, kpi_name, recorded_at DESC
+) l
+CROSS JOIN LATERAL (
+    SELECT COUNT(*)::integer AS alert_count
+    FROM alert_configs a
+    WHERE a.benchmark_id = l.benchmark_id AND a.kpi_name = l.kpi_name AND a.enabled
+      AND CASE a.condition_type
+            WHEN 'LESS_THAN' THEN l.value < a.threshold_value
+            WHEN 'GREATER_THAN' THEN l.value > a.threshold_value
+            WHEN 'EQUALS' THEN abs(l.value - a.threshold_value) < 0.0001
+            WHEN 'NOT_EQUALS' THEN abs(l.value - a.threshold_value) >= 0.0001
+            ELSE false
+          END
+) c
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,2 @@
+-- Alert evaluation reads the KPI values of a single run
+CREATE INDEX IF NOT EXISTS idx_kpi_history_run_id ON kpi_history(run_id);
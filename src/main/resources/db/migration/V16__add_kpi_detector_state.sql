@@ -0,0 +1,19 @@
+-- Statistic of ANOMALY_DETECTED alerts (EWMA, MAD or CUSUM; EWMA when null)
+ALTER TABLE alert_configs ADD COLUMN IF NOT EXISTS anomaly_detector VARCHAR(255);
+
+-- Streaming detector state of each series: EWMA mean and variance, a ring buffer of the last
+-- timestamped values and a CUSUM of the MAD scores. Existing series start with an empty detector.
+ALTER TABLE kpi_alert_states
+    ADD COLUMN IF NOT EXISTS detector_samples BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS ewma_mean DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS ewma_variance DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS prior_ewma_mean DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS prior_ewma_variance DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS ewma_score DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS robust_score DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS cusum_high DOUBLE PRECISION NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS cusum_low DOUBLE PRECISION NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS prior_cusum_high DOUBLE PRECISION NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS prior_cusum_low DOUBLE PRECISION NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS window_values BYTEA,
+    ADD COLUMN IF NOT EXISTS window_position INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,21 @@
+-- Triggered alerts waiting to be sent, written in the alert evaluation transaction
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id VARCHAR(255) PRIMARY KEY,
+    alert_id VARCHAR(255) NOT NULL,
+    alert_name VARCHAR(255),
+    severity VARCHAR(255),
+    kpi_name VARCHAR(255),
+    kpi_value DOUBLE PRECISION NOT NULL,
+    message TEXT NOT NULL,
+    channel VARCHAR(255) NOT NULL,
+    recipient VARCHAR(2048),
+    status VARCHAR(255) NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_error TEXT
+);
+
+-- Entries due for delivery, and pending entries of a recipient to coalesce with
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_due ON notification_outbox(status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_recipient ON notification_outbox(channel, recipient, status);
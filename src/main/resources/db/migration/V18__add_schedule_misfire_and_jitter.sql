@@ -0,0 +1,6 @@
+-- What a schedule does with runs missed while no scheduler was leading, and its random start delay
+ALTER TABLE schedule_configs
+    ADD COLUMN IF NOT EXISTS misfire_policy VARCHAR(255);
+
+ALTER TABLE schedule_configs
+    ADD COLUMN IF NOT EXISTS start_jitter_seconds INTEGER;
@@ -0,0 +1,3 @@
+-- What a schedule does when it comes due while its previous run is still executing
+ALTER TABLE schedule_configs
+    ADD COLUMN IF NOT EXISTS overlap_policy VARCHAR(255);
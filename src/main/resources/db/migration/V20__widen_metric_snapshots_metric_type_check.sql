@@ -0,0 +1,13 @@
+-- The check generated for metric_type only allowed the first six metric types, so
+-- snapshots of the newer ones failed to insert. Recreate it with every MetricType;
+-- a new MetricType value needs this constraint recreated again.
+ALTER TABLE metric_snapshots
+    DROP CONSTRAINT IF EXISTS metric_snapshots_metric_type_check;
+
+ALTER TABLE metric_snapshots
+    ADD CONSTRAINT metric_snapshots_metric_type_check CHECK (metric_type IN (
+        'ROUGE', 'BLEU', 'ACCURACY', 'PRECISION', 'RECALL', 'F1_SCORE',
+        'SEMANTIC_SIMILARITY', 'ROUGE1_F', 'ROUGEL_F', 'COSINE_PRED_GOLD', 'COSINE_PRED_SOURCE',
+        'LEN_RATIO', 'EXACT_CONTAINS', 'LATENCY', 'TIME_TO_FIRST_TOKEN', 'INPUT_TOKENS',
+        'OUTPUT_TOKENS', 'COST'
+    ));
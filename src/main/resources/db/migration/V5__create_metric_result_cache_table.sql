@@ -0,0 +1,16 @@
+-- Memoized metric results keyed by hash(provider id, provider version, hash(reference), hash(generated))
+CREATE TABLE IF NOT EXISTS metric_result_cache (
+    id VARCHAR(64) PRIMARY KEY,
+    provider_id VARCHAR(255) NOT NULL,
+    provider_version VARCHAR(255) NOT NULL,
+    reference_hash VARCHAR(64) NOT NULL,
+    generated_hash VARCHAR(64) NOT NULL,
+    metric_type VARCHAR(255),
+    metric_name VARCHAR(255),
+    value DOUBLE PRECISION,
+    unit VARCHAR(255),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_metric_result_cache_provider ON metric_result_cache(provider_id, provider_version);
+CREATE INDEX IF NOT EXISTS idx_metric_result_cache_created_at ON metric_result_cache(created_at);
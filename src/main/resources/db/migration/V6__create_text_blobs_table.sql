@@ -0,0 +1,42 @@
+-- Content-addressed storage for benchmark texts: id = hex(sha256(utf8 text))
+CREATE TABLE IF NOT EXISTS text_blobs (
+    id VARCHAR(64) PRIMARY KEY,
+    codec VARCHAR(255) NOT NULL,
+    original_length INTEGER NOT NULL,
+    content BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+ALTER TABLE benchmark_results
+    ADD COLUMN IF NOT EXISTS expected_text_id VARCHAR(64);
+
+ALTER TABLE benchmark_results
+    ADD COLUMN IF NOT EXISTS generated_text_id VARCHAR(64);
+
+-- Move existing inline texts into blobs. They are kept uncompressed (codec NONE);
+-- texts written by the application from now on are deflated when it pays off.
+INSERT INTO text_blobs (id, codec, original_length, content, created_at)
+SELECT DISTINCT ON (t.id) t.id, 'NONE', octet_length(t.bytes), t.bytes, now()
+FROM (
+    SELECT encode(sha256(convert_to(expected_text, 'UTF8')), 'hex') AS id,
+           convert_to(expected_text, 'UTF8') AS bytes
+    FROM benchmark_results
+    WHERE expected_text IS NOT NULL
+    UNION ALL
+    SELECT encode(sha256(convert_to(generated_text, 'UTF8')), 'hex') AS id,
+           convert_to(generated_text, 'UTF8') AS bytes
+    FROM benchmark_results
+    WHERE generated_text IS NOT NULL
+) t
+ON CONFLICT (id) DO NOTHING;
+
+UPDATE benchmark_results
+SET expected_text_id = encode(sha256(convert_to(expected_text, 'UTF8')), 'hex')
+WHERE expected_text IS NOT NULL;
+
+UPDATE benchmark_results
+SET generated_text_id = encode(sha256(convert_to(generated_text, 'UTF8')), 'hex')
+WHERE generated_text IS NOT NULL;
+
+ALTER TABLE benchmark_results DROP COLUMN IF EXISTS expected_text;
+ALTER TABLE benchmark_results DROP COLUMN IF EXISTS generated_text;
@@ -0,0 +1,25 @@
+-- Incremental state of the series functions (MOVING_AVG, EWMA, DELTA_PREV, PCT_CHANGE,
+-- RANK_IN_BENCHMARK) of KPI formulas, one row per benchmark, KPI, call and agent
+CREATE TABLE IF NOT EXISTS kpi_series_states (
+    id VARCHAR(255) PRIMARY KEY,
+    benchmark_id VARCHAR(255) NOT NULL,
+    agent_id VARCHAR(255) NOT NULL,
+    kpi_id VARCHAR(255) NOT NULL,
+    term_key VARCHAR(255) NOT NULL,
+    window_function VARCHAR(255) NOT NULL,
+    window_parameter DOUBLE PRECISION,
+    sample_count BIGINT NOT NULL,
+    last_run_id VARCHAR(255),
+    last_value DOUBLE PRECISION,
+    previous_value DOUBLE PRECISION,
+    last_result DOUBLE PRECISION,
+    running_sum DOUBLE PRECISION NOT NULL,
+    ewma DOUBLE PRECISION,
+    previous_ewma DOUBLE PRECISION,
+    window_values BYTEA,
+    window_position INTEGER NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_kpi_series_states_series UNIQUE (benchmark_id, kpi_id, term_key, agent_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_kpi_series_states_rank ON kpi_series_states(benchmark_id, kpi_id, term_key, last_value);
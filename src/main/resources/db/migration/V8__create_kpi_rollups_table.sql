@@ -0,0 +1,39 @@
+-- Hourly, daily and weekly summaries of kpi_history per benchmark, agent and KPI
+CREATE TABLE IF NOT EXISTS kpi_rollups (
+    id VARCHAR(255) PRIMARY KEY,
+    benchmark_id VARCHAR(255) NOT NULL,
+    agent_id VARCHAR(255) NOT NULL,
+    kpi_name VARCHAR(255) NOT NULL,
+    resolution VARCHAR(255) NOT NULL,
+    bucket_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    sample_count BIGINT NOT NULL,
+    min_value DOUBLE PRECISION NOT NULL,
+    max_value DOUBLE PRECISION NOT NULL,
+    value_sum DOUBLE PRECISION NOT NULL,
+    last_value DOUBLE PRECISION NOT NULL,
+    last_recorded_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT uk_kpi_rollups_bucket UNIQUE (benchmark_id, agent_id, kpi_name, resolution, bucket_start)
+);
+
+-- Seed the rollups from the existing history
+INSERT INTO kpi_rollups (id, benchmark_id, agent_id, kpi_name, resolution, bucket_start, sample_count,
+                         min_value, max_value, value_sum, last_value, last_recorded_at)
+SELECT gen_random_uuid()::text, b.benchmark_id, b.agent_id, b.kpi_name, b.resolution, b.bucket_start,
+       COUNT(*), MIN(b.value), MAX(b.value), SUM(b.value),
+       (array_agg(b.value ORDER BY b.recorded_at DESC))[1], MAX(b.recorded_at)
+FROM (
+    SELECT h.benchmark_id, h.agent_id, h.kpi_name, r.resolution, h.value, h.recorded_at,
+           CASE r.resolution
+               WHEN 'HOUR' THEN date_trunc('hour', h.recorded_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+               WHEN 'DAY' THEN date_trunc('day', h.recorded_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+               ELSE date_trunc('week', h.recorded_at AT TIME ZONE 'UTC') AT TIME ZONE 'UTC'
+           END AS bucket_start
+    FROM kpi_history h
+    CROSS JOIN (VALUES ('HOUR'), ('DAY'), ('WEEK')) AS r(resolution)
+) b
+GROUP BY b.benchmark_id, b.agent_id, b.kpi_name, b.resolution, b.bucket_start
+ON CONFLICT DO NOTHING;
+
+-- Raw trend reads: one series over a time range
+CREATE INDEX IF NOT EXISTS idx_kpi_history_series_recorded_at
+    ON kpi_history(benchmark_id, agent_id, kpi_name, recorded_at);
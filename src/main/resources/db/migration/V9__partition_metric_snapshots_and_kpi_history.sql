@@ -0,0 +1,83 @@
+-- Monthly range partitioning of the append-only history tables, so retention can
+-- drop whole partitions and time-bounded queries only scan the months they cover.
+-- Partitions are named <table>_pYYYYMM and cover [first of month, first of next month) UTC.
+
+CREATE OR REPLACE FUNCTION mosaico_create_monthly_partitions(parent TEXT, first_month DATE, last_month DATE)
+RETURNS INTEGER AS $$
+DECLARE
+    month DATE := date_trunc('month', first_month)::date;
+    created INTEGER := 0;
+    partition_name TEXT;
+BEGIN
+    WHILE month <= last_month LOOP
+        partition_name := parent || '_p' || to_char(month, 'YYYYMM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                partition_name, parent,
+                month::timestamp AT TIME ZONE 'UTC',
+                (month + INTERVAL '1 month')::timestamp AT TIME ZONE 'UTC');
+            created := created + 1;
+        END IF;
+        month := (month + INTERVAL '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Daily per-run summaries of metric snapshots whose partition was dropped by retention
+CREATE TABLE IF NOT EXISTS metric_snapshot_rollups (
+    id VARCHAR(255) PRIMARY KEY,
+    run_id VARCHAR(255) NOT NULL,
+    metric_type VARCHAR(255) NOT NULL,
+    metric_key VARCHAR(255) NOT NULL,
+    bucket_start TIMESTAMP WITH TIME ZONE NOT NULL,
+    sample_count BIGINT NOT NULL,
+    min_value DOUBLE PRECISION NOT NULL,
+    max_value DOUBLE PRECISION NOT NULL,
+    value_sum DOUBLE PRECISION NOT NULL,
+    CONSTRAINT uk_metric_snapshot_rollups_bucket UNIQUE (run_id, metric_type, metric_key, bucket_start)
+);
+
+-- metric_snapshots: the partition key has to be part of the primary key
+ALTER TABLE metric_snapshots RENAME TO metric_snapshots_unpartitioned;
+CREATE TABLE metric_snapshots (LIKE metric_snapshots_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE ("timestamp");
+
+SELECT mosaico_create_monthly_partitions('metric_snapshots',
+    COALESCE((SELECT MIN("timestamp") AT TIME ZONE 'UTC' FROM metric_snapshots_unpartitioned)::date,
+             (now() AT TIME ZONE 'UTC')::date),
+    ((now() AT TIME ZONE 'UTC') + INTERVAL '3 months')::date);
+
+INSERT INTO metric_snapshots SELECT * FROM metric_snapshots_unpartitioned;
+DROP TABLE metric_snapshots_unpartitioned;
+
+ALTER TABLE metric_snapshots ADD PRIMARY KEY (id, "timestamp");
+ALTER TABLE metric_snapshots ADD CONSTRAINT fk_metric_snapshots_result
+    FOREIGN KEY (result_id) REFERENCES benchmark_results(id);
+CREATE INDEX IF NOT EXISTS idx_metric_snapshot_run_id ON metric_snapshots(run_id);
+CREATE INDEX IF NOT EXISTS idx_metric_snapshot_result_id ON metric_snapshots(result_id);
+CREATE INDEX IF NOT EXISTS idx_metric_snapshot_metric_type ON metric_snapshots(metric_type);
+CREATE INDEX IF NOT EXISTS idx_metric_snapshot_timestamp ON metric_snapshots("timestamp");
+CREATE INDEX IF NOT EXISTS idx_metric_snapshot_type_timestamp ON metric_snapshots(metric_type, "timestamp");
+
+-- kpi_history
+ALTER TABLE kpi_history RENAME TO kpi_history_unpartitioned;
+CREATE TABLE kpi_history (LIKE kpi_history_unpartitioned INCLUDING DEFAULTS)
+    PARTITION BY RANGE (recorded_at);
+
+SELECT mosaico_create_monthly_partitions('kpi_history',
+    COALESCE((SELECT MIN(recorded_at) AT TIME ZONE 'UTC' FROM kpi_history_unpartitioned)::date,
+             (now() AT TIME ZONE 'UTC')::date),
+    ((now() AT TIME ZONE 'UTC') + INTERVAL '3 months')::date);
+
+INSERT INTO kpi_history SELECT * FROM kpi_history_unpartitioned;
+DROP TABLE kpi_history_unpartitioned;
+
+ALTER TABLE kpi_history ADD PRIMARY KEY (id, recorded_at);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_benchmark_id ON kpi_history(benchmark_id);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_agent_id ON kpi_history(agent_id);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_kpi_name ON kpi_history(kpi_name);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_recorded_at ON kpi_history(recorded_at);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_status ON kpi_history(status);
+CREATE INDEX IF NOT EXISTS idx_kpi_history_series_recorded_at
+    ON kpi_history(benchmark_id, agent_id, kpi_name, recorded_at);
@@ -16,6 +16,9 @@ import it.univaq.disim.mosaico.wp2.repository.controller.AgentController;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Provider;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.IOModality;
+import it.univaq.disim.mosaico.wp2.repository.dto.AgentSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
 
 import java.util.List;
@@ -79,16 +82,36 @@ public class AgentControllerTest {
     
     @Test
     void testGetAllAgents() throws Exception {
-        when(agentService.findAll()).thenReturn(List.of(testAgent));
+        AgentSummary summary = new AgentSummary("agent1", "Code Review Agent",
+            "AI agent specialized in code review", "v1.0", "Specialist", "MIT");
+        when(agentService.findSummaries(null, 100)).thenReturn(new CursorPage<>(List.of(summary), null));
         
         mockMvc.perform(get("/api/agents"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].name").value("Code Review Agent"))
-                .andExpect(jsonPath("$[0].role").value("Specialist"));
+                .andExpect(jsonPath("$[0].role").value("Specialist"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        
+        verify(agentService, times(1)).findSummaries(null, 100);
+        verify(agentService, never()).findAll();
+    }
+    
+    @Test
+    void testGetAllAgentsNextPage() throws Exception {
+        AgentSummary summary = new AgentSummary("agent2", "Test Agent", null, null, "Tester", null);
+        KeysetCursor after = KeysetCursor.of("agent1");
+        String next = KeysetCursor.of("agent2").encode();
+        when(agentService.findSummaries(after, 1)).thenReturn(new CursorPage<>(List.of(summary), next));
+        
+        mockMvc.perform(get("/api/agents").param("after", after.encode()).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value("agent2"))
+                .andExpect(header().string("X-Next-Cursor", next));
         
-        verify(agentService, times(1)).findAll();
+        mockMvc.perform(get("/api/agents").param("after", "%%%"))
+                .andExpect(status().isBadRequest());
     }
     
     @Test
@@ -10,8 +10,10 @@ import org.springframework.test.context.ActiveProfiles;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.AgentConsumption;
+import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
 import it.univaq.disim.mosaico.wp2.repository.data.InteractionProtocol;
 import it.univaq.disim.mosaico.wp2.repository.data.InputParameter;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiAlertState;
 import it.univaq.disim.mosaico.wp2.repository.data.Memory;
 import it.univaq.disim.mosaico.wp2.repository.data.OutputStructure;
 import it.univaq.disim.mosaico.wp2.repository.data.Provider;
@@ -23,12 +25,15 @@ import it.univaq.disim.mosaico.wp2.repository.data.enums.MemoryType;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.ProficiencyLevel;
 import it.univaq.disim.mosaico.wp2.repository.repository.AgentRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.AgentConsumptionRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.InteractionProtocolRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiAlertStateRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.MemoryRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.ProviderRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.SkillRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.ToolRepository;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Arrays;
@@ -59,6 +64,10 @@ public class AgentRepositoryTest {
     private InteractionProtocolRepository interactionProtocolRepository;
     @Autowired
     private AgentConsumptionRepository agentConsumptionRepository;
+    @Autowired
+    private BenchmarkRepository benchmarkRepository;
+    @Autowired
+    private KpiAlertStateRepository kpiAlertStateRepository;
     private Agent testAgent;
     private Provider testProvider;
     private List<Skill> exampleSkills;
@@ -209,4 +218,44 @@ public class AgentRepositoryTest {
         Optional<Agent> foundAgent = agentRepository.findById(savedAgent.getId());
         assertFalse(foundAgent.isPresent());
     }
+
+    @Test
+    void testFindWithoutAlertingKpiBySkill() {
+        Agent healthy = agentRepository.save(testAgent);
+        Agent alerting = new Agent();
+        alerting.setName("Alerting Agent");
+        alerting = agentRepository.save(alerting);
+        Agent untested = new Agent();
+        untested.setName("Untested Agent");
+        untested = agentRepository.save(untested);
+
+        Benchmark benchmark = new Benchmark();
+        benchmark.setEvaluates(List.of(healthy, alerting, untested));
+        benchmark.setAssess(exampleSkills);
+        benchmark = benchmarkRepository.save(benchmark);
+
+        kpiAlertStateRepository.save(alertState(benchmark.getId(), healthy.getId(), false));
+        kpiAlertStateRepository.save(alertState(benchmark.getId(), alerting.getId(), false));
+        kpiAlertStateRepository.save(alertState(benchmark.getId(), alerting.getId(), true));
+
+        List<String> byName = agentRepository.findWithoutAlertingKpiBySkill("Code Review").stream()
+            .map(Agent::getId).toList();
+        List<String> byId = agentRepository.findWithoutAlertingKpiBySkill(exampleSkills.get(0).getId()).stream()
+            .map(Agent::getId).toList();
+
+        List<String> expected = List.of(healthy.getId(), untested.getId()).stream().sorted().toList();
+        assertEquals(expected, byName);
+        assertEquals(expected, byId);
+        assertTrue(agentRepository.findWithoutAlertingKpiBySkill("Unknown Skill").isEmpty());
+    }
+
+    private static KpiAlertState alertState(String benchmarkId, String agentId, boolean alerting) {
+        KpiAlertState state = new KpiAlertState(benchmarkId, agentId, alerting ? "Latency" : "Quality");
+        state.setKpiValue(alerting ? 900.0 : 0.9);
+        state.setRecordedAt(Instant.now());
+        state.setAlerting(alerting);
+        state.setAlertCount(alerting ? 1 : 0);
+        state.setEvaluatedAt(Instant.now());
+        return state;
+    }
 }
\ No newline at end of file
@@ -5,10 +5,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkSummary;
 import it.univaq.disim.mosaico.wp2.repository.repository.AgentRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRepository;
 
@@ -157,4 +159,22 @@ public class BenchmarkRepositoryTest {
         assertEquals(1, betaBenchmarks.size());
         assertEquals("dataset-junit-002", betaBenchmarks.get(0).getDatasetRef());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindSummariesAfter() {
+        String first = benchmarkRepository.save(testBenchmark1).getId();
+        String second = benchmarkRepository.save(testBenchmark2).getId();
+        List<String> ordered = List.of(first, second).stream().sorted().toList();
+
+        List<BenchmarkSummary> page = benchmarkRepository.findSummariesAfter("", PageRequest.of(0, 1));
+        assertEquals(1, page.size());
+        assertEquals(ordered.get(0), page.get(0).id());
+
+        List<BenchmarkSummary> next = benchmarkRepository.findSummariesAfter(page.get(0).id(), PageRequest.of(0, 1));
+        assertEquals(1, next.size());
+        assertEquals(ordered.get(1), next.get(0).id());
+        assertNotNull(next.get(0).datasetRef());
+
+        assertTrue(benchmarkRepository.findSummariesAfter(ordered.get(1), PageRequest.of(0, 1)).isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package it.univaq.disim.mosaico.wp2.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the keyset reads of BenchmarkRunRepository.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+public class BenchmarkRunRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private BenchmarkRunRepository runRepository;
+
+    private List<String> expectedOrder;
+
+    @BeforeEach
+    void setUp() {
+        runRepository.deleteAll();
+        List<BenchmarkRun> pending = new ArrayList<>();
+        List<BenchmarkRun> started = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            pending.add(runRepository.save(new BenchmarkRun("benchmark-1", "agent-1", TriggerType.MANUAL)));
+        }
+        // Two runs share a start time, so the id breaks the tie
+        for (Instant startedAt : List.of(T0, T0, T0.plusSeconds(60))) {
+            BenchmarkRun run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.SCHEDULED);
+            run.setStatus(RunStatus.COMPLETED);
+            run.setStartedAt(startedAt);
+            started.add(runRepository.save(run));
+        }
+        runRepository.save(new BenchmarkRun("benchmark-2", "agent-1", TriggerType.MANUAL));
+
+        expectedOrder = new ArrayList<>();
+        pending.stream().map(BenchmarkRun::getId).sorted(Comparator.reverseOrder()).forEach(expectedOrder::add);
+        started.stream()
+            .sorted(Comparator.comparing(BenchmarkRun::getStartedAt).thenComparing(BenchmarkRun::getId).reversed())
+            .map(BenchmarkRun::getId)
+            .forEach(expectedOrder::add);
+    }
+
+    @Test
+    void testFindSummariesWalksAllPages() {
+        List<String> seen = new ArrayList<>();
+        KeysetCursor cursor = null;
+        for (int pages = 0; pages < 10; pages++) {
+            List<BenchmarkRunListItem> page = runRepository.findSummaries("benchmark-1", null, null, cursor, 2);
+            page.forEach(run -> seen.add(run.id()));
+            if (page.size() < 2) {
+                break;
+            }
+            BenchmarkRunListItem last = page.get(page.size() - 1);
+            cursor = new KeysetCursor(last.startedAt(), last.id());
+        }
+
+        assertEquals(expectedOrder, seen);
+    }
+
+    @Test
+    void testFindSummariesCombinesFilters() {
+        List<BenchmarkRunListItem> completed = runRepository.findSummaries(
+            "benchmark-1", "agent-1", RunStatus.COMPLETED, null, 10);
+
+        assertEquals(3, completed.size());
+        assertTrue(completed.stream().allMatch(run -> run.status() == RunStatus.COMPLETED));
+        assertEquals(6, runRepository.findSummaries(null, "agent-1", null, null, 10).size());
+    }
+
+    @Test
+    void testFindHistoryLimitsInDatabase() {
+        List<BenchmarkRun> history = runRepository.findHistory("benchmark-1", "agent-1", PageRequest.of(0, 3));
+
+        assertEquals(expectedOrder.subList(0, 3), history.stream().map(BenchmarkRun::getId).toList());
+    }
+}
@@ -0,0 +1,80 @@
+package it.univaq.disim.mosaico.wp2.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import it.univaq.disim.mosaico.wp2.repository.data.LeaderboardEntry;
+import it.univaq.disim.mosaico.wp2.repository.repository.LeaderboardEntryRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the ranked reads of LeaderboardEntryRepository.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+public class LeaderboardEntryRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private LeaderboardEntryRepository entryRepository;
+
+    private void entry(String agentId, double latest, double best) {
+        entry("benchmark-1", agentId, latest, best);
+    }
+
+    private void entry(String benchmarkId, String agentId, double latest, double best) {
+        LeaderboardEntry entry = new LeaderboardEntry(benchmarkId, "Quality", agentId);
+        entry.record(best, null, T0);
+        entry.record(latest, null, T0.plusSeconds(60));
+        entryRepository.save(entry);
+    }
+
+    @BeforeEach
+    void setUp() {
+        entryRepository.deleteAll();
+        entry("agent-c", 0.6, 0.9);
+        entry("agent-a", 0.8, 0.8);
+        // Ties with agent-c on the latest value; the agent id breaks it
+        entry("agent-b", 0.6, 0.7);
+        entry("agent-d", 0.1, 0.2);
+        entry("benchmark-2", "agent-a", 1.0, 1.0);
+    }
+
+    @Test
+    void findTopByLatest_ordersByValueThenAgent() {
+        List<String> top = entryRepository.findTopByLatest("benchmark-1", "Quality", PageRequest.of(0, 3)).stream()
+            .map(LeaderboardEntry::getAgentId)
+            .toList();
+
+        assertEquals(List.of("agent-a", "agent-b", "agent-c"), top);
+        assertEquals(4, entryRepository.countByBenchmarkIdAndKpiName("benchmark-1", "Quality"));
+    }
+
+    @Test
+    void findTopByBest_ordersByBestValue() {
+        List<String> top = entryRepository.findTopByBest("benchmark-1", "Quality", PageRequest.of(0, 2)).stream()
+            .map(LeaderboardEntry::getAgentId)
+            .toList();
+
+        assertEquals(List.of("agent-c", "agent-a"), top);
+    }
+
+    @Test
+    void countAhead_matchesTheTopOrder() {
+        assertEquals(0, entryRepository.countAheadByLatest("benchmark-1", "Quality", 0.8, "agent-a"));
+        assertEquals(1, entryRepository.countAheadByLatest("benchmark-1", "Quality", 0.6, "agent-b"));
+        assertEquals(2, entryRepository.countAheadByLatest("benchmark-1", "Quality", 0.6, "agent-c"));
+        assertEquals(3, entryRepository.countAheadByBest("benchmark-1", "Quality", 0.2, "agent-d"));
+    }
+}
@@ -1,10 +1,20 @@
 package it.univaq.disim.mosaico.wp2.repository.controller;
 
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.ExportFormat;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricBackfillService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunExportService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.TextBlobService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -13,16 +23,25 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,10 +50,12 @@ import static org.mockito.Mockito.*;
  * Test Plan:
  * 1. Trigger benchmark run
  * 2. Get benchmark run by id
- * 3. List benchmark runs with filters
+ * 3. List benchmark runs with filters, one keyset page at a time
  * 4. Get run history
  * 5. Cancel benchmark run
  * 6. Retry benchmark run
+ * 7. Stream run exports, optionally gzip-compressed
+ * 8. Read run summaries from the precomputed read model
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("BenchmarkRunController Tests")
@@ -44,6 +65,16 @@ class BenchmarkRunControllerTest {
     private BenchmarkRunManager runManager;
     @Mock
     private BenchmarkOrchestrator orchestrator;
+    @Mock
+    private MetricBackfillService metricBackfillService;
+    @Mock
+    private BenchmarkResultRepository resultRepository;
+    @Mock
+    private TextBlobService textBlobService;
+    @Mock
+    private RunExportService runExportService;
+    @Mock
+    private RunSummaryService runSummaryService;
 
     @InjectMocks
     private BenchmarkRunController controller;
@@ -114,6 +145,7 @@ class BenchmarkRunControllerTest {
             assertEquals(HttpStatus.OK, response.getStatusCode());
             assertNotNull(response.getBody());
             assertEquals("run-789", response.getBody().getId());
+            verify(textBlobService).resolveTexts(testRun.getResults());
         }
 
         @Test
@@ -131,24 +163,33 @@ class BenchmarkRunControllerTest {
     @DisplayName("getRunsByBenchmark Tests")
     class GetRunsByBenchmarkTests {
 
+        private CursorPage<BenchmarkRunListItem> page(String nextCursor) {
+            BenchmarkRunListItem summary = new BenchmarkRunListItem("run-123", "benchmark-123", "agent-456",
+                RunStatus.PENDING, TriggerType.MANUAL, null, null, null, null, null, 0, null);
+            return new CursorPage<>(List.of(summary), nextCursor);
+        }
+
         @Test
         @DisplayName("Should list runs by benchmark id")
         void shouldListRunsByBenchmarkId() {
-            when(runManager.findByBenchmarkId("benchmark-123")).thenReturn(List.of(testRun));
+            when(runManager.findRuns("benchmark-123", null, null, null, 100)).thenReturn(page(null));
 
-            ResponseEntity<List<BenchmarkRun>> response = controller.getRunsByBenchmark("benchmark-123", null, null);
+            ResponseEntity<List<BenchmarkRunListItem>> response =
+                controller.getRunsByBenchmark("benchmark-123", null, null, null, 100);
 
             assertEquals(HttpStatus.OK, response.getStatusCode());
             assertNotNull(response.getBody());
             assertEquals(1, response.getBody().size());
+            assertNull(response.getHeaders().getFirst(PageResponses.NEXT_CURSOR_HEADER));
         }
 
         @Test
-        @DisplayName("Should list runs by agent id")
-        void shouldListRunsByAgentId() {
-            when(runManager.findByAgentId("agent-456")).thenReturn(List.of(testRun));
+        @DisplayName("Should list runs by agent id and status")
+        void shouldListRunsByAgentIdAndStatus() {
+            when(runManager.findRuns(null, "agent-456", RunStatus.PENDING, null, 100)).thenReturn(page(null));
 
-            ResponseEntity<List<BenchmarkRun>> response = controller.getRunsByBenchmark(null, "agent-456", null);
+            ResponseEntity<List<BenchmarkRunListItem>> response =
+                controller.getRunsByBenchmark(null, "agent-456", RunStatus.PENDING, null, 100);
 
             assertEquals(HttpStatus.OK, response.getStatusCode());
             assertNotNull(response.getBody());
@@ -156,21 +197,34 @@ class BenchmarkRunControllerTest {
         }
 
         @Test
-        @DisplayName("Should list runs by status")
-        void shouldListRunsByStatus() {
-            when(runManager.findByStatus(RunStatus.PENDING)).thenReturn(List.of(testRun));
+        @DisplayName("Should pass the cursor on and return the next one")
+        void shouldPaginateWithCursor() {
+            KeysetCursor cursor = new KeysetCursor(Instant.parse("2026-01-01T00:00:00Z"), "run-100");
+            when(runManager.findRuns(null, null, RunStatus.PENDING, cursor, CursorPage.MAX_LIMIT))
+                .thenReturn(page("next"));
 
-            ResponseEntity<List<BenchmarkRun>> response = controller.getRunsByBenchmark(null, null, RunStatus.PENDING);
+            ResponseEntity<List<BenchmarkRunListItem>> response =
+                controller.getRunsByBenchmark(null, null, RunStatus.PENDING, cursor.encode(), 50_000);
 
             assertEquals(HttpStatus.OK, response.getStatusCode());
-            assertNotNull(response.getBody());
-            assertEquals(1, response.getBody().size());
+            assertEquals("next", response.getHeaders().getFirst(PageResponses.NEXT_CURSOR_HEADER));
+        }
+
+        @Test
+        @DisplayName("Should return bad request for an invalid cursor")
+        void shouldRejectInvalidCursor() {
+            ResponseEntity<List<BenchmarkRunListItem>> response =
+                controller.getRunsByBenchmark("benchmark-123", null, null, "not a cursor", 100);
+
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+            verifyNoInteractions(runManager);
         }
 
         @Test
         @DisplayName("Should return bad request when no filter provided")
         void shouldReturnBadRequestWhenNoFilter() {
-            ResponseEntity<List<BenchmarkRun>> response = controller.getRunsByBenchmark(null, null, null);
+            ResponseEntity<List<BenchmarkRunListItem>> response =
+                controller.getRunsByBenchmark(null, null, null, null, 100);
 
             assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
         }
@@ -193,6 +247,50 @@ class BenchmarkRunControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("run summary Tests")
+    class RunSummaryTests {
+
+        private BenchmarkRunSummary summary() {
+            return new BenchmarkRunSummary("run-789", "benchmark-123", "agent-456", RunStatus.COMPLETED,
+                TriggerType.MANUAL, "api", Instant.parse("2026-01-01T00:00:00Z"),
+                Instant.parse("2026-01-01T00:01:00Z"), null, 10, 40, 0, null, 60000L, 10,
+                Map.of("Quality", 0.8));
+        }
+
+        @Test
+        @DisplayName("Should return the summary of a run")
+        void shouldReturnRunSummary() {
+            when(runSummaryService.findByRunId("run-789")).thenReturn(Optional.of(summary()));
+
+            ResponseEntity<BenchmarkRunSummary> response = controller.getRunSummary("run-789");
+
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals(0.8, response.getBody().kpiValues().get("Quality"));
+            verifyNoInteractions(runManager, resultRepository);
+        }
+
+        @Test
+        @DisplayName("Should return 404 when the run has no summary")
+        void shouldReturn404WhenNoSummary() {
+            when(runSummaryService.findByRunId("unknown")).thenReturn(Optional.empty());
+
+            assertEquals(HttpStatus.NOT_FOUND, controller.getRunSummary("unknown").getStatusCode());
+        }
+
+        @Test
+        @DisplayName("Should list summaries of an agent on a benchmark with a clamped limit")
+        void shouldListSummaries() {
+            when(runSummaryService.findHistory("benchmark-123", "agent-456", CursorPage.MAX_LIMIT))
+                .thenReturn(List.of(summary()));
+
+            ResponseEntity<List<BenchmarkRunSummary>> response =
+                controller.getRunSummaries("benchmark-123", "agent-456", 50_000);
+
+            assertEquals(1, response.getBody().size());
+        }
+    }
+
     @Nested
     @DisplayName("cancelRun Tests")
     class CancelRunTests {
@@ -250,4 +348,40 @@ class BenchmarkRunControllerTest {
             assertTrue(response.getBody().containsKey("error"));
         }
     }
+
+    @Nested
+    @DisplayName("exportRun Tests")
+    class ExportRunTests {
+
+        @Test
+        @DisplayName("Should stream a gzip-compressed export")
+        void shouldStreamGzipExport() throws Exception {
+            when(runManager.findById("run-123")).thenReturn(Optional.of(new BenchmarkRun()));
+            when(runExportService.exportRun(eq("run-123"), eq(ExportFormat.CSV), any())).thenAnswer(invocation -> {
+                invocation.<OutputStream>getArgument(2).write("run_id\r\nrun-123\r\n".getBytes(StandardCharsets.UTF_8));
+                return 1L;
+            });
+
+            ResponseEntity<StreamingResponseBody> response = controller.exportRun("run-123", "csv", true);
+
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals("attachment; filename=\"run-123.csv.gz\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            response.getBody().writeTo(out);
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                assertEquals("run_id\r\nrun-123\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject unknown formats and missing runs")
+        void shouldRejectInvalidRequests() {
+            assertEquals(HttpStatus.BAD_REQUEST, controller.exportRun("run-123", "parquet", false).getStatusCode());
+
+            when(runManager.findById("missing")).thenReturn(Optional.empty());
+            assertEquals(HttpStatus.NOT_FOUND, controller.exportRun("missing", "ndjson", false).getStatusCode());
+            verifyNoInteractions(runExportService);
+        }
+    }
 }
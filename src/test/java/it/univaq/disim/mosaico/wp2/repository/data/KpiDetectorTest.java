@@ -0,0 +1,111 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AnomalyDetector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for KpiDetector.
+ *
+ * Test Plan:
+ * 1. Score values only after enough earlier values
+ * 2. Detect an outlier with the EWMA, MAD and CUSUM statistics
+ * 3. Compute percentage changes against the whole or a time-limited window
+ * 4. Replace the latest value when it is recorded again
+ */
+@DisplayName("KpiDetector Tests")
+class KpiDetectorTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-04T10:00:00Z");
+
+    private static KpiDetector detector(double... values) {
+        KpiDetector detector = new KpiDetector();
+        for (int i = 0; i < values.length; i++) {
+            detector.accept(T0.plus(Duration.ofHours(i)), values[i]);
+        }
+        return detector;
+    }
+
+    @Test
+    @DisplayName("Should not score values before the baseline is known")
+    void shouldWaitForBaseline() {
+        KpiDetector detector = detector(0.8, 0.82, 0.78, 0.81, 0.2);
+
+        assertEquals(5, detector.getSampleCount());
+        assertNull(detector.getEwmaScore());
+        assertNull(detector.getRobustScore());
+        assertFalse(detector.isTriggered(AlertCondition.ANOMALY_DETECTED, 3.0, null, null));
+    }
+
+    @Test
+    @DisplayName("Should flag an outlier with every anomaly statistic")
+    void shouldDetectOutlier() {
+        KpiDetector detector = detector(0.8, 0.82, 0.78, 0.81, 0.79, 0.80);
+        for (AnomalyDetector statistic : AnomalyDetector.values()) {
+            assertFalse(detector.isTriggered(AlertCondition.ANOMALY_DETECTED, 3.0, null, statistic), statistic.name());
+        }
+
+        detector.accept(T0.plus(Duration.ofHours(6)), 0.4);
+
+        assertTrue(detector.getEwmaScore() < -3.0);
+        assertTrue(detector.getRobustScore() < -3.0);
+        assertTrue(detector.getCusumLow() > 3.0);
+        assertEquals(0.0, detector.getCusumHigh());
+        for (AnomalyDetector statistic : AnomalyDetector.values()) {
+            assertTrue(detector.isTriggered(AlertCondition.ANOMALY_DETECTED, 3.0, null, statistic), statistic.name());
+        }
+        assertTrue(detector.isTriggered(AlertCondition.PERCENTAGE_DROP, 20.0, null, null));
+        assertFalse(detector.isTriggered(AlertCondition.PERCENTAGE_RISE, 20.0, null, null));
+        assertEquals(-50.0, detector.percentageChange(null), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should limit the percentage baseline to the comparison window")
+    void shouldUseComparisonWindow() {
+        KpiDetector detector = new KpiDetector();
+        detector.accept(T0, 0.5);
+        detector.accept(T0.plus(Duration.ofHours(47)), 1.0);
+        detector.accept(T0.plus(Duration.ofHours(48)), 0.9);
+
+        assertEquals(-10.0, detector.percentageChange(2), 1e-9);
+        assertEquals(20.0, detector.percentageChange(null), 1e-9);
+        assertTrue(detector.isTriggered(AlertCondition.PERCENTAGE_DROP, 5.0, 2, null));
+        assertTrue(detector.isTriggered(AlertCondition.PERCENTAGE_RISE, 15.0, null, null));
+        assertFalse(detector.isTriggered(AlertCondition.LESS_THAN, 5.0, null, null));
+    }
+
+    @Test
+    @DisplayName("Should replace a value recorded again at the same time")
+    void shouldReplaceLatestValue() {
+        KpiDetector detector = new KpiDetector();
+        detector.accept(T0, 1.0);
+        detector.accept(T0.plusSeconds(60), 2.0);
+        detector.accept(T0.plusSeconds(60), 3.0);
+
+        assertEquals(2, detector.getSampleCount());
+        assertEquals(200.0, detector.percentageChange(null), 1e-9);
+        assertEquals(1.4, detector.getEwmaMean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should keep only the last window of values")
+    void shouldWrapWindow() {
+        KpiDetector detector = new KpiDetector();
+        for (int i = 0; i < KpiDetector.WINDOW_SIZE; i++) {
+            detector.accept(T0.plusSeconds(i), 100.0);
+        }
+        for (int i = 0; i < KpiDetector.WINDOW_SIZE - 1; i++) {
+            detector.accept(T0.plusSeconds(KpiDetector.WINDOW_SIZE + i), 50.0);
+        }
+        detector.accept(T0.plusSeconds(3L * KpiDetector.WINDOW_SIZE), 75.0);
+
+        // The baseline only holds the 50s left in the window
+        assertEquals(50.0, detector.percentageChange(null), 1e-9);
+    }
+}
@@ -0,0 +1,69 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RollupResolution;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for KpiRollup entity.
+ *
+ * Test Plan:
+ * 1. Count, min, max, mean and last value as values are added
+ * 2. Replacing a value keeps the summary exact unless an extreme is lost
+ * 3. Bucket alignment of the resolutions
+ */
+@DisplayName("KpiRollup Entity Tests")
+class KpiRollupTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-04T10:15:00Z");
+
+    private static KpiRollup rollup() {
+        return new KpiRollup("benchmark-1", "agent-1", "Quality", RollupResolution.HOUR,
+            RollupResolution.HOUR.bucketStart(T0));
+    }
+
+    @Test
+    @DisplayName("Should summarize added values")
+    void shouldSummarizeValues() {
+        KpiRollup rollup = rollup();
+        rollup.add(0.5, T0.plusSeconds(60));
+        rollup.add(0.9, T0);
+        rollup.add(0.1, T0.plusSeconds(120));
+
+        assertEquals(3L, rollup.getSampleCount());
+        assertEquals(0.1, rollup.getMinValue());
+        assertEquals(0.9, rollup.getMaxValue());
+        assertEquals(0.5, rollup.getMeanValue(), 1e-9);
+        assertEquals(0.1, rollup.getLastValue());
+        assertEquals(T0.plusSeconds(120), rollup.getLastRecordedAt());
+    }
+
+    @Test
+    @DisplayName("Should replace values and report lost extremes")
+    void shouldReplaceValues() {
+        KpiRollup rollup = rollup();
+        rollup.add(0.2, T0);
+        rollup.add(0.8, T0.plusSeconds(60));
+        rollup.add(0.5, T0.plusSeconds(120));
+
+        assertTrue(rollup.replace(0.5, 0.6, T0.plusSeconds(120)));
+        assertEquals(0.6, rollup.getLastValue());
+        assertEquals(1.6 / 3, rollup.getMeanValue(), 1e-9);
+        assertTrue(rollup.replace(0.8, 0.9, T0.plusSeconds(60)));
+        assertEquals(0.9, rollup.getMaxValue());
+        assertFalse(rollup.replace(0.2, 0.3, T0));
+        assertEquals(3L, rollup.getSampleCount());
+    }
+
+    @Test
+    @DisplayName("Should align buckets in UTC with weeks starting on Monday")
+    void shouldAlignBuckets() {
+        assertEquals(Instant.parse("2026-03-04T10:00:00Z"), RollupResolution.HOUR.bucketStart(T0));
+        assertEquals(Instant.parse("2026-03-04T00:00:00Z"), RollupResolution.DAY.bucketStart(T0));
+        assertEquals(Instant.parse("2026-03-02T00:00:00Z"), RollupResolution.WEEK.bucketStart(T0));
+    }
+}
@@ -0,0 +1,110 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.dsl.WindowFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for KpiSeriesState entity.
+ *
+ * Test Plan:
+ * 1. Moving average over a ring buffer, including wrap-around
+ * 2. EWMA, delta and percent change against the previous run
+ * 3. Re-evaluating the last run replaces its sample
+ */
+@DisplayName("KpiSeriesState Entity Tests")
+class KpiSeriesStateTest {
+
+    private static KpiSeriesState state(WindowFunction function, double parameter) {
+        return new KpiSeriesState("benchmark-1", "agent-1", "kpi-1", "KEY", function, parameter);
+    }
+
+    @Nested
+    @DisplayName("Moving average Tests")
+    class MovingAverageTests {
+
+        @Test
+        @DisplayName("Should average the last n runs")
+        void shouldAverageLastRuns() {
+            KpiSeriesState state = state(WindowFunction.MOVING_AVG, 3);
+
+            assertEquals(1.0, state.accept("r1", 1.0), 1e-9);
+            assertEquals(1.5, state.accept("r2", 2.0), 1e-9);
+            assertEquals(2.0, state.accept("r3", 3.0), 1e-9);
+            assertEquals(3.0, state.accept("r4", 4.0), 1e-9);
+            assertEquals(4.0, state.accept("r5", 5.0), 1e-9);
+            assertEquals(5L, state.getSampleCount());
+        }
+
+        @Test
+        @DisplayName("Should match a full recomputation over many runs")
+        void shouldStayAccurate() {
+            KpiSeriesState state = state(WindowFunction.MOVING_AVG, 7);
+            double[] values = new double[1000];
+            double result = 0;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.sin(i) * 1e3 + 0.1;
+                result = state.accept("r" + i, values[i]);
+            }
+
+            double expected = 0;
+            for (int i = values.length - 7; i < values.length; i++) {
+                expected += values[i] / 7;
+            }
+            assertEquals(expected, result, 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Previous run Tests")
+    class PreviousRunTests {
+
+        @Test
+        @DisplayName("Should smooth with EWMA")
+        void shouldSmoothWithEwma() {
+            KpiSeriesState state = state(WindowFunction.EWMA, 0.5);
+
+            assertEquals(1.0, state.accept("r1", 1.0), 1e-9);
+            assertEquals(2.0, state.accept("r2", 3.0), 1e-9);
+            assertEquals(1.5, state.accept("r3", 1.0), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should compute delta and percent change from the previous run")
+        void shouldCompareWithPreviousRun() {
+            KpiSeriesState delta = state(WindowFunction.DELTA_PREV, Double.NaN);
+            KpiSeriesState change = state(WindowFunction.PCT_CHANGE, Double.NaN);
+
+            assertEquals(0.0, delta.accept("r1", 0.5), 1e-9);
+            assertEquals(0.0, change.accept("r1", 0.5), 1e-9);
+            assertEquals(0.25, delta.accept("r2", 0.75), 1e-9);
+            assertEquals(50.0, change.accept("r2", 0.75), 1e-9);
+            assertNull(delta.getParameter());
+        }
+    }
+
+    @Nested
+    @DisplayName("Re-evaluation Tests")
+    class ReevaluationTests {
+
+        @Test
+        @DisplayName("Should replace the sample of the last run")
+        void shouldReplaceLastSample() {
+            KpiSeriesState average = state(WindowFunction.MOVING_AVG, 2);
+            KpiSeriesState ewma = state(WindowFunction.EWMA, 0.5);
+            KpiSeriesState delta = state(WindowFunction.DELTA_PREV, Double.NaN);
+            for (KpiSeriesState state : new KpiSeriesState[] {average, ewma, delta}) {
+                state.accept("r1", 1.0);
+                state.accept("r2", 5.0);
+            }
+
+            assertEquals(2.0, average.accept("r2", 3.0), 1e-9);
+            assertEquals(2.0, ewma.accept("r2", 3.0), 1e-9);
+            assertEquals(2.0, delta.accept("r2", 3.0), 1e-9);
+            assertEquals(2L, average.getSampleCount());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for LeaderboardEntry entity.
+ *
+ * Test Plan:
+ * 1. Track the latest and the best value as values are recorded
+ * 2. Report a best value lost to a lower replacement
+ */
+@DisplayName("LeaderboardEntry Entity Tests")
+class LeaderboardEntryTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-04T10:15:00Z");
+
+    @Test
+    @DisplayName("Should track the latest and the best value")
+    void shouldTrackLatestAndBest() {
+        LeaderboardEntry entry = new LeaderboardEntry("benchmark-1", "Quality", "agent-1");
+
+        assertTrue(entry.record(0.5, null, T0));
+        assertTrue(entry.record(0.9, null, T0.plusSeconds(60)));
+        assertTrue(entry.record(0.7, null, T0.plusSeconds(120)));
+        // An older value does not replace the latest one
+        assertTrue(entry.record(0.3, null, T0.minusSeconds(60)));
+
+        assertEquals(0.7, entry.getValue(LeaderboardScore.LATEST));
+        assertEquals(T0.plusSeconds(120), entry.getLatestRecordedAt());
+        assertEquals(0.9, entry.getValue(LeaderboardScore.BEST));
+        assertEquals(T0.plusSeconds(60), entry.getBestRecordedAt());
+        assertNotNull(entry.getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Should report a best value replaced by a lower one")
+    void shouldReportLostBest() {
+        LeaderboardEntry entry = new LeaderboardEntry("benchmark-1", "Quality", "agent-1");
+        entry.record(0.9, null, T0);
+        entry.record(0.4, null, T0.plusSeconds(60));
+
+        assertTrue(entry.record(0.5, 0.4, T0.plusSeconds(60)));
+        assertEquals(0.5, entry.getLatestValue());
+        assertTrue(entry.record(0.95, 0.9, T0));
+        assertEquals(0.95, entry.getBestValue());
+
+        assertFalse(entry.record(0.2, 0.95, T0));
+        assertEquals(0.95, entry.getBestValue());
+    }
+}
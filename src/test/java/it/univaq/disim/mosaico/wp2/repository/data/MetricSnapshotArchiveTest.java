@@ -0,0 +1,127 @@
+package it.univaq.disim.mosaico.wp2.repository.data;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for MetricSnapshotArchive entity and its columnar segment.
+ *
+ * Test Plan:
+ * 1. Round-trip every column, sorted by timestamp, including special values
+ * 2. Keep regular runs to a few bytes per snapshot
+ * 3. Reject segments of an unknown format
+ * 4. Look up the archived values of one result without decoding snapshots
+ */
+@DisplayName("MetricSnapshotArchive Entity Tests")
+class MetricSnapshotArchiveTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00.123456Z");
+
+    private static MetricSnapshot snapshot(MetricType type, double value, Instant timestamp, String traceId) {
+        MetricSnapshot snapshot = new MetricSnapshot("run-1", type, type.name(), value);
+        snapshot.setTimestamp(timestamp);
+        snapshot.setTraceId(traceId);
+        return snapshot;
+    }
+
+    @Test
+    @DisplayName("Should round-trip every column")
+    void shouldRoundTrip() {
+        BenchmarkResult result = new BenchmarkResult();
+        result.setId("result-1");
+        MetricSnapshot first = snapshot(MetricType.ROUGE, 0.42, T0.plusSeconds(5), "trace-1");
+        first.setMetricName("Rouge-L");
+        first.setUnit("ratio");
+        first.setBenchmarkResult(result);
+        MetricSnapshot second = snapshot(MetricType.BLEU, -0.0, T0, null);
+        MetricSnapshot third = snapshot(MetricType.BLEU, Double.NaN, T0.plusSeconds(5), "trace-1");
+        MetricSnapshot fourth = snapshot(MetricType.ROUGE, Double.MAX_VALUE, T0.plusSeconds(3600), "trace-2");
+
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", List.of(first, second, third, fourth));
+        List<MetricSnapshot> decoded = archive.snapshots(id -> result);
+
+        assertEquals(4, archive.getSnapshotCount());
+        assertEquals(T0, archive.getFirstTimestamp());
+        assertEquals(T0.plusSeconds(3600), archive.getLastTimestamp());
+        assertEquals(4, decoded.size());
+        MetricSnapshot bleu = decoded.get(0);
+        assertEquals(MetricType.BLEU, bleu.getMetricType());
+        assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(bleu.getValue()));
+        assertNull(bleu.getTraceId());
+        assertNull(bleu.getBenchmarkResult());
+        MetricSnapshot rouge = decoded.get(1);
+        assertEquals("run-1", rouge.getRunId());
+        assertEquals("ROUGE", rouge.getMetricKey());
+        assertEquals("Rouge-L", rouge.getMetricName());
+        assertEquals("ratio", rouge.getUnit());
+        assertEquals(0.42, rouge.getValue());
+        assertEquals(T0.plusSeconds(5), rouge.getTimestamp());
+        assertSame(result, rouge.getBenchmarkResult());
+        assertNull(rouge.getId());
+        assertTrue(decoded.get(2).getValue().isNaN());
+        assertEquals(Double.MAX_VALUE, decoded.get(3).getValue());
+    }
+
+    @Test
+    @DisplayName("Should store a regular run in under ten bytes per snapshot")
+    void shouldCompressRegularRuns() {
+        List<MetricSnapshot> snapshots = new ArrayList<>();
+        for (int trace = 0; trace < 1000; trace++) {
+            Instant timestamp = T0.plusMillis(trace * 250L);
+            snapshots.add(snapshot(MetricType.ROUGE, trace % 10 == 0 ? 0.5 : 1.0, timestamp, "trace-" + trace));
+            snapshots.add(snapshot(MetricType.BLEU, 1.0, timestamp, "trace-" + trace));
+            snapshots.add(snapshot(MetricType.EXACT_CONTAINS, 1.0, timestamp, "trace-" + trace));
+        }
+
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", snapshots);
+
+        // The trace id dictionary dominates; repeated values take one bit each
+        assertTrue(archive.getContent().length < snapshots.size() * 10, "segment of " + archive.getContent().length + " bytes");
+        List<MetricSnapshot> decoded = archive.snapshots(id -> null);
+        assertEquals(3000, decoded.size());
+        assertEquals(T0.plusMillis(999 * 250L), decoded.get(2999).getTimestamp());
+        assertEquals("trace-999", decoded.get(2999).getTraceId());
+    }
+
+    @Test
+    @DisplayName("Should pass the values of one result in timestamp order")
+    void shouldLookUpValuesByResult() {
+        BenchmarkResult first = new BenchmarkResult();
+        first.setId("result-1");
+        BenchmarkResult second = new BenchmarkResult();
+        second.setId("result-2");
+        MetricSnapshot late = snapshot(MetricType.ROUGE, 0.9, T0.plusSeconds(10), "trace-1");
+        late.setBenchmarkResult(first);
+        MetricSnapshot other = snapshot(MetricType.BLEU, 0.3, T0.plusSeconds(5), "trace-2");
+        other.setBenchmarkResult(second);
+        MetricSnapshot early = snapshot(MetricType.BLEU, 0.1, T0, "trace-1");
+        early.setBenchmarkResult(first);
+        MetricSnapshot orphan = snapshot(MetricType.ROUGE, 0.5, T0, "trace-3");
+
+        MetricSnapshotArchive.ResultValues values =
+            MetricSnapshotArchive.of("run-1", List.of(late, other, early, orphan)).valuesByResult();
+
+        List<String> seen = new ArrayList<>();
+        values.forEach("result-1", (key, value) -> seen.add(key + "=" + value));
+        assertEquals(List.of("BLEU=0.1", "ROUGE=0.9"), seen);
+        values.forEach("unknown", (key, value) -> fail("no values expected"));
+        assertEquals(Set.of("BLEU", "ROUGE"), values.metricKeys());
+    }
+
+    @Test
+    @DisplayName("Should reject segments of an unknown format")
+    void shouldRejectUnknownFormat() {
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", List.of());
+        archive.setContent(new byte[] {99});
+
+        assertThrows(IllegalArgumentException.class, () -> archive.snapshots(id -> null));
+    }
+}
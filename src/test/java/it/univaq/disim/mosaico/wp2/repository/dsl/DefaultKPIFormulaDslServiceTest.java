@@ -23,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * 4. Validate formulas against available metrics
  * 5. Create KPISpecification from DSL
  * 6. Test DSL syntax help generation
+ * 7. Cache parsed formulas per DSL version and metric vocabulary
  */
 @DisplayName("DefaultKPIFormulaDslService Tests")
 class DefaultKPIFormulaDslServiceTest {
@@ -249,4 +250,78 @@ class DefaultKPIFormulaDslServiceTest {
             assertTrue(help.contains("THRESHOLD"));
         }
     }
+
+    @Nested
+    @DisplayName("Formula Cache Tests")
+    class FormulaCacheTests {
+
+        @Test
+        @DisplayName("Should compile each distinct formula once")
+        void shouldCompileEachFormulaOnce() throws Exception {
+            KPIFormula first = service.parseFormula("AVERAGE(ROUGE, BLEU)");
+            KPIFormula second = service.parseFormula("AVERAGE(ROUGE, BLEU)");
+            service.validateFormula("AVERAGE(ROUGE, BLEU)");
+
+            assertSame(first, second);
+            FormulaCacheStats stats = service.getFormulaCacheStats();
+            assertEquals(1, stats.misses());
+            assertEquals(2, stats.hits());
+            assertEquals(1, stats.size());
+        }
+
+        @Test
+        @DisplayName("Should key entries by DSL version")
+        void shouldKeyByDslVersion() throws Exception {
+            KPISpecification spec = new KPISpecification();
+            spec.setDslText("MAX(ROUGE, BLEU)");
+            spec.setDslVersion("2.0");
+
+            service.parseFormula("MAX(ROUGE, BLEU)");
+            service.buildFromSpecification(spec);
+
+            assertEquals(2, service.getFormulaCacheStats().misses());
+        }
+
+        @Test
+        @DisplayName("Should drop cached results when the vocabulary changes")
+        void shouldInvalidateOnNewMetricKeys() {
+            assertFalse(service.validateFormula("AVERAGE(ROUGE, LATE_METRIC)").isSuccess());
+
+            service.registerCustomMetricKeys(Set.of("LATE_METRIC"));
+
+            assertTrue(service.validateFormula("AVERAGE(ROUGE, LATE_METRIC)").isSuccess());
+            FormulaCacheStats stats = service.getFormulaCacheStats();
+            assertEquals(0, stats.hits());
+            assertEquals(1, stats.size());
+        }
+
+        @Test
+        @DisplayName("Should keep entries when registered keys are already known")
+        void shouldKeepEntriesForKnownKeys() throws Exception {
+            service.parseFormula("MIN(ROUGE, BLEU)");
+
+            service.registerCustomMetricKeys(Set.of("ROUGE"));
+            service.parseFormula("MIN(ROUGE, BLEU)");
+
+            assertEquals(1, service.getFormulaCacheStats().hits());
+        }
+
+        @Test
+        @DisplayName("Should evict least recently used formulas beyond capacity")
+        void shouldEvictBeyondCapacity() {
+            DefaultKPIFormulaDslService small = new DefaultKPIFormulaDslService(new DefaultKPIFormulaParser(), 2);
+
+            small.validateFormula("ROUGE");
+            small.validateFormula("BLEU");
+            small.validateFormula("ROUGE");
+            small.validateFormula("ACCURACY");
+            small.validateFormula("ROUGE");
+            small.validateFormula("BLEU");
+
+            FormulaCacheStats stats = small.getFormulaCacheStats();
+            assertEquals(2, stats.size());
+            assertEquals(2, stats.hits());
+            assertEquals(4, stats.misses());
+        }
+    }
 }
@@ -0,0 +1,314 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.RougeMetric;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the compiled KPI expression language.
+ *
+ * Test Plan:
+ * 1. Arithmetic precedence and associativity
+ * 2. Comparisons, logical operators and conditionals
+ * 3. Functions, including nested aggregates
+ * 4. Constant folding
+ * 5. Slot-based and columnar evaluation, missing metrics
+ * 6. Error reporting with positions
+ * 7. Series functions as window terms
+ */
+@DisplayName("KPI expression compiler Tests")
+class KpiExpressionCompilerTest {
+
+    private DefaultKPIFormulaParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new DefaultKPIFormulaParser();
+    }
+
+    private CompiledKpiFormula compile(String dsl) {
+        DslParseResult result = parser.parse(dsl);
+        assertTrue(result.isSuccess(), () -> result.getErrorsAsString());
+        return (CompiledKpiFormula) result.getFormula();
+    }
+
+    private double evaluate(String dsl, Map<String, Double> values) {
+        return compile(dsl).evaluate(values);
+    }
+
+    private double constant(String dsl) {
+        return evaluate(dsl, Map.of());
+    }
+
+    @Nested
+    @DisplayName("Arithmetic")
+    class ArithmeticTests {
+
+        @Test
+        @DisplayName("Should apply operator precedence")
+        void shouldApplyPrecedence() {
+            assertEquals(7.0, constant("1 + 2 * 3"));
+            assertEquals(9.0, constant("(1 + 2) * 3"));
+            assertEquals(2.0, constant("8 / 2 / 2"));
+            assertEquals(-4.0, constant("-2 ^ 2"));
+            assertEquals(512.0, constant("2 ^ 3 ^ 2"));
+            assertEquals(0.0015, constant("1.5e-3"), 1e-12);
+        }
+
+        @Test
+        @DisplayName("Should average metrics with arithmetic")
+        void shouldAverageMetrics() {
+            Map<String, Double> values = Map.of("ROUGE", 0.8, "BLEU", 0.6, "F1_SCORE", 0.4);
+            assertEquals(0.6, evaluate("(ROUGE + BLEU + F1_SCORE) / 3", values), 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Conditions")
+    class ConditionTests {
+
+        @Test
+        @DisplayName("Should evaluate IF THEN ELSE")
+        void shouldEvaluateKeywordConditional() {
+            String dsl = "IF ROUGE > 0.8 THEN 1.0 ELSE 0.0";
+            assertEquals(1.0, evaluate(dsl, Map.of("ROUGE", 0.9)));
+            assertEquals(0.0, evaluate(dsl, Map.of("ROUGE", 0.8)));
+        }
+
+        @Test
+        @DisplayName("Should evaluate IF with a parenthesized condition and the function form")
+        void shouldEvaluateFunctionConditional() {
+            assertEquals(2.0, evaluate("IF (ROUGE >= 0.5) THEN 2 ELSE 3", Map.of("ROUGE", 0.5)));
+            assertEquals(3.0, evaluate("IF(ROUGE < 0.5, 2, 3)", Map.of("ROUGE", 0.5)));
+        }
+
+        @Test
+        @DisplayName("Should combine comparisons with logical operators")
+        void shouldCombineComparisons() {
+            String dsl = "ROUGE > 0.5 AND NOT BLEU < 0.2 OR ACCURACY == 1";
+            assertEquals(1.0, evaluate(dsl, Map.of("ROUGE", 0.6, "BLEU", 0.3, "ACCURACY", 0.0)));
+            assertEquals(0.0, evaluate(dsl, Map.of("ROUGE", 0.6, "BLEU", 0.1, "ACCURACY", 0.0)));
+            assertEquals(1.0, evaluate(dsl, Map.of("ROUGE", 0.1, "BLEU", 0.1, "ACCURACY", 1.0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Functions")
+    class FunctionTests {
+
+        @Test
+        @DisplayName("Should nest aggregates inside expressions")
+        void shouldNestAggregates() {
+            Map<String, Double> values = Map.of("ROUGE", 0.8, "BLEU", 0.4, "F1_SCORE", 0.5);
+            assertEquals(50.0, evaluate("MIN(AVERAGE(ROUGE, BLEU), F1_SCORE) * 100", values), 1e-9);
+            assertEquals(0.56, evaluate("WEIGHTED_SUM(ROUGE: 0.5, AVERAGE(BLEU, BLEU): 0.4)", values), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should evaluate mathematical functions")
+        void shouldEvaluateMathFunctions() {
+            assertEquals(3.0, constant("SQRT(9)"));
+            assertEquals(8.0, constant("POW(2, 3)"));
+            assertEquals(2.5, constant("ABS(-2.5)"));
+            assertEquals(1.0, constant("CLAMP(4, 0, 1)"));
+            assertEquals(0.0, constant("LOG(EXP(0))"));
+        }
+
+        @Test
+        @DisplayName("Should take the maximum of negative values")
+        void shouldTakeMaxOfNegatives() {
+            assertEquals(-1.0, evaluate("MAX(ROUGE, BLEU)", Map.of("ROUGE", -1.0, "BLEU", -2.0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Constant folding")
+    class FoldingTests {
+
+        @Test
+        @DisplayName("Should fold metric-free sub-expressions")
+        void shouldFoldConstants() {
+            KpiExpression folded = KpiExpressionCompiler.fold(parse("ROUGE * (2 + 3) - POW(2, 2)"));
+
+            KpiExpression expected = new KpiExpression.Binary(KpiExpression.BinaryOperator.SUBTRACT,
+                new KpiExpression.Binary(KpiExpression.BinaryOperator.MULTIPLY,
+                    new KpiExpression.Metric("ROUGE"), new KpiExpression.Constant(5.0)),
+                new KpiExpression.Constant(4.0));
+            assertEquals(expected, folded);
+        }
+
+        @Test
+        @DisplayName("Should keep only the taken branch of a constant condition")
+        void shouldFoldConstantConditions() {
+            KpiExpression folded = KpiExpressionCompiler.fold(parse("IF 2 > 1 THEN ROUGE ELSE BLEU"));
+            assertEquals(new KpiExpression.Metric("ROUGE"), folded);
+
+            CompiledKpiFormula formula = compile("IF 2 > 1 THEN ROUGE ELSE BLEU");
+            assertEquals(List.of("ROUGE"), formula.getSlotNames());
+        }
+
+        private KpiExpression parse(String dsl) {
+            return new KpiExpressionParser(dsl, name -> true).parse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Slot evaluation")
+    class SlotTests {
+
+        @Test
+        @DisplayName("Should assign one slot per distinct metric in order of appearance")
+        void shouldAssignSlots() {
+            CompiledKpiFormula formula = compile("BLEU * 2 + rouge - BLEU");
+
+            assertEquals(List.of("BLEU", "ROUGE"), formula.getSlotNames());
+            assertEquals(1, formula.slotOf("rouge"));
+            assertEquals(-1, formula.slotOf("ACCURACY"));
+            assertEquals(0.9, formula.evaluate(new double[] {0.4, 0.5}), 1e-9);
+        }
+
+        @Test
+        @DisplayName("Should skip missing metrics in aggregates only")
+        void shouldHandleMissingMetrics() {
+            CompiledKpiFormula average = compile("AVERAGE(ROUGE, BLEU)");
+            assertEquals(0.8, average.evaluate(new double[] {0.8, Double.NaN}), 1e-9);
+
+            CompiledKpiFormula sum = compile("ROUGE + BLEU");
+            assertTrue(Double.isNaN(sum.evaluate(new double[] {0.8, Double.NaN})));
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> sum.evaluate(Map.of("ROUGE", 0.8)));
+            assertTrue(error.getMessage().contains("BLEU"));
+        }
+
+        @Test
+        @DisplayName("Should evaluate a range of rows of a columnar batch")
+        void shouldEvaluateColumns() {
+            CompiledKpiFormula formula = compile("AVERAGE(ROUGE, BLEU) * 10");
+            double[][] columns = {
+                {0.2, 0.4, Double.NaN, 0.8},
+                {0.4, 0.6, 0.1, Double.NaN}
+            };
+            double[] results = new double[4];
+            results[0] = -1.0;
+
+            formula.evaluateColumns(columns, 1, 4, results);
+
+            assertArrayEquals(new double[] {-1.0, 5.0, 1.0, 8.0}, results, 1e-9);
+            assertThrows(IllegalArgumentException.class,
+                () -> formula.evaluateColumns(new double[1][4], 0, 4, results));
+        }
+
+        @Test
+        @DisplayName("Should resolve metric class keys and keys in another case")
+        void shouldResolveLegacyKeys() {
+            Map<Object, Double> values = new HashMap<>();
+            values.put(RougeMetric.class, 0.7);
+            values.put("bleu", 0.3);
+
+            assertEquals(1.0, compile("ROUGE + BLEU").evaluate(values), 1e-9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Series functions")
+    class WindowTests {
+
+        @Test
+        @DisplayName("Should expose one window term per distinct call")
+        void shouldExposeWindowTerms() {
+            CompiledKpiFormula formula = compile("rouge - MOVING_AVG(ROUGE, 7) + MOVING_AVG(ROUGE, 7) * DELTA_PREV(BLEU)");
+
+            assertTrue(formula.isWindowed());
+            assertEquals(List.of("ROUGE", "BLEU"), formula.getSlotNames());
+            List<CompiledKpiFormula.WindowTerm> terms = formula.getWindowTerms();
+            assertEquals(2, terms.size());
+            assertEquals(WindowFunction.MOVING_AVG, terms.get(0).function());
+            assertEquals(7.0, terms.get(0).parameter());
+            assertEquals("MOVING_AVG(ROUGE, 7)", terms.get(0).key());
+            assertEquals("DELTA_PREV(BLEU)", terms.get(1).key());
+            assertFalse(compile("ROUGE").isWindowed());
+        }
+
+        @Test
+        @DisplayName("Should pass each term's input to the accumulator once")
+        void shouldUseAccumulator() {
+            CompiledKpiFormula formula = compile("IF ROUGE > 0.5 THEN EWMA(ROUGE * 2, 0.3) ELSE 0");
+            List<Double> inputs = new ArrayList<>();
+
+            double value = formula.evaluate(Map.of("ROUGE", 0.4), (term, input) -> {
+                inputs.add(input);
+                return 10.0;
+            });
+            assertEquals(0.0, value);
+            assertEquals(List.of(0.8), inputs);
+
+            assertEquals(10.0, formula.evaluate(Map.of("ROUGE", 0.6), (term, input) -> 10.0));
+        }
+
+        @Test
+        @DisplayName("Should treat a run without state as the first of its series")
+        void shouldUseFirstSampleWithoutState() {
+            Map<String, Double> values = Map.of("ROUGE", 0.6);
+            assertEquals(0.6, evaluate("MOVING_AVG(ROUGE, 3)", values), 1e-9);
+            assertEquals(0.0, evaluate("DELTA_PREV(ROUGE) + PCT_CHANGE(ROUGE)", values));
+            assertEquals(1.0, evaluate("RANK_IN_BENCHMARK(ROUGE)", values));
+            assertEquals(1.0, compile("DELTA_PREV(1) + 1").evaluate(new double[0]));
+        }
+
+        @Test
+        @DisplayName("Should reject nested calls and invalid parameters")
+        void shouldRejectInvalidWindows() {
+            for (String dsl : List.of("MOVING_AVG(DELTA_PREV(ROUGE), 3)", "MOVING_AVG(ROUGE, 2.5)",
+                    "MOVING_AVG(ROUGE, BLEU)", "EWMA(ROUGE, 0)", "EWMA(ROUGE, 1.5)", "DELTA_PREV(ROUGE, 1)")) {
+                DslParseResult result = parser.parse(dsl);
+                assertFalse(result.isSuccess(), dsl);
+                assertEquals("INVALID_ARGUMENTS", result.getErrors().get(0).getErrorCode(), dsl);
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Errors")
+    class ErrorTests {
+
+        @Test
+        @DisplayName("Should report syntax errors with their position")
+        void shouldReportSyntaxErrors() {
+            DslParseResult result = parser.parse("ROUGE +\n  * BLEU");
+
+            assertFalse(result.isSuccess());
+            DslValidationError error = result.getErrors().get(0);
+            assertEquals("SYNTAX_ERROR", error.getErrorCode());
+            assertEquals(2, error.getLine());
+            assertEquals(3, error.getColumn());
+        }
+
+        @Test
+        @DisplayName("Should report every unknown metric and function")
+        void shouldReportSemanticErrors() {
+            DslParseResult result = parser.parse("FOO + BAR(ROUGE) + SQRT(BLEU, 2)");
+
+            assertFalse(result.isSuccess());
+            assertEquals(List.of("UNKNOWN_METRIC", "UNKNOWN_FUNCTION", "INVALID_ARGUMENTS"),
+                result.getErrors().stream().map(DslValidationError::getErrorCode).toList());
+            assertEquals(7, result.getErrors().get(1).getColumn());
+        }
+
+        @Test
+        @DisplayName("Should reference metrics used anywhere in the expression")
+        void shouldCollectReferencedMetrics() {
+            DslParseResult result = parser.parse("IF ROUGE > 0.5 THEN MAX(BLEU, 0) ELSE F1_SCORE");
+            assertEquals(Set.of("ROUGE", "BLEU", "F1_SCORE"), result.getReferencedMetrics());
+        }
+    }
+}
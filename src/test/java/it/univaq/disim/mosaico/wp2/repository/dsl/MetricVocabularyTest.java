@@ -0,0 +1,88 @@
+package it.univaq.disim.mosaico.wp2.repository.dsl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MetricVocabulary.
+ */
+class MetricVocabularyTest {
+
+    @Test
+    void testSeededWithMetricTypes() {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+
+        for (MetricType type : MetricType.values()) {
+            assertTrue(vocabulary.contains(type.name()));
+        }
+        assertEquals(0, vocabulary.version());
+    }
+
+    @Test
+    void testRegisterBumpsVersionOnlyForNewKeys() {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+
+        assertTrue(vocabulary.register(Set.of("custom_metric")));
+        assertFalse(vocabulary.register(Set.of("CUSTOM_METRIC", "ROUGE")));
+
+        assertEquals(1, vocabulary.version());
+        assertTrue(vocabulary.snapshot().contains("CUSTOM_METRIC"));
+    }
+
+    @Test
+    void testSnapshotsAreImmutable() {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+        MetricVocabulary.Snapshot before = vocabulary.snapshot();
+
+        vocabulary.register(Set.of("LATE_METRIC"));
+
+        assertFalse(before.contains("LATE_METRIC"));
+        assertThrows(UnsupportedOperationException.class, () -> before.keys().add("X"));
+    }
+
+    @Test
+    void testListenersSeeEveryNewVersion() {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+        List<Long> versions = new ArrayList<>();
+        vocabulary.addListener(snapshot -> versions.add(snapshot.version()));
+
+        vocabulary.register(Set.of("A_METRIC"));
+        vocabulary.register(Set.of("A_METRIC"));
+        vocabulary.register(Set.of("B_METRIC"));
+
+        assertEquals(List.of(1L, 2L), versions);
+    }
+
+    @Test
+    void testConcurrentRegistrationKeepsEveryKey() throws Exception {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String key = "METRIC_" + i;
+                futures.add(executor.submit(() -> vocabulary.register(Set.of(key))));
+                futures.add(executor.submit(() -> vocabulary.snapshot().keys().size()));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, vocabulary.version());
+        for (int i = 0; i < 200; i++) {
+            assertTrue(vocabulary.contains("METRIC_" + i));
+        }
+    }
+}
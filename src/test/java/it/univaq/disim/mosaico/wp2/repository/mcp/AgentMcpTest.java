@@ -16,10 +16,11 @@ import io.modelcontextprotocol.spec.McpSchema.ResourceContents;
 import io.modelcontextprotocol.spec.McpSchema.TextResourceContents;
 import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.Provider;
-import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
 import it.univaq.disim.mosaico.wp2.repository.service.AlertEvaluationService;
 import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import it.univaq.disim.mosaico.wp2.repository.service.SkillService;
 
 /**
@@ -36,9 +37,10 @@ class AgentMcpTest {
         BenchmarkService benchmarkService = mock(it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService.class);
         SkillService skillService = mock(it.univaq.disim.mosaico.wp2.repository.service.SkillService.class);
         AlertEvaluationService alertEvaluationService = mock((it.univaq.disim.mosaico.wp2.repository.service.AlertEvaluationService.class));
-        BenchmarkRunRepository benchmarkRunRepository = mock(BenchmarkRunRepository.class);
+        RunSummaryService runSummaryService = mock(RunSummaryService.class);
         ObjectMapper mapper = new ObjectMapper();
-        AgentMCP agentMCP = new AgentMCP(agentService, mapper, benchmarkService, skillService, benchmarkRunRepository, alertEvaluationService);
+        AgentMCP agentMCP = new AgentMCP(agentService, mapper, benchmarkService, skillService, runSummaryService, alertEvaluationService,
+            mock(LeaderboardService.class));
 
         // prepare test data
         Provider testProvider = new it.univaq.disim.mosaico.wp2.repository.data.Provider("OpenAI", "AI company providing language models", "https://openai.com"
@@ -65,7 +67,7 @@ class AgentMcpTest {
 
 
         //   public AgentMCP(AgentService agentService, ObjectMapper objectMapper, BenchmarkService benchmarkService,
-            //SkillService skillService, BenchmarkRunRepository benchmarkRunRepository,
+            //SkillService skillService, RunSummaryService runSummaryService,
             //AlertEvaluationService alertEvaluationService) {
         ReadResourceResult res = agentMCP.listAllAgents();
         assertThat(res).isNotNull();
@@ -106,9 +108,10 @@ class AgentMcpTest {
         BenchmarkService benchmarkService = mock(it.univaq.disim.mosaico.wp2.repository.service.BenchmarkService.class);
         SkillService skillService = mock(it.univaq.disim.mosaico.wp2.repository.service.SkillService.class);
         AlertEvaluationService alertEvaluationService = mock((it.univaq.disim.mosaico.wp2.repository.service.AlertEvaluationService.class));
-        BenchmarkRunRepository benchmarkRunRepository = mock(BenchmarkRunRepository.class);
-        AgentMCP agentMCP = new AgentMCP(agentService, mapper, benchmarkService, skillService, benchmarkRunRepository, alertEvaluationService);
-        //AgentMCP agentMCP = new AgentMCP(agentService, mapper, mock(BenchmarkService.class), mock(SkillService.class), mock(BenchmarkRunRepository.class));
+        RunSummaryService runSummaryService = mock(RunSummaryService.class);
+        AgentMCP agentMCP = new AgentMCP(agentService, mapper, benchmarkService, skillService, runSummaryService, alertEvaluationService,
+            mock(LeaderboardService.class));
+        //AgentMCP agentMCP = new AgentMCP(agentService, mapper, mock(BenchmarkService.class), mock(SkillService.class), mock(RunSummaryService.class));
 
         ReadResourceResult res = agentMCP.getAgent("agent1");
         assertThat(res).isNotNull();
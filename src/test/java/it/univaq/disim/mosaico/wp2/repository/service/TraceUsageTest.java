@@ -0,0 +1,73 @@
+package it.univaq.disim.mosaico.wp2.repository.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TraceUsage extraction from the Langfuse trace JSON.
+ */
+@DisplayName("TraceUsage Tests")
+class TraceUsageTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Should read trace totals and sum generation usage")
+    void shouldReadTraceTotalsAndSumGenerations() throws Exception {
+        TraceUsage usage = TraceUsage.from(mapper.readTree("""
+            {
+              "id": "t1",
+              "timestamp": "2025-01-01T10:00:00.000Z",
+              "latency": 2.5,
+              "totalCost": 0.0031,
+              "observations": [
+                {"type": "SPAN", "startTime": "2025-01-01T10:00:00.000Z", "endTime": "2025-01-01T10:00:02.500Z"},
+                {"type": "GENERATION", "startTime": "2025-01-01T10:00:00.100Z",
+                 "completionStartTime": "2025-01-01T10:00:00.400Z",
+                 "usageDetails": {"input": 120, "output": 30}},
+                {"type": "GENERATION", "startTime": "2025-01-01T10:00:01.000Z",
+                 "completionStartTime": "2025-01-01T10:00:01.200Z",
+                 "promptTokens": 80, "completionTokens": 20}
+              ]
+            }
+            """));
+
+        assertEquals(2.5, usage.latencySeconds());
+        assertEquals(0.4, usage.timeToFirstTokenSeconds(), 1e-9);
+        assertEquals(200L, usage.inputTokens());
+        assertEquals(50L, usage.outputTokens());
+        assertEquals(0.0031, usage.totalCost());
+    }
+
+    @Test
+    @DisplayName("Should fall back to observations when trace totals are missing")
+    void shouldFallBackToObservations() throws Exception {
+        TraceUsage usage = TraceUsage.from(mapper.readTree("""
+            {
+              "observations": [
+                {"type": "GENERATION", "startTime": "2025-01-01T10:00:00Z", "endTime": "2025-01-01T10:00:01.5Z",
+                 "timeToFirstToken": 0.25, "calculatedTotalCost": 0.002,
+                 "usage": {"input": 10, "output": 5}},
+                {"type": "GENERATION", "startTime": "2025-01-01T10:00:02Z", "endTime": "2025-01-01T10:00:03Z",
+                 "calculatedTotalCost": 0.001}
+              ]
+            }
+            """));
+
+        assertEquals(3.0, usage.latencySeconds(), 1e-9);
+        assertEquals(0.25, usage.timeToFirstTokenSeconds());
+        assertEquals(10L, usage.inputTokens());
+        assertEquals(5L, usage.outputTokens());
+        assertEquals(0.003, usage.totalCost(), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Should leave unknown figures null")
+    void shouldLeaveUnknownFiguresNull() throws Exception {
+        assertEquals(TraceUsage.EMPTY, TraceUsage.from(mapper.readTree("{\"id\": \"t1\"}")));
+        assertEquals(TraceUsage.EMPTY, TraceUsage.of(null));
+    }
+}
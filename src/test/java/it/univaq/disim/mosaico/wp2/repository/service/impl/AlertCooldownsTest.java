@@ -0,0 +1,168 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for AlertCooldowns.
+ *
+ * Test Plan:
+ * 1. Claim the alert row once per cooldown and check the cooldown in memory
+ * 2. Let one of many concurrent evaluations trigger an alert
+ * 3. Adopt the trigger time of another instance that claimed the row first
+ * 4. Flush the trigger times of alerts without a cooldown
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AlertCooldowns Tests")
+class AlertCooldownsTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-06T10:00:00Z");
+
+    @Mock
+    private AlertConfigRepository alertConfigRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlertCooldowns cooldowns;
+    private AlertConfig alert;
+
+    @BeforeEach
+    void setUp() {
+        cooldowns = new AlertCooldowns(alertConfigRepository, transactionManager);
+        alert = new AlertConfig();
+        alert.setId("alert-1");
+        alert.setCooldownMinutes(60);
+    }
+
+    @Nested
+    @DisplayName("tryTrigger Tests")
+    class TryTriggerTests {
+
+        @Test
+        @DisplayName("Should claim the row once and then check the cooldown in memory")
+        void shouldClaimOncePerCooldown() {
+            when(alertConfigRepository.claimTrigger(eq("alert-1"), any(), any())).thenReturn(1);
+
+            assertTrue(cooldowns.tryTrigger(alert, NOW));
+            assertFalse(cooldowns.tryTrigger(alert, NOW.plus(Duration.ofMinutes(30))));
+            assertTrue(cooldowns.tryTrigger(alert, NOW.plus(Duration.ofMinutes(60))));
+
+            verify(alertConfigRepository).claimTrigger("alert-1", NOW, NOW.minus(Duration.ofMinutes(60)));
+            verify(alertConfigRepository, times(2)).claimTrigger(eq("alert-1"), any(), any());
+            verify(alertConfigRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should honour the stored trigger time of the alert")
+        void shouldUseStoredTriggerTime() {
+            alert.setLastTriggeredAt(NOW.minus(Duration.ofMinutes(10)));
+
+            assertFalse(cooldowns.tryTrigger(alert, NOW));
+
+            verifyNoInteractions(alertConfigRepository);
+        }
+
+        @Test
+        @DisplayName("Should let one of many concurrent evaluations trigger")
+        void shouldTriggerOnceConcurrently() throws Exception {
+            when(alertConfigRepository.claimTrigger(eq("alert-1"), any(), any())).thenReturn(1);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Callable<Boolean>> calls = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    calls.add(() -> cooldowns.tryTrigger(alert, NOW));
+                }
+                int triggered = 0;
+                for (Future<Boolean> result : executor.invokeAll(calls)) {
+                    triggered += result.get() ? 1 : 0;
+                }
+
+                assertEquals(1, triggered);
+                verify(alertConfigRepository, times(1)).claimTrigger(eq("alert-1"), any(), any());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should adopt the trigger time of the instance that claimed the row first")
+        void shouldAdoptOtherInstanceTrigger() {
+            when(alertConfigRepository.claimTrigger(eq("alert-1"), any(), any())).thenReturn(0, 1);
+            when(alertConfigRepository.findLastTriggeredAt("alert-1"))
+                .thenReturn(Optional.of(NOW.minus(Duration.ofMinutes(10))));
+
+            assertFalse(cooldowns.tryTrigger(alert, NOW));
+            // The cooldown runs from the other instance's trigger
+            assertFalse(cooldowns.tryTrigger(alert, NOW.plus(Duration.ofMinutes(45))));
+            assertTrue(cooldowns.tryTrigger(alert, NOW.plus(Duration.ofMinutes(50))));
+        }
+
+        @Test
+        @DisplayName("Should try the row again after a failed claim")
+        void shouldRetryFailedClaim() {
+            when(alertConfigRepository.claimTrigger(eq("alert-1"), any(), any()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(1);
+
+            assertThrows(QueryTimeoutException.class, () -> cooldowns.tryTrigger(alert, NOW));
+            assertTrue(cooldowns.tryTrigger(alert, NOW.plusSeconds(1)));
+        }
+    }
+
+    @Nested
+    @DisplayName("flush Tests")
+    class FlushTests {
+
+        @Test
+        @DisplayName("Should store the latest trigger of alerts without a cooldown once")
+        void shouldFlushLatestTrigger() {
+            alert.setCooldownMinutes(null);
+
+            assertTrue(cooldowns.tryTrigger(alert, NOW.plusSeconds(5)));
+            assertTrue(cooldowns.tryTrigger(alert, NOW));
+            cooldowns.recordTrigger(alert, NOW.plusSeconds(2));
+
+            assertEquals(1, cooldowns.flush());
+            assertEquals(0, cooldowns.flush());
+
+            verify(alertConfigRepository).advanceLastTriggeredAt("alert-1", NOW.plusSeconds(5));
+            verify(alertConfigRepository, never()).claimTrigger(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should keep the trigger time when it cannot be stored")
+        void shouldKeepUnflushedTrigger() {
+            cooldowns.recordTrigger(alert, NOW);
+            when(alertConfigRepository.advanceLastTriggeredAt("alert-1", NOW))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(1);
+
+            assertEquals(0, cooldowns.flush());
+            assertEquals(1, cooldowns.flush());
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiDetector;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.Severity;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.repository.AgentRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AlertStateService;
 import it.univaq.disim.mosaico.wp2.repository.service.NotificationDispatcher;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.AlertRuleIndex.AlertRule;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -21,6 +26,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,12 +38,14 @@ import static org.mockito.Mockito.*;
  * Test class for AlertEvaluationServiceImpl.
  *
  * Test Plan:
- * 1. Evaluate alerts for a run
+ * 1. Evaluate the alerts indexed on the KPIs of a run
  * 2. Evaluate KPI value against thresholds
  * 3. Check various alert conditions (LESS_THAN, GREATER_THAN, EQUALS, NOT_EQUALS)
- * 4. Handle cooldown period
+ * 4. Skip alerts in cooldown and record triggers without saving the alert
  * 5. CRUD operations for alerts
  * 6. Enable/disable alerts
+ * 7. Re-evaluate the alert states of the affected KPIs on alert changes
+ * 8. Find agents without alerting KPIs through the alert states
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("AlertEvaluationServiceImpl Tests")
@@ -51,6 +59,14 @@ class AlertEvaluationServiceImplTest {
     private BenchmarkRunRepository benchmarkRunRepository;
     @Mock
     private NotificationDispatcher notificationDispatcher;
+    @Mock
+    private AgentRepository agentRepository;
+    @Mock
+    private AlertStateService alertStateService;
+    @Mock
+    private AlertRuleIndex alertRuleIndex;
+    @Mock
+    private AlertCooldowns alertCooldowns;
 
     @InjectMocks
     private AlertEvaluationServiceImpl service;
@@ -87,16 +103,84 @@ class AlertEvaluationServiceImplTest {
         @DisplayName("Should evaluate alerts for run and trigger notification")
         void shouldEvaluateAndTriggerNotification() {
             when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
-            when(kpiHistoryRepository.findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc("benchmark-123", "agent-456"))
-                .thenReturn(List.of(testKpiHistory));
-            when(alertConfigRepository.findByBenchmarkIdAndEnabled("benchmark-123", true))
-                .thenReturn(List.of(testAlert));
-            when(alertConfigRepository.save(any(AlertConfig.class))).thenAnswer(i -> i.getArgument(0));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of(AlertRule.of(testAlert)));
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(testAlert));
+            when(alertCooldowns.tryTrigger(eq(testAlert), any())).thenReturn(true);
+
+            service.evaluateAlertsForRun("run-789");
+
+            verify(notificationDispatcher).dispatch(eq(testAlert), eq("accuracy"), eq(0.65));
+            verify(alertConfigRepository, never()).save(any());
+            verify(kpiHistoryRepository, never()).findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should only look up the KPIs that have alerts")
+        void shouldSkipKpisWithoutRules() {
+            KPIHistory latency = new KPIHistory("benchmark-123", "agent-456", "latency", 900.0);
+            latency.setRunId("run-789");
+            when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory, latency));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of());
+            when(alertRuleIndex.rulesFor("benchmark-123", "latency")).thenReturn(List.of());
+
+            service.evaluateAlertsForRun("run-789");
+
+            verify(alertConfigRepository, never()).findById(any());
+            verifyNoInteractions(notificationDispatcher);
+        }
+
+        @Test
+        @DisplayName("Should evaluate historical conditions with the detector of the series")
+        void shouldUseDetectorForHistoricalConditions() {
+            testAlert.setCondition(AlertCondition.PERCENTAGE_DROP);
+            testAlert.setThreshold(20.0);
+            KpiDetector detector = new KpiDetector();
+            detector.accept(Instant.parse("2026-03-01T10:00:00Z"), 0.9);
+            detector.accept(Instant.parse("2026-03-01T11:00:00Z"), 0.65);
+            when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of(AlertRule.of(testAlert)));
+            when(alertStateService.findDetector("benchmark-123", "agent-456", "accuracy", testKpiHistory.getRecordedAt()))
+                .thenReturn(Optional.of(detector));
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(testAlert));
+            when(alertCooldowns.tryTrigger(eq(testAlert), any())).thenReturn(true);
 
             service.evaluateAlertsForRun("run-789");
 
             verify(notificationDispatcher).dispatch(eq(testAlert), eq("accuracy"), eq(0.65));
-            verify(alertConfigRepository).save(any(AlertConfig.class));
+        }
+
+        @Test
+        @DisplayName("Should skip alerts disabled since the index was built")
+        void shouldSkipStaleRules() {
+            AlertRule rule = AlertRule.of(testAlert);
+            testAlert.setEnabled(false);
+            when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of(rule));
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(testAlert));
+
+            service.evaluateAlertsForRun("run-789");
+
+            verifyNoInteractions(notificationDispatcher, alertCooldowns);
+            verify(alertConfigRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should not notify while the alert is in cooldown")
+        void shouldSkipAlertInCooldown() {
+            when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of(AlertRule.of(testAlert)));
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(testAlert));
+            when(alertCooldowns.tryTrigger(eq(testAlert), any())).thenReturn(false);
+
+            service.evaluateAlertsForRun("run-789");
+
+            verifyNoInteractions(notificationDispatcher);
+            verify(alertConfigRepository, never()).save(any());
         }
 
         @Test
@@ -106,14 +190,13 @@ class AlertEvaluationServiceImplTest {
             testKpiHistory.setRunId("run-789");
 
             when(benchmarkRunRepository.findById("run-789")).thenReturn(Optional.of(testRun));
-            when(kpiHistoryRepository.findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc("benchmark-123", "agent-456"))
-                .thenReturn(List.of(testKpiHistory));
-            when(alertConfigRepository.findByBenchmarkIdAndEnabled("benchmark-123", true))
-                .thenReturn(List.of(testAlert));
+            when(kpiHistoryRepository.findByRunId("run-789")).thenReturn(List.of(testKpiHistory));
+            when(alertRuleIndex.rulesFor("benchmark-123", "accuracy")).thenReturn(List.of(AlertRule.of(testAlert)));
 
             service.evaluateAlertsForRun("run-789");
 
             verify(notificationDispatcher, never()).dispatch(any(), any(), anyDouble());
+            verify(alertConfigRepository, never()).findById(any());
         }
 
         @Test
@@ -123,7 +206,7 @@ class AlertEvaluationServiceImplTest {
 
             // Should not throw
             assertDoesNotThrow(() -> service.evaluateAlertsForRun("unknown"));
-            verify(kpiHistoryRepository, never()).findByBenchmarkIdAndAgentIdOrderByRecordedAtDesc(any(), any());
+            verify(kpiHistoryRepository, never()).findByRunId(any());
         }
     }
 
@@ -136,13 +219,14 @@ class AlertEvaluationServiceImplTest {
         void shouldTriggerWhenLessThanConditionMet() {
             when(alertConfigRepository.findActiveAlertsForKpi("benchmark-123", "accuracy"))
                 .thenReturn(List.of(testAlert));
-            when(alertConfigRepository.save(any(AlertConfig.class))).thenAnswer(i -> i.getArgument(0));
 
             List<AlertConfig> triggered = service.evaluateKpiValue("benchmark-123", "accuracy", 0.5);
 
             assertEquals(1, triggered.size());
             assertEquals("alert-123", triggered.get(0).getId());
             verify(notificationDispatcher).dispatch(eq(testAlert), eq("accuracy"), eq(0.5));
+            verify(alertCooldowns).recordTrigger(eq(testAlert), any());
+            verify(alertConfigRepository, never()).save(any());
         }
 
         @Test
@@ -152,7 +236,6 @@ class AlertEvaluationServiceImplTest {
             testAlert.setThreshold(0.9);
             when(alertConfigRepository.findActiveAlertsForKpi("benchmark-123", "accuracy"))
                 .thenReturn(List.of(testAlert));
-            when(alertConfigRepository.save(any(AlertConfig.class))).thenAnswer(i -> i.getArgument(0));
 
             List<AlertConfig> triggered = service.evaluateKpiValue("benchmark-123", "accuracy", 0.95);
 
@@ -167,7 +250,6 @@ class AlertEvaluationServiceImplTest {
             testAlert.setThreshold(1.0);
             when(alertConfigRepository.findActiveAlertsForKpi("benchmark-123", "accuracy"))
                 .thenReturn(List.of(testAlert));
-            when(alertConfigRepository.save(any(AlertConfig.class))).thenAnswer(i -> i.getArgument(0));
 
             List<AlertConfig> triggered = service.evaluateKpiValue("benchmark-123", "accuracy", 1.0);
 
@@ -181,7 +263,6 @@ class AlertEvaluationServiceImplTest {
             testAlert.setThreshold(1.0);
             when(alertConfigRepository.findActiveAlertsForKpi("benchmark-123", "accuracy"))
                 .thenReturn(List.of(testAlert));
-            when(alertConfigRepository.save(any(AlertConfig.class))).thenAnswer(i -> i.getArgument(0));
 
             List<AlertConfig> triggered = service.evaluateKpiValue("benchmark-123", "accuracy", 0.8);
 
@@ -216,6 +297,8 @@ class AlertEvaluationServiceImplTest {
 
             assertEquals("alert-123", result.getId());
             verify(alertConfigRepository).save(testAlert);
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
+            verify(alertRuleIndex).alertsChanged();
         }
 
         @Test
@@ -228,14 +311,36 @@ class AlertEvaluationServiceImplTest {
 
             assertEquals(0.8, result.getThreshold());
             verify(alertConfigRepository).save(testAlert);
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
+        }
+
+        @Test
+        @DisplayName("Should re-evaluate both KPIs when an alert moves to another KPI")
+        void shouldRefreshPreviousKpiOnUpdate() {
+            AlertConfig stored = new AlertConfig();
+            stored.setId("alert-123");
+            stored.setBenchmarkId("benchmark-123");
+            stored.setKpiName("latency");
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(stored));
+            when(alertConfigRepository.save(testAlert)).thenReturn(testAlert);
+
+            service.updateAlert(testAlert);
+
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
+            verify(alertStateService).refresh("benchmark-123", "latency");
+            verify(alertRuleIndex).alertsChanged();
         }
 
         @Test
         @DisplayName("Should delete alert")
         void shouldDeleteAlert() {
+            when(alertConfigRepository.findById("alert-123")).thenReturn(Optional.of(testAlert));
+
             service.deleteAlert("alert-123");
 
             verify(alertConfigRepository).deleteById("alert-123");
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
+            verify(alertRuleIndex).alertsChanged();
         }
 
         @Test
@@ -277,6 +382,7 @@ class AlertEvaluationServiceImplTest {
             ArgumentCaptor<AlertConfig> captor = ArgumentCaptor.forClass(AlertConfig.class);
             verify(alertConfigRepository).save(captor.capture());
             assertTrue(captor.getValue().getEnabled());
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
         }
 
         @Test
@@ -291,6 +397,8 @@ class AlertEvaluationServiceImplTest {
             ArgumentCaptor<AlertConfig> captor = ArgumentCaptor.forClass(AlertConfig.class);
             verify(alertConfigRepository).save(captor.capture());
             assertFalse(captor.getValue().getEnabled());
+            verify(alertStateService).refresh("benchmark-123", "accuracy");
+            verify(alertRuleIndex).alertsChanged();
         }
 
         @Test
@@ -301,6 +409,25 @@ class AlertEvaluationServiceImplTest {
             service.enableAlert("unknown");
 
             verify(alertConfigRepository, never()).save(any());
+            verifyNoInteractions(alertStateService, alertRuleIndex);
+        }
+    }
+
+    @Nested
+    @DisplayName("findAgentsWithNonAlertingKpiBySkill Tests")
+    class NonAlertingAgentsTests {
+
+        @Test
+        @DisplayName("Should answer with a single query on the alert states")
+        void shouldQueryAlertStates() {
+            Agent agent = new Agent();
+            agent.setId("agent-456");
+            when(agentRepository.findWithoutAlertingKpiBySkill("summarization")).thenReturn(List.of(agent));
+
+            List<Agent> agents = service.findAgentsWithNonAlertingKpiBySkill("summarization");
+
+            assertEquals(List.of(agent), agents);
+            verifyNoInteractions(benchmarkRunRepository, kpiHistoryRepository);
         }
     }
 }
@@ -0,0 +1,123 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.impl.AlertRuleIndex.AlertRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for AlertRuleIndex.
+ *
+ * Test Plan:
+ * 1. Index enabled alerts by benchmark and KPI, loading them once
+ * 2. Rebuild on alert changes and notify other instances on PostgreSQL only
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AlertRuleIndex Tests")
+class AlertRuleIndexTest {
+
+    @Mock
+    private AlertConfigRepository alertConfigRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlertRuleIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AlertRuleIndex(alertConfigRepository, jdbcTemplate, transactionManager);
+    }
+
+    private static AlertConfig alert(String id, String benchmarkId, String kpiName, double threshold) {
+        AlertConfig alert = new AlertConfig();
+        alert.setId(id);
+        alert.setBenchmarkId(benchmarkId);
+        alert.setKpiName(kpiName);
+        alert.setCondition(AlertCondition.LESS_THAN);
+        alert.setThreshold(threshold);
+        alert.setEnabled(true);
+        return alert;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void database(boolean postgres) {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(postgres);
+    }
+
+    @Nested
+    @DisplayName("rulesFor Tests")
+    class RulesForTests {
+
+        @Test
+        @DisplayName("Should index enabled alerts by benchmark and KPI")
+        void shouldIndexByBenchmarkAndKpi() {
+            when(alertConfigRepository.findByEnabled(true)).thenReturn(List.of(
+                alert("a1", "benchmark-1", "Quality", 0.5),
+                alert("a2", "benchmark-1", "Quality", 0.7),
+                alert("a3", "benchmark-1", "Latency", 0.1),
+                alert("a4", null, "Quality", 0.9)));
+
+            List<AlertRule> rules = index.rulesFor("benchmark-1", "Quality");
+
+            assertEquals(List.of("a1", "a2"), rules.stream().map(AlertRule::alertId).toList());
+            assertTrue(rules.get(0).isTriggeredBy(0.4));
+            assertFalse(rules.get(0).isTriggeredBy(0.6));
+            assertEquals(1, index.rulesFor("benchmark-1", "Latency").size());
+            assertTrue(index.rulesFor("benchmark-2", "Quality").isEmpty());
+            verify(alertConfigRepository, times(1)).findByEnabled(true);
+        }
+    }
+
+    @Nested
+    @DisplayName("alertsChanged Tests")
+    class AlertsChangedTests {
+
+        @Test
+        @DisplayName("Should rebuild the index and notify the other instances")
+        void shouldRebuildAndNotify() {
+            when(alertConfigRepository.findByEnabled(true))
+                .thenReturn(List.of())
+                .thenReturn(List.of(alert("a1", "benchmark-1", "Quality", 0.5)));
+            database(true);
+            assertTrue(index.rulesFor("benchmark-1", "Quality").isEmpty());
+
+            index.alertsChanged();
+
+            assertEquals(1, index.rulesFor("benchmark-1", "Quality").size());
+            verify(jdbcTemplate).queryForList(AlertRuleIndex.NOTIFY, AlertRuleIndex.CHANNEL, index.instanceId());
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        @DisplayName("Should only rebuild locally on databases without notifications")
+        void shouldNotNotifyWithoutPostgres() {
+            when(alertConfigRepository.findByEnabled(true)).thenReturn(List.of());
+            database(false);
+
+            index.alertsChanged();
+            index.alertsChanged();
+
+            // The database product is looked up once, and nothing is sent
+            verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+            verifyNoMoreInteractions(jdbcTemplate);
+        }
+    }
+}
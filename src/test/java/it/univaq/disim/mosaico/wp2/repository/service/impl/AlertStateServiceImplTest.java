@@ -0,0 +1,203 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiAlertState;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.repository.AlertConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiAlertStateRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for AlertStateServiceImpl.
+ *
+ * Test Plan:
+ * 1. Create and update states from the latest KPI value of each series,
+ *    inserting missing states before they are updated
+ * 2. Ignore values older than the current state
+ * 3. Feed every new value to the detector and evaluate historical conditions
+ * 4. Re-evaluate the states of a benchmark KPI when its alerts change
+ * 5. Expose the detector of a series only for its latest value
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AlertStateServiceImpl Tests")
+class AlertStateServiceImplTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-01T10:00:00Z");
+
+    @Mock
+    private KpiAlertStateRepository stateRepository;
+    @Mock
+    private AlertConfigRepository alertConfigRepository;
+
+    @InjectMocks
+    private AlertStateServiceImpl service;
+
+    private static AlertConfig alert(AlertCondition condition, double threshold) {
+        AlertConfig alert = new AlertConfig();
+        alert.setBenchmarkId("benchmark-1");
+        alert.setKpiName("Quality");
+        alert.setCondition(condition);
+        alert.setThreshold(threshold);
+        alert.setEnabled(true);
+        return alert;
+    }
+
+    private static KpiValueChange change(String agentId, Instant recordedAt, double value) {
+        return new KpiValueChange("benchmark-1", agentId, "Quality", recordedAt, null, value);
+    }
+
+    private static KpiAlertState state(String agentId, Instant recordedAt, double value) {
+        KpiAlertState state = new KpiAlertState("benchmark-1", agentId, "Quality");
+        state.setRecordedAt(recordedAt);
+        state.setKpiValue(value);
+        return state;
+    }
+
+    @Nested
+    @DisplayName("record Tests")
+    class RecordTests {
+
+        @Test
+        @DisplayName("Should evaluate the newest value of each series against the KPI alerts")
+        void shouldRecordLatestValue() {
+            when(stateRepository.insertIfAbsent(anyString(), any(), any(), any(), any())).thenReturn(1);
+            when(alertConfigRepository.findActiveAlertsForKpi("benchmark-1", "Quality"))
+                .thenReturn(List.of(alert(AlertCondition.LESS_THAN, 0.5), alert(AlertCondition.LESS_THAN, 0.7)));
+
+            service.record(List.of(
+                change("agent-1", T0.plusSeconds(60), 0.4),
+                change("agent-1", T0, 0.9),
+                change("agent-2", T0, 0.6)));
+
+            ArgumentCaptor<KpiAlertState> saved = ArgumentCaptor.forClass(KpiAlertState.class);
+            verify(stateRepository, times(2)).save(saved.capture());
+            KpiAlertState first = saved.getAllValues().get(0);
+            assertEquals("agent-1", first.getAgentId());
+            assertEquals(0.4, first.getKpiValue());
+            assertTrue(first.isAlerting());
+            assertEquals(2, first.getAlertCount());
+            // Both values reach the detector, in time order
+            assertEquals(2, first.getDetector().getSampleCount());
+            assertEquals(-55.55, first.getDetector().percentageChange(null), 0.01);
+            KpiAlertState second = saved.getAllValues().get(1);
+            assertEquals("agent-2", second.getAgentId());
+            assertEquals(1, second.getAlertCount());
+            // Alerts of a benchmark KPI are loaded once per call
+            verify(alertConfigRepository, times(1)).findActiveAlertsForKpi("benchmark-1", "Quality");
+            verify(stateRepository, never()).findForUpdate(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should clear the state when the new value no longer triggers")
+        void shouldClearRecoveredState() {
+            KpiAlertState existing = state("agent-1", T0, 0.3);
+            existing.setAlerting(true);
+            existing.setAlertCount(1);
+            when(stateRepository.findForUpdate("benchmark-1", "agent-1", "Quality")).thenReturn(Optional.of(existing));
+            when(alertConfigRepository.findActiveAlertsForKpi("benchmark-1", "Quality"))
+                .thenReturn(List.of(alert(AlertCondition.LESS_THAN, 0.5)));
+
+            service.record(List.of(change("agent-1", T0.plusSeconds(60), 0.8)));
+
+            verify(stateRepository).save(existing);
+            assertFalse(existing.isAlerting());
+            assertEquals(0, existing.getAlertCount());
+            assertEquals(T0.plusSeconds(60), existing.getRecordedAt());
+        }
+
+        @Test
+        @DisplayName("Should evaluate historical conditions with the detector")
+        void shouldEvaluateHistoricalConditions() {
+            KpiAlertState existing = state("agent-1", T0, 0.8);
+            existing.getDetector().accept(T0, 0.8);
+            when(stateRepository.findForUpdate("benchmark-1", "agent-1", "Quality")).thenReturn(Optional.of(existing));
+            when(alertConfigRepository.findActiveAlertsForKpi("benchmark-1", "Quality"))
+                .thenReturn(List.of(alert(AlertCondition.PERCENTAGE_DROP, 20.0)));
+
+            service.record(List.of(change("agent-1", T0.plusSeconds(60), 0.6)));
+
+            assertTrue(existing.isAlerting());
+            assertEquals(0.6, existing.getKpiValue());
+        }
+
+        @Test
+        @DisplayName("Should leave a newer state alone")
+        void shouldIgnoreOlderValues() {
+            KpiAlertState existing = state("agent-1", T0, 0.3);
+            when(stateRepository.findForUpdate("benchmark-1", "agent-1", "Quality")).thenReturn(Optional.of(existing));
+
+            service.record(List.of(change("agent-1", T0.minusSeconds(60), 0.9), change("agent-2", null, 0.5)));
+
+            assertEquals(0.3, existing.getKpiValue());
+            verify(stateRepository, never()).save(any());
+            verifyNoInteractions(alertConfigRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Should re-evaluate every state of the benchmark KPI")
+        void shouldRefreshStates() {
+            KpiAlertState low = state("agent-1", T0, 0.2);
+            KpiAlertState high = state("agent-2", T0, 0.9);
+            high.setAlerting(true);
+            high.setAlertCount(1);
+            when(stateRepository.findByBenchmarkIdAndKpiName("benchmark-1", "Quality")).thenReturn(List.of(low, high));
+            when(alertConfigRepository.findActiveAlertsForKpi("benchmark-1", "Quality"))
+                .thenReturn(List.of(alert(AlertCondition.LESS_THAN, 0.5)));
+
+            service.refresh("benchmark-1", "Quality");
+
+            assertTrue(low.isAlerting());
+            assertFalse(high.isAlerting());
+            verify(stateRepository).saveAll(List.of(low, high));
+        }
+
+        @Test
+        @DisplayName("Should skip alerts without a benchmark and KPIs without states")
+        void shouldSkipWithoutStates() {
+            when(stateRepository.findByBenchmarkIdAndKpiName("benchmark-1", "Quality")).thenReturn(List.of());
+
+            service.refresh(null, "Quality");
+            service.refresh("benchmark-1", "Quality");
+
+            verifyNoInteractions(alertConfigRepository);
+            verify(stateRepository, never()).saveAll(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("findDetector Tests")
+    class FindDetectorTests {
+
+        @Test
+        @DisplayName("Should return the detector only while the value is the latest")
+        void shouldFindDetector() {
+            KpiAlertState existing = state("agent-1", T0, 0.8);
+            when(stateRepository.findByBenchmarkIdAndAgentIdAndKpiName("benchmark-1", "agent-1", "Quality"))
+                .thenReturn(Optional.of(existing));
+
+            assertSame(existing.getDetector(), service.findDetector("benchmark-1", "agent-1", "Quality", T0).orElseThrow());
+            assertTrue(service.findDetector("benchmark-1", "agent-1", "Quality", T0.minusSeconds(60)).isEmpty());
+        }
+    }
+}
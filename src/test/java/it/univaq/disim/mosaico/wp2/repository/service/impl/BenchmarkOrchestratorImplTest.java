@@ -4,6 +4,8 @@ import com.langfuse.client.resources.commons.types.TraceWithFullDetails;
 import it.univaq.disim.mosaico.wp2.repository.data.*;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
+import it.univaq.disim.mosaico.wp2.repository.dsl.DefaultKPIFormulaParser;
 import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
 import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
@@ -21,6 +23,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,9 +41,10 @@ import static org.mockito.Mockito.*;
  * 1. Execute benchmark run successfully
  * 2. Handle missing benchmark/agent
  * 3. Handle empty traces
- * 4. Cancel benchmark run
+ * 4. Cancel benchmark run, also before it started or when asked to stop
  * 5. Retry failed benchmark run
  * 6. Verify alert evaluation is called
+ * 7. Recompute KPIs, keeping series KPIs of runs older than their series
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("BenchmarkOrchestratorImpl Tests")
@@ -68,6 +72,22 @@ class BenchmarkOrchestratorImplTest {
     private KPIHistoryRepository kpiHistoryRepository;
     @Mock
     private PerformanceKPIRepository performanceKPIRepository;
+    @Mock
+    private MetricResultCache metricResultCache;
+    @Mock
+    private TextBlobService textBlobService;
+    @Mock
+    private RunMetricAggregator runMetricAggregator;
+    @Mock
+    private KpiSeriesService kpiSeriesService;
+    @Mock
+    private KpiRollupService kpiRollupService;
+    @Mock
+    private LeaderboardService leaderboardService;
+    @Mock
+    private AlertStateService alertStateService;
+    @Mock
+    private RunSummaryService runSummaryService;
 
     @InjectMocks
     private BenchmarkOrchestratorImpl orchestrator;
@@ -165,6 +185,34 @@ class BenchmarkOrchestratorImplTest {
 
             verify(runManager).cancelRun("run-789");
         }
+
+        @Test
+        @DisplayName("Should not execute a run cancelled before it started")
+        void shouldNotExecuteCancelledRun() {
+            testRun.setStatus(RunStatus.CANCELLED);
+            when(runManager.findById("run-789")).thenReturn(Optional.of(testRun));
+
+            BenchmarkRun result = orchestrator.executeBenchmarkRun("run-789");
+
+            assertEquals(RunStatus.CANCELLED, result.getStatus());
+            verify(runManager, never()).startRun(anyString());
+            verifyNoInteractions(langfuseService);
+        }
+
+        @Test
+        @DisplayName("Should record the cancellation of a run asked to stop before it started")
+        void shouldCancelRequestedRun() {
+            BenchmarkRun cancelled = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.SCHEDULED);
+            cancelled.cancel();
+            when(runManager.cancelRun("run-789")).thenReturn(cancelled);
+
+            orchestrator.requestCancel("run-789");
+            BenchmarkRun result = orchestrator.executeBenchmarkRun("run-789");
+
+            assertEquals(RunStatus.CANCELLED, result.getStatus());
+            verify(runManager, never()).startRun(anyString());
+            verifyNoInteractions(langfuseService);
+        }
     }
 
     @Nested
@@ -217,6 +265,56 @@ class BenchmarkOrchestratorImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("recomputeKpis Tests")
+    class RecomputeKpisTests {
+
+        @Test
+        @DisplayName("Should return no KPI values when none are configured")
+        void shouldReturnEmptyWhenNoKpis() {
+            when(runManager.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(benchmarkService.findById("benchmark-123")).thenReturn(Optional.of(testBenchmark));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(testAgent));
+            when(performanceKPIRepository.findByBenchmark_Id("benchmark-123")).thenReturn(Collections.emptyList());
+
+            assertTrue(orchestrator.recomputeKpis("run-789").isEmpty());
+            verifyNoInteractions(kpiHistoryRepository, runSummaryService);
+        }
+
+        @Test
+        @DisplayName("Should throw when run not found")
+        void shouldThrowWhenRunNotFound() {
+            when(runManager.findById("unknown")).thenReturn(Optional.empty());
+
+            assertThrows(IllegalArgumentException.class, () -> orchestrator.recomputeKpis("unknown"));
+        }
+
+        @Test
+        @DisplayName("Should keep series KPIs of a run older than the latest one in the series")
+        void shouldKeepSeriesKpisOfOlderRun() throws Exception {
+            PerformanceKPI kpi = new PerformanceKPI();
+            kpi.setId("kpi-1");
+            kpi.setDescription("quality");
+            CompiledKpiFormula formula = (CompiledKpiFormula) new DefaultKPIFormulaParser()
+                .parse("MOVING_AVG(ROUGE, 3)").getFormula();
+            KPIHistory history = new KPIHistory("benchmark-123", "agent-456", "quality", 0.4);
+            history.setId("history-1");
+
+            when(runManager.findById("run-789")).thenReturn(Optional.of(testRun));
+            when(benchmarkService.findById("benchmark-123")).thenReturn(Optional.of(testBenchmark));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(testAgent));
+            when(performanceKPIRepository.findByBenchmark_Id("benchmark-123")).thenReturn(List.of(kpi));
+            when(kpiFormulaDslService.buildFromSpecification(any())).thenReturn(formula);
+            when(kpiSeriesService.isLatestRun(formula, testRun, "kpi-1")).thenReturn(false);
+            when(kpiHistoryRepository.findFirstByRunIdAndKpiName("run-789", "quality")).thenReturn(Optional.of(history));
+
+            assertEquals(Map.of("quality", 0.4), orchestrator.recomputeKpis("run-789"));
+            verify(kpiSeriesService, never()).evaluate(any(), any(), any(), any());
+            verify(kpiHistoryRepository, never()).save(any());
+            verifyNoInteractions(kpiRollupService, leaderboardService, alertStateService);
+        }
+    }
+
     @Nested
     @DisplayName("executeBenchmarkRunAsync Tests")
     class AsyncExecutionTests {
@@ -3,7 +3,11 @@ package it.univaq.disim.mosaico.wp2.repository.service.impl;
 import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunListItem;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KeysetCursor;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -13,7 +17,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,9 +35,11 @@ import static org.mockito.Mockito.*;
  * 2. Start run and verify status change
  * 3. Complete run with metrics
  * 4. Fail run with error message
- * 5. Cancel run
+ * 5. Cancel run, keeping the status of a finished run
  * 6. Update progress
  * 7. Find operations (by id, benchmark, agent, status)
+ * 8. Keyset pages of runs and DB-side history limits
+ * 9. Refresh the run summary on each transition
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("BenchmarkRunManagerImpl Tests")
@@ -39,6 +47,8 @@ class BenchmarkRunManagerImplTest {
 
     @Mock
     private BenchmarkRunRepository repository;
+    @Mock
+    private RunSummaryService runSummaryService;
 
     @InjectMocks
     private BenchmarkRunManagerImpl manager;
@@ -138,6 +148,7 @@ class BenchmarkRunManagerImplTest {
             assertEquals(100, result.getTracesProcessed());
             assertEquals(500, result.getMetricsComputed());
             assertNotNull(result.getCompletedAt());
+            verify(runSummaryService).refresh(result);
         }
 
         @Test
@@ -167,6 +178,7 @@ class BenchmarkRunManagerImplTest {
             assertEquals(RunStatus.FAILED, result.getStatus());
             assertEquals("Connection timeout", result.getErrorMessage());
             assertNotNull(result.getCompletedAt());
+            verify(runSummaryService).refresh(result);
         }
     }
 
@@ -186,6 +198,18 @@ class BenchmarkRunManagerImplTest {
             assertEquals(RunStatus.CANCELLED, result.getStatus());
             assertNotNull(result.getCompletedAt());
         }
+
+        @Test
+        @DisplayName("Should keep the status of a finished run")
+        void shouldNotCancelFinishedRun() {
+            testRun.complete();
+            when(repository.findById("run-789")).thenReturn(Optional.of(testRun));
+
+            BenchmarkRun result = manager.cancelRun("run-789");
+
+            assertEquals(RunStatus.COMPLETED, result.getStatus());
+            verify(repository, never()).save(any(BenchmarkRun.class));
+        }
     }
 
     @Nested
@@ -303,13 +327,49 @@ class BenchmarkRunManagerImplTest {
         void shouldReturnLimitedRunHistory() {
             BenchmarkRun run1 = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.MANUAL);
             BenchmarkRun run2 = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.SCHEDULED);
-            BenchmarkRun run3 = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.MANUAL);
-            when(repository.findByBenchmarkIdAndAgentId("benchmark-123", "agent-456"))
-                .thenReturn(List.of(run1, run2, run3));
+            when(repository.findHistory("benchmark-123", "agent-456", PageRequest.of(0, 2)))
+                .thenReturn(List.of(run1, run2));
 
             List<BenchmarkRun> result = manager.getRunHistory("benchmark-123", "agent-456", 2);
 
             assertEquals(2, result.size());
         }
     }
+
+    @Nested
+    @DisplayName("findRuns Tests")
+    class FindRunsTests {
+
+        private BenchmarkRunListItem summary(String id, Instant startedAt) {
+            return new BenchmarkRunListItem(id, "benchmark-123", "agent-456", RunStatus.COMPLETED,
+                TriggerType.MANUAL, null, startedAt, null, null, null, 0, null);
+        }
+
+        @Test
+        @DisplayName("Should fetch one extra row and return the cursor of the last one kept")
+        void shouldReturnNextCursor() {
+            Instant startedAt = Instant.parse("2026-01-01T00:00:00Z");
+            when(repository.findSummaries("benchmark-123", null, null, null, 3)).thenReturn(List.of(
+                summary("run-3", startedAt.plusSeconds(2)), summary("run-2", startedAt),
+                summary("run-1", startedAt)));
+
+            CursorPage<BenchmarkRunListItem> page = manager.findRuns("benchmark-123", null, null, null, 2);
+
+            assertEquals(2, page.items().size());
+            assertEquals(new KeysetCursor(startedAt, "run-2"), KeysetCursor.decode(page.nextCursor()));
+        }
+
+        @Test
+        @DisplayName("Should return no cursor on the last page")
+        void shouldEndOnShortPage() {
+            KeysetCursor before = KeysetCursor.of("run-9");
+            when(repository.findSummaries(null, null, RunStatus.PENDING, before, 3))
+                .thenReturn(List.of(summary("run-8", null)));
+
+            CursorPage<BenchmarkRunListItem> page = manager.findRuns(null, null, RunStatus.PENDING, before, 2);
+
+            assertEquals(1, page.items().size());
+            assertNull(page.nextCursor());
+        }
+    }
 }
@@ -0,0 +1,212 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.repository.ScheduleConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for BenchmarkScheduleTimer.
+ *
+ * Test Plan:
+ * 1. Queue enabled schedules at their next run time plus jitter within their cron interval
+ * 2. Fire only due schedules and requeue them at their next run time
+ * 3. Flag run times missed by more than the misfire threshold
+ * 4. Follow schedule changes
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BenchmarkScheduleTimer Tests")
+class BenchmarkScheduleTimerTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-06T10:00:00Z");
+
+    @Mock
+    private DataSource dataSource;
+    @Mock
+    private ScheduleConfigRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ScheduleChanges scheduleChanges;
+    @Mock
+    private BenchmarkScheduledTaskRunner taskRunner;
+
+    private BenchmarkScheduleTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        timer = new BenchmarkScheduleTimer(dataSource, repository, transactionManager, scheduleChanges, taskRunner,
+            60, 5000, 300000, 10000, 0);
+    }
+
+    private static ScheduleConfig schedule(String id, Instant nextRunAt) {
+        ScheduleConfig schedule = new ScheduleConfig(id, "benchmark-1", "agent-" + id, "0 0 * * * *");
+        schedule.setId(id);
+        schedule.setNextRunAt(nextRunAt);
+        return schedule;
+    }
+
+    @Nested
+    @DisplayName("reload Tests")
+    class ReloadTests {
+
+        @Test
+        @DisplayName("Should queue schedules at their next run time")
+        void shouldQueueAtNextRunTime() {
+            when(repository.findByEnabled(true)).thenReturn(List.of(schedule("s1", NOW), schedule("s2", null)));
+
+            timer.reload();
+
+            assertEquals(NOW, timer.fireTime("s1"));
+            assertNull(timer.fireTime("s2"));
+        }
+
+        @Test
+        @DisplayName("Should add the same start jitter within the configured bound")
+        void shouldAddStartJitter() {
+            ScheduleConfig schedule = schedule("s1", NOW);
+            schedule.setStartJitterSeconds(30);
+            when(repository.findByEnabled(true)).thenReturn(List.of(schedule));
+
+            timer.reload();
+            Instant fireAt = timer.fireTime("s1");
+
+            assertFalse(fireAt.isBefore(NOW));
+            assertFalse(fireAt.isAfter(NOW.plusSeconds(30)));
+            // Every leader picks the same fire time
+            assertEquals(fireAt, NOW.plusMillis(timer.jitterMillis(schedule)));
+        }
+
+        @Test
+        @DisplayName("Should spread schedules without a start jitter across a fraction of their cron interval")
+        void shouldSpreadAcrossCronInterval() {
+            BenchmarkScheduleTimer spreading = new BenchmarkScheduleTimer(dataSource, repository, transactionManager,
+                scheduleChanges, taskRunner, 60, 5000, 300000, 10000, 0.5);
+            List<ScheduleConfig> schedules = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                schedules.add(schedule("s" + i, NOW));
+            }
+            when(repository.findByEnabled(true)).thenReturn(schedules);
+
+            spreading.reload();
+
+            Set<Instant> fireTimes = new HashSet<>();
+            for (ScheduleConfig schedule : schedules) {
+                Instant fireAt = spreading.fireTime(schedule.getId());
+                assertFalse(fireAt.isBefore(NOW));
+                // Half of the hourly interval
+                assertTrue(fireAt.isBefore(NOW.plusSeconds(1800)));
+                fireTimes.add(fireAt);
+            }
+            assertTrue(fireTimes.size() > 90);
+        }
+
+        @Test
+        @DisplayName("Should keep the start jitter within the cron interval")
+        void shouldBoundStartJitterByCronInterval() {
+            ScheduleConfig schedule = schedule("s1", NOW);
+            schedule.setCronExpression("0 * * * * *");
+            schedule.setStartJitterSeconds(3600);
+
+            assertTrue(timer.jitterMillis(schedule) < 60_000);
+
+            schedule.setStartJitterSeconds(0);
+            assertEquals(0, timer.jitterMillis(schedule));
+        }
+    }
+
+    @Nested
+    @DisplayName("tick Tests")
+    class TickTests {
+
+        @Test
+        @DisplayName("Should fire due schedules and requeue them at their next run time")
+        void shouldFireDueSchedules() {
+            when(repository.findByEnabled(true))
+                .thenReturn(List.of(schedule("s1", NOW), schedule("s2", NOW.plusSeconds(1))));
+            when(taskRunner.fire("s1", NOW, false))
+                .thenReturn(Optional.of(schedule("s1", NOW.plusSeconds(3600))));
+            timer.reload();
+
+            assertEquals(1, timer.tick(NOW));
+
+            assertEquals(NOW.plusSeconds(3600), timer.fireTime("s1"));
+            assertEquals(NOW.plusSeconds(1), timer.fireTime("s2"));
+            verify(taskRunner, never()).fire(eq("s2"), any(), anyBoolean());
+        }
+
+        @Test
+        @DisplayName("Should flag run times missed by more than the misfire threshold")
+        void shouldFlagMisfire() {
+            when(repository.findByEnabled(true))
+                .thenReturn(List.of(schedule("late", NOW.minusSeconds(61)), schedule("recent", NOW.minusSeconds(60))));
+            when(taskRunner.fire(any(), eq(NOW), anyBoolean())).thenReturn(Optional.empty());
+            timer.reload();
+
+            assertEquals(2, timer.tick(NOW));
+
+            verify(taskRunner).fire("late", NOW, true);
+            verify(taskRunner).fire("recent", NOW, false);
+            assertNull(timer.fireTime("late"));
+        }
+
+        @Test
+        @DisplayName("Should retry a schedule that failed to fire")
+        void shouldRetryFailedFiring() {
+            when(repository.findByEnabled(true)).thenReturn(List.of(schedule("s1", NOW)));
+            when(taskRunner.fire("s1", NOW, false)).thenThrow(new QueryTimeoutException("timeout"));
+            timer.reload();
+
+            timer.tick(NOW);
+
+            assertEquals(NOW.plusMillis(10000), timer.fireTime("s1"));
+        }
+    }
+
+    @Nested
+    @DisplayName("refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Should move changed schedules and drop deleted or disabled ones")
+        void shouldFollowChanges() {
+            ScheduleConfig disabled = schedule("s2", NOW);
+            disabled.setEnabled(false);
+            when(repository.findByEnabled(true))
+                .thenReturn(List.of(schedule("s1", NOW), schedule("s2", NOW), schedule("s3", NOW)));
+            when(repository.findById("s1")).thenReturn(Optional.of(schedule("s1", NOW.plusSeconds(90))));
+            when(repository.findById("s2")).thenReturn(Optional.of(disabled));
+            when(repository.findById("s3")).thenReturn(Optional.empty());
+            when(repository.findById("s4")).thenReturn(Optional.of(schedule("s4", NOW.plusSeconds(5))));
+            timer.reload();
+
+            timer.refresh(Set.of("s1", "s2", "s3", "s4"));
+
+            assertEquals(NOW.plusSeconds(90), timer.fireTime("s1"));
+            assertNull(timer.fireTime("s2"));
+            assertNull(timer.fireTime("s3"));
+            assertEquals(NOW.plusSeconds(5), timer.fireTime("s4"));
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MisfirePolicy;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.ScheduleFiring;
 import it.univaq.disim.mosaico.wp2.repository.repository.ScheduleConfigRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkRunManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -18,6 +23,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,6 +36,8 @@ import static org.mockito.Mockito.*;
  * 4. Find due schedules
  * 5. Record run success/failure
  * 6. Invalid cron expression handling
+ * 7. Fire due schedules, honouring the misfire policy
+ * 8. Create runs linked to their schedule
  */
 @ExtendWith(MockitoExtension.class)
 @DisplayName("BenchmarkSchedulerServiceImpl Tests")
@@ -37,6 +45,10 @@ class BenchmarkSchedulerServiceImplTest {
 
     @Mock
     private ScheduleConfigRepository repository;
+    @Mock
+    private BenchmarkRunManager runManager;
+    @Mock
+    private ScheduleChanges scheduleChanges;
 
     @InjectMocks
     private BenchmarkSchedulerServiceImpl service;
@@ -68,6 +80,7 @@ class BenchmarkSchedulerServiceImplTest {
             assertNotNull(result);
             assertNotNull(result.getNextRunAt());
             verify(repository).save(testSchedule);
+            verify(scheduleChanges).scheduleChanged("schedule-789");
         }
 
         @Test
@@ -174,6 +187,113 @@ class BenchmarkSchedulerServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("fireSchedule Tests")
+    class FireScheduleTests {
+
+        private final Instant now = Instant.parse("2026-03-06T10:00:05Z");
+
+        @BeforeEach
+        void setUpDueSchedule() {
+            testSchedule.setEnabled(true);
+            testSchedule.setNextRunAt(Instant.parse("2026-03-06T10:00:00Z"));
+        }
+
+        @Test
+        @DisplayName("Should fire a due schedule and move to the next run time")
+        void shouldFireDueSchedule() {
+            when(repository.findForUpdate("schedule-789")).thenReturn(Optional.of(testSchedule));
+            when(repository.save(any(ScheduleConfig.class))).thenAnswer(i -> i.getArgument(0));
+
+            Optional<ScheduleFiring> result = service.fireSchedule("schedule-789", now, false);
+
+            assertTrue(result.orElseThrow().runDue());
+            assertEquals(Instant.parse("2026-03-06T11:00:00Z"), result.get().schedule().getNextRunAt());
+            verify(repository, times(1)).save(testSchedule);
+            verify(scheduleChanges, never()).scheduleChanged(anyString());
+            verifyNoInteractions(runManager);
+        }
+
+        @Test
+        @DisplayName("Should skip a misfired run under the SKIP policy")
+        void shouldSkipMisfiredRun() {
+            testSchedule.setMisfirePolicy(MisfirePolicy.SKIP);
+            when(repository.findForUpdate("schedule-789")).thenReturn(Optional.of(testSchedule));
+            when(repository.save(any(ScheduleConfig.class))).thenAnswer(i -> i.getArgument(0));
+
+            Optional<ScheduleFiring> result = service.fireSchedule("schedule-789", now, true);
+
+            assertFalse(result.orElseThrow().runDue());
+            assertEquals(Instant.parse("2026-03-06T11:00:00Z"), result.get().schedule().getNextRunAt());
+        }
+
+        @Test
+        @DisplayName("Should run a misfired run once by default")
+        void shouldRunMisfiredRunOnce() {
+            testSchedule.setNextRunAt(Instant.parse("2026-03-06T07:00:00Z"));
+            when(repository.findForUpdate("schedule-789")).thenReturn(Optional.of(testSchedule));
+            when(repository.save(any(ScheduleConfig.class))).thenAnswer(i -> i.getArgument(0));
+
+            Optional<ScheduleFiring> result = service.fireSchedule("schedule-789", now, true);
+
+            assertTrue(result.orElseThrow().runDue());
+            // The three missed hours are not caught up
+            assertEquals(Instant.parse("2026-03-06T11:00:00Z"), result.get().schedule().getNextRunAt());
+        }
+
+        @Test
+        @DisplayName("Should not fire a schedule that is no longer due")
+        void shouldNotFireScheduleNotDue() {
+            testSchedule.setNextRunAt(now.plusSeconds(3600));
+            when(repository.findForUpdate("schedule-789")).thenReturn(Optional.of(testSchedule));
+
+            Optional<ScheduleFiring> result = service.fireSchedule("schedule-789", now, false);
+
+            assertFalse(result.orElseThrow().runDue());
+            verify(repository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should not fire a disabled schedule")
+        void shouldNotFireDisabledSchedule() {
+            testSchedule.setEnabled(false);
+            when(repository.findForUpdate("schedule-789")).thenReturn(Optional.of(testSchedule));
+
+            Optional<ScheduleFiring> result = service.fireSchedule("schedule-789", now, false);
+
+            assertFalse(result.orElseThrow().runDue());
+        }
+    }
+
+    @Nested
+    @DisplayName("createScheduledRun Tests")
+    class CreateScheduledRunTests {
+
+        @Test
+        @DisplayName("Should create a run linked to the schedule")
+        void shouldCreateLinkedRun() {
+            BenchmarkRun run = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.SCHEDULED);
+            when(repository.findById("schedule-789")).thenReturn(Optional.of(testSchedule));
+            when(runManager.createRun("benchmark-123", "agent-456", TriggerType.SCHEDULED, "scheduler", null))
+                .thenReturn(run);
+
+            Optional<BenchmarkRun> result = service.createScheduledRun("schedule-789");
+
+            assertSame(run, result.orElseThrow());
+            assertEquals("schedule-789", run.getScheduleConfigId());
+        }
+
+        @Test
+        @DisplayName("Should not create a run of a disabled schedule")
+        void shouldNotCreateRunOfDisabledSchedule() {
+            testSchedule.setEnabled(false);
+            when(repository.findById("schedule-789")).thenReturn(Optional.of(testSchedule));
+
+            assertTrue(service.createScheduledRun("schedule-789").isEmpty());
+            verifyNoInteractions(runManager);
+        }
+    }
+
     @Nested
     @DisplayName("enableSchedule Tests")
     class EnableScheduleTests {
@@ -233,6 +353,7 @@ class BenchmarkSchedulerServiceImplTest {
             service.deleteSchedule("schedule-789");
 
             verify(repository).deleteById("schedule-789");
+            verify(scheduleChanges).scheduleChanged("schedule-789");
         }
     }
 
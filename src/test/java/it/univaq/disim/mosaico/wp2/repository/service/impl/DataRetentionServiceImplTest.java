@@ -0,0 +1,178 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.repository.MonitoringConfigRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for DataRetentionServiceImpl.
+ *
+ * Test Plan:
+ * 1. Create the partitions of the coming months for partitioned tables only
+ * 2. Roll up and drop the partitions past the retention period
+ * 3. Take the retention period from the monitoring configurations when set
+ * 4. Create partitions on PostgreSQL even when retention is disabled
+ * 5. Recreate the snapshot partitions of a past time range
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DataRetentionServiceImpl Tests")
+class DataRetentionServiceImplTest {
+
+    private static final Instant NOW = Instant.parse("2026-06-15T12:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private MonitoringConfigRepository monitoringConfigRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DataRetentionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DataRetentionServiceImpl(jdbcTemplate, monitoringConfigRepository, transactionManager,
+            90, 365, 3, true);
+    }
+
+    private void partitioned(String table, boolean partitioned) {
+        when(jdbcTemplate.queryForObject(DataRetentionServiceImpl.IS_PARTITIONED, Long.class, table))
+            .thenReturn(partitioned ? 1L : 0L);
+    }
+
+    @Nested
+    @DisplayName("ensurePartitions Tests")
+    class EnsurePartitionsTests {
+
+        @Test
+        @DisplayName("Should create the coming months of partitioned tables")
+        void shouldCreateUpcomingPartitions() {
+            partitioned(DataRetentionServiceImpl.METRIC_SNAPSHOTS, true);
+            partitioned(DataRetentionServiceImpl.KPI_HISTORY, false);
+            when(jdbcTemplate.queryForObject(DataRetentionServiceImpl.CREATE_PARTITIONS, Integer.class,
+                "metric_snapshots", Date.valueOf(LocalDate.of(2026, 6, 1)), Date.valueOf(LocalDate.of(2026, 9, 1))))
+                .thenReturn(2);
+
+            assertEquals(2, service.ensurePartitions(NOW));
+            verify(jdbcTemplate, never()).queryForObject(eq(DataRetentionServiceImpl.CREATE_PARTITIONS),
+                eq(Integer.class), eq("kpi_history"), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should recreate the snapshot partitions of a past time range")
+        void shouldCreateSnapshotPartitionsOfRange() {
+            when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true);
+            partitioned(DataRetentionServiceImpl.METRIC_SNAPSHOTS, true);
+            when(jdbcTemplate.queryForObject(DataRetentionServiceImpl.CREATE_PARTITIONS, Integer.class,
+                "metric_snapshots", Date.valueOf(LocalDate.of(2025, 11, 1)), Date.valueOf(LocalDate.of(2025, 12, 1))))
+                .thenReturn(2);
+
+            assertEquals(2, service.ensureSnapshotPartitions(Instant.parse("2025-11-28T23:00:00Z"),
+                Instant.parse("2025-12-02T08:00:00Z")));
+        }
+    }
+
+    @Nested
+    @DisplayName("dropExpiredPartitions Tests")
+    class DropExpiredPartitionsTests {
+
+        @Test
+        @DisplayName("Should roll up and drop partitions past the retention period")
+        void shouldDropExpiredPartitions() {
+            when(monitoringConfigRepository.findMaxDataRetentionDays()).thenReturn(null);
+            partitioned(DataRetentionServiceImpl.METRIC_SNAPSHOTS, true);
+            partitioned(DataRetentionServiceImpl.KPI_HISTORY, true);
+            when(jdbcTemplate.queryForList(DataRetentionServiceImpl.LIST_PARTITIONS, String.class, "metric_snapshots"))
+                .thenReturn(List.of("metric_snapshots_p202602", "metric_snapshots_p202603",
+                    "metric_snapshots_p202604", "metric_snapshots_manual"));
+            when(jdbcTemplate.queryForList(DataRetentionServiceImpl.LIST_PARTITIONS, String.class, "kpi_history"))
+                .thenReturn(List.of("kpi_history_p202505", "kpi_history_p202506"));
+            when(jdbcTemplate.update(anyString())).thenReturn(10);
+
+            List<String> dropped = service.dropExpiredPartitions(NOW);
+
+            // Cutoff 2026-03-17 for snapshots, 2025-06-15 for KPI history
+            assertEquals(List.of("metric_snapshots_p202602", "kpi_history_p202505"), dropped);
+            verify(jdbcTemplate).update(contains("FROM metric_snapshots_p202602 s"));
+            verify(jdbcTemplate).update(contains("FROM kpi_history_p202505 h"));
+            verify(jdbcTemplate).execute("DROP TABLE metric_snapshots_p202602");
+            verify(jdbcTemplate).execute("DROP TABLE kpi_history_p202505");
+            verify(jdbcTemplate, times(2)).execute(anyString());
+        }
+
+        @Test
+        @DisplayName("Should use the longest retention of the monitoring configurations")
+        void shouldUseMonitoringConfigRetention() {
+            when(monitoringConfigRepository.findMaxDataRetentionDays()).thenReturn(30);
+            assertEquals(30, service.effectiveRetentionDays());
+
+            when(monitoringConfigRepository.findMaxDataRetentionDays()).thenReturn(null);
+            assertEquals(90, service.effectiveRetentionDays());
+        }
+
+        @Test
+        @DisplayName("Should keep everything when retention is disabled")
+        void shouldKeepEverythingWhenDisabled() {
+            DataRetentionServiceImpl keepAll = new DataRetentionServiceImpl(jdbcTemplate, monitoringConfigRepository,
+                transactionManager, 0, 365, 3, true);
+
+            assertTrue(keepAll.dropExpiredPartitions(NOW).isEmpty());
+            verifyNoInteractions(jdbcTemplate);
+        }
+    }
+
+    @Nested
+    @DisplayName("runRetention Tests")
+    class RunRetentionTests {
+
+        @Test
+        @DisplayName("Should create partitions but drop nothing when retention is disabled")
+        void shouldCreatePartitionsWhenRetentionDisabled() {
+            DataRetentionServiceImpl createOnly = new DataRetentionServiceImpl(jdbcTemplate, monitoringConfigRepository,
+                transactionManager, 90, 365, 3, false);
+            when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true);
+            partitioned(DataRetentionServiceImpl.METRIC_SNAPSHOTS, true);
+            partitioned(DataRetentionServiceImpl.KPI_HISTORY, true);
+            when(jdbcTemplate.queryForObject(eq(DataRetentionServiceImpl.CREATE_PARTITIONS), eq(Integer.class),
+                anyString(), any(), any())).thenReturn(1);
+
+            createOnly.runRetention();
+
+            verify(jdbcTemplate, times(2)).queryForObject(eq(DataRetentionServiceImpl.CREATE_PARTITIONS),
+                eq(Integer.class), anyString(), any(), any());
+            verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), anyString());
+            verifyNoInteractions(monitoringConfigRepository);
+        }
+
+        @Test
+        @DisplayName("Should leave databases other than PostgreSQL untouched")
+        void shouldSkipOtherDatabases() {
+            when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+
+            service.onApplicationReady();
+            service.runRetention();
+
+            verify(jdbcTemplate, times(1)).execute(any(ConnectionCallback.class));
+            verifyNoMoreInteractions(jdbcTemplate);
+        }
+    }
+}
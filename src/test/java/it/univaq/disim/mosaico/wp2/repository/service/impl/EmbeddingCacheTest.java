@@ -0,0 +1,94 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for EmbeddingCache.
+ */
+@DisplayName("EmbeddingCache Tests")
+class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private EmbeddingCache cache;
+
+    private final Function<String, float[]> embedder = text -> {
+        calls.incrementAndGet();
+        float[] v = new float[8];
+        for (int i = 0; i < text.length(); i++) {
+            v[text.charAt(i) % v.length] += 1f;
+        }
+        return v;
+    };
+
+    @AfterEach
+    void tearDown() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should embed each text once")
+    void shouldEmbedOnce() {
+        cache = new EmbeddingCache(tempDir.resolve("embeddings.bin"), "test-model", embedder);
+
+        float[] first = cache.embed("reference answer");
+        float[] second = cache.embed("reference answer");
+
+        assertEquals(1, calls.get());
+        assertArrayEquals(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should reload vectors from disk after reopening")
+    void shouldPersistAcrossReopen() {
+        Path file = tempDir.resolve("embeddings.bin");
+        cache = new EmbeddingCache(file, "test-model", embedder);
+        float[] stored = cache.embed("persisted text");
+        cache.embed("another text");
+        cache.close();
+
+        cache = new EmbeddingCache(file, "test-model", embedder);
+        assertEquals(2, cache.size());
+        assertArrayEquals(stored, cache.lookup("persisted text").orElseThrow());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("Should keep vectors of different models apart")
+    void shouldKeyByModel() {
+        Path file = tempDir.resolve("embeddings.bin");
+        cache = new EmbeddingCache(file, "model-a", embedder);
+        cache.embed("same text");
+        cache.close();
+
+        cache = new EmbeddingCache(file, "model-b", embedder);
+        assertTrue(cache.lookup("same text").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should grow past a single mapped region")
+    void shouldGrowAcrossRegions() {
+        cache = new EmbeddingCache(tempDir.resolve("embeddings.bin"), "test-model", embedder);
+        int n = EmbeddingCache.RECORDS_PER_REGION + 10;
+        for (int i = 0; i < n; i++) {
+            cache.embed("text-" + i);
+        }
+
+        assertEquals(n, cache.size());
+        assertArrayEquals(embedder.apply("text-" + (n - 1)), cache.lookup("text-" + (n - 1)).orElseThrow());
+    }
+}
@@ -0,0 +1,69 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.SemanticSimilarityMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for EmbeddingCosineMetricProvider.
+ */
+class EmbeddingCosineMetricProviderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger embedCalls = new AtomicInteger();
+    private EmbeddingCache cache;
+    private EmbeddingCosineMetricProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EmbeddingCache(tempDir.resolve("embeddings.bin"), "test-model", text -> {
+            embedCalls.incrementAndGet();
+            return text.contains("cat") ? new float[] {1f, 0f} : new float[] {0.6f, 0.8f};
+        });
+        provider = new EmbeddingCosineMetricProvider(cache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void testCosineOfEmbeddings() {
+        Metric metric = provider.compute(null, "a cat", "a dog", null);
+
+        assertEquals(MetricType.SEMANTIC_SIMILARITY, metric.getType());
+        assertEquals(0.6f, metric.getFloatValue().orElseThrow(), 1e-6);
+    }
+
+    @Test
+    void testReferenceEmbeddedOnceAcrossAgents() {
+        provider.compute(null, "a cat", "agent one says cat", null);
+        provider.compute(null, "a cat", "agent two says dog", null);
+
+        assertEquals(3, embedCalls.get());
+    }
+
+    @Test
+    void testBlankTextsScoreZero() {
+        assertEquals(0f, provider.compute(null, "", "a dog", null).getFloatValue().orElseThrow());
+        assertEquals(0, embedCalls.get());
+    }
+
+    @Test
+    void testVersionIncludesModel() {
+        assertEquals("1:test-model", provider.version());
+        assertEquals(SemanticSimilarityMetric.class, provider.key());
+    }
+}
@@ -0,0 +1,67 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+
+/**
+ * Tests for the providers porting the llm-usecase evaluator scores.
+ */
+class EvaluatorMetricProvidersTest {
+
+    private static final String GOLD = "The cats are sitting on the mat";
+    private static final String PRED = "mat on the cat";
+
+    @Test
+    void rougeProvidersUseEvaluatorScoreNames() {
+        Metric rouge1 = new Rouge1FMetricProvider().compute(null, GOLD, PRED, null);
+        Metric rougeL = new RougeLFMetricProvider().compute(null, GOLD, PRED, null);
+
+        assertEquals("rouge1_f", rouge1.getName());
+        assertEquals(MetricType.ROUGE1_F, rouge1.getType());
+        assertEquals(8f / 11f, rouge1.getFloatValue().orElseThrow(), 1e-6f);
+        assertEquals("rougeL_f", rougeL.getName());
+        assertEquals(MetricType.ROUGEL_F, rougeL.getType());
+        assertEquals(4f / 11f, rougeL.getFloatValue().orElseThrow(), 1e-6f);
+    }
+
+    @Test
+    void cosineProvidersFitIdfOnTraceInput() {
+        TraceData trace = new TraceData();
+        trace.input = "a dog ran home";
+        CosinePredGoldMetricProvider gold = new CosinePredGoldMetricProvider();
+        CosinePredSourceMetricProvider source = new CosinePredSourceMetricProvider();
+
+        Metric predGold = gold.compute(null, "the cat ran", "the cat sat at home", trace);
+        Metric predSource = source.compute(null, "the cat ran", "the cat sat at home", trace);
+
+        assertEquals(MetricType.COSINE_PRED_GOLD, predGold.getType());
+        assertEquals(0.4543876f, predGold.getFloatValue().orElseThrow(), 1e-6f);
+        assertEquals(MetricType.COSINE_PRED_SOURCE, predSource.getType());
+        assertEquals(0.2037822f, predSource.getFloatValue().orElseThrow(), 1e-6f);
+        // The source text is not part of the memoization key
+        assertFalse(gold.isCacheable());
+        assertFalse(source.isCacheable());
+    }
+
+    @Test
+    void exactContainsMatchesStrippedReference() {
+        ExactContainsMetricProvider provider = new ExactContainsMetricProvider();
+
+        Metric hit = provider.compute(null, "  on the mat\n", "The cat sat on the mat.", null);
+        Metric miss = provider.compute(null, "On the mat", "The cat sat on the mat.", null);
+        Metric blank = provider.compute(null, "   ", "anything", null);
+
+        assertEquals(MetricType.EXACT_CONTAINS, hit.getType());
+        assertEquals(1f, hit.getFloatValue().orElseThrow());
+        assertEquals(0f, miss.getFloatValue().orElseThrow());
+        assertEquals(0f, blank.getFloatValue().orElseThrow());
+        assertTrue(provider.isCacheable());
+    }
+}
@@ -4,6 +4,7 @@ import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
 import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.RunSummaryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -34,6 +35,8 @@ class EventTriggerServiceImplTest {
 
     @Mock
     private BenchmarkRunRepository runRepository;
+    @Mock
+    private RunSummaryService runSummaryService;
 
     @InjectMocks
     private EventTriggerServiceImpl service;
@@ -72,6 +75,7 @@ class EventTriggerServiceImplTest {
             assertEquals(TriggerType.MANUAL, captor.getValue().getTriggeredBy());
             assertEquals("user@example.com", captor.getValue().getTriggeredByUser());
             assertEquals(RunStatus.PENDING, captor.getValue().getStatus());
+            verify(runSummaryService).refresh(captor.getValue());
         }
 
         @Test
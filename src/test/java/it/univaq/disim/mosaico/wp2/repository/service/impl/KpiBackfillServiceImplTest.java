@@ -0,0 +1,217 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Benchmark;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.KPISpecification;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.PerformanceKPI;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.DefaultKPIFormulaDslService;
+import it.univaq.disim.mosaico.wp2.repository.dsl.DefaultKPIFormulaParser;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.dto.RunMetricMean;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.PerformanceKPIRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AlertStateService;
+import it.univaq.disim.mosaico.wp2.repository.service.KpiRollupService;
+import it.univaq.disim.mosaico.wp2.repository.service.LeaderboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for KpiBackfillServiceImpl.
+ *
+ * Test Plan:
+ * 1. Recompute existing history rows and create missing ones from metric means
+ * 2. Aggregate snapshots for formulas referencing run-level derived metrics
+ * 3. Walk completed runs in keyset batches
+ * 4. Reject unknown KPIs and invalid formulas
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KpiBackfillServiceImpl Tests")
+class KpiBackfillServiceImplTest {
+
+    @Mock
+    private PerformanceKPIRepository performanceKPIRepository;
+    @Mock
+    private BenchmarkRunRepository runRepository;
+    @Mock
+    private MetricSnapshotRepository metricSnapshotRepository;
+    @Mock
+    private KPIHistoryRepository kpiHistoryRepository;
+    @Mock
+    private KpiRollupService kpiRollupService;
+    @Mock
+    private LeaderboardService leaderboardService;
+    @Mock
+    private AlertStateService alertStateService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DefaultKPIFormulaDslService dslService;
+    private PerformanceKPI kpi;
+
+    @BeforeEach
+    void setUp() {
+        dslService = new DefaultKPIFormulaDslService(new DefaultKPIFormulaParser());
+        dslService.registerCustomMetricKeys(RunMetricAggregator.derivedMetricKeys());
+
+        Benchmark benchmark = new Benchmark();
+        benchmark.setId("benchmark-1");
+        kpi = new PerformanceKPI();
+        kpi.setId("kpi-1");
+        kpi.setDescription("Quality");
+        kpi.setBenchmark(benchmark);
+    }
+
+    private KpiBackfillServiceImpl service(int batchSize) {
+        RunMetricAggregator aggregator = new RunMetricAggregator(dslService, "EXACT_CONTAINS", 1.0);
+        return new KpiBackfillServiceImpl(performanceKPIRepository, runRepository, metricSnapshotRepository,
+            kpiHistoryRepository, dslService, aggregator, kpiRollupService, leaderboardService, alertStateService,
+            transactionManager, batchSize);
+    }
+
+    private void useFormula(String dsl) {
+        KPISpecification specification = new KPISpecification();
+        specification.setDslText(dsl);
+        specification.setDslVersion("1.0");
+        kpi.setSpecification(specification);
+        when(performanceKPIRepository.findById("kpi-1")).thenReturn(Optional.of(kpi));
+    }
+
+    private static BenchmarkRun run(String id) {
+        BenchmarkRun run = new BenchmarkRun("benchmark-1", "agent-" + id, TriggerType.MANUAL);
+        run.setId(id);
+        run.setStatus(RunStatus.COMPLETED);
+        run.setCompletedAt(Instant.parse("2026-01-01T00:00:00Z"));
+        return run;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<KPIHistory> savedHistory() {
+        ArgumentCaptor<List<KPIHistory>> saved = ArgumentCaptor.forClass(List.class);
+        verify(kpiHistoryRepository, atLeastOnce()).saveAll(saved.capture());
+        return saved.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    @Nested
+    @DisplayName("backfillKpi Tests")
+    class BackfillKpiTests {
+
+        @Test
+        @DisplayName("Should update existing rows and create missing ones")
+        void shouldUpsertHistory() {
+            useFormula("(ROUGE + BLEU) / 2");
+            when(runRepository.findBatchByBenchmarkIdAndStatus(eq("benchmark-1"), eq(RunStatus.COMPLETED),
+                eq(""), any())).thenReturn(List.of(run("run-1"), run("run-2"), run("run-3")));
+            when(metricSnapshotRepository.findMeanValuesByRunIds(anyCollection(), anyCollection())).thenReturn(List.of(
+                new RunMetricMean("run-1", "ROUGE", 0.8), new RunMetricMean("run-1", "BLEU", 0.4),
+                new RunMetricMean("run-2", "ROUGE", 0.6), new RunMetricMean("run-2", "BLEU", 0.2),
+                new RunMetricMean("run-3", "ROUGE", 0.5)));
+            KPIHistory stale = new KPIHistory("benchmark-1", "agent-run-1", "Quality", 0.1);
+            stale.setRunId("run-1");
+            when(kpiHistoryRepository.findByRunIdInAndKpiName(anyCollection(), eq("Quality")))
+                .thenReturn(List.of(stale));
+
+            KpiBackfillReport report = service(100).backfillKpi("kpi-1");
+
+            assertEquals(3, report.runsProcessed());
+            assertEquals(2, report.valuesWritten());
+            assertEquals(1, report.valuesCreated());
+            assertEquals(1, report.runsSkipped());
+
+            Map<String, KPIHistory> byRun = savedHistory().stream()
+                .collect(Collectors.toMap(KPIHistory::getRunId, Function.identity()));
+            assertSame(stale, byRun.get("run-1"));
+            assertEquals(0.6, stale.getValue(), 1e-9);
+            assertEquals("kpi-1", stale.getKpiId());
+            KPIHistory created = byRun.get("run-2");
+            assertEquals(0.4, created.getValue(), 1e-9);
+            assertEquals("agent-run-2", created.getAgentId());
+            assertEquals(Instant.parse("2026-01-01T00:00:00Z"), created.getRecordedAt());
+            verify(leaderboardService).record(argThat(changes -> changes.size() == 2));
+            verify(alertStateService).record(argThat(changes -> changes.size() == 2));
+            verify(metricSnapshotRepository, never()).findByRunIdIn(anyCollection());
+        }
+
+        @Test
+        @DisplayName("Should aggregate snapshots for derived run-level metrics")
+        void shouldAggregateDerivedMetrics() {
+            useFormula("COST_TOTAL * 1000");
+            when(runRepository.findBatchByBenchmarkIdAndStatus(anyString(), any(), anyString(), any()))
+                .thenReturn(List.of(run("run-1")));
+            when(metricSnapshotRepository.findByRunIdIn(anyCollection())).thenReturn(List.of(
+                new MetricSnapshot("run-1", MetricType.COST, "COST", 0.002),
+                new MetricSnapshot("run-1", MetricType.COST, "COST", 0.003)));
+
+            KpiBackfillReport report = service(100).backfillKpi("kpi-1");
+
+            assertEquals(1, report.valuesWritten());
+            assertEquals(5.0, savedHistory().get(0).getValue(), 1e-9);
+            verify(metricSnapshotRepository, never()).findMeanValuesByRunIds(anyCollection(), anyCollection());
+        }
+
+        @Test
+        @DisplayName("Should continue after the last run of a full batch")
+        void shouldWalkKeysetBatches() {
+            useFormula("ROUGE");
+            when(runRepository.findBatchByBenchmarkIdAndStatus(anyString(), any(), eq(""), any()))
+                .thenReturn(List.of(run("run-1"), run("run-2")));
+            when(runRepository.findBatchByBenchmarkIdAndStatus(anyString(), any(), eq("run-2"), any()))
+                .thenReturn(List.of(run("run-3")));
+            when(metricSnapshotRepository.findMeanValuesByRunIds(anyCollection(), anyCollection()))
+                .thenAnswer(invocation -> {
+                    List<RunMetricMean> means = new ArrayList<>();
+                    for (Object runId : invocation.<List<?>>getArgument(0)) {
+                        means.add(new RunMetricMean((String) runId, "ROUGE", 0.5));
+                    }
+                    return means;
+                });
+
+            KpiBackfillReport report = service(2).backfillKpi("kpi-1");
+
+            assertEquals(3, report.runsProcessed());
+            assertEquals(3, report.valuesCreated());
+            verify(kpiHistoryRepository, times(2)).saveAll(any());
+        }
+
+        @Test
+        @DisplayName("Should reject unknown KPIs and invalid formulas")
+        void shouldRejectInvalidInput() {
+            KpiBackfillServiceImpl service = service(100);
+            when(performanceKPIRepository.findById("missing")).thenReturn(Optional.empty());
+            assertThrows(IllegalArgumentException.class, () -> service.backfillKpi("missing"));
+
+            useFormula("ROUGE +");
+            assertThrows(IllegalArgumentException.class, () -> service.backfillKpi("kpi-1"));
+            verifyNoInteractions(runRepository);
+        }
+    }
+}
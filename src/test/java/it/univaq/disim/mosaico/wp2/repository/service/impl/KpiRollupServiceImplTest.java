@@ -0,0 +1,179 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiRollup;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RollupResolution;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiBucketStats;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrend;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for KpiRollupServiceImpl.
+ *
+ * Test Plan:
+ * 1. Record changes once per bucket and resolution
+ * 2. Re-aggregate a bucket from the history when an extreme is replaced,
+ *    locking a bucket another run already inserted
+ * 3. Serve raw values when they fit the point budget, rollups otherwise
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KpiRollupServiceImpl Tests")
+class KpiRollupServiceImplTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-04T10:15:00Z");
+
+    @Mock
+    private KpiRollupRepository rollupRepository;
+    @Mock
+    private KPIHistoryRepository kpiHistoryRepository;
+
+    private KpiRollupServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new KpiRollupServiceImpl(rollupRepository, kpiHistoryRepository);
+    }
+
+    private static KpiValueChange change(Instant recordedAt, Double previousValue, double value) {
+        return new KpiValueChange("benchmark-1", "agent-1", "Quality", recordedAt, previousValue, value);
+    }
+
+    @Nested
+    @DisplayName("record Tests")
+    class RecordTests {
+
+        @Test
+        @DisplayName("Should update each bucket once per call")
+        void shouldGroupByBucket() {
+            when(rollupRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), anyString(), any()))
+                .thenReturn(1);
+
+            service.record(List.of(change(T0, null, 0.4), change(T0.plusSeconds(60), null, 0.8),
+                change(T0.plus(2, ChronoUnit.HOURS), null, 0.6)));
+
+            ArgumentCaptor<KpiRollup> saved = ArgumentCaptor.forClass(KpiRollup.class);
+            verify(rollupRepository, times(4)).save(saved.capture());
+            KpiRollup hour = saved.getAllValues().stream()
+                .filter(r -> r.getResolution() == RollupResolution.HOUR && r.getSampleCount() == 2)
+                .findFirst().orElseThrow();
+            assertEquals(0.6, hour.getMeanValue(), 1e-9);
+            assertEquals(0.8, hour.getLastValue());
+            KpiRollup week = saved.getAllValues().stream()
+                .filter(r -> r.getResolution() == RollupResolution.WEEK).findFirst().orElseThrow();
+            assertEquals(3L, week.getSampleCount());
+            verify(rollupRepository, never()).findForUpdate(anyString(), anyString(), anyString(), any(), any());
+            verifyNoInteractions(kpiHistoryRepository);
+        }
+
+        @Test
+        @DisplayName("Should re-aggregate a bucket whose extreme was replaced")
+        void shouldRecomputeLostExtreme() {
+            KpiRollup rollup = new KpiRollup("benchmark-1", "agent-1", "Quality", RollupResolution.HOUR,
+                RollupResolution.HOUR.bucketStart(T0));
+            rollup.add(0.9, T0);
+            rollup.add(0.5, T0.plusSeconds(60));
+            when(rollupRepository.findForUpdate(anyString(), anyString(), anyString(), any(), any()))
+                .thenReturn(Optional.of(rollup));
+            when(kpiHistoryRepository.findStatsForKpiBetween(eq("benchmark-1"), eq("agent-1"), eq("Quality"), any(), any()))
+                .thenReturn(new KpiBucketStats(2L, 0.3, 0.5, 0.8));
+
+            service.record(List.of(change(T0, 0.9, 0.3)));
+
+            assertEquals(0.3, rollup.getMinValue());
+            assertEquals(0.5, rollup.getMaxValue());
+            assertEquals(0.4, rollup.getMeanValue(), 1e-9);
+            verify(rollupRepository, times(3)).save(rollup);
+            verify(kpiHistoryRepository, times(3)).findStatsForKpiBetween(anyString(), anyString(), anyString(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("getTrend Tests")
+    class GetTrendTests {
+
+        @Test
+        @DisplayName("Should return raw values when they fit the budget")
+        void shouldReturnRawValues() {
+            KPIHistory history = new KPIHistory("benchmark-1", "agent-1", "Quality", 0.7);
+            when(kpiHistoryRepository.countHistoryForKpiSince(eq("benchmark-1"), eq("agent-1"), eq("Quality"), any()))
+                .thenReturn(1L);
+            when(kpiHistoryRepository.findHistoryForKpiSince(eq("benchmark-1"), eq("agent-1"), eq("Quality"), any()))
+                .thenReturn(List.of(history));
+
+            KpiTrend trend = service.getTrend("benchmark-1", "agent-1", "Quality", 7, 100);
+
+            assertEquals("RAW", trend.resolution());
+            assertFalse(trend.downsampled());
+            assertEquals(1, trend.points().size());
+            assertEquals(0.7, trend.points().get(0).value());
+            verifyNoInteractions(rollupRepository);
+        }
+
+        @Test
+        @DisplayName("Should read the finest resolution that fits the budget")
+        void shouldChooseResolution() {
+            when(kpiHistoryRepository.countHistoryForKpiSince(anyString(), anyString(), anyString(), any()))
+                .thenReturn(100_000L);
+            List<KpiRollup> rollups = new ArrayList<>();
+            for (int day = 0; day < 30; day++) {
+                KpiRollup rollup = new KpiRollup("benchmark-1", "agent-1", "Quality", RollupResolution.DAY,
+                    T0.truncatedTo(ChronoUnit.DAYS).plus(day, ChronoUnit.DAYS));
+                rollup.add(day, rollup.getBucketStart());
+                rollups.add(rollup);
+            }
+            when(rollupRepository.findSeriesSince(eq("benchmark-1"), eq("agent-1"), eq("Quality"),
+                eq(RollupResolution.DAY), any())).thenReturn(rollups);
+
+            KpiTrend trend = service.getTrend("benchmark-1", "agent-1", "Quality", 30, 100);
+
+            assertEquals("DAY", trend.resolution());
+            assertFalse(trend.downsampled());
+            assertEquals(30, trend.points().size());
+            verify(kpiHistoryRepository, never()).findHistoryForKpiSince(anyString(), anyString(), anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Should downsample rollups that exceed the budget")
+        void shouldDownsampleRollups() {
+            when(kpiHistoryRepository.countHistoryForKpiSince(anyString(), anyString(), anyString(), any()))
+                .thenReturn(100_000L);
+            List<KpiRollup> rollups = new ArrayList<>();
+            for (int week = 0; week < 20; week++) {
+                KpiRollup rollup = new KpiRollup("benchmark-1", "agent-1", "Quality", RollupResolution.WEEK,
+                    T0.plus(week * 7L, ChronoUnit.DAYS));
+                rollup.add(Math.sin(week), rollup.getBucketStart());
+                rollups.add(rollup);
+            }
+            when(rollupRepository.findSeriesSince(anyString(), anyString(), anyString(),
+                eq(RollupResolution.WEEK), any())).thenReturn(rollups);
+
+            KpiTrend trend = service.getTrend("benchmark-1", "agent-1", "Quality", 140, 10);
+
+            assertEquals("WEEK", trend.resolution());
+            assertTrue(trend.downsampled());
+            assertEquals(10, trend.points().size());
+        }
+    }
+}
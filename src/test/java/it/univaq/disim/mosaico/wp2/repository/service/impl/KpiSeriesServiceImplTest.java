@@ -0,0 +1,128 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.KpiSeriesState;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.CompiledKpiFormula;
+import it.univaq.disim.mosaico.wp2.repository.dsl.DefaultKPIFormulaParser;
+import it.univaq.disim.mosaico.wp2.repository.dsl.WindowFunction;
+import it.univaq.disim.mosaico.wp2.repository.repository.KpiSeriesStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for KpiSeriesServiceImpl.
+ *
+ * Test Plan:
+ * 1. Create the state of a new series, inserting it before it is updated,
+ *    and advance an existing one
+ * 2. Rank an agent against the other agents' latest values
+ * 3. Leave the series untouched when a metric is missing
+ * 4. Tell whether a run is the latest sample of the series
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KpiSeriesServiceImpl Tests")
+class KpiSeriesServiceImplTest {
+
+    @Mock
+    private KpiSeriesStateRepository stateRepository;
+
+    private KpiSeriesServiceImpl service;
+    private BenchmarkRun run;
+
+    @BeforeEach
+    void setUp() {
+        service = new KpiSeriesServiceImpl(stateRepository);
+        run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.MANUAL);
+        run.setId("run-2");
+    }
+
+    private static CompiledKpiFormula compile(String dsl) {
+        return (CompiledKpiFormula) new DefaultKPIFormulaParser().parse(dsl).getFormula();
+    }
+
+    @Test
+    @DisplayName("Should create the state of a new series")
+    void shouldCreateState() {
+        when(stateRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), anyString(),
+            anyString(), any())).thenReturn(1);
+
+        double value = service.evaluate(compile("DELTA_PREV(ROUGE)"), Map.of("ROUGE", 0.7), run, "kpi-1");
+
+        assertEquals(0.0, value);
+        ArgumentCaptor<KpiSeriesState> saved = ArgumentCaptor.forClass(KpiSeriesState.class);
+        verify(stateRepository).save(saved.capture());
+        assertEquals("DELTA_PREV(ROUGE)", saved.getValue().getTermKey());
+        assertEquals("agent-1", saved.getValue().getAgentId());
+        assertEquals(0.7, saved.getValue().getLastValue());
+        assertEquals("run-2", saved.getValue().getLastRunId());
+        assertNotNull(saved.getValue().getId());
+        verify(stateRepository, never()).findForUpdate(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should advance an existing series")
+    void shouldAdvanceState() {
+        KpiSeriesState state = new KpiSeriesState("benchmark-1", "agent-1", "kpi-1", "MOVING_AVG(ROUGE, 2)",
+            WindowFunction.MOVING_AVG, 2);
+        state.accept("run-1", 0.5);
+        when(stateRepository.findForUpdate("benchmark-1", "kpi-1", "MOVING_AVG(ROUGE, 2)", "agent-1"))
+            .thenReturn(Optional.of(state));
+
+        double value = service.evaluate(compile("ROUGE - MOVING_AVG(ROUGE, 2)"), Map.of("ROUGE", 0.9), run, "kpi-1");
+
+        assertEquals(0.2, value, 1e-9);
+        assertEquals(2L, state.getSampleCount());
+        verify(stateRepository).save(state);
+    }
+
+    @Test
+    @DisplayName("Should rank against the other agents of the benchmark")
+    void shouldRankAgents() {
+        when(stateRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), anyString(),
+            anyString(), any())).thenReturn(1);
+        when(stateRepository.countHigherValues("benchmark-1", "kpi-1", "RANK_IN_BENCHMARK(ROUGE)", "agent-1", 0.6))
+            .thenReturn(2L);
+
+        assertEquals(3.0, service.evaluate(compile("RANK_IN_BENCHMARK(ROUGE)"), Map.of("ROUGE", 0.6), run, "kpi-1"));
+    }
+
+    @Test
+    @DisplayName("Should not touch the series when a metric is missing")
+    void shouldSkipMissingMetrics() {
+        CompiledKpiFormula formula = compile("EWMA(ROUGE, 0.5)");
+
+        assertThrows(IllegalArgumentException.class, () -> service.evaluate(formula, Map.of(), run, "kpi-1"));
+        verifyNoInteractions(stateRepository);
+    }
+
+    @Test
+    @DisplayName("Should only let the latest run of a series be evaluated again")
+    void shouldDetectLatestRun() {
+        KpiSeriesState state = new KpiSeriesState("benchmark-1", "agent-1", "kpi-1", "EWMA(ROUGE, 0.5)",
+            WindowFunction.EWMA, 0.5);
+        state.accept("run-2", 0.5);
+        when(stateRepository.findByBenchmarkIdAndKpiIdAndTermKeyAndAgentId(
+            "benchmark-1", "kpi-1", "EWMA(ROUGE, 0.5)", "agent-1")).thenReturn(Optional.of(state));
+        CompiledKpiFormula formula = compile("EWMA(ROUGE, 0.5)");
+
+        assertTrue(service.isLatestRun(formula, run, "kpi-1"));
+
+        state.accept("run-3", 0.9);
+        assertFalse(service.isLatestRun(formula, run, "kpi-1"));
+        verify(stateRepository, never()).save(any());
+    }
+}
@@ -0,0 +1,161 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.KPIHistory;
+import it.univaq.disim.mosaico.wp2.repository.data.LeaderboardEntry;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.LeaderboardScore;
+import it.univaq.disim.mosaico.wp2.repository.dto.CursorPage;
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiValueChange;
+import it.univaq.disim.mosaico.wp2.repository.dto.Leaderboard;
+import it.univaq.disim.mosaico.wp2.repository.dto.LeaderboardRow;
+import it.univaq.disim.mosaico.wp2.repository.repository.KPIHistoryRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.LeaderboardEntryRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for LeaderboardServiceImpl.
+ *
+ * Test Plan:
+ * 1. Fold written KPI values into one entry per benchmark, KPI and agent,
+ *    inserting missing entries before they are updated
+ * 2. Recompute a best value lost to a lower replacement from the history
+ * 3. Serve top-K and rank-of-agent reads
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LeaderboardServiceImpl Tests")
+class LeaderboardServiceImplTest {
+
+    private static final Instant T0 = Instant.parse("2026-03-04T10:15:00Z");
+
+    @Mock
+    private LeaderboardEntryRepository entryRepository;
+    @Mock
+    private KPIHistoryRepository kpiHistoryRepository;
+
+    @InjectMocks
+    private LeaderboardServiceImpl service;
+
+    private static KpiValueChange change(String agentId, Double previousValue, double value, Instant recordedAt) {
+        return new KpiValueChange("benchmark-1", agentId, "Quality", recordedAt, previousValue, value);
+    }
+
+    private static LeaderboardEntry entry(String agentId, double latest, double best) {
+        LeaderboardEntry entry = new LeaderboardEntry("benchmark-1", "Quality", agentId);
+        entry.record(best, null, T0);
+        entry.record(latest, null, T0.plusSeconds(60));
+        return entry;
+    }
+
+    @Nested
+    @DisplayName("record Tests")
+    class RecordTests {
+
+        @Test
+        @DisplayName("Should create one entry per agent and apply its values in order")
+        void shouldCreateEntries() {
+            when(entryRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(), any())).thenReturn(1);
+
+            service.record(List.of(
+                change("agent-1", null, 0.5, T0),
+                change("agent-1", null, 0.7, T0.plusSeconds(60)),
+                change("agent-2", null, 0.4, T0),
+                change("agent-2", null, Double.NaN, T0.plusSeconds(60))));
+
+            ArgumentCaptor<LeaderboardEntry> saved = ArgumentCaptor.forClass(LeaderboardEntry.class);
+            verify(entryRepository, times(2)).save(saved.capture());
+            LeaderboardEntry first = saved.getAllValues().get(0);
+            assertEquals("agent-1", first.getAgentId());
+            assertEquals(0.7, first.getLatestValue());
+            assertEquals(0.7, first.getBestValue());
+            assertEquals(0.4, saved.getAllValues().get(1).getLatestValue());
+            assertNotNull(first.getId());
+            verify(entryRepository, never()).findForUpdate(anyString(), anyString(), anyString());
+            verifyNoInteractions(kpiHistoryRepository);
+        }
+
+        @Test
+        @DisplayName("Should recompute the best value when it is replaced by a lower one")
+        void shouldRecomputeLostBest() {
+            LeaderboardEntry existing = entry("agent-1", 0.5, 0.9);
+            when(entryRepository.findForUpdate("benchmark-1", "Quality", "agent-1")).thenReturn(Optional.of(existing));
+            KPIHistory best = new KPIHistory("benchmark-1", "agent-1", "Quality", 0.6);
+            best.setRecordedAt(T0.minusSeconds(60));
+            when(kpiHistoryRepository.findBestForKpi("benchmark-1", "agent-1", "Quality"))
+                .thenReturn(Optional.of(best));
+
+            service.record(List.of(change("agent-1", 0.9, 0.3, T0)));
+
+            assertEquals(0.6, existing.getBestValue());
+            assertEquals(T0.minusSeconds(60), existing.getBestRecordedAt());
+            assertEquals(0.5, existing.getLatestValue());
+            verify(entryRepository).save(existing);
+        }
+    }
+
+    @Nested
+    @DisplayName("read Tests")
+    class ReadTests {
+
+        @Test
+        @DisplayName("Should number the top agents and report the leaderboard size")
+        void shouldReturnTop() {
+            when(entryRepository.findTopByBest("benchmark-1", "Quality", PageRequest.of(0, 2)))
+                .thenReturn(List.of(entry("agent-2", 0.5, 0.9), entry("agent-1", 0.8, 0.8)));
+            when(entryRepository.countByBenchmarkIdAndKpiName("benchmark-1", "Quality")).thenReturn(5L);
+
+            Leaderboard leaderboard = service.getTop("benchmark-1", "Quality", LeaderboardScore.BEST, 2);
+
+            assertEquals(5, leaderboard.agentCount());
+            assertEquals(List.of(1L, 2L), leaderboard.rows().stream().map(LeaderboardRow::rank).toList());
+            assertEquals("agent-2", leaderboard.rows().get(0).agentId());
+            verify(entryRepository, never()).findTopByLatest(anyString(), anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Should clamp the top-K limit")
+        void shouldClampLimit() {
+            service.getTop("benchmark-1", "Quality", LeaderboardScore.LATEST, 1_000_000);
+
+            verify(entryRepository).findTopByLatest("benchmark-1", "Quality", PageRequest.of(0, CursorPage.MAX_LIMIT));
+        }
+
+        @Test
+        @DisplayName("Should rank an agent after the entries ahead of it")
+        void shouldFindRank() {
+            when(entryRepository.findByBenchmarkIdAndKpiNameAndAgentId("benchmark-1", "Quality", "agent-1"))
+                .thenReturn(Optional.of(entry("agent-1", 0.8, 0.9)));
+            when(entryRepository.countAheadByLatest("benchmark-1", "Quality", 0.8, "agent-1")).thenReturn(3L);
+
+            LeaderboardRow row = service.findRank("benchmark-1", "Quality", "agent-1", LeaderboardScore.LATEST)
+                .orElseThrow();
+
+            assertEquals(4, row.rank());
+            assertEquals(0.9, row.bestValue());
+        }
+
+        @Test
+        @DisplayName("Should return empty for an agent without values")
+        void shouldReturnEmptyRank() {
+            when(entryRepository.findByBenchmarkIdAndKpiNameAndAgentId("benchmark-1", "Quality", "agent-9"))
+                .thenReturn(Optional.empty());
+
+            assertTrue(service.findRank("benchmark-1", "Quality", "agent-9", LeaderboardScore.BEST).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+
+/**
+ * Tests for LengthRatioMetricProvider, including golden values from the
+ * Python evaluator's report.
+ */
+class LengthRatioMetricProviderTest {
+
+    private static final Path EVAL_REPORT = Path.of("llm-usecase", "eval_report_train.csv");
+
+    private final LengthRatioMetricProvider provider = new LengthRatioMetricProvider();
+
+    @Test
+    void matchesEvaluatorReport() throws IOException {
+        List<String> lines = Files.readAllLines(EVAL_REPORT);
+        List<String> header = List.of(lines.get(0).split(","));
+        int goldLen = header.indexOf("gold_len");
+        int predLen = header.indexOf("pred_len");
+        int lenRatio = header.indexOf("len_ratio");
+
+        int rows = 0;
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            double expected = Double.parseDouble(columns[lenRatio]);
+            double actual = LengthRatioMetricProvider.lengthRatio(
+                Integer.parseInt(columns[predLen]), Integer.parseInt(columns[goldLen]));
+            assertEquals(expected, actual, 0.0, () -> "len_ratio mismatch for trace " + columns[0]);
+            rows++;
+        }
+        assertTrue(rows > 600);
+    }
+
+    @Test
+    void computeUsesStrippedCodePointLengths() {
+        Metric metric = provider.compute(null, "  perché  ", " 😀 ok\n", null);
+
+        assertEquals("len_ratio", metric.getName());
+        assertEquals(MetricType.LEN_RATIO, metric.getType());
+        // "😀 ok" is 4 code points, "perché" is 6
+        assertEquals(0.667f, metric.getFloatValue().orElseThrow(), 1e-6f);
+    }
+
+    @Test
+    void roundsLikePython() {
+        // 1/16 = 0.0625 is an exact tie: Python's round() goes to the even digit
+        assertEquals(0.062, LengthRatioMetricProvider.lengthRatio(1, 16));
+        assertEquals(0.067, LengthRatioMetricProvider.lengthRatio(1, 15));
+        // Empty texts fall back to 1e-6 / 1
+        assertEquals(0.0, LengthRatioMetricProvider.lengthRatio(0, 0));
+    }
+}
@@ -0,0 +1,59 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.dto.KpiTrendPoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for Lttb.
+ *
+ * Test Plan:
+ * 1. Short series are returned unchanged
+ * 2. Long series are reduced to the threshold keeping the end points and peaks
+ */
+@DisplayName("Lttb Tests")
+class LttbTest {
+
+    private static List<KpiTrendPoint> series(double... values) {
+        List<KpiTrendPoint> points = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            points.add(new KpiTrendPoint(Instant.ofEpochSecond(i * 60L), values[i], values[i], values[i], values[i], 1));
+        }
+        return points;
+    }
+
+    @Test
+    @DisplayName("Should return short series unchanged")
+    void shouldKeepShortSeries() {
+        List<KpiTrendPoint> points = series(1, 2, 3);
+
+        assertSame(points, Lttb.downsample(points, 5));
+        assertSame(points, Lttb.downsample(points, 2));
+    }
+
+    @Test
+    @DisplayName("Should keep the end points and the peaks")
+    void shouldKeepPeaks() {
+        double[] values = new double[1000];
+        values[250] = 10;
+        values[750] = -10;
+        List<KpiTrendPoint> points = series(values);
+
+        List<KpiTrendPoint> sampled = Lttb.downsample(points, 20);
+
+        assertEquals(20, sampled.size());
+        assertSame(points.get(0), sampled.get(0));
+        assertSame(points.get(999), sampled.get(19));
+        assertTrue(sampled.contains(points.get(250)));
+        assertTrue(sampled.contains(points.get(750)));
+        for (int i = 1; i < sampled.size(); i++) {
+            assertTrue(sampled.get(i).timestamp().isAfter(sampled.get(i - 1).timestamp()));
+        }
+    }
+}
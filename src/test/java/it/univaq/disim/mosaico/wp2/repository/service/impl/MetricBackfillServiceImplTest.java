@@ -0,0 +1,228 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BackfillReport;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.AgentService;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricSnapshotArchiveService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for MetricBackfillServiceImpl.
+ *
+ * Test Plan:
+ * 1. Re-score a run with a selected provider and recompute its KPIs
+ * 2. Replace snapshots of re-scored metric types only
+ * 3. Reject unknown providers and providers that read the trace
+ * 4. Leave providers that read the trace out of a default re-score
+ * 5. Restore the snapshots of an archived run while re-scoring it, skipping
+ *    runs that cannot be restored
+ * 6. Keep the default worker count below the connection pool size
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MetricBackfillServiceImpl Tests")
+class MetricBackfillServiceImplTest {
+
+    @Mock
+    private BenchmarkRunRepository runRepository;
+    @Mock
+    private BenchmarkResultRepository resultRepository;
+    @Mock
+    private AgentService agentService;
+    @Mock
+    private MetricResultCache metricResultCache;
+    @Mock
+    private TextBlobService textBlobService;
+    @Mock
+    private BenchmarkOrchestrator orchestrator;
+    @Mock
+    private MetricSnapshotArchiveService archiveService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MetricBackfillServiceImpl service;
+    private BenchmarkRun run;
+
+    @BeforeEach
+    void setUp() {
+        MetricProviderRegistry registry = new MetricProviderRegistry(
+            List.of(new RougeMetricProvider(), new BlueMetricProvider(), new CosinePredSourceMetricProvider()));
+        service = new MetricBackfillServiceImpl(runRepository, resultRepository, agentService, registry,
+            metricResultCache, textBlobService, orchestrator, archiveService, transactionManager, 100, 2, 24);
+
+        run = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.MANUAL);
+        run.setId("run-789");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Nested
+    @DisplayName("rescoreRun Tests")
+    class RescoreRunTests {
+
+        @Test
+        @DisplayName("Should re-score stored results and recompute KPIs")
+        void shouldRescoreStoredResults() {
+            BenchmarkResult first = result("r1", "the cat sat", "the cat sat");
+            BenchmarkResult second = result("r2", "the cat sat", "a dog ran");
+            MetricSnapshot oldRouge = new MetricSnapshot("run-789", MetricType.ROUGE, "ROUGE", 0.1);
+            MetricSnapshot accuracy = new MetricSnapshot("run-789", MetricType.ACCURACY, "ACCURACY", 0.9);
+            first.addMetricSnapshot(oldRouge);
+            first.addMetricSnapshot(accuracy);
+
+            when(runRepository.findById("run-789")).thenReturn(Optional.of(run));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(new Agent()));
+            when(resultRepository.findBatchByRunId(eq("run-789"), eq(""), any()))
+                .thenReturn(List.of(first, second));
+            when(metricResultCache.computeIfAbsent(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+                MetricProvider<?> provider = invocation.getArgument(0);
+                return provider.compute(invocation.getArgument(1), invocation.getArgument(2),
+                    invocation.getArgument(3), (TraceData) invocation.getArgument(4));
+            });
+            when(orchestrator.recomputeKpis("run-789")).thenReturn(Map.of("quality", 0.5));
+
+            BackfillReport report = service.rescoreRun("run-789", List.of("RougeMetric"));
+
+            assertEquals(2, report.resultsProcessed());
+            assertEquals(2, report.snapshotsWritten());
+            assertEquals(0, report.failures());
+            assertEquals(List.of("RougeMetric"), report.providerIds());
+            assertEquals(Map.of("quality", 0.5), report.kpiValuesByRun().get("run-789"));
+
+            assertEquals(2, first.getMetricSnapshots().size());
+            assertFalse(first.getMetricSnapshots().contains(oldRouge));
+            assertTrue(first.getMetricSnapshots().contains(accuracy));
+            MetricSnapshot rescored = first.getMetricSnapshots().stream()
+                .filter(s -> s.getMetricType() == MetricType.ROUGE)
+                .findFirst()
+                .orElseThrow();
+            assertEquals(1.0, rescored.getValue(), 1e-6);
+            verify(textBlobService).resolveTexts(List.of(first, second));
+            verify(resultRepository).saveAll(List.of(first, second));
+        }
+
+        @Test
+        @DisplayName("Should restore an archived run while re-scoring it and archive it again")
+        void shouldRestoreArchivedRun() {
+            when(runRepository.findById("run-789")).thenReturn(Optional.of(run));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(new Agent()));
+            when(archiveService.restoreRun("run-789")).thenReturn(true);
+            when(resultRepository.findBatchByRunId(eq("run-789"), eq(""), any())).thenReturn(List.of());
+
+            service.rescoreRun("run-789", List.of("RougeMetric"));
+
+            InOrder order = inOrder(archiveService, resultRepository, orchestrator);
+            order.verify(archiveService).restoreRun("run-789");
+            order.verify(resultRepository).findBatchByRunId(eq("run-789"), eq(""), any());
+            order.verify(orchestrator).recomputeKpis("run-789");
+            order.verify(archiveService).archiveRun("run-789");
+        }
+
+        @Test
+        @DisplayName("Should skip a run whose archived snapshots cannot be restored")
+        void shouldSkipUnrestorableRun() {
+            BenchmarkRun other = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.MANUAL);
+            other.setId("run-790");
+            when(runRepository.findByBenchmarkIdAndStatus("benchmark-123", RunStatus.COMPLETED))
+                .thenReturn(List.of(run, other));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(new Agent()));
+            when(archiveService.restoreRun("run-789")).thenThrow(new IllegalStateException("no partition"));
+            when(resultRepository.findBatchByRunId(eq("run-790"), eq(""), any())).thenReturn(List.of());
+
+            BackfillReport report = service.rescoreBenchmark("benchmark-123", List.of("RougeMetric"));
+
+            assertEquals(Set.of("run-790"), report.kpiValuesByRun().keySet());
+            verify(resultRepository, never()).findBatchByRunId(eq("run-789"), anyString(), any());
+            verify(orchestrator, never()).recomputeKpis("run-789");
+        }
+
+        @Test
+        @DisplayName("Should reject unknown providers")
+        void shouldRejectUnknownProviders() {
+            assertThrows(IllegalArgumentException.class,
+                () -> service.rescoreRun("run-789", List.of("NoSuchMetric")));
+            verifyNoInteractions(resultRepository);
+        }
+
+        @Test
+        @DisplayName("Should reject providers that read the trace input")
+        void shouldRejectTraceProviders() {
+            String id = new CosinePredSourceMetricProvider().id();
+
+            assertThrows(IllegalArgumentException.class, () -> service.rescoreRun("run-789", List.of(id)));
+            verifyNoInteractions(resultRepository);
+        }
+
+        @Test
+        @DisplayName("Should keep snapshots of providers that read the trace on a default re-score")
+        void shouldSkipTraceProvidersByDefault() {
+            BenchmarkResult first = result("r1", "the cat sat", "the cat sat");
+            MetricSnapshot source = new MetricSnapshot("run-789", MetricType.COSINE_PRED_SOURCE, "cosine_pred_source", 0.7);
+            first.addMetricSnapshot(source);
+
+            when(runRepository.findById("run-789")).thenReturn(Optional.of(run));
+            when(agentService.findById("agent-456")).thenReturn(Optional.of(new Agent()));
+            when(resultRepository.findBatchByRunId(eq("run-789"), eq(""), any())).thenReturn(List.of(first));
+            when(metricResultCache.computeIfAbsent(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+                MetricProvider<?> provider = invocation.getArgument(0);
+                return provider.compute(invocation.getArgument(1), invocation.getArgument(2),
+                    invocation.getArgument(3), (TraceData) invocation.getArgument(4));
+            });
+
+            BackfillReport report = service.rescoreRun("run-789", List.of());
+
+            assertEquals(Set.of("RougeMetric", "BlueMetric"), Set.copyOf(report.providerIds()));
+            assertTrue(first.getMetricSnapshots().contains(source));
+            verify(metricResultCache, never()).computeIfAbsent(
+                any(CosinePredSourceMetricProvider.class), any(), any(), any(), any());
+        }
+    }
+
+    @Test
+    @DisplayName("Should use one worker per CPU but at most half of the connection pool")
+    void shouldCapDefaultParallelism() {
+        assertEquals(4, MetricBackfillServiceImpl.defaultParallelism(4, 24));
+        assertEquals(12, MetricBackfillServiceImpl.defaultParallelism(64, 24));
+        assertEquals(1, MetricBackfillServiceImpl.defaultParallelism(8, 1));
+    }
+
+    private BenchmarkResult result(String id, String expected, String generated) {
+        BenchmarkResult result = new BenchmarkResult(run, "trace-" + id);
+        result.setId(id);
+        result.setExpectedText(expected);
+        result.setGeneratedText(generated);
+        return result;
+    }
+}
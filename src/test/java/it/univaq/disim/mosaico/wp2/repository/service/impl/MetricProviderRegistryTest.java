@@ -8,8 +8,13 @@ import java.util.Collection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
 import it.univaq.disim.mosaico.wp2.repository.data.BlueMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
 import it.univaq.disim.mosaico.wp2.repository.data.RougeMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.MetricVocabulary;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
 import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
 import it.univaq.disim.mosaico.wp2.repository.service.exception.MetricProviderNotFoundException;
 
@@ -75,7 +80,46 @@ class MetricProviderRegistryTest {
         assertFalse(registry.hasProvider(NonExistentMetric.class));
     }
 
-    // Test helper class
+    @Test
+    void testProviderMetricKeysAreRegistered() {
+        MetricVocabulary vocabulary = new MetricVocabulary();
+        long version = vocabulary.version();
+
+        MetricProviderRegistry shared = new MetricProviderRegistry(
+            Arrays.asList(blueProvider, new CustomScoreMetricProvider()), vocabulary);
+
+        assertSame(vocabulary, shared.getMetricVocabulary());
+        assertTrue(vocabulary.contains("CUSTOM_SCORE"));
+        assertEquals(version + 1, vocabulary.version());
+    }
+
+    @Test
+    void testMetricKeysMatchMetricTypes() {
+        assertEquals(MetricType.BLEU.name(), blueProvider.metricKey());
+        assertEquals(MetricType.ROUGE.name(), rougeProvider.metricKey());
+        assertEquals(MetricType.ROUGEL_F.name(), new RougeLFMetricProvider().metricKey());
+        assertEquals(MetricType.ROUGE1_F.name(), new Rouge1FMetricProvider().metricKey());
+        assertEquals(MetricType.LEN_RATIO.name(), new LengthRatioMetricProvider().metricKey());
+        assertEquals(MetricType.F1_SCORE.name(), new F1ScoreMetricProvider().metricKey());
+        assertEquals(MetricType.TIME_TO_FIRST_TOKEN.name(), new TimeToFirstTokenMetricProvider().metricKey());
+    }
+
+    // Test helper classes
+    private static class CustomScoreMetric implements it.univaq.disim.mosaico.wp2.repository.data.MetricKey {
+    }
+
+    private static class CustomScoreMetricProvider implements MetricProvider<CustomScoreMetric> {
+        @Override
+        public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+            return null;
+        }
+
+        @Override
+        public Class<CustomScoreMetric> key() {
+            return CustomScoreMetric.class;
+        }
+    }
+
     private static class NonExistentMetric implements it.univaq.disim.mosaico.wp2.repository.data.MetricKey {
     }
 }
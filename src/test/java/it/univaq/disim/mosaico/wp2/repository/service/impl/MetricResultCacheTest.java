@@ -0,0 +1,174 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Agent;
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricResultCacheEntry;
+import it.univaq.disim.mosaico.wp2.repository.data.RougeMetric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricResultCacheRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.MetricProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for MetricResultCache.
+ *
+ * Test Plan:
+ * 1. Memory tier hit skips the provider
+ * 2. Database tier hit skips the provider and warms memory
+ * 3. Provider version bump misses previous entries
+ * 4. Non cacheable providers are always computed
+ * 5. Database failures fall back to computing
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MetricResultCache Tests")
+class MetricResultCacheTest {
+
+    @Mock
+    private MetricResultCacheRepository repository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MetricResultCache cache;
+    private CountingProvider provider;
+    private final Agent agent = new Agent();
+    private final TraceData trace = new TraceData();
+
+    @BeforeEach
+    void setUp() {
+        cache = new MetricResultCache(repository, transactionManager, 100);
+        provider = new CountingProvider("1", true);
+    }
+
+    @Nested
+    @DisplayName("computeIfAbsent Tests")
+    class ComputeIfAbsentTests {
+
+        @Test
+        @DisplayName("Should compute once and serve repeated pairs from memory")
+        void shouldServeRepeatedPairsFromMemory() {
+            when(repository.findById(anyString())).thenReturn(Optional.empty());
+
+            Metric first = cache.computeIfAbsent(provider, agent, "the cat", "the cat sat", trace);
+            Metric second = cache.computeIfAbsent(provider, agent, "the cat", "the cat sat", trace);
+
+            assertEquals(1, provider.calls.get());
+            assertEquals(first.getFloatValue(), second.getFloatValue());
+            assertNotSame(first, second);
+            assertEquals(1, cache.getMemoryHits());
+            assertEquals(1, cache.getMisses());
+            verify(repository).save(any(MetricResultCacheEntry.class));
+        }
+
+        @Test
+        @DisplayName("Should reuse a database entry without computing")
+        void shouldReuseDatabaseEntry() {
+            Metric stored = new Metric();
+            stored.setType(MetricType.ROUGE);
+            stored.setName("ROUGE Score");
+            stored.setFloatValue(0.42f);
+            when(repository.findById(anyString())).thenAnswer(invocation -> Optional.of(
+                new MetricResultCacheEntry(invocation.getArgument(0), "RougeMetric", "1", "r", "g", stored)));
+
+            Metric metric = cache.computeIfAbsent(provider, agent, "a", "b", trace);
+
+            assertEquals(0, provider.calls.get());
+            assertEquals(0.42f, metric.getFloatValue().orElseThrow());
+            assertEquals(1, cache.getDatabaseHits());
+            assertEquals(1, cache.size());
+        }
+
+        @Test
+        @DisplayName("Should miss after a provider version bump")
+        void shouldMissAfterVersionBump() {
+            when(repository.findById(anyString())).thenReturn(Optional.empty());
+
+            cache.computeIfAbsent(provider, agent, "a", "b", trace);
+            CountingProvider bumped = new CountingProvider("2", true);
+            cache.computeIfAbsent(bumped, agent, "a", "b", trace);
+
+            assertEquals(1, provider.calls.get());
+            assertEquals(1, bumped.calls.get());
+            assertNotEquals(
+                MetricResultCache.cacheKey(provider, "r", "g"),
+                MetricResultCache.cacheKey(bumped, "r", "g"));
+        }
+
+        @Test
+        @DisplayName("Should always compute non cacheable providers")
+        void shouldBypassNonCacheableProviders() {
+            CountingProvider volatileProvider = new CountingProvider("1", false);
+
+            cache.computeIfAbsent(volatileProvider, agent, "a", "b", trace);
+            cache.computeIfAbsent(volatileProvider, agent, "a", "b", trace);
+
+            assertEquals(2, volatileProvider.calls.get());
+            verifyNoInteractions(repository);
+        }
+
+        @Test
+        @DisplayName("Should compute when the database tier is unavailable")
+        void shouldFallBackWhenDatabaseFails() {
+            when(repository.findById(anyString())).thenThrow(new DataAccessResourceFailureException("down"));
+            when(repository.save(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+            Metric metric = cache.computeIfAbsent(provider, agent, "a", "b", trace);
+
+            assertNotNull(metric);
+            assertEquals(1, provider.calls.get());
+        }
+    }
+
+    private static class CountingProvider implements MetricProvider<RougeMetric> {
+        private final String version;
+        private final boolean cacheable;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingProvider(String version, boolean cacheable) {
+            this.version = version;
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public Metric compute(Agent agent, String referenceText, String generatedText, TraceData trace) {
+            calls.incrementAndGet();
+            Metric metric = new Metric();
+            metric.setType(MetricType.ROUGE);
+            metric.setName("ROUGE Score");
+            metric.setFloatValue((float) generatedText.length() / 10);
+            metric.setUnit("score");
+            return metric;
+        }
+
+        @Override
+        public Class<RougeMetric> key() {
+            return RougeMetric.class;
+        }
+
+        @Override
+        public String version() {
+            return version;
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return cacheable;
+        }
+    }
+}
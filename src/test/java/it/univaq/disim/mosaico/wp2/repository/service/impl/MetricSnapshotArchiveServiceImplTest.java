@@ -0,0 +1,169 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkRunRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotArchiveRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import it.univaq.disim.mosaico.wp2.repository.service.DataRetentionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for MetricSnapshotArchiveServiceImpl.
+ *
+ * Test Plan:
+ * 1. Archive the snapshots of a run and delete their rows
+ * 2. Skip archived runs without rows, and fold the rows of others into their archive
+ * 3. Restore the snapshots of an archived run as rows, recreating the partitions
+ *    of a run older than the retention period first
+ * 4. Walk the eligible runs in batches and stop when no progress is made
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MetricSnapshotArchiveServiceImpl Tests")
+class MetricSnapshotArchiveServiceImplTest {
+
+    private static final Instant NOW = Instant.parse("2026-06-01T00:00:00Z");
+
+    @Mock
+    private BenchmarkRunRepository runRepository;
+    @Mock
+    private MetricSnapshotRepository metricSnapshotRepository;
+    @Mock
+    private MetricSnapshotArchiveRepository archiveRepository;
+    @Mock
+    private DataRetentionService dataRetentionService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MetricSnapshotArchiveServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MetricSnapshotArchiveServiceImpl(runRepository, metricSnapshotRepository, archiveRepository,
+            dataRetentionService, transactionManager, 30, 2);
+    }
+
+    @Test
+    @DisplayName("Should archive the snapshots of a run and delete their rows")
+    void shouldArchiveRun() {
+        MetricSnapshot snapshot = new MetricSnapshot("run-1", MetricType.ROUGE, "ROUGE", 0.8);
+        when(metricSnapshotRepository.findByRunId("run-1")).thenReturn(List.of(snapshot));
+
+        assertTrue(service.archiveRun("run-1"));
+
+        ArgumentCaptor<MetricSnapshotArchive> saved = ArgumentCaptor.forClass(MetricSnapshotArchive.class);
+        InOrder order = inOrder(archiveRepository, metricSnapshotRepository);
+        order.verify(archiveRepository).save(saved.capture());
+        order.verify(metricSnapshotRepository).deleteByRunId("run-1");
+        assertEquals("run-1", saved.getValue().getRunId());
+        assertEquals(1, saved.getValue().getSnapshotCount());
+        assertEquals(0.8, saved.getValue().snapshots(id -> null).get(0).getValue());
+    }
+
+    @Test
+    @DisplayName("Should skip archived runs without rows")
+    void shouldSkipArchivedRun() {
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", List.of());
+        when(archiveRepository.findById("run-1")).thenReturn(Optional.of(archive));
+        when(metricSnapshotRepository.countRowsByRunId("run-1")).thenReturn(0L);
+
+        assertFalse(service.archiveRun("run-1"));
+        verify(metricSnapshotRepository, never()).deleteByRunId(anyString());
+        verify(archiveRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should fold the rows of an archived run into its archive")
+    void shouldFoldRowsIntoArchive() {
+        MetricSnapshot archived = new MetricSnapshot("run-1", MetricType.ROUGE, "ROUGE", 0.8);
+        MetricSnapshot row = new MetricSnapshot("run-1", MetricType.BLEU, "BLEU", 0.4);
+        when(archiveRepository.findById("run-1"))
+            .thenReturn(Optional.of(MetricSnapshotArchive.of("run-1", List.of(archived))));
+        when(metricSnapshotRepository.countRowsByRunId("run-1")).thenReturn(1L);
+        when(metricSnapshotRepository.findByRunId("run-1")).thenReturn(List.of(row, archived));
+
+        assertTrue(service.archiveRun("run-1"));
+
+        ArgumentCaptor<MetricSnapshotArchive> saved = ArgumentCaptor.forClass(MetricSnapshotArchive.class);
+        verify(archiveRepository).save(saved.capture());
+        verify(metricSnapshotRepository).deleteByRunId("run-1");
+        assertEquals(2, saved.getValue().getSnapshotCount());
+    }
+
+    @Test
+    @DisplayName("Should restore the snapshots of an archived run as rows")
+    void shouldRestoreRun() {
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", List.of());
+        MetricSnapshot snapshot = new MetricSnapshot("run-1", MetricType.ROUGE, "ROUGE", 0.8);
+        when(archiveRepository.findById("run-1")).thenReturn(Optional.of(archive));
+        when(metricSnapshotRepository.findArchivedByRunId("run-1")).thenReturn(List.of(snapshot));
+
+        assertTrue(service.restoreRun("run-1"));
+        verify(metricSnapshotRepository).saveAll(List.of(snapshot));
+        verify(archiveRepository).delete(archive);
+
+        assertFalse(service.restoreRun("run-2"));
+        verifyNoInteractions(dataRetentionService);
+    }
+
+    @Test
+    @DisplayName("Should recreate the partitions of a run older than the retention period before restoring it")
+    void shouldRecreatePartitionsBeforeRestoring() {
+        // Archived after 30 days, its partitions dropped after 90
+        Instant first = NOW.minus(Duration.ofDays(200));
+        MetricSnapshot early = new MetricSnapshot("run-1", MetricType.ROUGE, "ROUGE", 0.8);
+        early.setTimestamp(first);
+        MetricSnapshot late = new MetricSnapshot("run-1", MetricType.BLEU, "BLEU", 0.4);
+        late.setTimestamp(first.plusSeconds(3600));
+        MetricSnapshotArchive archive = MetricSnapshotArchive.of("run-1", List.of(late, early));
+        when(archiveRepository.findById("run-1")).thenReturn(Optional.of(archive));
+        when(metricSnapshotRepository.findArchivedByRunId("run-1")).thenReturn(List.of(early, late));
+
+        assertTrue(service.restoreRun("run-1"));
+
+        InOrder order = inOrder(dataRetentionService, metricSnapshotRepository);
+        order.verify(dataRetentionService).ensureSnapshotPartitions(first, first.plusSeconds(3600));
+        order.verify(metricSnapshotRepository).saveAll(List.of(early, late));
+    }
+
+    @Test
+    @DisplayName("Should walk eligible runs in batches")
+    void shouldArchiveInBatches() {
+        when(runRepository.findRunIdsToArchive(any(), eq(Instant.parse("2026-05-02T00:00:00Z")), any()))
+            .thenReturn(List.of("run-1", "run-2"), List.of("run-3"));
+        when(metricSnapshotRepository.findByRunId(anyString())).thenReturn(List.of());
+
+        assertEquals(3, service.archiveExpiredRuns(NOW));
+        verify(metricSnapshotRepository, times(3)).deleteByRunId(anyString());
+    }
+
+    @Test
+    @DisplayName("Should stop when a full batch makes no progress")
+    void shouldStopWithoutProgress() {
+        when(runRepository.findRunIdsToArchive(any(), any(), any())).thenReturn(List.of("run-1", "run-2"));
+        when(metricSnapshotRepository.findByRunId(anyString())).thenThrow(new IllegalStateException("boom"));
+
+        assertEquals(0, service.archiveExpiredRuns(NOW));
+        verify(runRepository, times(1)).findRunIdsToArchive(any(), any(), any());
+    }
+}
@@ -1,38 +1,79 @@
 package it.univaq.disim.mosaico.wp2.repository.service.impl;
 
+import com.sun.net.httpserver.HttpServer;
 import it.univaq.disim.mosaico.wp2.repository.data.AlertConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.NotificationOutboxEntry;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.AlertCondition;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationChannel;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.NotificationStatus;
 import it.univaq.disim.mosaico.wp2.repository.data.enums.Severity;
+import it.univaq.disim.mosaico.wp2.repository.repository.NotificationOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 /**
  * Test class for NotificationDispatcherImpl.
  *
  * Test Plan:
- * 1. Dispatch email notification
- * 2. Dispatch Slack notification
- * 3. Dispatch webhook notification
- * 4. Dispatch multiple channel notifications
- * 5. Handle missing webhook URL
+ * 1. Queue one outbox entry per channel and recipient
+ * 2. Coalesce entries of a recipient and deduplicate unsent alerts
+ * 3. Send due entries as one message per recipient, against a local HTTP stub
+ * 4. Retry failed entries with backoff and dead-letter them after the last attempt
+ * 5. Bound the webhook requests in flight per endpoint
  * 6. Test message formatting
  */
+@ExtendWith(MockitoExtension.class)
 @DisplayName("NotificationDispatcherImpl Tests")
 class NotificationDispatcherImplTest {
 
+    private static final Instant NOW = Instant.parse("2026-03-05T10:00:00Z");
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private NotificationOutboxRepository outboxRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private NotificationDispatcherImpl dispatcher;
     private AlertConfig testAlert;
 
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int responseStatus = 204;
+    private volatile long responseDelayMillis;
+
     @BeforeEach
-    void setUp() {
-        dispatcher = new NotificationDispatcherImpl();
+    void setUp() throws IOException {
+        dispatcher = new NotificationDispatcherImpl(outboxRepository, transactionManager, WebClient.builder(),
+            30_000, 100, MAX_ATTEMPTS, 60_000, 300_000, 5_000, 2);
 
         testAlert = new AlertConfig();
         testAlert.setId("alert-123");
@@ -43,6 +84,53 @@ class NotificationDispatcherImplTest {
         testAlert.setThreshold(0.7);
         testAlert.setSeverity(Severity.WARNING);
         testAlert.setEnabled(true);
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                requests.add(exchange.getRequestURI().getPath() + " " + body);
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            exchange.sendResponseHeaders(responseStatus, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private NotificationOutboxEntry entry(String alertId, NotificationChannel channel, String recipient) {
+        AlertConfig alert = new AlertConfig();
+        alert.setId(alertId);
+        alert.setName("Alert " + alertId);
+        alert.setSeverity(Severity.CRITICAL);
+        return new NotificationOutboxEntry(alert, channel, recipient, "accuracy", 0.5, "message " + alertId, NOW);
+    }
+
+    private List<NotificationOutboxEntry> queued() {
+        ArgumentCaptor<NotificationOutboxEntry> saved = ArgumentCaptor.forClass(NotificationOutboxEntry.class);
+        verify(outboxRepository, atLeast(0)).save(saved.capture());
+        return saved.getAllValues();
+    }
+
+    private void due(NotificationOutboxEntry... entries) {
+        when(outboxRepository.findDueForUpdate(any(), any(), any())).thenReturn(List.of(entries));
     }
 
     @Nested
@@ -50,69 +138,151 @@ class NotificationDispatcherImplTest {
     class DispatchTests {
 
         @Test
-        @DisplayName("Should dispatch email notification")
-        void shouldDispatchEmailNotification() {
-            testAlert.setChannels(List.of(NotificationChannel.EMAIL));
-            testAlert.setRecipients(List.of("user@example.com"));
+        @DisplayName("Should queue one entry per channel and recipient")
+        void shouldQueuePerRecipient() {
+            testAlert.setChannels(List.of(NotificationChannel.EMAIL, NotificationChannel.SLACK, NotificationChannel.WEBHOOK));
+            testAlert.setRecipients(List.of("a@example.com", "b@example.com"));
+            testAlert.setWebhookUrl("https://example.com/webhook");
 
-            // Should not throw - placeholder implementation logs
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            dispatcher.dispatch(testAlert, "accuracy", 0.5, NOW);
+
+            List<NotificationOutboxEntry> entries = queued();
+            assertEquals(4, entries.size());
+            assertEquals(List.of("a@example.com", "b@example.com"), entries.stream()
+                .filter(e -> e.getChannel() == NotificationChannel.EMAIL).map(NotificationOutboxEntry::getRecipient).toList());
+            assertNull(entries.get(2).getRecipient());
+            assertEquals("https://example.com/webhook", entries.get(3).getRecipient());
+            for (NotificationOutboxEntry entry : entries) {
+                assertEquals(NotificationStatus.PENDING, entry.getStatus());
+                assertEquals("alert-123", entry.getAlertId());
+                assertEquals(NOW.plusSeconds(30), entry.getNextAttemptAt());
+            }
         }
 
         @Test
-        @DisplayName("Should dispatch Slack notification")
-        void shouldDispatchSlackNotification() {
-            testAlert.setChannels(List.of(NotificationChannel.SLACK));
+        @DisplayName("Should queue nothing without recipients or webhook URL")
+        void shouldSkipMissingRecipients() {
+            testAlert.setChannels(List.of(NotificationChannel.EMAIL, NotificationChannel.WEBHOOK));
+            testAlert.setRecipients(null);
+            testAlert.setWebhookUrl(null);
+
+            dispatcher.dispatch(testAlert, "accuracy", 0.5, NOW);
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            verify(outboxRepository, never()).save(any());
         }
 
         @Test
-        @DisplayName("Should dispatch webhook notification")
-        void shouldDispatchWebhookNotification() {
+        @DisplayName("Should join the coalescing window of the recipient's unsent alerts")
+        void shouldJoinCoalescingWindow() {
             testAlert.setChannels(List.of(NotificationChannel.WEBHOOK));
             testAlert.setWebhookUrl("https://example.com/webhook");
+            NotificationOutboxEntry other = entry("alert-9", NotificationChannel.WEBHOOK, "https://example.com/webhook");
+            other.setNextAttemptAt(NOW.plusSeconds(10));
+            when(outboxRepository.findByChannelAndRecipientAndStatus(
+                NotificationChannel.WEBHOOK, "https://example.com/webhook", NotificationStatus.PENDING))
+                .thenReturn(List.of(other));
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            dispatcher.dispatch(testAlert, "accuracy", 0.5, NOW);
+
+            assertEquals(NOW.plusSeconds(10), queued().get(0).getNextAttemptAt());
         }
 
         @Test
-        @DisplayName("Should dispatch to multiple channels")
-        void shouldDispatchToMultipleChannels() {
-            testAlert.setChannels(List.of(
-                NotificationChannel.EMAIL,
-                NotificationChannel.SLACK,
-                NotificationChannel.WEBHOOK
-            ));
-            testAlert.setRecipients(List.of("user@example.com"));
-            testAlert.setWebhookUrl("https://example.com/webhook");
+        @DisplayName("Should only keep the latest value of an unsent alert")
+        void shouldDeduplicateUnsentAlert() {
+            testAlert.setChannels(List.of(NotificationChannel.IN_APP));
+            NotificationOutboxEntry unsent = entry("alert-123", NotificationChannel.IN_APP, null);
+            when(outboxRepository.findByChannelAndRecipientAndStatus(NotificationChannel.IN_APP, null, NotificationStatus.PENDING))
+                .thenReturn(List.of(unsent));
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            dispatcher.dispatch(testAlert, "accuracy", 0.25, NOW.plusSeconds(5));
+
+            assertEquals(List.of(unsent), queued());
+            assertEquals(0.25, unsent.getKpiValue());
+            assertTrue(unsent.getMessage().contains("0.2500"));
         }
+    }
+
+    @Nested
+    @DisplayName("dispatchPending Tests")
+    class DispatchPendingTests {
 
         @Test
-        @DisplayName("Should handle missing webhook URL gracefully")
-        void shouldHandleMissingWebhookUrl() {
-            testAlert.setChannels(List.of(NotificationChannel.WEBHOOK));
-            testAlert.setWebhookUrl(null);
+        @DisplayName("Should send one message per recipient and remove the sent entries")
+        void shouldSendCoalescedMessages() {
+            NotificationOutboxEntry first = entry("alert-1", NotificationChannel.WEBHOOK, url("/hook"));
+            NotificationOutboxEntry second = entry("alert-2", NotificationChannel.WEBHOOK, url("/hook"));
+            NotificationOutboxEntry inApp = entry("alert-1", NotificationChannel.IN_APP, null);
+            due(first, second, inApp);
+
+            assertEquals(3, dispatcher.dispatchPending(NOW));
+
+            assertEquals(1, requests.size());
+            String request = requests.peek();
+            assertTrue(request.startsWith("/hook "));
+            assertTrue(request.contains("\"alertId\":\"alert-1\""));
+            assertTrue(request.contains("\"alertId\":\"alert-2\""));
+            assertEquals(NotificationStatus.SENDING, first.getStatus());
+            verify(outboxRepository).deleteAll(List.of(first, second, inApp));
+            verify(outboxRepository).saveAll(List.of());
+        }
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+        @Test
+        @DisplayName("Should retry a failed entry with backoff")
+        void shouldRetryFailedEntry() {
+            responseStatus = 503;
+            NotificationOutboxEntry entry = entry("alert-1", NotificationChannel.WEBHOOK, url("/hook"));
+            entry.setAttempts(1);
+            due(entry);
+
+            assertEquals(0, dispatcher.dispatchPending(NOW));
+
+            assertEquals(NotificationStatus.PENDING, entry.getStatus());
+            assertEquals(2, entry.getAttempts());
+            assertEquals(NOW.plus(Duration.ofMinutes(2)), entry.getNextAttemptAt());
+            assertNotNull(entry.getLastError());
+            verify(outboxRepository).deleteAll(List.of());
         }
 
         @Test
-        @DisplayName("Should handle in-app notification")
-        void shouldHandleInAppNotification() {
-            testAlert.setChannels(List.of(NotificationChannel.IN_APP));
+        @DisplayName("Should dead-letter an entry after the last attempt")
+        void shouldDeadLetterEntry() {
+            responseStatus = 500;
+            NotificationOutboxEntry entry = entry("alert-1", NotificationChannel.WEBHOOK, url("/hook"));
+            entry.setAttempts(MAX_ATTEMPTS - 1);
+            due(entry);
+
+            dispatcher.dispatchPending(NOW);
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            assertEquals(NotificationStatus.DEAD, entry.getStatus());
+            assertEquals(MAX_ATTEMPTS, entry.getAttempts());
         }
 
         @Test
-        @DisplayName("Should handle Teams notification")
-        void shouldHandleTeamsNotification() {
-            testAlert.setChannels(List.of(NotificationChannel.TEAMS));
+        @DisplayName("Should bound the requests in flight per endpoint")
+        void shouldBoundConcurrencyPerEndpoint() {
+            responseDelayMillis = 100;
+            due(entry("a1", NotificationChannel.WEBHOOK, url("/one")),
+                entry("a2", NotificationChannel.WEBHOOK, url("/two")),
+                entry("a3", NotificationChannel.WEBHOOK, url("/three")),
+                entry("a4", NotificationChannel.WEBHOOK, url("/four")),
+                entry("a5", NotificationChannel.WEBHOOK, url("/five")));
+
+            assertEquals(5, dispatcher.dispatchPending(NOW));
+
+            assertEquals(5, requests.size());
+            assertTrue(maxInFlight.get() <= 2, "in flight: " + maxInFlight.get());
+        }
+
+        @Test
+        @DisplayName("Should do nothing without due entries")
+        void shouldSkipWithoutDueEntries() {
+            due();
 
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            assertEquals(0, dispatcher.dispatchPending(NOW));
+
+            assertTrue(requests.isEmpty());
+            verify(outboxRepository, never()).deleteAll(any());
         }
     }
 
@@ -137,8 +307,9 @@ class NotificationDispatcherImplTest {
         @Test
         @DisplayName("Should send webhook")
         void shouldSendWebhook() {
-            assertDoesNotThrow(() ->
-                dispatcher.sendWebhook("https://example.com/webhook", "{\"test\": true}"));
+            dispatcher.sendWebhook(url("/webhook"), "{\"test\": true}");
+
+            assertEquals(List.of("/webhook {\"test\": true}"), List.copyOf(requests));
         }
     }
 
@@ -153,34 +324,14 @@ class NotificationDispatcherImplTest {
             testAlert.setRecipients(List.of("test@example.com"));
             testAlert.setSeverity(Severity.CRITICAL);
 
-            // Placeholder implementation logs the message
-            // In a real implementation, we would capture and verify the message content
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
-        }
-    }
-
-    @Nested
-    @DisplayName("Error Handling Tests")
-    class ErrorHandlingTests {
-
-        @Test
-        @DisplayName("Should handle empty recipients list for email")
-        void shouldHandleEmptyRecipients() {
-            testAlert.setChannels(List.of(NotificationChannel.EMAIL));
-            testAlert.setRecipients(List.of());
-
-            // Should not throw even with empty recipients
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
-        }
-
-        @Test
-        @DisplayName("Should handle null recipients for email")
-        void shouldHandleNullRecipients() {
-            testAlert.setChannels(List.of(NotificationChannel.EMAIL));
-            testAlert.setRecipients(null);
+            dispatcher.dispatch(testAlert, "accuracy", 0.5, NOW);
 
-            // Should not throw even with null recipients
-            assertDoesNotThrow(() -> dispatcher.dispatch(testAlert, "accuracy", 0.5));
+            String message = queued().get(0).getMessage();
+            assertTrue(message.startsWith("[CRITICAL] Alert: Low Accuracy Alert"));
+            assertTrue(message.contains("KPI: accuracy"));
+            assertTrue(message.contains("Value: 0.5000"));
+            assertTrue(message.contains("Threshold: 0.7000"));
+            assertTrue(message.contains("Condition: LESS_THAN"));
         }
     }
 }
@@ -0,0 +1,76 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for QuantileSketch.
+ */
+class QuantileSketchTest {
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like request latencies
+            values[i] = Math.exp(random.nextGaussian());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[] {0.5, 0.95, 0.99}) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            double estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) / exact <= 0.01,
+                () -> "p" + q + " estimate " + estimate + " vs " + exact);
+        }
+        assertEquals(values[0], sketch.quantile(0));
+        assertEquals(values[values.length - 1], sketch.quantile(1));
+    }
+
+    @Test
+    void mergedSketchEqualsSketchOfAllValues() {
+        QuantileSketch even = new QuantileSketch();
+        QuantileSketch odd = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        for (int i = 1; i <= 100; i++) {
+            (i % 2 == 0 ? even : odd).add(i);
+            all.add(i);
+        }
+
+        even.merge(odd);
+
+        assertEquals(100, even.getCount());
+        assertEquals(5050.0, even.getSum());
+        assertEquals(all.quantile(0.5), even.quantile(0.5));
+        assertEquals(all.quantile(0.99), even.quantile(0.99));
+    }
+
+    @Test
+    void handlesZerosAndWideRanges() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(0.001);
+        sketch.add(1e6);
+
+        assertEquals(0.0, sketch.quantile(0.5));
+        assertEquals(1e6, sketch.quantile(1));
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    void rejectsMismatchedAccuracies() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new QuantileSketch(0.01).merge(new QuantileSketch(0.02)));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch().quantile(1.5));
+    }
+}
@@ -0,0 +1,60 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for RougeScorer and PorterStemmer. Expected values are derived by hand
+ * from the rouge_score tokenization and scoring rules.
+ */
+class RougeScorerTest {
+
+    @Test
+    void stemsLikeNltkPorter() {
+        assertEquals("run", PorterStemmer.stem("running"));
+        assertEquals("caress", PorterStemmer.stem("caresses"));
+        assertEquals("poni", PorterStemmer.stem("ponies"));
+        assertEquals("relat", PorterStemmer.stem("relational"));
+        assertEquals("hope", PorterStemmer.stem("hoping"));
+        assertEquals("fall", PorterStemmer.stem("falling"));
+        assertEquals("happi", PorterStemmer.stem("happy"));
+        assertEquals("gener", PorterStemmer.stem("generalization"));
+        assertEquals("replac", PorterStemmer.stem("replacement"));
+        assertEquals("die", PorterStemmer.stem("dying"));
+        assertEquals("news", PorterStemmer.stem("news"));
+    }
+
+    @Test
+    void tokenizesOnNonAlphanumericsAndStemsLongTokens() {
+        assertEquals(List.of("the", "cat", "are", "sit", "on", "mat", "2024"),
+            RougeScorer.tokenize("The cats are SITTING on-mat, 2024!"));
+        assertEquals(List.of("caf", "ok"), RougeScorer.tokenize("café ok"));
+    }
+
+    @Test
+    void rouge1CountsClippedUnigramOverlap() {
+        // target [the cat are sit on the mat], prediction [the cat sat on a mat]: overlap 4
+        assertEquals(8.0 / 13.0,
+            RougeScorer.rouge1F("The cats are sitting on the mat", "the cat sat on a mat"), 1e-12);
+    }
+
+    @Test
+    void rougeLUsesLongestCommonSubsequence() {
+        // Same unigrams, but only "on the" survives in order
+        String target = "The cats are sitting on the mat";
+        String prediction = "mat on the cat";
+
+        assertEquals(8.0 / 11.0, RougeScorer.rouge1F(target, prediction), 1e-12);
+        assertEquals(4.0 / 11.0, RougeScorer.rougeLF(target, prediction), 1e-12);
+    }
+
+    @Test
+    void emptyTextsScoreZero() {
+        assertEquals(0.0, RougeScorer.rouge1F("", "anything"));
+        assertEquals(0.0, RougeScorer.rougeLF("reference", "!!!"));
+        assertEquals(1.0, RougeScorer.rougeLF("Same text", "same   TEXT"), 1e-12);
+    }
+}
@@ -0,0 +1,143 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshotArchive;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.ExportFormat;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dto.ResultMetricRow;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotArchiveRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.MetricSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for RunExportServiceImpl.
+ *
+ * Test Plan:
+ * 1. Write one CSV line per result with a column per metric, escaping values
+ * 2. Write one JSON object per line with the metric means
+ * 3. Merge the metrics of archived runs and close the database stream
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RunExportServiceImpl Tests")
+class RunExportServiceImplTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Mock
+    private BenchmarkResultRepository resultRepository;
+    @Mock
+    private MetricSnapshotRepository metricSnapshotRepository;
+    @Mock
+    private MetricSnapshotArchiveRepository archiveRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RunExportServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RunExportServiceImpl(resultRepository, metricSnapshotRepository, archiveRepository, objectMapper);
+    }
+
+    private static ResultMetricRow row(String resultId, String traceId, String metricKey, Double value) {
+        return new ResultMetricRow(resultId, traceId, T0, "expected-" + resultId, null, metricKey, value);
+    }
+
+    private void rows(ResultMetricRow... rows) {
+        when(archiveRepository.findById("run-1")).thenReturn(Optional.empty());
+        when(resultRepository.streamMetricRowsByRunId("run-1")).thenReturn(Stream.of(rows));
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportRun("run-1", format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Nested
+    @DisplayName("CSV Tests")
+    class CsvTests {
+
+        @Test
+        @DisplayName("Should write one line per result with a column per metric")
+        void shouldPivotMetrics() throws Exception {
+            rows(row("r1", "trace,1", "BLEU", 0.25), row("r1", "trace,1", "BLEU", 0.75),
+                row("r1", "trace,1", "ROUGE", 0.5), row("r2", "say \"hi\"", null, null));
+            when(metricSnapshotRepository.findMetricKeysByRunId("run-1")).thenReturn(List.of("ROUGE", "BLEU"));
+
+            String csv = export(ExportFormat.CSV);
+
+            String[] lines = csv.split("\r\n");
+            assertEquals(3, lines.length);
+            assertEquals("run_id,result_id,trace_id,created_at,expected_text_id,generated_text_id,BLEU,ROUGE", lines[0]);
+            assertEquals("run-1,r1,\"trace,1\",2026-01-01T00:00:00Z,expected-r1,,0.5,0.5", lines[1]);
+            assertEquals("run-1,r2,\"say \"\"hi\"\"\",2026-01-01T00:00:00Z,expected-r2,,,", lines[2]);
+        }
+    }
+
+    @Nested
+    @DisplayName("NDJSON Tests")
+    class NdjsonTests {
+
+        @Test
+        @DisplayName("Should write one JSON object per line")
+        void shouldWriteJsonLines() throws Exception {
+            rows(row("r1", "trace-1", "ROUGE", 0.5), row("r2", "trace-2", "ROUGE", 1.0));
+
+            String[] lines = export(ExportFormat.NDJSON).split("\n");
+
+            assertEquals(2, lines.length);
+            JsonNode first = objectMapper.readTree(lines[0]);
+            assertEquals("run-1", first.get("runId").asText());
+            assertEquals("r1", first.get("resultId").asText());
+            assertEquals("2026-01-01T00:00:00Z", first.get("createdAt").asText());
+            assertTrue(first.get("generatedTextId").isNull());
+            assertEquals(0.5, first.get("metrics").get("ROUGE").asDouble());
+            assertEquals(1.0, objectMapper.readTree(lines[1]).get("metrics").get("ROUGE").asDouble());
+            verify(metricSnapshotRepository, never()).findMetricKeysByRunId(any());
+        }
+
+        @Test
+        @DisplayName("Should merge archived metrics and close the row stream")
+        void shouldMergeArchivedMetrics() throws Exception {
+            BenchmarkResult result = new BenchmarkResult();
+            result.setId("r1");
+            MetricSnapshot archived = new MetricSnapshot("run-1", MetricType.BLEU, "BLEU", 0.8);
+            archived.setTimestamp(T0);
+            archived.setBenchmarkResult(result);
+            when(archiveRepository.findById("run-1"))
+                .thenReturn(Optional.of(MetricSnapshotArchive.of("run-1", List.of(archived))));
+            AtomicBoolean closed = new AtomicBoolean();
+            when(resultRepository.streamMetricRowsByRunId("run-1"))
+                .thenReturn(Stream.of(row("r1", "trace-1", null, null)).onClose(() -> closed.set(true)));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long written = service.exportRun("run-1", ExportFormat.NDJSON, out);
+
+            assertEquals(1, written);
+            JsonNode record = objectMapper.readTree(out.toString(StandardCharsets.UTF_8).trim());
+            assertEquals(0.8, record.get("metrics").get("BLEU").asDouble());
+            assertTrue(closed.get());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.MetricSnapshot;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.dsl.KPIFormulaDslService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Test class for RunMetricAggregator.
+ *
+ * Test Plan:
+ * 1. Average every metric key over the run
+ * 2. Expose latency percentiles and cost totals
+ * 3. Divide cost by the traces that meet the correctness threshold
+ * 4. Register the derived keys with the KPI DSL
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RunMetricAggregator Tests")
+class RunMetricAggregatorTest {
+
+    @Mock
+    private KPIFormulaDslService kpiFormulaDslService;
+
+    private RunMetricAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new RunMetricAggregator(kpiFormulaDslService, "EXACT_CONTAINS", 1.0);
+    }
+
+    @Test
+    @DisplayName("Should aggregate means, percentiles and cost per correct answer")
+    void shouldAggregateRun() {
+        List<MetricSnapshot> snapshots = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            String trace = "t" + i;
+            snapshots.add(snapshot(MetricType.LATENCY, i / 10.0, trace));
+            snapshots.add(snapshot(MetricType.COST, 0.01, trace));
+            snapshots.add(snapshot(MetricType.EXACT_CONTAINS, i <= 25 ? 1.0 : 0.0, trace));
+        }
+
+        Map<String, Double> aggregated = aggregator.aggregate(snapshots);
+
+        assertEquals(5.05, aggregated.get("LATENCY"), 1e-9);
+        assertEquals(0.25, aggregated.get("EXACT_CONTAINS"), 1e-9);
+        assertEquals(5.0, aggregated.get("LATENCY_P50"), 5.0 * 0.01);
+        assertEquals(9.5, aggregated.get("LATENCY_P95"), 9.5 * 0.01);
+        assertEquals(9.9, aggregated.get("LATENCY_P99"), 9.9 * 0.01);
+        assertEquals(1.0, aggregated.get("COST_TOTAL"), 1e-9);
+        assertEquals(0.04, aggregated.get("COST_PER_CORRECT"), 1e-9);
+        assertFalse(aggregated.containsKey("TIME_TO_FIRST_TOKEN_P95"));
+    }
+
+    @Test
+    @DisplayName("Should omit cost per correct answer when nothing is correct")
+    void shouldOmitCostPerCorrectWithoutCorrectTraces() {
+        Map<String, Double> aggregated = aggregator.aggregate(List.of(
+            snapshot(MetricType.COST, 0.5, "t1"),
+            snapshot(MetricType.EXACT_CONTAINS, 0.0, "t1")));
+
+        assertEquals(0.5, aggregated.get("COST_TOTAL"), 1e-9);
+        assertFalse(aggregated.containsKey("COST_PER_CORRECT"));
+    }
+
+    @Test
+    @DisplayName("Should register derived keys with the KPI DSL")
+    void shouldRegisterDerivedKeys() {
+        aggregator.registerDerivedMetricKeys();
+
+        verify(kpiFormulaDslService).registerCustomMetricKeys(RunMetricAggregator.derivedMetricKeys());
+        assertTrue(RunMetricAggregator.derivedMetricKeys().contains("LATENCY_P95"));
+        assertTrue(RunMetricAggregator.derivedMetricKeys().contains("COST_PER_CORRECT"));
+    }
+
+    private static MetricSnapshot snapshot(MetricType type, double value, String traceId) {
+        MetricSnapshot snapshot = new MetricSnapshot("run-1", type, type.name(), value);
+        snapshot.setTraceId(traceId);
+        return snapshot;
+    }
+}
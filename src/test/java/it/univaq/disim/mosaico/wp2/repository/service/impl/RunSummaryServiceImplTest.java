@@ -0,0 +1,180 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.RunSummary;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.dto.BenchmarkRunSummary;
+import it.univaq.disim.mosaico.wp2.repository.repository.BenchmarkResultRepository;
+import it.univaq.disim.mosaico.wp2.repository.repository.RunSummaryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for RunSummaryServiceImpl.
+ *
+ * Test Plan:
+ * 1. Create and update summaries from run transitions, keeping KPI values
+ * 2. Record KPI values on an existing summary only
+ * 3. Read summaries by run, latest for an agent and history
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RunSummaryServiceImpl Tests")
+class RunSummaryServiceImplTest {
+
+    @Mock
+    private RunSummaryRepository summaryRepository;
+    @Mock
+    private BenchmarkResultRepository resultRepository;
+
+    @InjectMocks
+    private RunSummaryServiceImpl service;
+
+    private BenchmarkRun run;
+
+    @BeforeEach
+    void setUp() {
+        run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.MANUAL);
+        run.setId("run-1");
+    }
+
+    private RunSummary saved() {
+        ArgumentCaptor<RunSummary> captor = ArgumentCaptor.forClass(RunSummary.class);
+        verify(summaryRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    @Nested
+    @DisplayName("refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Should create the summary of a new run")
+        void shouldCreateSummary() {
+            when(summaryRepository.findById("run-1")).thenReturn(Optional.empty());
+            when(resultRepository.countByRunId("run-1")).thenReturn(0L);
+
+            service.refresh(run);
+
+            RunSummary summary = saved();
+            assertEquals("run-1", summary.getRunId());
+            assertEquals(RunStatus.PENDING, summary.getStatus());
+            assertEquals("agent-1", summary.getAgentId());
+            assertTrue(summary.getKpiValues().isEmpty());
+            assertNotNull(summary.getUpdatedAt());
+        }
+
+        @Test
+        @DisplayName("Should update status, counts and duration and keep KPI values")
+        void shouldUpdateSummary() {
+            RunSummary existing = new RunSummary("run-1");
+            existing.setKpiValues(Map.of("Quality", 0.7));
+            when(summaryRepository.findById("run-1")).thenReturn(Optional.of(existing));
+            when(resultRepository.countByRunId("run-1")).thenReturn(12L);
+            run.start();
+            run.setTracesProcessed(12);
+            run.complete();
+
+            service.refresh(run);
+
+            RunSummary summary = saved();
+            assertSame(existing, summary);
+            assertEquals(RunStatus.COMPLETED, summary.getStatus());
+            assertEquals(12, summary.getResultCount());
+            assertEquals(12, summary.getTracesProcessed());
+            assertEquals(run.getDurationMillis(), summary.getDurationMillis());
+            assertEquals(0.7, summary.getKpiValues().get("Quality"));
+        }
+    }
+
+    @Nested
+    @DisplayName("recordKpis Tests")
+    class RecordKpisTests {
+
+        @Test
+        @DisplayName("Should replace the KPI values of the summary")
+        void shouldRecordKpis() {
+            RunSummary existing = new RunSummary("run-1");
+            existing.setKpiValues(Map.of("Old", 0.1));
+            when(summaryRepository.findById("run-1")).thenReturn(Optional.of(existing));
+
+            service.recordKpis("run-1", Map.of("Quality", 0.9));
+
+            assertEquals(Map.of("Quality", 0.9), saved().getKpiValues());
+        }
+
+        @Test
+        @DisplayName("Should skip runs without a summary")
+        void shouldSkipMissingSummary() {
+            when(summaryRepository.findById("missing")).thenReturn(Optional.empty());
+
+            service.recordKpis("missing", Map.of("Quality", 0.9));
+
+            verify(summaryRepository, never()).save(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("find Tests")
+    class FindTests {
+
+        private RunSummary summary(String runId) {
+            RunSummary summary = new RunSummary(runId);
+            summary.update(run, 3);
+            summary.setKpiValues(Map.of("Quality", 0.5));
+            return summary;
+        }
+
+        @Test
+        @DisplayName("Should map a run summary to its DTO")
+        void shouldFindByRunId() {
+            when(summaryRepository.findById("run-1")).thenReturn(Optional.of(summary("run-1")));
+
+            BenchmarkRunSummary dto = service.findByRunId("run-1").orElseThrow();
+
+            assertEquals("run-1", dto.id());
+            assertEquals(3, dto.resultCount());
+            assertEquals(0.5, dto.kpiValues().get("Quality"));
+            verifyNoInteractions(resultRepository);
+        }
+
+        @Test
+        @DisplayName("Should read the latest run of an agent with a single-row query")
+        void shouldFindLatestForAgent() {
+            when(summaryRepository.findByAgentIdLatestFirst("agent-1", PageRequest.of(0, 1)))
+                .thenReturn(List.of(summary("run-2")));
+
+            assertEquals("run-2", service.findLatestForAgent("agent-1").orElseThrow().id());
+
+            when(summaryRepository.findByAgentIdLatestFirst("agent-2", PageRequest.of(0, 1))).thenReturn(List.of());
+            assertTrue(service.findLatestForAgent("agent-2").isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should pass the history limit to the query")
+        void shouldFindHistory() {
+            when(summaryRepository.findHistory("benchmark-1", "agent-1", PageRequest.of(0, 2)))
+                .thenReturn(List.of(summary("run-2"), summary("run-1")));
+
+            List<BenchmarkRunSummary> history = service.findHistory("benchmark-1", "agent-1", 2);
+
+            assertEquals(List.of("run-2", "run-1"), history.stream().map(BenchmarkRunSummary::id).toList());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for ScheduleQueue.
+ *
+ * Test Plan:
+ * 1. Return due schedules in fire time order
+ * 2. Move and remove queued schedules
+ */
+@DisplayName("ScheduleQueue Tests")
+class ScheduleQueueTest {
+
+    private static final Instant NOW = Instant.parse("2026-03-06T10:00:00Z");
+
+    @Test
+    @DisplayName("Should poll due schedules earliest first")
+    void shouldPollDueInOrder() {
+        ScheduleQueue queue = new ScheduleQueue();
+        queue.put("c", NOW.plusSeconds(10));
+        queue.put("b", NOW);
+        queue.put("a", NOW);
+        queue.put("d", NOW.minusSeconds(5));
+
+        assertEquals(NOW.minusSeconds(5), queue.nextFireAt());
+        List<ScheduleQueue.Due> due = queue.pollDue(NOW);
+
+        assertEquals(List.of("d", "a", "b"), due.stream().map(ScheduleQueue.Due::scheduleId).toList());
+        assertEquals(NOW.plusSeconds(10), queue.nextFireAt());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    @DisplayName("Should move and remove queued schedules")
+    void shouldMoveAndRemove() {
+        ScheduleQueue queue = new ScheduleQueue();
+        queue.put("a", NOW);
+        queue.put("a", NOW.plusSeconds(60));
+        queue.put("b", NOW.plusSeconds(30));
+        queue.remove("b");
+        queue.remove("unknown");
+
+        assertEquals(1, queue.size());
+        assertEquals(NOW.plusSeconds(60), queue.fireTime("a"));
+        assertTrue(queue.pollDue(NOW.plusSeconds(59)).isEmpty());
+        assertEquals(1, queue.pollDue(NOW.plusSeconds(60)).size());
+        assertNull(queue.nextFireAt());
+    }
+}
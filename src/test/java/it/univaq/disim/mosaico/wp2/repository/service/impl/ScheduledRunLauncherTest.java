@@ -0,0 +1,188 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.ScheduleConfig;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.OverlapPolicy;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.RunStatus;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkOrchestrator;
+import it.univaq.disim.mosaico.wp2.repository.service.BenchmarkSchedulerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for ScheduledRunLauncher.
+ *
+ * Test Plan:
+ * 1. Start runs up to the concurrency cap and the waiting ones as runs finish
+ * 2. Apply the overlap policy of a schedule whose previous run has not finished
+ * 3. Record the outcome of finished runs on their schedule
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ScheduledRunLauncher Tests")
+class ScheduledRunLauncherTest {
+
+    @Mock
+    private BenchmarkSchedulerService schedulerService;
+    @Mock
+    private BenchmarkOrchestrator orchestrator;
+
+    // Runs submitted to the executor, executed when the test lets them finish
+    private final Deque<Runnable> submitted = new ArrayDeque<>();
+    private ScheduledRunLauncher launcher;
+    private int runCount;
+
+    @BeforeEach
+    void setUp() {
+        launcher = new ScheduledRunLauncher(schedulerService, orchestrator, 2, submitted::add);
+        lenient().when(schedulerService.createScheduledRun(anyString())).thenAnswer(i -> {
+            BenchmarkRun run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.SCHEDULED);
+            run.setId("run-" + (++runCount));
+            run.setScheduleConfigId(i.getArgument(0));
+            return Optional.of(run);
+        });
+        lenient().when(orchestrator.executeBenchmarkRun(anyString())).thenAnswer(i -> {
+            BenchmarkRun run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.SCHEDULED);
+            run.setId(i.getArgument(0));
+            run.setStatus(RunStatus.COMPLETED);
+            return run;
+        });
+    }
+
+    private static ScheduleConfig schedule(String id, OverlapPolicy policy) {
+        ScheduleConfig schedule = new ScheduleConfig(id, "benchmark-1", "agent-1", "0 0 * * * *");
+        schedule.setId(id);
+        schedule.setOverlapPolicy(policy);
+        return schedule;
+    }
+
+    private void finishNextRun() {
+        submitted.removeFirst().run();
+    }
+
+    @Nested
+    @DisplayName("Concurrency cap Tests")
+    class ConcurrencyCapTests {
+
+        @Test
+        @DisplayName("Should start at most the cap and the waiting schedules in order as runs finish")
+        void shouldCapConcurrentRuns() {
+            launcher.launch(schedule("s1", null));
+            launcher.launch(schedule("s2", null));
+            launcher.launch(schedule("s3", null));
+
+            assertEquals(2, launcher.executingCount());
+            assertEquals(1, launcher.waitingCount());
+            verify(schedulerService, never()).createScheduledRun("s3");
+
+            finishNextRun();
+
+            verify(schedulerService).createScheduledRun("s3");
+            assertEquals(2, launcher.executingCount());
+            assertEquals(0, launcher.waitingCount());
+            verify(schedulerService).recordRunSuccess("s1", "run-1");
+        }
+
+        @Test
+        @DisplayName("Should free the slot of a schedule deleted before its run started")
+        void shouldFreeSlotOfDeletedSchedule() {
+            when(schedulerService.createScheduledRun("gone")).thenReturn(Optional.empty());
+
+            launcher.launch(schedule("gone", null));
+
+            assertEquals(0, launcher.executingCount());
+            assertTrue(submitted.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Overlap policy Tests")
+    class OverlapPolicyTests {
+
+        @Test
+        @DisplayName("Should skip a schedule whose previous run has not finished by default")
+        void shouldSkipOverlappingRun() {
+            launcher.launch(schedule("s1", null));
+            launcher.launch(schedule("s1", null));
+
+            assertEquals(1, launcher.executingCount());
+            assertEquals(0, launcher.waitingCount());
+
+            finishNextRun();
+
+            assertEquals(0, launcher.executingCount());
+            verify(schedulerService, times(1)).createScheduledRun("s1");
+        }
+
+        @Test
+        @DisplayName("Should queue one run behind the previous one")
+        void shouldQueueOverlappingRun() {
+            launcher.launch(schedule("s1", OverlapPolicy.QUEUE));
+            launcher.launch(schedule("s1", OverlapPolicy.QUEUE));
+            launcher.launch(schedule("s1", OverlapPolicy.QUEUE));
+            launcher.launch(schedule("s2", OverlapPolicy.QUEUE));
+
+            // s2 starts while s1 waits for its own previous run
+            assertEquals(2, launcher.executingCount());
+            assertEquals(1, launcher.waitingCount());
+
+            finishNextRun();
+
+            verify(schedulerService, times(2)).createScheduledRun("s1");
+            assertEquals(0, launcher.waitingCount());
+        }
+
+        @Test
+        @DisplayName("Should cancel the previous run and start once it has stopped")
+        void shouldCancelPreviousRun() {
+            launcher.launch(schedule("s1", OverlapPolicy.CANCEL_PREVIOUS));
+            launcher.launch(schedule("s1", OverlapPolicy.CANCEL_PREVIOUS));
+
+            // Only flagged: the executing run writes its own status
+            verify(orchestrator).requestCancel("run-1");
+            verify(orchestrator, never()).cancelBenchmarkRun(anyString());
+            assertEquals(1, launcher.waitingCount());
+
+            when(orchestrator.executeBenchmarkRun("run-1")).thenAnswer(i -> {
+                BenchmarkRun run = new BenchmarkRun("benchmark-1", "agent-1", TriggerType.SCHEDULED);
+                run.setStatus(RunStatus.CANCELLED);
+                return run;
+            });
+            finishNextRun();
+
+            verify(schedulerService, times(2)).createScheduledRun("s1");
+            verify(schedulerService, never()).recordRunSuccess(anyString(), anyString());
+            verify(schedulerService, never()).recordRunFailure(anyString(), anyString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Run outcome Tests")
+    class RunOutcomeTests {
+
+        @Test
+        @DisplayName("Should record a failed run on its schedule")
+        void shouldRecordFailedRun() {
+            when(orchestrator.executeBenchmarkRun("run-1")).thenThrow(new IllegalStateException("boom"));
+
+            launcher.launch(schedule("s1", null));
+            finishNextRun();
+
+            verify(schedulerService).recordRunFailure("s1", "run-1");
+            assertEquals(0, launcher.executingCount());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkResult;
+import it.univaq.disim.mosaico.wp2.repository.data.BenchmarkRun;
+import it.univaq.disim.mosaico.wp2.repository.data.TextBlob;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TextCodec;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.TriggerType;
+import it.univaq.disim.mosaico.wp2.repository.repository.TextBlobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for TextBlobService.
+ *
+ * Test Plan:
+ * 1. Store texts under their content hash
+ * 2. Compress long texts and keep short ones raw
+ * 3. Round-trip compressed texts
+ * 4. Resolve result texts with a single lookup
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TextBlobService Tests")
+class TextBlobServiceTest {
+
+    @Mock
+    private TextBlobRepository repository;
+
+    private TextBlobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TextBlobService(repository);
+    }
+
+    @Nested
+    @DisplayName("store Tests")
+    class StoreTests {
+
+        @Test
+        @DisplayName("Should address texts by their SHA-256")
+        void shouldAddressTextsByHash() {
+            String id = service.store("hello");
+
+            assertEquals(ContentHash.sha256("hello"), id);
+            assertEquals(64, id.length());
+            verify(repository).insertIfAbsent(eq(id), eq("NONE"), eq(5), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should ignore null texts")
+        void shouldIgnoreNullTexts() {
+            assertNull(service.store(null));
+            verifyNoInteractions(repository);
+        }
+
+        @Test
+        @DisplayName("Should deflate long texts and decode them back")
+        void shouldDeflateLongTexts() {
+            String text = "The quick brown fox jumps over the lazy dog. ".repeat(50);
+            ArgumentCaptor<byte[]> content = ArgumentCaptor.forClass(byte[].class);
+
+            String id = service.store(text);
+
+            verify(repository).insertIfAbsent(eq(id), eq("DEFLATE"), anyInt(), content.capture(), any());
+            int rawLength = text.getBytes(StandardCharsets.UTF_8).length;
+            assertTrue(content.getValue().length < rawLength / 5);
+
+            TextBlob blob = new TextBlob(id, TextCodec.DEFLATE, rawLength, content.getValue());
+            assertEquals(text, TextBlobService.decode(blob));
+        }
+
+        @Test
+        @DisplayName("Should round-trip non ASCII texts")
+        void shouldRoundTripUnicode() {
+            String text = "Risposta attesa: perché è così? ✓ ".repeat(20);
+            ArgumentCaptor<byte[]> content = ArgumentCaptor.forClass(byte[].class);
+            ArgumentCaptor<String> codec = ArgumentCaptor.forClass(String.class);
+            ArgumentCaptor<Integer> length = ArgumentCaptor.forClass(Integer.class);
+
+            String id = service.store(text);
+
+            verify(repository).insertIfAbsent(eq(id), codec.capture(), length.capture(), content.capture(), any());
+            TextBlob blob = new TextBlob(id, TextCodec.valueOf(codec.getValue()), length.getValue(), content.getValue());
+            assertEquals(text, TextBlobService.decode(blob));
+        }
+    }
+
+    @Nested
+    @DisplayName("resolveTexts Tests")
+    class ResolveTextsTests {
+
+        @Test
+        @DisplayName("Should hydrate shared texts with one lookup")
+        void shouldHydrateSharedTexts() {
+            BenchmarkRun run = new BenchmarkRun("benchmark-123", "agent-456", TriggerType.MANUAL);
+            BenchmarkResult first = new BenchmarkResult(run, "t1");
+            BenchmarkResult second = new BenchmarkResult(run, "t2");
+            first.setExpectedTextId("ref");
+            first.setGeneratedTextId("gen-1");
+            second.setExpectedTextId("ref");
+            second.setGeneratedTextId("gen-2");
+
+            when(repository.findAllById(any())).thenReturn(List.of(
+                raw("ref", "reference"), raw("gen-1", "answer one"), raw("gen-2", "answer two")));
+
+            service.resolveTexts(List.of(first, second));
+
+            assertEquals("reference", first.getExpectedText());
+            assertEquals("reference", second.getExpectedText());
+            assertEquals("answer one", first.getGeneratedText());
+            assertEquals("answer two", second.getGeneratedText());
+            verify(repository, times(1)).findAllById(any());
+
+            // Decoded texts are cached for later loads
+            assertEquals(Optional.of("reference"), service.load("ref"));
+            verify(repository, never()).findById(anyString());
+        }
+    }
+
+    private static TextBlob raw(String id, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return new TextBlob(id, TextCodec.NONE, bytes.length, bytes);
+    }
+}
@@ -0,0 +1,45 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for TfidfCosine. Expected values follow scikit-learn's TfidfVectorizer
+ * defaults fitted on the (prediction, gold, source) corpus.
+ */
+class TfidfCosineTest {
+
+    @Test
+    void tokenizesRunsOfTwoOrMoreWordCharacters() {
+        assertEquals(Map.of("the", 2, "cat", 1, "snake_case", 1, "42", 1, "perché", 1),
+            TfidfCosine.termCounts("The cat, a snake_case 42 PERCHÉ the x"));
+    }
+
+    @Test
+    void weightsTermsWithSmoothedIdfOverThreeDocuments() {
+        double[] similarities = TfidfCosine.similarities(
+            "the cat sat at home", "the cat ran", "a dog ran home");
+
+        assertEquals(0.45438759922557737, similarities[0], 1e-12);
+        assertEquals(0.20378218382057864, similarities[1], 1e-12);
+    }
+
+    @Test
+    void identicalTextsAreFullySimilar() {
+        double[] similarities = TfidfCosine.similarities("same words here", "same words here", "");
+
+        assertEquals(1.0, similarities[0], 1e-12);
+        assertEquals(0.0, similarities[1]);
+    }
+
+    @Test
+    void textsWithoutTokensScoreZero() {
+        double[] similarities = TfidfCosine.similarities("a", "", null);
+
+        assertEquals(0.0, similarities[0]);
+        assertEquals(0.0, similarities[1]);
+    }
+}
@@ -0,0 +1,49 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import it.univaq.disim.mosaico.wp2.repository.data.Metric;
+import it.univaq.disim.mosaico.wp2.repository.data.enums.MetricType;
+import it.univaq.disim.mosaico.wp2.repository.service.LangfuseService.TraceData;
+import it.univaq.disim.mosaico.wp2.repository.service.TraceUsage;
+
+/**
+ * Tests for the latency, token and cost providers.
+ */
+class TraceUsageMetricProviderTest {
+
+    @Test
+    void reportsUsageFiguresOfTheTrace() {
+        TraceData trace = new TraceData();
+        trace.usage = new TraceUsage(1.5, 0.2, 300L, 40L, 0.004);
+
+        Metric latency = new LatencyMetricProvider().compute(null, "ref", "gen", trace);
+        Metric ttft = new TimeToFirstTokenMetricProvider().compute(null, "ref", "gen", trace);
+        Metric input = new InputTokensMetricProvider().compute(null, "ref", "gen", trace);
+        Metric output = new OutputTokensMetricProvider().compute(null, "ref", "gen", trace);
+        Metric cost = new CostMetricProvider().compute(null, "ref", "gen", trace);
+
+        assertEquals(MetricType.LATENCY, latency.getType());
+        assertEquals("s", latency.getUnit());
+        assertEquals(1.5f, latency.getFloatValue().orElseThrow());
+        assertEquals(0.2f, ttft.getFloatValue().orElseThrow());
+        assertEquals(300f, input.getFloatValue().orElseThrow());
+        assertEquals(40f, output.getFloatValue().orElseThrow());
+        assertEquals(MetricType.COST, cost.getType());
+        assertEquals(0.004f, cost.getFloatValue().orElseThrow());
+    }
+
+    @Test
+    void producesNoMetricWhenFigureIsUnknown() {
+        TraceData trace = new TraceData();
+        trace.usage = new TraceUsage(1.5, null, null, null, null);
+
+        assertNull(new TimeToFirstTokenMetricProvider().compute(null, "ref", "gen", trace));
+        assertNull(new CostMetricProvider().compute(null, "ref", "gen", null));
+        assertFalse(new LatencyMetricProvider().isCacheable());
+    }
+}
@@ -0,0 +1,80 @@
+package it.univaq.disim.mosaico.wp2.repository.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for VectorMath.
+ */
+@DisplayName("VectorMath Tests")
+class VectorMathTest {
+
+    @Test
+    @DisplayName("Identical vectors have cosine 1")
+    void identicalVectors() {
+        float[] v = {0.3f, -1.2f, 4.0f, 0.5f, 2.2f};
+        assertEquals(1.0, VectorMath.cosine(v, v.clone()), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Orthogonal and opposite vectors")
+    void orthogonalAndOpposite() {
+        assertEquals(0.0, VectorMath.cosine(new float[] {1, 0, 0}, new float[] {0, 1, 0}), 1e-9);
+        assertEquals(-1.0, VectorMath.cosine(new float[] {1, 2, 3}, new float[] {-1, -2, -3}), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Zero vectors have cosine 0")
+    void zeroVector() {
+        assertEquals(0.0, VectorMath.cosine(new float[4], new float[] {1, 2, 3, 4}));
+    }
+
+    @Test
+    @DisplayName("Unrolled kernel matches a naive loop for odd dimensions")
+    void matchesNaiveLoop() {
+        Random random = new Random(42);
+        float[] a = new float[771];
+        float[] b = new float[771];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+        }
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        assertEquals(dot, VectorMath.dot(a, b), 1e-6);
+        assertEquals(dot / Math.sqrt(na * nb), VectorMath.cosine(a, b), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Vector API kernels match the scalar kernels")
+    void simdMatchesScalar() {
+        assumeTrue(VectorMath.simdEnabled(), "jdk.incubator.vector is not available");
+        Random random = new Random(7);
+        for (int dimension : new int[] {3, 16, 17, 384, 771, 1536}) {
+            float[] a = new float[dimension];
+            float[] b = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                a[i] = (float) random.nextGaussian();
+                b[i] = (float) random.nextGaussian();
+            }
+            assertEquals(VectorMath.scalarDot(a, b), VectorMath.dot(a, b), 1e-9);
+            assertEquals(VectorMath.scalarCosine(a, b), VectorMath.cosine(a, b), 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects vectors of different length")
+    void rejectsDifferentLengths() {
+        assertThrows(IllegalArgumentException.class,
+            () -> VectorMath.cosine(new float[3], new float[4]));
+    }
+}